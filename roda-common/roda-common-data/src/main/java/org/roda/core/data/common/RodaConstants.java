@@ -39,6 +39,18 @@ public final class RodaConstants {
   public static final String CORE_STORAGE_FEDORA4_URL = "core.storage.fedora4.url";
   public static final String CORE_STORAGE_FEDORA4_USERNAME = "core.storage.fedora4.username";
   public static final String CORE_STORAGE_FEDORA4_PASSWORD = "core.storage.fedora4.password";
+  public static final String CORE_STORAGE_FILESYSTEM_COPY_STRATEGY = "core.storage.filesystem.copy_strategy";
+  public static final String CORE_STORAGE_FILESYSTEM_COPY_THREADS = "core.storage.filesystem.copy_threads";
+  public static final String CORE_STORAGE_FILESYSTEM_FSYNC = "core.storage.filesystem.fsync";
+  public static final String CORE_STORAGE_FILESYSTEM_FSYNC_BATCH_INTERVAL = "core.storage.filesystem.fsync_batch_interval";
+  public static final String CORE_STORAGE_FILESYSTEM_TRASH_PURGE_THREADS = "core.storage.filesystem.trash_purge_threads";
+  public static final String CORE_INGEST_SIP2AIP_FILE_MATERIALIZATION = "core.ingest.sip2aip.file_materialization";
+  public static final String CORE_INGEST_SIP2AIP_THREADS = "core.ingest.sip2aip.threads";
+  public static final String CORE_TRANSFERRED_RESOURCES_SCAN_THREADS = "transferredResources.scan.threads";
+  public static final String CORE_TRANSFERRED_RESOURCES_SCAN_BATCH_SIZE = "transferredResources.scan.batch_size";
+  public static final String CORE_ACTIONLOG_REINDEX_THREADS = "core.actionlog.reindex.threads";
+  public static final String CORE_ACTIONLOG_REINDEX_BATCH_SIZE = "core.actionlog.reindex.batch_size";
+  public static final String CORE_EMAIL_POOL_SIZE = "core.email.pool_size";
   public static final String CORE_SOLR_TYPE = "core.solr.type";
   public static final String CORE_SOLR_HTTP_URL = "core.solr.http.url";
   @Deprecated
@@ -202,6 +214,7 @@ public final class RodaConstants {
   public static final String API_REST_V1_DIPFILES = "api/v1/dipfiles/";
   public static final String API_REST_V1_EVENTS = "api/v1/events/";
   public static final String API_REST_V1_AGENTS = "api/v1/agents/";
+  public static final String API_REST_V1_JOBS = "api/v1/jobs/";
   // sub-resources strings
   public static final String API_DATA = "data";
   public static final Object API_FILE = "file";
@@ -212,6 +225,7 @@ public final class RodaConstants {
   public static final String API_ACKNOWLEDGE = "acknowledge";
   public static final String API_STOP = "stop";
   public static final String API_REPORTS = "reports";
+  public static final String API_JOB_EVENTS = "events";
   // "http query string" related strings
   public static final String API_QUERY_START = "?";
   public static final String API_QUERY_ASSIGN_SYMBOL = "=";
@@ -227,6 +241,7 @@ public final class RodaConstants {
   public static final String API_QUERY_VALUE_ACCEPT_FORMAT_ZIP = "zip";
   public static final String API_QUERY_VALUE_ACCEPT_FORMAT_CSV = "csv";
   public static final String API_QUERY_VALUE_ACCEPT_FORMAT_JSONP = "jsonp";
+  public static final String API_QUERY_VALUE_ACCEPT_FORMAT_JSONL = "jsonl";
   public static final String API_QUERY_KEY_LANG = "lang";
   public static final String API_QUERY_VALUE_LANG_DEFAULT = RodaConstants.API_QUERY_VALUE_LANG_PT_PT;
   public static final String API_QUERY_VALUE_LANG_PT_PT = "pt_PT";
@@ -427,6 +442,44 @@ public final class RodaConstants {
 
   public static final StorageType DEFAULT_STORAGE_TYPE = StorageType.FILESYSTEM;
 
+  /**
+   * How the file system storage copies files: byte copy, hard link, copy-on-write
+   * clone (reflink) or clone falling back to hard link (auto). Links and clones
+   * are only used when source and target are on the same volume. Copies into
+   * or out of the repository never hard link, so there HARDLINK is the same as
+   * COPY and AUTO the same as REFLINK.
+   */
+  public enum StorageCopyStrategy {
+    COPY, HARDLINK, REFLINK, AUTO
+  }
+
+  public static final StorageCopyStrategy DEFAULT_STORAGE_COPY_STRATEGY = StorageCopyStrategy.COPY;
+
+  /**
+   * When the file system storage forces written binaries to disk: never (rely
+   * on the operating system), after each file (file and parent directory) or in
+   * batches, periodically syncing all files and directories written since the
+   * last batch.
+   */
+  public enum StorageFsyncPolicy {
+    NONE, FILE, BATCH
+  }
+
+  public static final StorageFsyncPolicy DEFAULT_STORAGE_FSYNC_POLICY = StorageFsyncPolicy.NONE;
+
+  /**
+   * How files of a SIP are placed into the storage during ingest: byte copy,
+   * copy-on-write clone (reflink), move (the SIP files are consumed) or clone
+   * falling back to copy (auto, the same as reflink). Clones and moves are only
+   * used when SIP and storage are on the same volume. HARDLINK is the same as
+   * COPY, as files are never hard linked into the repository.
+   */
+  public enum IngestFileMaterialization {
+    COPY, HARDLINK, REFLINK, MOVE, AUTO
+  }
+
+  public static final IngestFileMaterialization DEFAULT_INGEST_FILE_MATERIALIZATION = IngestFileMaterialization.COPY;
+
   public enum SolrType {
     EMBEDDED, HTTP, @Deprecated HTTP_CLOUD, CLOUD
   }
@@ -1038,6 +1091,9 @@ public final class RodaConstants {
 
   public static final String NOTIFICATION_HTTP_ENDPOINT = "ingest.http_notification.endpoint";
   public static final String NOTIFICATION_HTTP_TIMEOUT = "ingest.http_notification.timeout";
+  public static final String NOTIFICATION_HTTP_POOL_SIZE = "ingest.http_notification.pool_size";
+  public static final String NOTIFICATION_HTTP_MAX_RETRIES = "ingest.http_notification.max_retries";
+  public static final String NOTIFICATION_HTTP_RETRY_DELAY = "ingest.http_notification.retry_delay";
 
   /* DIPs */
   public static final String DIP_ID = "id";
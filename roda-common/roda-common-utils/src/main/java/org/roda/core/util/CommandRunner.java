@@ -0,0 +1,426 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs external commands (e.g. conversion tools, anti-virus, format
+ * identification).
+ *
+ * Process output is read by a shared, bounded pool of pump threads (commands
+ * wait for free pumps before starting) and can be captured (up to a max size,
+ * truncating it with a warning or, if configured, failing the command if
+ * bigger), streamed to a file or sent, line by line, to a callback. Tools with
+ * potentially big outputs should stream them to a file.
+ * Commands can have a timeout, after which the process is asked to terminate
+ * and, after a grace period, forcibly killed. The number of processes of the
+ * same tool (name of the executable) running at the same time can be limited
+ * and a {@link CommandListener} is notified of spawn and run times.
+ */
+public class CommandRunner {
+  private static final Logger LOGGER = LoggerFactory.getLogger(CommandRunner.class);
+
+  /** No timeout */
+  public static final long NO_TIMEOUT = 0;
+
+  private static final long DEFAULT_KILL_GRACE_PERIOD = 5000;
+  private static final int DEFAULT_MAX_OUTPUT_SIZE = 10 * 1024 * 1024;
+  private static final int DEFAULT_MAX_PUMP_THREADS = 256;
+  /** time the output of a terminated process is still read */
+  private static final long OUTPUT_DRAIN_TIMEOUT = 5000;
+
+  private final ThreadPoolExecutor pumps;
+  private volatile Semaphore pumpThreads;
+  private final Map<String, Semaphore> toolConcurrency = new ConcurrentHashMap<>();
+  private final Map<String, Long> toolTimeouts = new ConcurrentHashMap<>();
+  private long defaultTimeout = NO_TIMEOUT;
+  private long killGracePeriod = DEFAULT_KILL_GRACE_PERIOD;
+  private int maxOutputSize = DEFAULT_MAX_OUTPUT_SIZE;
+  private boolean failOnOutputTruncation = false;
+  private CommandListener listener = null;
+
+  public CommandRunner() {
+    this(DEFAULT_MAX_PUMP_THREADS);
+  }
+
+  /**
+   * @param maxPumpThreads
+   *          max number of threads reading the output of processes, each
+   *          process taking one or two (if error is not redirected to output)
+   */
+  public CommandRunner(int maxPumpThreads) {
+    AtomicInteger threadNumber = new AtomicInteger(1);
+    int maxThreads = Math.max(2, maxPumpThreads);
+    // pumps are only submitted with a permit, so the queue is only used while
+    // a cancelled pump is finishing
+    this.pumps = new ThreadPoolExecutor(maxThreads, maxThreads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+      runnable -> {
+        Thread thread = new Thread(runnable, "command-pump-" + threadNumber.getAndIncrement());
+        thread.setDaemon(true);
+        return thread;
+      });
+    this.pumps.allowCoreThreadTimeOut(true);
+    this.pumpThreads = new Semaphore(maxThreads, true);
+  }
+
+  /**
+   * @param maxPumpThreads
+   *          max number of threads reading the output of processes, which
+   *          limits the number of commands running at the same time (to be set
+   *          before running commands)
+   */
+  public synchronized void setMaxPumpThreads(int maxPumpThreads) {
+    int maxThreads = Math.max(2, maxPumpThreads);
+    if (maxThreads > pumps.getMaximumPoolSize()) {
+      pumps.setMaximumPoolSize(maxThreads);
+      pumps.setCorePoolSize(maxThreads);
+    } else {
+      pumps.setCorePoolSize(maxThreads);
+      pumps.setMaximumPoolSize(maxThreads);
+    }
+    this.pumpThreads = new Semaphore(maxThreads, true);
+  }
+
+  /**
+   * @param timeoutInMillis
+   *          timeout applied to commands of tools without a specific timeout
+   *          ({@link #NO_TIMEOUT} to wait forever)
+   */
+  public void setDefaultTimeout(long timeoutInMillis) {
+    this.defaultTimeout = Math.max(NO_TIMEOUT, timeoutInMillis);
+  }
+
+  public void setToolTimeout(String tool, long timeoutInMillis) {
+    toolTimeouts.put(tool, Math.max(NO_TIMEOUT, timeoutInMillis));
+  }
+
+  /**
+   * @param maxConcurrent
+   *          max number of processes of the tool running at the same time
+   */
+  public void setToolConcurrency(String tool, int maxConcurrent) {
+    toolConcurrency.put(tool, new Semaphore(Math.max(1, maxConcurrent), true));
+  }
+
+  /**
+   * @param killGracePeriodInMillis
+   *          time a timed out process is given to terminate before being
+   *          forcibly killed
+   */
+  public void setKillGracePeriod(long killGracePeriodInMillis) {
+    this.killGracePeriod = Math.max(0, killGracePeriodInMillis);
+  }
+
+  /**
+   * @param maxOutputSize
+   *          max number of characters of captured output, the rest being
+   *          discarded
+   */
+  public void setMaxOutputSize(int maxOutputSize) {
+    this.maxOutputSize = Math.max(0, maxOutputSize);
+  }
+
+  /**
+   * @param failOnOutputTruncation
+   *          if true, commands with a captured output bigger than the max
+   *          output size fail, otherwise the output is truncated with a
+   *          warning
+   */
+  public void setFailOnOutputTruncation(boolean failOnOutputTruncation) {
+    this.failOnOutputTruncation = failOnOutputTruncation;
+  }
+
+  public void setListener(CommandListener listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * Tool name of a command line, i.e. the file name of the executable
+   */
+  public static String getToolName(List<String> args) {
+    if (args.isEmpty()) {
+      return "";
+    }
+    Path fileName = Paths.get(args.get(0)).getFileName();
+    return fileName != null ? fileName.toString() : args.get(0);
+  }
+
+  /**
+   * Execute the command line, capturing its output.
+   *
+   * @param timeoutInMillis
+   *          timeout, or null to use the tool (or default) timeout
+   * @return the output of the command.
+   *
+   * @throws CommandException
+   *           if the command could not be executed, timed out, terminated
+   *           with an error code or, if failing on output truncation, its
+   *           output is bigger than the max output size (the exception has
+   *           the output up to that size)
+   */
+  public String execute(List<String> args, boolean withErrorStream, Long timeoutInMillis) throws CommandException {
+    OutputCapture capture = new OutputCapture(maxOutputSize);
+    run(args, withErrorStream, timeoutInMillis, is -> readLines(is, capture), capture);
+    return capture.toString();
+  }
+
+  /**
+   * Execute the command line, streaming its output into a file.
+   *
+   * @throws CommandException
+   *           if the command could not be executed, timed out or terminated
+   *           with an error code
+   */
+  public void execute(List<String> args, boolean withErrorStream, Long timeoutInMillis, Path outputFile)
+    throws CommandException {
+    run(args, withErrorStream, timeoutInMillis, is -> {
+      try (OutputStream out = Files.newOutputStream(outputFile)) {
+        IOUtils.copyLarge(is, out);
+      }
+    }, null);
+  }
+
+  /**
+   * Execute the command line, sending each line of its output to a consumer
+   * (called by a pump thread).
+   *
+   * @throws CommandException
+   *           if the command could not be executed, timed out or terminated
+   *           with an error code
+   */
+  public void execute(List<String> args, boolean withErrorStream, Long timeoutInMillis,
+    Consumer<String> lineConsumer) throws CommandException {
+    run(args, withErrorStream, timeoutInMillis, is -> readLines(is, lineConsumer), null);
+  }
+
+  private void run(List<String> args, boolean withErrorStream, Long timeoutInMillis, OutputPump outputPump,
+    OutputCapture capture) throws CommandException {
+    String tool = getToolName(args);
+    long timeout = timeoutInMillis != null ? timeoutInMillis : toolTimeouts.getOrDefault(tool, defaultTimeout);
+    Semaphore concurrency = toolConcurrency.get(tool);
+
+    LOGGER.debug("Executing {}", args);
+
+    boolean acquired = false;
+    Semaphore pumpPermits = pumpThreads;
+    int pumpsNeeded = withErrorStream ? 1 : 2;
+    boolean pumpsAcquired = false;
+    Process process = null;
+    try {
+      if (concurrency != null) {
+        concurrency.acquire();
+        acquired = true;
+      }
+      pumpPermits.acquire(pumpsNeeded);
+      pumpsAcquired = true;
+
+      long start = System.nanoTime();
+      ProcessBuilder processBuilder = new ProcessBuilder(args);
+      processBuilder.redirectErrorStream(withErrorStream);
+      process = processBuilder.start();
+      long spawnTime = System.nanoTime() - start;
+
+      // pump output (and error, to prevent the process from blocking)
+      InputStream is = process.getInputStream();
+      Future<?> outputFuture = pumps.submit(() -> {
+        outputPump.pump(is);
+        return null;
+      });
+      Future<?> errorFuture = null;
+      if (!withErrorStream) {
+        InputStream es = process.getErrorStream();
+        errorFuture = pumps.submit(() -> {
+          readLines(es, line -> LOGGER.trace("{}: {}", tool, line));
+          return null;
+        });
+      }
+
+      boolean timedOut = !waitFor(process, timeout);
+      if (timedOut) {
+        kill(process, args);
+      }
+
+      int exitValue = timedOut ? -1 : process.exitValue();
+      long runTime = System.nanoTime() - start;
+
+      // wait for the pumps, which may still be reading buffered output
+      awaitPump(outputFuture, process, args);
+      if (errorFuture != null) {
+        awaitPump(errorFuture, process, args);
+      }
+      String output = capture != null ? capture.toString() : null;
+
+      notifyListener(tool, spawnTime, runTime, exitValue, timedOut);
+      LOGGER.debug("Command {} terminated with value {}", args, exitValue);
+
+      if (timedOut) {
+        throw new CommandException("Command " + args + " timed out after " + timeout + " ms", exitValue, output);
+      } else if (exitValue != 0) {
+        throw new CommandException("Command " + args + " terminated with error code " + exitValue, exitValue,
+          output);
+      } else if (capture != null && capture.isTruncated()) {
+        if (failOnOutputTruncation) {
+          throw new CommandException(
+            "Output of command " + args + " is bigger than " + maxOutputSize + " characters", exitValue, output);
+        }
+        LOGGER.warn("Output of command {} is bigger than {} characters, it was truncated", args, maxOutputSize);
+      }
+    } catch (IOException | InterruptedException e) {
+      if (e instanceof InterruptedException) {
+        Thread.currentThread().interrupt();
+      }
+      if (process != null) {
+        process.destroyForcibly();
+      }
+      LOGGER.debug("Error executing command {}", args, e);
+      throw new CommandException("Error executing command " + args + " - " + e.getMessage(), e);
+    } finally {
+      if (pumpsAcquired) {
+        pumpPermits.release(pumpsNeeded);
+      }
+      if (acquired) {
+        concurrency.release();
+      }
+    }
+  }
+
+  private static boolean waitFor(Process process, long timeout) throws InterruptedException {
+    if (timeout > NO_TIMEOUT) {
+      return process.waitFor(timeout, TimeUnit.MILLISECONDS);
+    } else {
+      process.waitFor();
+      return true;
+    }
+  }
+
+  private void kill(Process process, List<String> args) throws InterruptedException {
+    LOGGER.warn("Command {} timed out, terminating it", args);
+    process.destroy();
+    if (!process.waitFor(killGracePeriod, TimeUnit.MILLISECONDS)) {
+      LOGGER.warn("Command {} did not terminate, killing it", args);
+      process.destroyForcibly().waitFor();
+    }
+  }
+
+  private void awaitPump(Future<?> pump, Process process, List<String> args) throws IOException, InterruptedException {
+    try {
+      // child processes may keep the pipe open after the process ends
+      pump.get(OUTPUT_DRAIN_TIMEOUT, TimeUnit.MILLISECONDS);
+    } catch (ExecutionException e) {
+      throw new IOException("Error reading output of command " + args, e.getCause());
+    } catch (TimeoutException e) {
+      LOGGER.warn("Output of command {} still open after it terminated, closing it", args);
+      IOUtils.closeQuietly(process.getInputStream());
+      IOUtils.closeQuietly(process.getErrorStream());
+      pump.cancel(true);
+    }
+  }
+
+  private void notifyListener(String tool, long spawnTime, long runTime, int exitValue, boolean timedOut) {
+    if (listener != null) {
+      try {
+        listener.commandFinished(tool, spawnTime, runTime, exitValue, timedOut);
+      } catch (RuntimeException e) {
+        LOGGER.warn("Error notifying command listener", e);
+      }
+    }
+  }
+
+  private static void readLines(InputStream is, Consumer<String> lineConsumer) throws IOException {
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(is))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        lineConsumer.accept(line);
+      }
+    }
+  }
+
+  /**
+   * Shutdown the output pumps
+   */
+  public void shutdown() {
+    pumps.shutdownNow();
+  }
+
+  @FunctionalInterface
+  private interface OutputPump {
+    void pump(InputStream is) throws IOException;
+  }
+
+  private static class OutputCapture implements Consumer<String> {
+    private final StringBuffer buffer = new StringBuffer();
+    private final int maxSize;
+    private volatile boolean truncated = false;
+
+    public OutputCapture(int maxSize) {
+      this.maxSize = maxSize;
+    }
+
+    @Override
+    public void accept(String line) {
+      if (buffer.length() + line.length() <= maxSize) {
+        buffer.append(line).append(System.lineSeparator());
+        LOGGER.trace(line);
+      } else if (!truncated) {
+        truncated = true;
+        LOGGER.debug("Command output bigger than {} characters, discarding the rest", maxSize);
+      }
+    }
+
+    public boolean isTruncated() {
+      return truncated;
+    }
+
+    @Override
+    public String toString() {
+      return buffer.toString();
+    }
+  }
+
+  /**
+   * Listener of command executions, e.g. to collect metrics
+   */
+  @FunctionalInterface
+  public interface CommandListener {
+    /**
+     * @param tool
+     *          tool name, i.e. executable file name
+     * @param spawnTimeInNanos
+     *          time spent starting the process
+     * @param runTimeInNanos
+     *          time since starting the process until it terminated
+     * @param exitValue
+     *          exit value (-1 if timed out)
+     */
+    void commandFinished(String tool, long spawnTimeInNanos, long runTimeInNanos, int exitValue, boolean timedOut);
+  }
+}
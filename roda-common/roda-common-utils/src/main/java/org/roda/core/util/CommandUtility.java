@@ -7,17 +7,10 @@
  */
 package org.roda.core.util;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.List;
 
-import org.apache.commons.io.IOUtils;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
 /**
  * System command utility.
  * 
@@ -25,7 +18,7 @@ import org.slf4j.LoggerFactory;
  * @author Luis Faria
  */
 public class CommandUtility {
-  private static final Logger LOGGER = LoggerFactory.getLogger(CommandUtility.class);
+  private static final CommandRunner RUNNER = new CommandRunner();
 
   private CommandUtility() {
     // do nothing
@@ -56,60 +49,7 @@ public class CommandUtility {
    * @throws CommandException
    */
   public static String execute(boolean withErrorStream, String... args) throws CommandException {
-    int exitValue = 0;
-    String output;
-
-    try {
-      StringBuilder builder = new StringBuilder();
-      for (String arg : args) {
-        builder.append(arg + " ");
-      }
-
-      LOGGER.debug("Executing {}", builder);
-
-      // create and execute process
-      ProcessBuilder processBuilder = new ProcessBuilder(args);
-      processBuilder.redirectErrorStream(withErrorStream);
-      Process process = processBuilder.start();
-
-      // Get process output
-      InputStream is = process.getInputStream();
-      CaptureOutputThread captureOutputThread = new CaptureOutputThread(is);
-
-      synchronized (is) {
-        captureOutputThread.start();
-
-        // Wait until the CaptureOutputThread notifies that is finished
-        // reading the input stream.
-        LOGGER.debug("Waiting until CaptureOutputThread notifies");
-        is.wait();
-      }
-
-      LOGGER.debug("CaptureOutputThread notified. Getting output...");
-      output = captureOutputThread.output;
-
-      // Get process exit value
-      exitValue = process.waitFor();
-
-      IOUtils.closeQuietly(is);
-
-      if (LOGGER.isDebugEnabled()) {
-        LOGGER.debug("Command {} terminated with value {}", Arrays.toString(args), exitValue);
-      }
-
-      if (exitValue == 0) {
-        return output;
-      } else {
-        throw new CommandException("Command " + Arrays.toString(args) + " terminated with error code " + exitValue,
-          exitValue, output);
-      }
-
-    } catch (IOException | InterruptedException e) {
-      if (LOGGER.isDebugEnabled()) {
-        LOGGER.debug("Error executing command {}", Arrays.toString(args), e);
-      }
-      throw new CommandException("Error executing command " + Arrays.toString(args) + " - " + e.getMessage(), e);
-    }
+    return execute(Arrays.asList(args), withErrorStream);
   }
 
   /**
@@ -127,42 +67,48 @@ public class CommandUtility {
   }
 
   public static String execute(List<String> args, boolean withErrorStream) throws CommandException {
-    return execute(withErrorStream, args.toArray(new String[args.size()]));
+    return RUNNER.execute(args, withErrorStream, null);
   }
 
-}
-
-class CaptureOutputThread extends Thread {
-  private static final Logger logger = LoggerFactory.getLogger(CaptureOutputThread.class);
-
-  InputStream is;
-  String output;
-
-  public CaptureOutputThread(InputStream is) {
-    this.is = is;
+  /**
+   * Execute the given command line, failing if it does not terminate in time.
+   * 
+   * @param args
+   *          the command line as a list of arguments.
+   * @param timeoutInMillis
+   *          max time the command can take
+   *          ({@link CommandRunner#NO_TIMEOUT} to wait forever)
+   * 
+   * @return a {@link String} with the output of the command.
+   * 
+   * @throws CommandException
+   */
+  public static String execute(List<String> args, boolean withErrorStream, long timeoutInMillis)
+    throws CommandException {
+    return RUNNER.execute(args, withErrorStream, timeoutInMillis);
   }
 
-  @Override
-  public void run() {
-    StringBuilder outputBuffer = new StringBuilder();
-
-    try {
-      BufferedReader reader = new BufferedReader(new InputStreamReader(is));
-      String line;
-
-      while ((line = reader.readLine()) != null) {
-        outputBuffer.append(line + System.lineSeparator());
-        logger.trace(line);
-      }
-
-    } catch (IOException e) {
-      logger.error("Exception reading from inputstream", e);
-    }
-
-    output = outputBuffer.toString();
+  /**
+   * Execute the given command line, streaming its output into a file (for
+   * commands with outputs too big to be kept in memory).
+   * 
+   * @param args
+   *          the command line as a list of arguments.
+   * @param outputFile
+   *          file where the output is written
+   * 
+   * @throws CommandException
+   */
+  public static void execute(List<String> args, boolean withErrorStream, Path outputFile) throws CommandException {
+    RUNNER.execute(args, withErrorStream, null, outputFile);
+  }
 
-    synchronized (is) {
-      is.notify();
-    }
+  /**
+   * Runner shared by all commands, which can be configured with timeouts,
+   * concurrency limits and a listener
+   */
+  public static CommandRunner getRunner() {
+    return RUNNER;
   }
+
 }
@@ -24,6 +24,8 @@ import org.roda.core.RodaCoreFactory;
 import org.roda.core.TestsHelper;
 import org.roda.core.data.common.RodaConstants;
 import org.roda.core.data.v2.index.IndexResult;
+import org.roda.core.data.v2.index.filter.Filter;
+import org.roda.core.data.v2.index.filter.SimpleFilterParameter;
 import org.roda.core.data.v2.index.sublist.Sublist;
 import org.roda.core.data.v2.ip.TransferredResource;
 import org.roda.core.index.IndexService;
@@ -231,6 +233,41 @@ public class MonitorIndexTest {
     assertEquals(resultBeforeRemoves, resultAfterRemoves + 1);
   }
 
+  @Test
+  public void testMoveFolder() throws Exception {
+    String transferredResourcesFolder = RodaCoreFactory.getRodaConfiguration().getString("transferredResources.folder",
+      RodaConstants.CORE_TRANSFERREDRESOURCE_FOLDER);
+    Path sips = RodaCoreFactory.getDataPath().resolve(transferredResourcesFolder);
+    TransferredResourcesScanner monitor = new TransferredResourcesScanner(sips, index);
+    populate(sips);
+    monitor.updateTransferredResources(Optional.empty(), true);
+
+    long resultBeforeMove = index.count(TransferredResource.class, Filter.ALL);
+    TransferredResource folder = null;
+    for (TransferredResource tr : index.find(TransferredResource.class, Filter.ALL, null,
+      new Sublist(0, (int) resultBeforeMove), new ArrayList<>()).getResults()) {
+      if (!tr.isFile() && index.count(TransferredResource.class,
+        new Filter(new SimpleFilterParameter(RodaConstants.TRANSFERRED_RESOURCE_ANCESTORS, tr.getRelativePath()))) > 0) {
+        folder = tr;
+        break;
+      }
+    }
+
+    Filter oldDescendants = new Filter(
+      new SimpleFilterParameter(RodaConstants.TRANSFERRED_RESOURCE_ANCESTORS, folder.getRelativePath()));
+    long descendants = index.count(TransferredResource.class, oldDescendants);
+
+    // moving keeps the modification dates of the folder and its contents
+    Path oldPath = Paths.get(folder.getFullPath());
+    Path newPath = Files.move(oldPath, oldPath.resolveSibling(IdUtils.createUUID()));
+    monitor.updateTransferredResources(Optional.empty(), true);
+
+    assertEquals(resultBeforeMove, index.count(TransferredResource.class, Filter.ALL).longValue());
+    assertEquals(0, index.count(TransferredResource.class, oldDescendants).longValue());
+    assertEquals(descendants, index.count(TransferredResource.class, new Filter(new SimpleFilterParameter(
+      RodaConstants.TRANSFERRED_RESOURCE_ANCESTORS, sips.relativize(newPath).toString()))).longValue());
+  }
+
   private static void populate(Path basePath) throws IOException {
     Random randomno = new Random();
     int numberOfItemsByLevel = nextIntInRange(2, 3, randomno);
@@ -0,0 +1,170 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.common.notifications;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.IOUtils;
+import org.roda.core.RodaCoreFactory;
+import org.roda.core.TestsHelper;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.exceptions.RODAException;
+import org.roda.core.data.v2.jobs.Job;
+import org.roda.core.data.v2.notifications.Notification;
+import org.roda.core.data.v2.notifications.Notification.NOTIFICATION_STATE;
+import org.roda.core.model.ModelService;
+import org.roda.core.storage.fs.FSUtils;
+import org.roda.core.util.IdUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+@Test(groups = {RodaConstants.TEST_GROUP_ALL, RodaConstants.TEST_GROUP_TRAVIS})
+public class HTTPNotificationDeliveryTest {
+  private static final long TIMEOUT = 10000;
+
+  private static Path basePath;
+  private static ModelService model;
+
+  private HttpServer server;
+  private String endpoint;
+  private final AtomicInteger requests = new AtomicInteger(0);
+  private volatile int responseStatus;
+
+  @BeforeClass
+  public static void setUp() throws IOException {
+    basePath = TestsHelper.createBaseTempDir(HTTPNotificationDeliveryTest.class, true);
+
+    boolean deploySolr = false;
+    boolean deployLdap = false;
+    boolean deployFolderMonitor = false;
+    boolean deployOrchestrator = false;
+    boolean deployPluginManager = false;
+    boolean deployDefaultResources = false;
+    RodaCoreFactory.instantiateTest(deploySolr, deployLdap, deployFolderMonitor, deployOrchestrator,
+      deployPluginManager, deployDefaultResources);
+    RodaCoreFactory.getRodaConfiguration().setProperty(RodaConstants.NOTIFICATION_HTTP_RETRY_DELAY, 100);
+
+    model = RodaCoreFactory.getModelService();
+  }
+
+  @AfterClass
+  public static void tearDown() throws RODAException {
+    RodaCoreFactory.shutdown();
+    FSUtils.deletePath(basePath);
+  }
+
+  @BeforeMethod
+  public void startServer() throws IOException {
+    requests.set(0);
+    responseStatus = 200;
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext("/", exchange -> {
+      requests.incrementAndGet();
+      IOUtils.toByteArray(exchange.getRequestBody());
+      exchange.sendResponseHeaders(responseStatus, -1);
+      exchange.close();
+    });
+    server.start();
+    endpoint = "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/";
+    HTTPNotificationDelivery.resumePending();
+  }
+
+  @AfterMethod
+  public void stopServer() {
+    server.stop(0);
+  }
+
+  @Test
+  public void testAny2xxIsDelivered() throws RODAException, InterruptedException {
+    responseStatus = 202;
+    Notification notification = createNotification();
+
+    waitForState(notification.getId(), NOTIFICATION_STATE.COMPLETED);
+    Assert.assertEquals(requests.get(), 1);
+    Assert.assertFalse(Files.exists(getQueueEntry(notification)));
+  }
+
+  @Test
+  public void testFailedDeliveryIsRetried() throws RODAException, InterruptedException {
+    responseStatus = 500;
+    Notification notification = createNotification();
+
+    long end = System.currentTimeMillis() + TIMEOUT;
+    while (requests.get() < 2 && System.currentTimeMillis() < end) {
+      Thread.sleep(50);
+    }
+    Assert.assertTrue(requests.get() >= 2);
+    // waiting for the next attempt
+    Assert.assertTrue(Files.exists(getQueueEntry(notification)));
+
+    responseStatus = 200;
+    waitForState(notification.getId(), NOTIFICATION_STATE.COMPLETED);
+    Assert.assertFalse(Files.exists(getQueueEntry(notification)));
+  }
+
+  @Test
+  public void testQueuedDeliveryIsResumed() throws RODAException, InterruptedException {
+    HTTPNotificationDelivery.shutdown();
+    Notification notification = createNotification();
+
+    // it is only queued while delivery is stopped
+    Thread.sleep(500);
+    Assert.assertEquals(requests.get(), 0);
+    Assert.assertTrue(Files.exists(getQueueEntry(notification)));
+    Assert.assertEquals(model.retrieveNotification(notification.getId()).getState(), NOTIFICATION_STATE.CREATED);
+
+    HTTPNotificationDelivery.resumePending();
+    waitForState(notification.getId(), NOTIFICATION_STATE.COMPLETED);
+    Assert.assertEquals(requests.get(), 1);
+    Assert.assertFalse(Files.exists(getQueueEntry(notification)));
+  }
+
+  private Notification createNotification() throws RODAException {
+    Job job = new Job();
+    job.setId(IdUtils.createUUID());
+    job.setName("test");
+    Map<String, Object> scope = new HashMap<>();
+    scope.put(HTTPNotificationProcessor.JOB_KEY, job);
+
+    Notification notification = new Notification();
+    notification.setSubject("test");
+    notification.setFromUser("test");
+    notification.setRecipientUsers(Collections.singletonList(endpoint));
+    return model.createNotification(notification, new HTTPNotificationProcessor(endpoint, scope));
+  }
+
+  private static void waitForState(String notificationId, NOTIFICATION_STATE state)
+    throws RODAException, InterruptedException {
+    long end = System.currentTimeMillis() + TIMEOUT;
+    while (model.retrieveNotification(notificationId).getState() != state) {
+      if (System.currentTimeMillis() > end) {
+        Assert.fail("Notification " + notificationId + " did not reach state " + state);
+      }
+      Thread.sleep(50);
+    }
+  }
+
+  private static Path getQueueEntry(Notification notification) {
+    return RodaCoreFactory.getDataPath().resolve(HTTPNotificationDelivery.QUEUE_FOLDER)
+      .resolve(notification.getId() + RodaConstants.NOTIFICATION_FILE_EXTENSION);
+  }
+}
@@ -0,0 +1,181 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.common.tools;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.stream.Stream;
+import java.util.zip.ZipFile;
+
+import org.apache.commons.io.IOUtils;
+import org.roda.core.TestsHelper;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.exceptions.RODAException;
+import org.roda.core.storage.StringContentPayload;
+import org.roda.core.storage.fs.FSUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test(groups = {RodaConstants.TEST_GROUP_ALL, RodaConstants.TEST_GROUP_TRAVIS})
+public class ParallelZipWriterTest {
+
+  private Path basePath;
+  private ExecutorService executor;
+  private ParallelZipWriter zipWriter;
+
+  @BeforeMethod
+  public void setUp() throws IOException {
+    basePath = TestsHelper.createBaseTempDir(ParallelZipWriterTest.class, false);
+    executor = Executors.newFixedThreadPool(4);
+    zipWriter = new ParallelZipWriter(executor, 8, basePath);
+  }
+
+  @AfterMethod
+  public void tearDown() throws RODAException {
+    executor.shutdownNow();
+    FSUtils.deletePath(basePath);
+  }
+
+  @Test
+  public void testZipToFile() throws IOException {
+    Path zipFile = basePath.resolve("file.zip");
+    zipWriter.zip(createEntries(100, new AtomicInteger()).iterator(), zipFile);
+
+    try (ZipFile zip = new ZipFile(zipFile.toFile())) {
+      assertEntries(zip, 100);
+      // stored entries are kept as such when the zip is seekable
+      Assert.assertEquals(zip.getEntry("dir/file0").getMethod(), ZipEntry.STORED);
+      Assert.assertEquals(zip.getEntry("dir/file1").getMethod(), ZipEntry.DEFLATED);
+    }
+  }
+
+  @Test
+  public void testZipToStreamReadsEachEntryOnce() throws IOException {
+    Path zipFile = basePath.resolve("stream.zip");
+    AtomicInteger reads = new AtomicInteger();
+    try (OutputStream out = Files.newOutputStream(zipFile)) {
+      zipWriter.zip(createEntries(100, reads).iterator(), out);
+    }
+
+    Assert.assertEquals(reads.get(), 100);
+    try (ZipFile zip = new ZipFile(zipFile.toFile())) {
+      assertEntries(zip, 100);
+      // the compression policy is kept when streaming
+      Assert.assertEquals(zip.getEntry("dir/file0").getMethod(), ZipEntry.STORED);
+      Assert.assertEquals(zip.getEntry("dir/file1").getMethod(), ZipEntry.DEFLATED);
+    }
+  }
+
+  @Test
+  public void testFailureLeavesNoScatterFiles() throws IOException {
+    List<ZipEntryInfo> entries = new ArrayList<>();
+    entries.add(new ZipEntryInfo("failing", new StringContentPayload("content") {
+      @Override
+      public InputStream createInputStream() throws IOException {
+        throw new IOException("Simulated failure");
+      }
+    }));
+    for (int i = 0; i < 20; i++) {
+      entries.add(new ZipEntryInfo("slow" + i, new StringContentPayload(content(i)) {
+        @Override
+        public InputStream createInputStream() throws IOException {
+          try {
+            Thread.sleep(50);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          return super.createInputStream();
+        }
+      }));
+    }
+
+    try (OutputStream out = Files.newOutputStream(basePath.resolve("failed.zip"))) {
+      zipWriter.zip(entries.iterator(), out);
+      Assert.fail("Zip should have failed");
+    } catch (IOException e) {
+      // expected
+    }
+
+    // entries being prepared when the zip failed are waited for
+    try (Stream<Path> files = Files.list(basePath)) {
+      Assert.assertEquals(files.filter(p -> p.toString().endsWith(".scatter")).count(), 0);
+    }
+  }
+
+  @Test
+  public void testZip64EntryCount() throws IOException {
+    // more entries than fit in the (non ZIP64) end of central directory
+    int count = 70000;
+    Path zipFile = basePath.resolve("zip64.zip");
+    zipWriter.zip(new Iterator<ZipEntryInfo>() {
+      int i = 0;
+
+      @Override
+      public boolean hasNext() {
+        return i < count;
+      }
+
+      @Override
+      public ZipEntryInfo next() {
+        return new ZipEntryInfo("dir" + i++ + "/");
+      }
+    }, zipFile);
+
+    try (ZipFile zip = new ZipFile(zipFile.toFile())) {
+      Assert.assertEquals(zip.size(), count);
+    }
+  }
+
+  private static List<ZipEntryInfo> createEntries(int files, AtomicInteger reads) {
+    List<ZipEntryInfo> entries = new ArrayList<>();
+    entries.add(new ZipEntryInfo("dir/"));
+    for (int i = 0; i < files; i++) {
+      ZipEntryInfo entry = new ZipEntryInfo("dir/file" + i, new StringContentPayload(content(i)) {
+        @Override
+        public InputStream createInputStream() throws IOException {
+          reads.incrementAndGet();
+          return super.createInputStream();
+        }
+      });
+      entry.setCompressionMethod(i % 2 == 0 ? ZipEntry.STORED : ZipEntry.DEFLATED);
+      entries.add(entry);
+    }
+    return entries;
+  }
+
+  private static void assertEntries(ZipFile zip, int files) throws IOException {
+    Assert.assertEquals(zip.size(), files + 1);
+    Assert.assertTrue(zip.getEntry("dir/").isDirectory());
+    for (int i = 0; i < files; i++) {
+      try (InputStream in = zip.getInputStream(zip.getEntry("dir/file" + i))) {
+        Assert.assertEquals(IOUtils.toString(in, StandardCharsets.UTF_8), content(i));
+      }
+    }
+  }
+
+  private static String content(int i) {
+    StringBuilder content = new StringBuilder();
+    for (int j = 0; j <= i; j++) {
+      content.append("content of file ").append(i).append('\n');
+    }
+    return content.toString();
+  }
+}
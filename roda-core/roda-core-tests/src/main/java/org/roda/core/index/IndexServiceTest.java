@@ -13,8 +13,11 @@ import static org.testng.AssertJUnit.assertTrue;
 
 import java.io.IOException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -36,6 +39,7 @@ import org.hamcrest.collection.IsCollectionWithSize;
 import org.roda.core.CorporaConstants;
 import org.roda.core.RodaCoreFactory;
 import org.roda.core.TestsHelper;
+import org.roda.core.common.iterables.CloseableIterable;
 import org.roda.core.common.RodaUtils;
 import org.roda.core.common.notifications.EmailNotificationProcessor;
 import org.roda.core.data.common.RodaConstants;
@@ -43,14 +47,18 @@ import org.roda.core.data.exceptions.AlreadyExistsException;
 import org.roda.core.data.exceptions.AuthorizationDeniedException;
 import org.roda.core.data.exceptions.GenericException;
 import org.roda.core.data.exceptions.IllegalOperationException;
+import org.roda.core.data.exceptions.LogEntryJsonParseException;
 import org.roda.core.data.exceptions.NotFoundException;
 import org.roda.core.data.exceptions.RODAException;
 import org.roda.core.data.exceptions.RequestNotValidException;
+import org.roda.core.data.utils.JsonUtils;
+import org.roda.core.data.v2.common.OptionalWithCause;
 import org.roda.core.data.v2.index.IndexResult;
 import org.roda.core.data.v2.index.IndexRunnable;
 import org.roda.core.data.v2.index.filter.EmptyKeyFilterParameter;
 import org.roda.core.data.v2.index.filter.Filter;
 import org.roda.core.data.v2.index.filter.SimpleFilterParameter;
+import org.roda.core.data.v2.index.sort.SortParameter;
 import org.roda.core.data.v2.index.sort.Sorter;
 import org.roda.core.data.v2.index.sublist.Sublist;
 import org.roda.core.data.v2.ip.AIP;
@@ -70,12 +78,16 @@ import org.roda.core.data.v2.ri.RepresentationInformation;
 import org.roda.core.data.v2.risks.IndexedRisk;
 import org.roda.core.data.v2.risks.Risk;
 import org.roda.core.data.v2.risks.Risk.SEVERITY_LEVEL;
+import org.roda.core.data.v2.risks.RiskIncidence;
+import org.roda.core.data.v2.risks.RiskIncidence.INCIDENCE_STATUS;
 import org.roda.core.data.v2.user.Group;
 import org.roda.core.data.v2.user.RODAMember;
 import org.roda.core.data.v2.user.User;
 import org.roda.core.data.v2.validation.ValidationException;
+import org.roda.core.index.utils.IterableIndexResult;
 import org.roda.core.index.utils.SolrUtils;
 import org.roda.core.model.ModelService;
+import org.roda.core.model.iterables.LogEntryFileSystemIterable;
 import org.roda.core.storage.DefaultStoragePath;
 import org.roda.core.storage.StorageService;
 import org.roda.core.storage.fs.FSUtils;
@@ -490,6 +502,61 @@ public class IndexServiceTest {
     MatcherAssert.assertThat(entries2.getTotalCount(), Matchers.is(number));
   }
 
+  @Test
+  public void testReindexLogEntriesInParallelBatches() throws GenericException, RequestNotValidException, IOException {
+    int files = 3;
+    int entriesPerFile = 5;
+    String address = IdUtils.createUUID();
+    Path logsPath = basePath.resolve("parallel-logs");
+    Files.createDirectories(logsPath);
+
+    List<CloseableIterable<OptionalWithCause<LogEntry>>> logFiles = new ArrayList<>();
+    for (int i = 0; i < files; i++) {
+      Path logFile = logsPath.resolve("2017-01-0" + (i + 1) + ".log");
+      for (int j = 0; j < entriesPerFile; j++) {
+        LogEntry entry = new LogEntry();
+        entry.setId(address + "-" + i + "-" + j);
+        entry.setActionComponent("ACTION:" + j);
+        entry.setAddress(address);
+        entry.setDatetime(new Date());
+        entry.setState(LOG_ENTRY_STATE.SUCCESS);
+        JsonUtils.appendObjectToFile(entry, logFile);
+      }
+      logFiles.add(new LogEntryFileSystemIterable(Collections.singletonList(logFile)));
+    }
+
+    // a broken line in the middle of the last file
+    Path lastFile = logsPath.resolve("2017-01-0" + files + ".log");
+    Files.write(lastFile, "{not json\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+    LogEntry lastEntry = new LogEntry();
+    lastEntry.setId(address + "-last");
+    lastEntry.setAddress(address);
+    lastEntry.setDatetime(new Date());
+    lastEntry.setState(LOG_ENTRY_STATE.SUCCESS);
+    JsonUtils.appendObjectToFile(lastEntry, lastFile);
+
+    // batches smaller than the files, one thread per file
+    RodaCoreFactory.getRodaConfiguration().setProperty(RodaConstants.CORE_ACTIONLOG_REINDEX_BATCH_SIZE, 2);
+    RodaCoreFactory.getRodaConfiguration().setProperty(RodaConstants.CORE_ACTIONLOG_REINDEX_THREADS, files);
+    List<OptionalWithCause<LogEntry>> failures = Collections.synchronizedList(new ArrayList<>());
+    long indexed;
+    try {
+      indexed = index.reindexActionLogs(logFiles, failures::add);
+    } finally {
+      RodaCoreFactory.getRodaConfiguration().clearProperty(RodaConstants.CORE_ACTIONLOG_REINDEX_BATCH_SIZE);
+      RodaCoreFactory.getRodaConfiguration().clearProperty(RodaConstants.CORE_ACTIONLOG_REINDEX_THREADS);
+    }
+
+    long expected = files * entriesPerFile + 1L;
+    assertEquals(expected, indexed);
+    MatcherAssert.assertThat(failures, IsCollectionWithSize.hasSize(1));
+    MatcherAssert.assertThat(failures.get(0).getCause(), Matchers.instanceOf(LogEntryJsonParseException.class));
+
+    // all committed, without the caller committing
+    Filter filter = new Filter(new SimpleFilterParameter(RodaConstants.LOG_ADDRESS, address));
+    assertEquals(expected, index.count(LogEntry.class, filter).longValue());
+  }
+
   @Test
   public void testReindexAIP() throws ParseException, RequestNotValidException, GenericException,
     AuthorizationDeniedException, AlreadyExistsException, NotFoundException, ValidationException {
@@ -654,6 +721,39 @@ public class IndexServiceTest {
     }
   }
 
+  @Test
+  public void testRiskIncidencesCreatedInBatch() throws RODAException {
+    String riskId = IdUtils.createUUID();
+    List<RiskIncidence> incidences = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      RiskIncidence incidence = new RiskIncidence();
+      incidence.setRiskId(riskId);
+      incidence.setAipId("AIP" + i);
+      incidence.setObjectClass(AIP.class.getSimpleName());
+      incidence.setStatus(INCIDENCE_STATUS.UNMITIGATED);
+      incidence.setSeverity(SEVERITY_LEVEL.MODERATE);
+      incidences.add(incidence);
+    }
+
+    List<RiskIncidence> created = model.createRiskIncidences(incidences, true);
+    MatcherAssert.assertThat(created, IsCollectionWithSize.hasSize(incidences.size()));
+    Set<String> ids = created.stream().map(RiskIncidence::getId).collect(Collectors.toSet());
+    MatcherAssert.assertThat(ids, IsCollectionWithSize.hasSize(incidences.size()));
+
+    // stored and indexed, committed by the single batch
+    Filter filter = new Filter(new SimpleFilterParameter(RodaConstants.RISK_INCIDENCE_RISK_ID, riskId));
+    assertEquals(incidences.size(), index.count(RiskIncidence.class, filter).intValue());
+    for (RiskIncidence incidence : created) {
+      assertNotNull(incidence.getDetectedOn());
+      RiskIncidence stored = model.retrieveRiskIncidence(incidence.getId());
+      assertEquals(incidence.getAipId(), stored.getAipId());
+      RiskIncidence indexed = index.retrieve(RiskIncidence.class, incidence.getId(), new ArrayList<>());
+      assertEquals(incidence.getAipId(), indexed.getAipId());
+      model.deleteRiskIncidence(incidence.getId(), false);
+    }
+    index.commit(RiskIncidence.class);
+  }
+
   @Test
   public void testRepresentationInformationIndex() throws RODAException {
     RepresentationInformation ri = new RepresentationInformation();
@@ -776,4 +876,44 @@ public class IndexServiceTest {
     Assert.assertEquals(results.size(), set.size());
 
   }
+
+  @Test
+  public void testFindAllPagesWithCursor() throws RODAException, SolrServerException, IOException {
+    // more than three pages, all with the same state so that only the uuid
+    // tie-breaker gives them a stable order
+    int total = RodaConstants.DEFAULT_PAGINATION_VALUE * 3 + 50;
+    String indexName = SolrUtils.getIndexName(AIP.class).get(0);
+    for (int i = 0; i < total; i++) {
+      AIP aip = new AIP();
+      aip.setId("cursor_" + i);
+      aip.setState(AIPState.ACTIVE);
+      aip.setDescriptiveMetadata(new ArrayList<>());
+      aip.setRepresentations(new ArrayList<>());
+      aip.setPermissions(new Permissions());
+      index.getSolrClient().add(indexName, SolrUtils.aipToSolrInputDocument(aip, new ArrayList<>(), model, true));
+    }
+    index.commit(IndexedAIP.class);
+
+    Sorter byState = new Sorter(new SortParameter(RodaConstants.AIP_STATE, false));
+    IterableIndexResult<IndexedAIP> all = index.findAll(IndexedAIP.class, Filter.ALL, byState,
+      Collections.emptyList());
+    Assert.assertEquals(all.getTotalObjects(), total);
+
+    // results already visited are deleted while iterating, which makes offset
+    // paging skip results but does not move a cursor
+    List<String> results = new ArrayList<>();
+    for (IndexedAIP aip : all) {
+      results.add(aip.getId());
+      index.getSolrClient().deleteById(indexName, aip.getUUID());
+      if (results.size() % RodaConstants.DEFAULT_PAGINATION_VALUE == 0) {
+        index.commit(IndexedAIP.class);
+      }
+    }
+
+    Assert.assertEquals(results.size(), total);
+    Assert.assertEquals(new HashSet<>(results).size(), total);
+    for (int i = 0; i < total; i++) {
+      Assert.assertTrue(results.contains("cursor_" + i), "Could not find expected id: cursor_" + i);
+    }
+  }
 }
@@ -0,0 +1,147 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.model;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.roda.core.TestsHelper;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.exceptions.RODAException;
+import org.roda.core.data.v2.ip.AIP;
+import org.roda.core.data.v2.ip.AIPState;
+import org.roda.core.data.v2.ip.Permissions;
+import org.roda.core.storage.fs.FSUtils;
+import org.roda.core.storage.fs.FileStorageService;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test(groups = {RodaConstants.TEST_GROUP_ALL, RodaConstants.TEST_GROUP_TRAVIS})
+public class AIPUnitOfWorkTest {
+
+  private static final String USER = "admin";
+
+  private Path basePath;
+  private ModelService model;
+
+  @BeforeMethod
+  public void setUp() throws IOException, RODAException {
+    basePath = TestsHelper.createBaseTempDir(AIPUnitOfWorkTest.class, true);
+    model = new ModelService(new FileStorageService(basePath.resolve("storage")));
+  }
+
+  @AfterMethod
+  public void tearDown() throws RODAException {
+    FSUtils.deletePath(basePath);
+  }
+
+  @Test
+  public void testConcurrentUpdatesAreNotLost() throws Exception {
+    String aipId = createAIP().getId();
+    int updates = 20;
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Void>> futures = new ArrayList<>();
+      for (int i = 0; i < updates; i++) {
+        String jobId = "job" + i;
+        futures.add(executor.submit(() -> {
+          try (AIPUnitOfWork update = model.beginAIPUpdate(aipId)) {
+            update.getAIP().addIngestUpdateJobId(jobId);
+            update.commit();
+          }
+          return null;
+        }));
+      }
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    Assert.assertEquals(model.retrieveAIP(aipId).getIngestUpdateJobIds().size(), updates);
+  }
+
+  @Test
+  public void testUpdateWithStaleAIPKeepsOtherChanges() throws RODAException {
+    String aipId = createAIP().getId();
+    AIP stale = model.retrieveAIP(aipId);
+
+    // changed after the stale copy was retrieved
+    model.changeAIPType(aipId, "type", USER);
+    model.createRepresentation(aipId, "rep", true, "type", false, USER);
+
+    stale.setState(AIPState.INGEST_PROCESSING);
+    model.updateAIPState(stale, USER);
+    AIP aip = model.retrieveAIP(aipId);
+    Assert.assertEquals(aip.getState(), AIPState.INGEST_PROCESSING);
+    Assert.assertEquals(aip.getType(), "type");
+    Assert.assertEquals(aip.getRepresentations().size(), 1);
+
+    Permissions permissions = new Permissions();
+    permissions.setUserPermissions(USER, Collections.singleton(Permissions.PermissionType.READ));
+    stale.setPermissions(permissions);
+    model.updateAIPPermissions(stale, USER);
+    aip = model.retrieveAIP(aipId);
+    Assert.assertEquals(aip.getPermissions().getUserPermissions(USER),
+      Collections.singleton(Permissions.PermissionType.READ));
+    Assert.assertEquals(aip.getType(), "type");
+    Assert.assertEquals(aip.getRepresentations().size(), 1);
+
+    // a full update keeps representations created meanwhile
+    stale = model.retrieveAIP(aipId);
+    model.createRepresentation(aipId, "rep2", false, "type", false, USER);
+    stale.setGhost(true);
+    model.updateAIP(stale, USER);
+    aip = model.retrieveAIP(aipId);
+    Assert.assertEquals(aip.getRepresentations().size(), 2);
+    Assert.assertTrue(aip.getGhost());
+  }
+
+  @Test
+  public void testNestedUnitOfWorkWritesOnce() throws RODAException {
+    String aipId = createAIP().getId();
+
+    try (AIPUnitOfWork update = model.beginAIPUpdate(aipId)) {
+      try (AIPUnitOfWork nested = model.beginAIPUpdate(aipId)) {
+        Assert.assertSame(nested, update);
+        nested.getAIP().setType("nested");
+        nested.commit();
+      }
+      // the nested commit is done by the outermost unit of work
+      Assert.assertNotEquals(new ModelService(model.getStorage()).retrieveAIP(aipId).getType(), "nested");
+      update.commit();
+    }
+
+    Assert.assertEquals(model.retrieveAIP(aipId).getType(), "nested");
+  }
+
+  @Test
+  public void testCloseWithoutCommitDiscardsChanges() throws RODAException {
+    String aipId = createAIP().getId();
+
+    try (AIPUnitOfWork update = model.beginAIPUpdate(aipId)) {
+      update.getAIP().setType("discarded");
+    }
+
+    Assert.assertNotEquals(model.retrieveAIP(aipId).getType(), "discarded");
+  }
+
+  private AIP createAIP() throws RODAException {
+    return model.createAIP(AIPState.ACTIVE, null, null, new Permissions(), false, USER);
+  }
+}
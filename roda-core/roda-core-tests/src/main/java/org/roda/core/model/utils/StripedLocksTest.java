@@ -0,0 +1,54 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.model.utils;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import org.roda.core.data.common.RodaConstants;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test(groups = {RodaConstants.TEST_GROUP_ALL, RodaConstants.TEST_GROUP_TRAVIS})
+public class StripedLocksTest {
+
+  @Test
+  public void testSameKeySameLock() {
+    StripedLocks locks = new StripedLocks(16);
+    String key = UUID.randomUUID().toString();
+    Assert.assertSame(locks.get(key), locks.get(key));
+    Assert.assertEquals(locks.indexOf(key), locks.indexOf(key));
+  }
+
+  @Test
+  public void testKeysAreSpreadOverStripes() {
+    StripedLocks locks = new StripedLocks(16);
+    Set<Integer> indexes = new HashSet<>();
+    for (int i = 0; i < 1000; i++) {
+      int index = locks.indexOf("aip" + i);
+      Assert.assertTrue(index >= 0 && index < 16);
+      Assert.assertSame(locks.get("aip" + i), locks.get("aip" + i));
+      indexes.add(index);
+    }
+    Assert.assertEquals(indexes.size(), 16);
+  }
+
+  @Test
+  public void testLocksAreReentrant() {
+    StripedLocks locks = new StripedLocks(1);
+    locks.get("a").lock();
+    try {
+      // keys in the same stripe share a reentrant lock
+      Assert.assertTrue(locks.get("b").tryLock());
+      locks.get("b").unlock();
+    } finally {
+      locks.get("a").unlock();
+    }
+  }
+}
@@ -0,0 +1,413 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.plugins;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.roda.core.TestsHelper;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.exceptions.RODAException;
+import org.roda.core.data.v2.ip.File;
+import org.roda.core.plugins.plugins.antivirus.ClamdAntiVirus;
+import org.roda.core.plugins.plugins.antivirus.ClamdAntiVirus.ClamdScanMode;
+import org.roda.core.plugins.plugins.antivirus.ClamdClient;
+import org.roda.core.plugins.plugins.antivirus.VirusCheckResult;
+import org.roda.core.plugins.plugins.characterization.VirusScanCharacterizationConsumer;
+import org.roda.core.storage.Binary;
+import org.roda.core.storage.DefaultStoragePath;
+import org.roda.core.storage.StorageService;
+import org.roda.core.storage.StringContentPayload;
+import org.roda.core.storage.fs.FSUtils;
+import org.roda.core.storage.fs.FileStorageService;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+@Test(groups = {RodaConstants.TEST_GROUP_ALL, RodaConstants.TEST_GROUP_TRAVIS})
+public class ClamdAntiVirusTest {
+
+  private static final String SIGNATURE = "FAKE-VIRUS-SIGNATURE";
+
+  private static Path basePath;
+  private static FakeClamd clamd;
+
+  @BeforeClass
+  public static void setUp() throws IOException {
+    basePath = TestsHelper.createBaseTempDir(ClamdAntiVirusTest.class, true);
+    clamd = new FakeClamd();
+    clamd.start();
+  }
+
+  @AfterClass
+  public static void tearDown() throws IOException {
+    clamd.close();
+    FSUtils.deletePathQuietly(basePath);
+  }
+
+  @Test
+  public void testCleanAndInfected() throws IOException {
+    Path clean = Files.createDirectories(basePath.resolve("clean"));
+    Files.write(clean.resolve("a.txt"), "clean content".getBytes());
+    Files.createDirectories(clean.resolve("data"));
+    Files.write(clean.resolve("data").resolve("b.txt"), new byte[200000]);
+
+    Path infected = Files.createDirectories(basePath.resolve("infected"));
+    Files.write(infected.resolve("a.txt"), "clean content".getBytes());
+    Files.write(infected.resolve("virus.txt"), ("some " + SIGNATURE + " content").getBytes());
+
+    ClamdClient client = new ClamdClient("localhost", clamd.getPort(), 10000, 2, 1024, 20000);
+    ClamdAntiVirus antiVirus = new ClamdAntiVirus(client, 2, ClamdScanMode.INSTREAM);
+
+    int connectionsBefore = clamd.connections.get();
+    for (int i = 0; i < 5; i++) {
+      VirusCheckResult result = antiVirus.checkForVirus(clean);
+      Assert.assertTrue(result.isClean(), result.getReport());
+    }
+
+    VirusCheckResult result = antiVirus.checkForVirus(infected);
+    Assert.assertFalse(result.isClean());
+    Assert.assertTrue(result.getReport().contains("virus.txt: Fake.Virus FOUND"), result.getReport());
+    Assert.assertFalse(result.getReport().contains("a.txt"), result.getReport());
+
+    // sessions are reused between scans
+    Assert.assertTrue(clamd.connections.get() - connectionsBefore <= 2);
+
+    Assert.assertEquals(antiVirus.getVersion(), "ClamAV 0.0.0/fake");
+    client.close();
+  }
+
+  @Test
+  public void testStreamingConsumer() throws IOException {
+    ClamdClient client = new ClamdClient("localhost", clamd.getPort(), 10000, 1, 1024, 20000);
+    VirusScanCharacterizationConsumer consumer = new VirusScanCharacterizationConsumer(client);
+
+    File clean = new File("a.txt", "aip", "rep", Arrays.asList("data"), false);
+    byte[] content = "clean content".getBytes();
+    consumer.start(clean);
+    consumer.update(content, 0, content.length);
+    consumer.end(clean, true);
+    Assert.assertTrue(consumer.isClean(), consumer.getReport());
+
+    File infected = new File("virus.txt", "aip", "rep", Arrays.asList("data"), false);
+    byte[] half = ("some " + SIGNATURE).getBytes();
+    byte[] otherHalf = " content".getBytes();
+    consumer.start(infected);
+    consumer.update(half, 0, half.length);
+    consumer.update(otherHalf, 0, otherHalf.length);
+    consumer.end(infected, true);
+    Assert.assertFalse(consumer.isClean());
+    Assert.assertTrue(consumer.getReport().contains("rep/data/virus.txt: Fake.Virus FOUND"), consumer.getReport());
+    Assert.assertTrue(consumer.getReport().contains("Scanned files: 2"), consumer.getReport());
+    client.close();
+  }
+
+  @Test
+  public void testMultiscan() throws IOException {
+    Path clean = Files.createDirectories(basePath.resolve("multiscan-clean"));
+    Files.write(clean.resolve("a.txt"), "clean content".getBytes());
+    Path infected = Files.createDirectories(basePath.resolve("multiscan-infected"));
+    Files.write(infected.resolve("a.txt"), "clean content".getBytes());
+    Files.createDirectories(infected.resolve("data"));
+    Files.write(infected.resolve("data").resolve("virus.txt"), ("some " + SIGNATURE + " content").getBytes());
+
+    ClamdClient client = new ClamdClient("localhost", clamd.getPort(), 10000, 1, 1024, 20000);
+    ClamdAntiVirus antiVirus = new ClamdAntiVirus(client, 1, ClamdScanMode.MULTISCAN);
+
+    VirusCheckResult result = antiVirus.checkForVirus(clean);
+    Assert.assertTrue(result.isClean(), result.getReport());
+    Assert.assertTrue(result.getReport().contains("Infected files: 0"), result.getReport());
+
+    result = antiVirus.checkForVirus(infected);
+    Assert.assertFalse(result.isClean());
+    Assert.assertTrue(result.getReport().contains("virus.txt: Fake.Virus FOUND"), result.getReport());
+    Assert.assertFalse(result.getReport().contains("a.txt"), result.getReport());
+    Assert.assertTrue(result.getReport().contains("Infected files: 1"), result.getReport());
+    client.close();
+  }
+
+  @Test
+  public void testLongFilesAreScannedByPath() throws IOException {
+    Path folder = Files.createDirectories(basePath.resolve("long"));
+    Files.write(folder.resolve("a.txt"), "clean content".getBytes());
+    byte[] longContent = ("some " + SIGNATURE + " content" + StringUtils.repeat(" ", 200)).getBytes();
+    Files.write(folder.resolve("virus.txt"), longContent);
+
+    clamd.streamMaxLength = 100;
+    try {
+      // clamd refuses the stream
+      ClamdClient client = new ClamdClient("localhost", clamd.getPort(), 10000, 1, 1024, 20000);
+      client.setScanLongFilesByPath(true);
+      int pathScansBefore = clamd.pathScans.get();
+      VirusCheckResult result = new ClamdAntiVirus(client, 1, ClamdScanMode.INSTREAM).checkForVirus(folder);
+      Assert.assertFalse(result.isClean());
+      Assert.assertTrue(result.getReport().contains("virus.txt: Fake.Virus FOUND"), result.getReport());
+      Assert.assertTrue(result.getReport().contains("Scanned files: 2"), result.getReport());
+      Assert.assertEquals(clamd.pathScans.get() - pathScansBefore, 1);
+      client.close();
+
+      // the stream is not even tried
+      client = new ClamdClient("localhost", clamd.getPort(), 10000, 1, 1024, 20000, 100);
+      client.setScanLongFilesByPath(true);
+      int refusalsBefore = clamd.refusals.get();
+      result = new ClamdAntiVirus(client, 1, ClamdScanMode.INSTREAM).checkForVirus(folder);
+      Assert.assertFalse(result.isClean());
+      Assert.assertTrue(result.getReport().contains("virus.txt: Fake.Virus FOUND"), result.getReport());
+      Assert.assertEquals(clamd.refusals.get(), refusalsBefore);
+      client.close();
+    } finally {
+      clamd.streamMaxLength = Integer.MAX_VALUE;
+    }
+  }
+
+  @Test
+  public void testLongFilesFailUnlessScannedByPath() throws IOException {
+    Path folder = Files.createDirectories(basePath.resolve("long-not-by-path"));
+    Files.write(folder.resolve("a.txt"), "clean content".getBytes());
+    Files.write(folder.resolve("long.txt"), StringUtils.repeat(" ", 200).getBytes());
+
+    clamd.streamMaxLength = 100;
+    try {
+      for (long streamMaxLength : new long[] {ClamdClient.DEFAULT_STREAM_MAX_LENGTH, 100}) {
+        ClamdClient client = new ClamdClient("localhost", clamd.getPort(), 10000, 1, 1024, 20000, streamMaxLength);
+        int pathScansBefore = clamd.pathScans.get();
+        try {
+          new ClamdAntiVirus(client, 1, ClamdScanMode.INSTREAM).checkForVirus(folder);
+          Assert.fail("Scanning a file longer than clamd accepts as a stream should fail");
+        } catch (RuntimeException e) {
+          Assert.assertTrue(e.getMessage().contains("longer than clamd accepts as a stream"), e.getMessage());
+        }
+        Assert.assertEquals(clamd.pathScans.get(), pathScansBefore);
+        client.close();
+      }
+    } finally {
+      clamd.streamMaxLength = Integer.MAX_VALUE;
+    }
+  }
+
+  @Test
+  public void testPathScansAreNotLimitedByReadTimeout() throws IOException {
+    Path folder = Files.createDirectories(basePath.resolve("slow"));
+    Path file = folder.resolve("virus.txt");
+    Files.write(file, ("some " + SIGNATURE + " content").getBytes());
+
+    clamd.scanDelay = 1000;
+    try {
+      ClamdClient client = new ClamdClient("localhost", clamd.getPort(), 200, 1, 1024, 20000);
+      Assert.assertEquals(client.scanPath(file), "Fake.Virus FOUND");
+      VirusCheckResult result = new ClamdAntiVirus(client, 1, ClamdScanMode.MULTISCAN).checkForVirus(folder);
+      Assert.assertFalse(result.isClean());
+
+      client.setScanTimeout(200);
+      try {
+        client.scanPath(file);
+        Assert.fail("Path scan should time out");
+      } catch (IOException e) {
+        // expected
+      }
+      client.close();
+    } finally {
+      clamd.scanDelay = 0;
+    }
+  }
+
+  @Test
+  public void testStreamingConsumerScansLongFilesByPath() throws RODAException, IOException {
+    StorageService storage = new FileStorageService(basePath.resolve("storage"));
+    byte[] content = ("some " + SIGNATURE + " content" + StringUtils.repeat(" ", 200)).getBytes();
+    Binary binary = storage.createBinary(DefaultStoragePath.parse("container", "virus.txt"),
+      new StringContentPayload(new String(content)), false);
+
+    clamd.streamMaxLength = 100;
+    try {
+      for (long streamMaxLength : new long[] {ClamdClient.DEFAULT_STREAM_MAX_LENGTH, 100}) {
+        ClamdClient client = new ClamdClient("localhost", clamd.getPort(), 10000, 1, 1024, 20000, streamMaxLength);
+        VirusScanCharacterizationConsumer consumer = new VirusScanCharacterizationConsumer(client);
+
+        // without scanning by path, the file is reported as not scanned
+        consumer.scan(binary, "virus.txt");
+        consumer.scanLongFiles(storage);
+        Assert.assertFalse(consumer.isClean());
+        Assert.assertTrue(consumer.getReport().contains("virus.txt: ERROR longer than clamd accepts as a stream"),
+          consumer.getReport());
+        consumer.reset();
+
+        client.setScanLongFilesByPath(true);
+        consumer.scan(binary, "virus.txt");
+        // not scanned yet
+        Assert.assertTrue(consumer.getReport().contains("Scanned files: 0"), consumer.getReport());
+
+        consumer.scanLongFiles(storage);
+        Assert.assertFalse(consumer.isClean());
+        Assert.assertTrue(consumer.getReport().contains("virus.txt: Fake.Virus FOUND"), consumer.getReport());
+        Assert.assertTrue(consumer.getReport().contains("Scanned files: 1"), consumer.getReport());
+        client.close();
+      }
+    } finally {
+      clamd.streamMaxLength = Integer.MAX_VALUE;
+    }
+  }
+
+  /**
+   * Minimal clamd, supporting IDSESSION, INSTREAM, SCAN, MULTISCAN, VERSION and
+   * END, which reports any content containing {@link #SIGNATURE} as infected
+   */
+  private static class FakeClamd extends Thread {
+    private final ServerSocket serverSocket;
+    private final AtomicInteger connections = new AtomicInteger(0);
+    private final AtomicInteger pathScans = new AtomicInteger(0);
+    private final AtomicInteger refusals = new AtomicInteger(0);
+    private volatile int streamMaxLength = Integer.MAX_VALUE;
+    private volatile long scanDelay = 0;
+
+    public FakeClamd() throws IOException {
+      serverSocket = new ServerSocket(0);
+      setDaemon(true);
+    }
+
+    public int getPort() {
+      return serverSocket.getLocalPort();
+    }
+
+    @Override
+    public void run() {
+      while (!serverSocket.isClosed()) {
+        try {
+          Socket socket = serverSocket.accept();
+          connections.incrementAndGet();
+          Thread handler = new Thread(() -> handle(socket));
+          handler.setDaemon(true);
+          handler.start();
+        } catch (IOException e) {
+          // closed
+        }
+      }
+    }
+
+    private void handle(Socket socket) {
+      try {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        OutputStream out = socket.getOutputStream();
+        boolean session = false;
+        int id = 0;
+        String command;
+        while ((command = readCommand(in)) != null) {
+          id++;
+          String prefix = session ? id + ": " : "";
+          if ("zIDSESSION".equals(command)) {
+            session = true;
+            id = 0;
+            continue;
+          } else if ("zEND".equals(command)) {
+            break;
+          } else if ("zVERSION".equals(command)) {
+            reply(out, prefix + "ClamAV 0.0.0/fake");
+          } else if ("zINSTREAM".equals(command)) {
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            int length;
+            while ((length = in.readInt()) > 0) {
+              byte[] chunk = new byte[length];
+              in.readFully(chunk);
+              content.write(chunk);
+            }
+            if (content.size() > streamMaxLength) {
+              // clamd also closes the connection
+              refusals.incrementAndGet();
+              reply(out, prefix + "INSTREAM size limit exceeded. ERROR");
+              break;
+            }
+            reply(out, prefix + "stream: " + (isInfected(content.toByteArray()) ? "Fake.Virus FOUND" : "OK"));
+          } else if (command.startsWith("zSCAN ")) {
+            pathScans.incrementAndGet();
+            delayScan();
+            Path path = Paths.get(command.substring("zSCAN ".length()));
+            reply(out, prefix + path + ": " + (isInfected(Files.readAllBytes(path)) ? "Fake.Virus FOUND" : "OK"));
+          } else if (command.startsWith("zMULTISCAN ")) {
+            Path path = Paths.get(command.substring("zMULTISCAN ".length()));
+            delayScan();
+            List<Path> infected;
+            try (Stream<Path> files = Files.walk(path)) {
+              infected = files.filter(Files::isRegularFile).filter(FakeClamd::isInfected).collect(Collectors.toList());
+            }
+            for (Path file : infected) {
+              reply(out, file + ": Fake.Virus FOUND");
+            }
+            if (infected.isEmpty()) {
+              reply(out, path + ": OK");
+            }
+          } else {
+            reply(out, prefix + "UNKNOWN COMMAND");
+          }
+
+          if (!session) {
+            break;
+          }
+        }
+      } catch (IOException e) {
+        // connection closed
+      } finally {
+        IOUtils.closeQuietly(socket);
+      }
+    }
+
+    private void delayScan() {
+      try {
+        Thread.sleep(scanDelay);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    private static boolean isInfected(byte[] content) {
+      return new String(content, StandardCharsets.US_ASCII).contains(SIGNATURE);
+    }
+
+    private static boolean isInfected(Path file) {
+      try {
+        return isInfected(Files.readAllBytes(file));
+      } catch (IOException e) {
+        return false;
+      }
+    }
+
+    private static String readCommand(DataInputStream in) throws IOException {
+      StringBuilder command = new StringBuilder();
+      int b;
+      while ((b = in.read()) > 0) {
+        command.append((char) b);
+      }
+      return b == -1 && command.length() == 0 ? null : command.toString();
+    }
+
+    private static void reply(OutputStream out, String response) throws IOException {
+      out.write((response + "\0").getBytes(StandardCharsets.US_ASCII));
+      out.flush();
+    }
+
+    public void close() throws IOException {
+      serverSocket.close();
+    }
+  }
+}
@@ -0,0 +1,196 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.plugins;
+
+import java.net.URL;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.roda.core.CorporaConstants;
+import org.roda.core.RodaCoreFactory;
+import org.roda.core.TestsHelper;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.exceptions.NotFoundException;
+import org.roda.core.data.exceptions.RODAException;
+import org.roda.core.data.exceptions.RequestNotValidException;
+import org.roda.core.data.v2.index.IndexRunnable;
+import org.roda.core.data.v2.index.filter.Filter;
+import org.roda.core.data.v2.index.filter.SimpleFilterParameter;
+import org.roda.core.data.v2.index.select.SelectedItemsList;
+import org.roda.core.data.v2.ip.AIP;
+import org.roda.core.data.v2.ip.IndexedAIP;
+import org.roda.core.data.v2.ip.IndexedRepresentation;
+import org.roda.core.data.v2.ip.Permissions;
+import org.roda.core.data.v2.jobs.Job;
+import org.roda.core.data.v2.jobs.PluginType;
+import org.roda.core.index.IndexService;
+import org.roda.core.model.ModelService;
+import org.roda.core.plugins.plugins.base.MoveOrphansToParentNodePlugin;
+import org.roda.core.storage.DefaultStoragePath;
+import org.roda.core.storage.StorageService;
+import org.roda.core.storage.fs.FSUtils;
+import org.roda.core.storage.fs.FileStorageService;
+import org.roda.core.util.IdUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+@Test(groups = {RodaConstants.TEST_GROUP_ALL, RodaConstants.TEST_GROUP_TRAVIS})
+public class MoveOrphansToParentNodePluginTest {
+  private static final Logger LOGGER = LoggerFactory.getLogger(MoveOrphansToParentNodePluginTest.class);
+
+  private static Path basePath;
+  private static ModelService model;
+  private static IndexService index;
+  private static StorageService corporaService;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    basePath = TestsHelper.createBaseTempDir(MoveOrphansToParentNodePluginTest.class, true);
+
+    boolean deploySolr = true;
+    boolean deployLdap = true;
+    boolean deployFolderMonitor = false;
+    boolean deployOrchestrator = true;
+    boolean deployPluginManager = true;
+    boolean deployDefaultResources = false;
+    RodaCoreFactory.instantiateTest(deploySolr, deployLdap, deployFolderMonitor, deployOrchestrator,
+      deployPluginManager, deployDefaultResources);
+
+    model = RodaCoreFactory.getModelService();
+    index = RodaCoreFactory.getIndexService();
+
+    URL corporaURL = MoveOrphansToParentNodePluginTest.class.getResource("/corpora");
+    corporaService = new FileStorageService(Paths.get(corporaURL.toURI()));
+
+    LOGGER.debug("Running move orphans tests under storage {}", basePath);
+  }
+
+  @AfterClass
+  public static void tearDown() throws Exception {
+    RodaCoreFactory.shutdown();
+    FSUtils.deletePath(basePath);
+  }
+
+  @AfterMethod
+  public void cleanUp() throws RODAException {
+    index.execute(IndexedAIP.class, Filter.ALL, new ArrayList<>(), new IndexRunnable<IndexedAIP>() {
+      @Override
+      public void run(IndexedAIP item) throws GenericException, RequestNotValidException {
+        try {
+          model.deleteAIP(item.getId());
+        } catch (RODAException e) {
+          // do nothing
+        }
+      }
+    }, e -> Assert.fail("Error cleaning up", e));
+  }
+
+  @Test
+  public void testMoveAIPs() throws RODAException {
+    AIP oldParent = model.createAIP(null, "", new Permissions(), RodaConstants.ADMIN);
+    AIP newParent = model.createAIP(null, "", new Permissions(), RodaConstants.ADMIN);
+    AIP child = model.createAIP(oldParent.getId(), "", new Permissions(), RodaConstants.ADMIN);
+    AIP grandchild = model.createAIP(child.getId(), "", new Permissions(), RodaConstants.ADMIN);
+    AIP withRepresentations = createAIPWithRepresentations(oldParent.getId());
+    index.commitAIPs();
+
+    String missingId = IdUtils.createUUID();
+    Map<String, RODAException> errors = model.moveAIPs(
+      Arrays.asList(child.getId(), missingId, withRepresentations.getId(), newParent.getId()), newParent.getId(),
+      RodaConstants.ADMIN);
+    index.commitAIPs();
+
+    // the missing AIP and the one moved into itself fail, the others are moved
+    MatcherAssert.assertThat(errors.keySet(), Matchers.containsInAnyOrder(missingId, newParent.getId()));
+    MatcherAssert.assertThat(errors.get(missingId), Matchers.instanceOf(NotFoundException.class));
+    MatcherAssert.assertThat(errors.get(newParent.getId()), Matchers.instanceOf(RequestNotValidException.class));
+    Assert.assertNull(model.retrieveAIP(newParent.getId()).getParentId());
+
+    assertMoved(child.getId(), newParent.getId(), Collections.singletonList(newParent.getId()));
+    assertMoved(withRepresentations.getId(), newParent.getId(), Collections.singletonList(newParent.getId()));
+    assertRepresentationAncestors(withRepresentations.getId(), Collections.singletonList(newParent.getId()));
+    assertMoved(grandchild.getId(), child.getId(), Arrays.asList(child.getId(), newParent.getId()));
+  }
+
+  @Test
+  public void testMoveOrphansToParentNode() throws RODAException {
+    AIP deletedParent = model.createAIP(null, "", new Permissions(), RodaConstants.ADMIN);
+    AIP firstOrphan = model.createAIP(deletedParent.getId(), "", new Permissions(), RodaConstants.ADMIN);
+    AIP orphanDescendant = model.createAIP(firstOrphan.getId(), "", new Permissions(), RodaConstants.ADMIN);
+    AIP orphanWithRepresentations = createAIPWithRepresentations(deletedParent.getId());
+    // an orphan that is also the new parent cannot be moved into itself
+    AIP newParent = model.createAIP(deletedParent.getId(), "", new Permissions(), RodaConstants.ADMIN);
+    AIP notOrphan = model.createAIP(newParent.getId(), "", new Permissions(), RodaConstants.ADMIN);
+    model.deleteAIP(deletedParent.getId());
+    index.commitAIPs();
+
+    Map<String, String> pluginParameters = new HashMap<>();
+    pluginParameters.put(RodaConstants.PLUGIN_PARAMS_AIP_PARENT_ID, newParent.getId());
+    Job job = TestsHelper.executeJob(MoveOrphansToParentNodePlugin.class, pluginParameters, PluginType.MISC,
+      SelectedItemsList.create(AIP.class, firstOrphan.getId(), orphanWithRepresentations.getId(), newParent.getId(),
+        notOrphan.getId(), orphanDescendant.getId()));
+    index.commitAIPs();
+
+    Assert.assertEquals(job.getJobStats().getSourceObjectsProcessedWithFailure(), 1);
+    Assert.assertEquals(job.getJobStats().getSourceObjectsProcessedWithSuccess(), 4);
+
+    List<String> newAncestors = Collections.singletonList(newParent.getId());
+    assertMoved(firstOrphan.getId(), newParent.getId(), newAncestors);
+    assertMoved(orphanWithRepresentations.getId(), newParent.getId(), newAncestors);
+    assertRepresentationAncestors(orphanWithRepresentations.getId(), newAncestors);
+    assertMoved(orphanDescendant.getId(), firstOrphan.getId(), Arrays.asList(firstOrphan.getId(), newParent.getId()));
+    // neither the AIP that could not be moved nor its children change
+    Assert.assertEquals(model.retrieveAIP(newParent.getId()).getParentId(), deletedParent.getId());
+    assertMoved(notOrphan.getId(), newParent.getId(), Arrays.asList(newParent.getId(), deletedParent.getId()));
+  }
+
+  /**
+   * Creates an AIP with representations (and files) under the given parent
+   */
+  private static AIP createAIPWithRepresentations(String parentId) throws RODAException {
+    AIP aip = model.createAIP(IdUtils.createUUID(), corporaService,
+      DefaultStoragePath.parse(CorporaConstants.SOURCE_AIP_CONTAINER, CorporaConstants.SOURCE_AIP_ID),
+      RodaConstants.ADMIN);
+    Assert.assertFalse(aip.getRepresentations().isEmpty());
+    return model.moveAIP(aip.getId(), parentId, RodaConstants.ADMIN);
+  }
+
+  private static void assertMoved(String aipId, String parentId, List<String> ancestors) throws RODAException {
+    Assert.assertEquals(model.retrieveAIP(aipId).getParentId(), parentId);
+
+    IndexedAIP indexedAIP = index.retrieve(IndexedAIP.class, aipId,
+      Arrays.asList(RodaConstants.INDEX_UUID, RodaConstants.AIP_PARENT_ID, RodaConstants.AIP_ANCESTORS));
+    Assert.assertEquals(indexedAIP.getParentID(), parentId);
+    MatcherAssert.assertThat(indexedAIP.getAncestors(), Matchers.containsInAnyOrder(ancestors.toArray()));
+  }
+
+  private static void assertRepresentationAncestors(String aipId, List<String> ancestors) throws RODAException {
+    Filter filter = new Filter(new SimpleFilterParameter(RodaConstants.REPRESENTATION_AIP_ID, aipId));
+    List<IndexedRepresentation> representations = new ArrayList<>();
+    index.findAll(IndexedRepresentation.class, filter, false, Collections.emptyList()).forEach(representations::add);
+
+    Assert.assertFalse(representations.isEmpty());
+    for (IndexedRepresentation representation : representations) {
+      MatcherAssert.assertThat(representation.getAncestors(), Matchers.containsInAnyOrder(ancestors.toArray()));
+    }
+  }
+}
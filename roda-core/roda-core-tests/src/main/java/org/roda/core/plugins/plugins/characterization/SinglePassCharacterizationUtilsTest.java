@@ -0,0 +1,143 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.plugins.plugins.characterization;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.exceptions.RODAException;
+import org.roda.core.data.v2.ip.File;
+import org.roda.core.data.v2.ip.metadata.Fixity;
+import org.roda.core.storage.Binary;
+import org.roda.core.storage.ContentPayload;
+import org.roda.core.storage.DefaultBinary;
+import org.roda.core.storage.DefaultStoragePath;
+import org.roda.core.storage.StringContentPayload;
+import org.roda.core.util.FileUtility;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test(groups = {RodaConstants.TEST_GROUP_ALL, RodaConstants.TEST_GROUP_TRAVIS})
+public class SinglePassCharacterizationUtilsTest {
+
+  private static final String CONTENT = "<?xml version=\"1.0\"?><root/>";
+
+  @Test
+  public void testFixity() throws RODAException, IOException, NoSuchAlgorithmException {
+    FixityCharacterizationConsumer fixityConsumer = new FixityCharacterizationConsumer(Arrays.asList("SHA-256", "MD5"),
+      "originator");
+
+    long size = SinglePassCharacterizationUtils.characterize(binary(new StringContentPayload(CONTENT)),
+      file("file.xml"), Collections.singletonList(fixityConsumer));
+    Assert.assertEquals(size, CONTENT.length());
+
+    List<Fixity> fixities = fixityConsumer.getFixities();
+    Assert.assertEquals(fixities.size(), 2);
+    Assert.assertEquals(fixities.get(0).getMessageDigestAlgorithm(), "SHA-256");
+    Assert.assertEquals(fixities.get(0).getMessageDigest(), digest("SHA-256"));
+    Assert.assertEquals(fixities.get(0).getMessageDigestOriginator(), "originator");
+    Assert.assertEquals(fixities.get(1).getMessageDigestAlgorithm(), "MD5");
+    Assert.assertEquals(fixities.get(1).getMessageDigest(), digest("MD5"));
+  }
+
+  @Test
+  public void testAllConsumersShareTheRead() throws RODAException, IOException {
+    int[] reads = {0};
+    StringContentPayload payload = new StringContentPayload(CONTENT) {
+      @Override
+      public InputStream createInputStream() throws IOException {
+        reads[0]++;
+        return super.createInputStream();
+      }
+    };
+    FixityCharacterizationConsumer fixityConsumer = new FixityCharacterizationConsumer(
+      Collections.singletonList("SHA-256"), "originator");
+    CountingConsumer countingConsumer = new CountingConsumer();
+
+    SinglePassCharacterizationUtils.characterize(binary(payload), file("file"),
+      Arrays.asList(fixityConsumer, countingConsumer));
+    Assert.assertEquals(reads[0], 1);
+    Assert.assertNotNull(fixityConsumer.getFixities());
+    Assert.assertEquals(countingConsumer.count, CONTENT.length());
+    Assert.assertTrue(countingConsumer.success);
+  }
+
+  @Test
+  public void testFailedReadLeavesNoResults() throws RODAException {
+    FixityCharacterizationConsumer fixityConsumer = new FixityCharacterizationConsumer(
+      Collections.singletonList("SHA-256"), "originator");
+    CountingConsumer countingConsumer = new CountingConsumer();
+    StringContentPayload payload = new StringContentPayload(CONTENT) {
+      @Override
+      public InputStream createInputStream() throws IOException {
+        InputStream in = super.createInputStream();
+        return new InputStream() {
+          @Override
+          public int read() throws IOException {
+            if (in.available() < 5) {
+              throw new IOException("Simulated failure");
+            }
+            return in.read();
+          }
+        };
+      }
+    };
+
+    try {
+      SinglePassCharacterizationUtils.characterize(binary(payload), file("file.xml"),
+        Arrays.asList(fixityConsumer, countingConsumer));
+      Assert.fail("Characterization should have failed");
+    } catch (IOException e) {
+      // expected
+    }
+    Assert.assertNull(fixityConsumer.getFixities());
+    Assert.assertFalse(countingConsumer.success);
+  }
+
+  private static class CountingConsumer implements CharacterizationConsumer {
+    private long count = 0;
+    private boolean success = false;
+
+    @Override
+    public void start(File file) {
+      count = 0;
+      success = false;
+    }
+
+    @Override
+    public void update(byte[] buffer, int offset, int length) {
+      count += length;
+    }
+
+    @Override
+    public void end(File file, boolean success) {
+      this.success = success;
+    }
+  }
+
+  private static Binary binary(ContentPayload payload) throws RODAException {
+    return new DefaultBinary(DefaultStoragePath.parse("container", "binary"), payload, (long) CONTENT.length(), false,
+      Collections.emptyMap());
+  }
+
+  private static File file(String id) {
+    return new File(id, "aip", "representation", Collections.emptyList(), false);
+  }
+
+  private static String digest(String algorithm) throws NoSuchAlgorithmException {
+    return FileUtility
+      .byteArrayToHexString(MessageDigest.getInstance(algorithm).digest(CONTENT.getBytes(StandardCharsets.UTF_8)));
+  }
+}
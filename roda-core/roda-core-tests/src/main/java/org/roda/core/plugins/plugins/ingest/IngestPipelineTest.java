@@ -0,0 +1,108 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.plugins.plugins.ingest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.roda.core.data.common.RodaConstants;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test(groups = {RodaConstants.TEST_GROUP_ALL, RodaConstants.TEST_GROUP_TRAVIS})
+public class IngestPipelineTest {
+
+  private ExecutorService executor;
+
+  @BeforeMethod
+  public void setUp() {
+    // fewer threads than stages, which must not block the pipeline
+    executor = Executors.newFixedThreadPool(2);
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testStagesRunInOrder() throws InterruptedException, ExecutionException {
+    List<Integer> items = IntStream.range(0, 100).boxed().collect(Collectors.toList());
+    List<String> finished = Collections.synchronizedList(new ArrayList<>());
+    List<List<Integer>> seen = new ArrayList<>();
+
+    IngestPipeline<Integer> pipeline = new IngestPipeline<>(executor, 3, 4);
+    for (int i = 0; i < 5; i++) {
+      String name = "stage" + i;
+      List<Integer> stageSeen = Collections.synchronizedList(new ArrayList<>());
+      seen.add(stageSeen);
+      List<Integer> previousSeen = i > 0 ? seen.get(i - 1) : null;
+      pipeline.addStage(name, batch -> {
+        Assert.assertTrue(batch.size() <= 4);
+        for (Integer item : batch) {
+          // every item went through the previous stage first
+          Assert.assertTrue(previousSeen == null || previousSeen.contains(item));
+          stageSeen.add(item);
+        }
+        return batch;
+      }, () -> finished.add(name));
+    }
+
+    Assert.assertEquals(pipeline.run(items), items);
+    for (List<Integer> stageSeen : seen) {
+      // each stage sees the items in the order they arrived
+      Assert.assertEquals(stageSeen, items);
+    }
+    Assert.assertEquals(finished, IntStream.range(0, 5).mapToObj(i -> "stage" + i).collect(Collectors.toList()));
+  }
+
+  @Test
+  public void testItemsCanBeRemoved() throws InterruptedException, ExecutionException {
+    List<Integer> items = IntStream.range(0, 20).boxed().collect(Collectors.toList());
+    IngestPipeline<Integer> pipeline = new IngestPipeline<>(executor, 2, 3);
+    pipeline.addStage("even", batch -> batch.stream().filter(i -> i % 2 == 0).collect(Collectors.toList()), null);
+    pipeline.addStage("identity", batch -> batch, null);
+
+    Assert.assertEquals(pipeline.run(items),
+      IntStream.range(0, 20).filter(i -> i % 2 == 0).boxed().collect(Collectors.toList()));
+  }
+
+  @Test
+  public void testErrorStopsThePipeline() throws InterruptedException {
+    List<Integer> items = IntStream.range(0, 20).boxed().collect(Collectors.toList());
+    AtomicInteger nextStageItems = new AtomicInteger(0);
+    AtomicInteger finishedStages = new AtomicInteger(0);
+
+    IngestPipeline<Integer> pipeline = new IngestPipeline<>(executor, 2, 100);
+    pipeline.addStage("failing", batch -> {
+      throw new IllegalStateException("Simulated failure");
+    }, finishedStages::incrementAndGet);
+    pipeline.addStage("next", batch -> {
+      nextStageItems.addAndGet(batch.size());
+      return batch;
+    }, finishedStages::incrementAndGet);
+
+    try {
+      pipeline.run(items);
+      Assert.fail("The pipeline should have failed");
+    } catch (ExecutionException e) {
+      Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+    Assert.assertEquals(nextStageItems.get(), 0);
+    Assert.assertEquals(finishedStages.get(), 0);
+  }
+}
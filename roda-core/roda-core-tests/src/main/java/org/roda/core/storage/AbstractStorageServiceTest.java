@@ -404,6 +404,27 @@ public abstract class AbstractStorageServiceTest<T extends StorageService> {
     getStorage().deleteContainer(containerStoragePath);
   }
 
+  @Test
+  public void testCountResources() throws RODAException {
+    final StoragePath containerStoragePath = StorageTestUtils.generateRandomContainerStoragePath();
+    getStorage().createContainer(containerStoragePath);
+
+    final StoragePath directoryStoragePath = StorageTestUtils
+      .generateRandomResourceStoragePathUnder(containerStoragePath);
+    getStorage().createDirectory(directoryStoragePath);
+
+    // 3 directories, with 3 sub-directories each, with 3 binaries each
+    StorageTestUtils.populate(getStorage(), directoryStoragePath);
+
+    assertEquals(Long.valueOf(1), getStorage().countResourcesUnderContainer(containerStoragePath, false));
+    assertEquals(Long.valueOf(40), getStorage().countResourcesUnderContainer(containerStoragePath, true));
+    assertEquals(Long.valueOf(3), getStorage().countResourcesUnderDirectory(directoryStoragePath, false));
+    assertEquals(Long.valueOf(39), getStorage().countResourcesUnderDirectory(directoryStoragePath, true));
+
+    // cleanup
+    getStorage().deleteContainer(containerStoragePath);
+  }
+
   @Test(enabled = false)
   protected void testBinaryContent(Binary binary, ContentPayload providedPayload) throws IOException, GenericException {
     // check if content is the same
@@ -0,0 +1,79 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.storage;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.roda.core.TestsHelper;
+import org.roda.core.data.exceptions.RODAException;
+import org.roda.core.data.v2.ip.StoragePath;
+import org.roda.core.storage.fs.FSUtils;
+import org.roda.core.storage.fs.FileStorageService;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class StorageServiceUtilsTest {
+
+  private Path basePath;
+  private StorageService sourceStorage;
+  private StorageService targetStorage;
+
+  @BeforeMethod
+  public void setUp() throws IOException, RODAException {
+    basePath = TestsHelper.createBaseTempDir(StorageServiceUtilsTest.class, false);
+    sourceStorage = new FileStorageService(basePath.resolve("source").resolve("storage"));
+    targetStorage = new FileStorageService(basePath.resolve("target").resolve("storage"));
+  }
+
+  @AfterMethod
+  public void tearDown() throws RODAException {
+    FSUtils.deletePath(basePath);
+  }
+
+  @Test
+  public void testParallelCopy() throws RODAException, IOException {
+    StoragePath containerStoragePath = StorageTestUtils.generateRandomContainerStoragePath();
+    sourceStorage.createContainer(containerStoragePath);
+    StorageTestUtils.populate(sourceStorage, containerStoragePath);
+
+    StorageServiceUtils.copyBetweenStorageServices(sourceStorage, containerStoragePath, targetStorage,
+      containerStoragePath, Container.class, 4, null);
+
+    StorageTestUtils.testEntityEqualRecursively(sourceStorage, containerStoragePath, targetStorage,
+      containerStoragePath);
+  }
+
+  @Test
+  public void testResumeCopy() throws RODAException, IOException {
+    StoragePath containerStoragePath = StorageTestUtils.generateRandomContainerStoragePath();
+    sourceStorage.createContainer(containerStoragePath);
+    StorageTestUtils.populate(sourceStorage, containerStoragePath);
+
+    Path manifestPath = basePath.resolve("manifest.txt");
+    try (StorageCopyManifest manifest = new StorageCopyManifest(manifestPath)) {
+      StorageServiceUtils.copyBetweenStorageServices(sourceStorage, containerStoragePath, targetStorage,
+        containerStoragePath, Container.class, 4, manifest);
+    }
+    Assert.assertEquals(Files.readAllLines(manifestPath, StandardCharsets.UTF_8).size(), 27);
+
+    // resuming over what was already copied does not fail nor copy it again
+    try (StorageCopyManifest manifest = new StorageCopyManifest(manifestPath)) {
+      StorageServiceUtils.copyBetweenStorageServices(sourceStorage, containerStoragePath, targetStorage,
+        containerStoragePath, Container.class, 4, manifest);
+    }
+    Assert.assertEquals(Files.readAllLines(manifestPath, StandardCharsets.UTF_8).size(), 27);
+
+    StorageTestUtils.testEntityEqualRecursively(sourceStorage, containerStoragePath, targetStorage,
+      containerStoragePath);
+  }
+}
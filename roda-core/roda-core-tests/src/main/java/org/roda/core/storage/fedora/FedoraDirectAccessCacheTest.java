@@ -0,0 +1,164 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.storage.fedora;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.roda.core.TestsHelper;
+import org.roda.core.data.exceptions.RODAException;
+import org.roda.core.storage.Binary;
+import org.roda.core.storage.DefaultBinary;
+import org.roda.core.storage.DefaultStoragePath;
+import org.roda.core.storage.RandomMockContentPayload;
+import org.roda.core.storage.fs.FSUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the cache of binaries used to give direct access to Fedora storage,
+ * with binaries standing for Fedora datastreams.
+ */
+public class FedoraDirectAccessCacheTest {
+
+  private Path basePath;
+  private FedoraDirectAccessCache cache;
+
+  @BeforeMethod
+  public void setUp() throws IOException {
+    basePath = TestsHelper.createBaseTempDir(FedoraDirectAccessCacheTest.class, false);
+    cache = new FedoraDirectAccessCache(basePath.resolve("cache"), 1024 * 1024);
+  }
+
+  @AfterMethod
+  public void tearDown() throws RODAException {
+    FSUtils.deletePath(basePath);
+  }
+
+  @Test
+  public void testFetchOnlyWhenChanged() throws RODAException, IOException {
+    AtomicInteger fetches = new AtomicInteger(0);
+    RandomMockContentPayload payload = new RandomMockContentPayload() {
+      @Override
+      public InputStream createInputStream() throws IOException {
+        fetches.incrementAndGet();
+        return super.createInputStream();
+      }
+    };
+
+    Binary binary = binary(payload, "1");
+    cache.materialize(binary, basePath.resolve("access1").resolve("file"));
+    cache.materialize(binary, basePath.resolve("access2").resolve("file"));
+    Assert.assertEquals(fetches.get(), 1);
+    Assert.assertEquals(Files.readAllBytes(basePath.resolve("access2").resolve("file")),
+      Files.readAllBytes(basePath.resolve("access1").resolve("file")));
+
+    // closing one direct access does not affect the cache
+    FSUtils.deletePath(basePath.resolve("access1"));
+    cache.materialize(binary, basePath.resolve("access3").resolve("file"));
+    Assert.assertEquals(fetches.get(), 1);
+
+    // the content changed
+    cache.materialize(binary(payload, "2"), basePath.resolve("access4").resolve("file"));
+    Assert.assertEquals(fetches.get(), 2);
+  }
+
+  @Test
+  public void testAlwaysFetchWithoutDigest() throws RODAException {
+    AtomicInteger fetches = new AtomicInteger(0);
+    RandomMockContentPayload payload = new RandomMockContentPayload() {
+      @Override
+      public InputStream createInputStream() throws IOException {
+        fetches.incrementAndGet();
+        return super.createInputStream();
+      }
+    };
+
+    Binary binary = new DefaultBinary(DefaultStoragePath.parse("container", "binary"), payload, 2000L, false,
+      Collections.emptyMap());
+    cache.materialize(binary, basePath.resolve("access1").resolve("file"));
+    cache.materialize(binary, basePath.resolve("access2").resolve("file"));
+    Assert.assertEquals(fetches.get(), 2);
+  }
+
+  @Test
+  public void testAccessesAreIndependentCopies() throws RODAException, IOException {
+    Binary binary = binary(new RandomMockContentPayload(), "1");
+    Path access1 = basePath.resolve("access1").resolve("file");
+    Path access2 = basePath.resolve("access2").resolve("file");
+    cache.materialize(binary, access1);
+    byte[] content = Files.readAllBytes(access1);
+
+    // changing one access does not change the cache nor other accesses
+    Assert.assertTrue(Files.isWritable(access1));
+    Files.write(access1, new byte[] {1, 2, 3});
+    cache.materialize(binary, access2);
+    Assert.assertEquals(Files.readAllBytes(access2), content);
+  }
+
+  @Test
+  public void testCacheFolderIsPrivateAndCleared() throws RODAException, IOException {
+    Path parentPath = basePath.resolve("cache");
+    cache.materialize(binary(new RandomMockContentPayload(), "1"), basePath.resolve("access").resolve("file"));
+    Path cachePath = getOnlyChild(parentPath);
+    Assert.assertEquals(PosixFilePermissions.toString(Files.getPosixFilePermissions(cachePath)), "rwx------");
+
+    cache.materialize(binary(new RandomMockContentPayload(), "1"), basePath.resolve("access2").resolve("file"));
+    cache.clear();
+    Assert.assertFalse(Files.exists(cachePath));
+    Assert.assertTrue(Files.exists(basePath.resolve("access2").resolve("file")));
+  }
+
+  @Test
+  public void testCachesDoNotShareFolders() throws RODAException, IOException {
+    AtomicInteger fetches = new AtomicInteger(0);
+    RandomMockContentPayload payload = new RandomMockContentPayload() {
+      @Override
+      public InputStream createInputStream() throws IOException {
+        fetches.incrementAndGet();
+        return super.createInputStream();
+      }
+    };
+    Binary binary = binary(payload, "1");
+    cache.materialize(binary, basePath.resolve("access1").resolve("file"));
+
+    // another cache in the same place neither clears nor reuses this one
+    FedoraDirectAccessCache other = new FedoraDirectAccessCache(basePath.resolve("cache"), 1024 * 1024);
+    other.materialize(binary, basePath.resolve("access2").resolve("file"));
+    Assert.assertEquals(fetches.get(), 2);
+    other.clear();
+
+    cache.materialize(binary, basePath.resolve("access3").resolve("file"));
+    Assert.assertEquals(fetches.get(), 2);
+    Assert.assertEquals(Files.readAllBytes(basePath.resolve("access3").resolve("file")),
+      Files.readAllBytes(basePath.resolve("access1").resolve("file")));
+  }
+
+  private static Path getOnlyChild(Path parentPath) throws IOException {
+    try (Stream<Path> children = Files.list(parentPath)) {
+      List<Path> list = children.collect(Collectors.toList());
+      Assert.assertEquals(list.size(), 1);
+      return list.get(0);
+    }
+  }
+
+  private static Binary binary(RandomMockContentPayload payload, String digest) throws RODAException {
+    return new DefaultBinary(DefaultStoragePath.parse("container", "binary"), payload, 2000L, false,
+      Collections.singletonMap("SHA1", digest));
+  }
+}
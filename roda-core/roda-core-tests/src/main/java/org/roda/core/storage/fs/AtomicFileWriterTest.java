@@ -0,0 +1,201 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.storage.fs;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.stream.Stream;
+
+import org.roda.core.TestsHelper;
+import org.roda.core.common.iterables.CloseableIterable;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.common.RodaConstants.IngestFileMaterialization;
+import org.roda.core.data.exceptions.RODAException;
+import org.roda.core.storage.Resource;
+import org.roda.core.storage.StringContentPayload;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test(groups = {RodaConstants.TEST_GROUP_ALL, RodaConstants.TEST_GROUP_TRAVIS})
+public class AtomicFileWriterTest {
+
+  private Path basePath;
+  private AtomicFileWriter writer;
+
+  @BeforeMethod
+  public void setUp() throws IOException {
+    basePath = TestsHelper.createBaseTempDir(AtomicFileWriterTest.class, false);
+    writer = new AtomicFileWriter();
+  }
+
+  @AfterMethod
+  public void tearDown() throws RODAException {
+    writer.close();
+    FSUtils.deletePath(basePath);
+  }
+
+  @Test
+  public void testWriteRenamesIntoPlace() throws IOException {
+    Path target = basePath.resolve("file.txt");
+
+    AtomicFileWriter.Result result = writer.write(new StringContentPayload("content"), target, false);
+    Assert.assertEquals(result.getSizeInBytes(), 7);
+    Assert.assertEquals(read(target), "content");
+
+    writer.write(new StringContentPayload("new content"), target, true);
+    Assert.assertEquals(read(target), "new content");
+    Assert.assertEquals(countTemporaryFiles(), 0);
+  }
+
+  @Test
+  public void testWriteDoesNotReplaceExisting() throws IOException {
+    Path target = basePath.resolve("file.txt");
+    writer.write(new StringContentPayload("content"), target, false);
+
+    try {
+      writer.write(new StringContentPayload("other content"), target, false);
+      Assert.fail("Existing file should not be replaced");
+    } catch (FileAlreadyExistsException e) {
+      // expected
+    }
+    Assert.assertEquals(read(target), "content");
+    Assert.assertEquals(countTemporaryFiles(), 0);
+  }
+
+  @Test
+  public void testFailedWriteLeavesNothingBehind() throws IOException {
+    Path target = basePath.resolve("file.txt");
+    writer.write(new StringContentPayload("content"), target, false);
+
+    try {
+      writer.write(new StringContentPayload("partial content") {
+        @Override
+        public InputStream createInputStream() throws IOException {
+          InputStream in = super.createInputStream();
+          return new InputStream() {
+            @Override
+            public int read() throws IOException {
+              if (in.available() < 5) {
+                throw new IOException("Simulated failure");
+              }
+              return in.read();
+            }
+          };
+        }
+      }, target, true);
+      Assert.fail("Write should have failed");
+    } catch (IOException e) {
+      // expected
+    }
+
+    // the previous content is untouched and the temporary file is removed
+    Assert.assertEquals(read(target), "content");
+    Assert.assertEquals(countTemporaryFiles(), 0);
+  }
+
+  @Test
+  public void testSipFilesAreNeverHardLinked() throws IOException {
+    Path source = basePath.resolve("sip.txt");
+    Files.write(source, "content".getBytes(StandardCharsets.UTF_8));
+
+    for (IngestFileMaterialization materialization : IngestFileMaterialization.values()) {
+      if (materialization == IngestFileMaterialization.MOVE) {
+        continue;
+      }
+      Path target = basePath.resolve("file-" + materialization + ".txt");
+      writer.write(new FSPathContentPayload(source, materialization), target, false);
+      Assert.assertEquals(read(target), "content");
+      Assert.assertFalse(Files.isSameFile(source, target));
+    }
+  }
+
+  @Test
+  public void testTemporaryFilesAreNotListed() throws RODAException, IOException {
+    writer.write(new StringContentPayload("content"), basePath.resolve("file.txt"), false);
+    Path temp = FSUtils.getTemporaryPath(basePath.resolve("other.txt"));
+    Files.write(temp, "in flight".getBytes(StandardCharsets.UTF_8));
+
+    Assert.assertEquals(FSUtils.countPath(basePath), Long.valueOf(1));
+    Assert.assertEquals(FSUtils.recursivelyCountPath(basePath), Long.valueOf(1));
+    try (CloseableIterable<Resource> resources = FSUtils.listPath(basePath, basePath)) {
+      int count = 0;
+      for (Resource resource : resources) {
+        Assert.assertNotNull(resource);
+        count++;
+      }
+      Assert.assertEquals(count, 1);
+    }
+  }
+
+  @Test
+  public void testDeleteStaleTemporaryFiles() throws IOException {
+    Path stale = FSUtils.getTemporaryPath(basePath.resolve("stale.txt"));
+    Path inFlight = FSUtils.getTemporaryPath(basePath.resolve("in-flight.txt"));
+    Files.write(stale, "stale".getBytes(StandardCharsets.UTF_8));
+    Files.write(inFlight, "in flight".getBytes(StandardCharsets.UTF_8));
+    long now = System.currentTimeMillis();
+    Files.setLastModifiedTime(stale, FileTime.fromMillis(now - 60000));
+
+    Assert.assertEquals(FSUtils.deleteStaleTemporaryFiles(basePath, now - 1000), 1);
+    Assert.assertFalse(Files.exists(stale));
+    Assert.assertTrue(Files.exists(inFlight));
+  }
+
+  @Test
+  public void testDeleteStaleTemporaryFolders() throws IOException {
+    Path stale = FSUtils.getTemporaryPath(basePath.resolve("folder"));
+    Files.createDirectories(stale.resolve("sub"));
+    Files.write(stale.resolve("sub").resolve("file.txt"), "stale".getBytes(StandardCharsets.UTF_8));
+    long now = System.currentTimeMillis();
+    Files.setLastModifiedTime(stale, FileTime.fromMillis(now - 60000));
+
+    Assert.assertEquals(FSUtils.deleteStaleTemporaryFiles(basePath, now - 1000), 1);
+    Assert.assertFalse(Files.exists(stale));
+  }
+
+  @Test
+  public void testTemporaryPathBesideDirectory() throws IOException, RODAException {
+    Path storage = Files.createDirectories(basePath.resolve("storage"));
+    Files.write(storage.resolve("file.txt"), "content".getBytes(StandardCharsets.UTF_8));
+
+    Path beside = FSUtils.getTemporaryPathBeside(storage, "data");
+    Assert.assertNotNull(beside);
+    Assert.assertEquals(beside.getParent(), storage.toAbsolutePath().getParent());
+    Assert.assertTrue(FSUtils.isTemporaryFile(beside));
+    Files.createDirectories(beside.resolve("sub"));
+    Files.write(beside.resolve("sub").resolve("file.txt"), "in flight".getBytes(StandardCharsets.UTF_8));
+
+    // not listed nor counted with the directory contents
+    Assert.assertEquals(FSUtils.recursivelyCountPath(storage), Long.valueOf(1));
+
+    long now = System.currentTimeMillis();
+    Assert.assertEquals(FSUtils.deleteStaleTemporaryFilesBeside(storage, now - 60000), 0);
+    Assert.assertTrue(Files.exists(beside));
+    Files.setLastModifiedTime(beside, FileTime.fromMillis(now - 60000));
+    Assert.assertEquals(FSUtils.deleteStaleTemporaryFilesBeside(storage, now - 1000), 1);
+    Assert.assertFalse(Files.exists(beside));
+    Assert.assertTrue(Files.exists(storage.resolve("file.txt")));
+  }
+
+  private long countTemporaryFiles() throws IOException {
+    try (Stream<Path> files = Files.list(basePath)) {
+      return files.filter(FSUtils::isTemporaryFile).count();
+    }
+  }
+
+  private static String read(Path path) throws IOException {
+    return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+  }
+}
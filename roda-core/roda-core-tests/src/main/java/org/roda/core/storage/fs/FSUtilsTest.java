@@ -0,0 +1,139 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.storage.fs;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.roda.core.TestsHelper;
+import org.roda.core.common.iterables.CloseableIterable;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.common.RodaConstants.StorageCopyStrategy;
+import org.roda.core.data.exceptions.RODAException;
+import org.roda.core.data.v2.ip.StoragePath;
+import org.roda.core.storage.DefaultStoragePath;
+import org.roda.core.storage.Resource;
+import org.roda.core.util.CommandException;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test(groups = {RodaConstants.TEST_GROUP_ALL, RodaConstants.TEST_GROUP_TRAVIS})
+public class FSUtilsTest {
+
+  private Path basePath;
+
+  @BeforeMethod
+  public void setUp() throws IOException {
+    basePath = TestsHelper.createBaseTempDir(FSUtilsTest.class, false);
+  }
+
+  @AfterMethod
+  public void tearDown() throws RODAException {
+    FSUtils.deletePath(basePath);
+  }
+
+  @Test
+  public void testCopyDirectory() throws RODAException, IOException {
+    Path source = createTree(basePath.resolve("source"));
+
+    for (StorageCopyStrategy strategy : StorageCopyStrategy.values()) {
+      Path target = basePath.resolve("target-" + strategy);
+      FSUtils.copy(source, target, false, strategy, 2);
+      Assert.assertEquals(read(target.resolve("a.txt")), "a");
+      Assert.assertEquals(read(target.resolve("folder").resolve("b.txt")), "b");
+    }
+  }
+
+  @Test
+  public void testHardLinkCopy() throws RODAException, IOException {
+    Path source = createTree(basePath.resolve("source"));
+    Path target = basePath.resolve("target");
+
+    FSUtils.copy(source, target, false, StorageCopyStrategy.HARDLINK, 1);
+    Assert.assertTrue(Files.isSameFile(source.resolve("a.txt"), target.resolve("a.txt")));
+  }
+
+  @Test
+  public void testWithoutHardLinks() {
+    Assert.assertEquals(FSUtils.withoutHardLinks(StorageCopyStrategy.COPY), StorageCopyStrategy.COPY);
+    Assert.assertEquals(FSUtils.withoutHardLinks(StorageCopyStrategy.HARDLINK), StorageCopyStrategy.COPY);
+    Assert.assertEquals(FSUtils.withoutHardLinks(StorageCopyStrategy.REFLINK), StorageCopyStrategy.REFLINK);
+    Assert.assertEquals(FSUtils.withoutHardLinks(StorageCopyStrategy.AUTO), StorageCopyStrategy.REFLINK);
+  }
+
+  @Test
+  public void testStorageCopyNeverHardLinks() throws RODAException, IOException {
+    FileStorageService storage = new FileStorageService(basePath.resolve("storage"), null,
+      StorageCopyStrategy.HARDLINK, 1);
+    FileStorageService export = new FileStorageService(basePath.resolve("export"), null, StorageCopyStrategy.HARDLINK,
+      1);
+    StoragePath sourcePath = DefaultStoragePath.parse("container", "file.txt");
+    Path source = storage.resolve(sourcePath);
+    Files.createDirectories(source.getParent());
+    Files.write(source, "content".getBytes(StandardCharsets.UTF_8));
+
+    // a copy inside the repository storage must not share its content
+    StoragePath copyPath = DefaultStoragePath.parse("container", "copy.txt");
+    storage.copy(storage, sourcePath, copyPath);
+    Assert.assertFalse(Files.isSameFile(source, storage.resolve(copyPath)));
+
+    // nor a copy out of it, e.g. an export
+    export.copy(storage, sourcePath, sourcePath);
+    Assert.assertFalse(Files.isSameFile(source, export.resolve(sourcePath)));
+  }
+
+  @Test
+  public void testReflinkUnsupportedOnlyOnPermanentFailures() {
+    Assert.assertTrue(FSUtils.isReflinkUnsupported(new CommandException("cp failed", 1,
+      "cp: failed to clone 'b' from 'a': Operation not supported")));
+    // BSD/macOS cp does not know --reflink
+    Assert.assertTrue(FSUtils.isReflinkUnsupported(
+      new CommandException("cp failed", 64, "cp: illegal option -- -\nusage: cp [-R [-H | -L | -P]] source target")));
+    Assert.assertTrue(FSUtils.isReflinkUnsupported(
+      new CommandException("cp failed", 1, "cp: failed to clone 'b' from 'a': Invalid cross-device link")));
+    Assert.assertFalse(FSUtils.isReflinkUnsupported(
+      new CommandException("cp failed", 1, "cp: error writing 'b': No space left on device")));
+    Assert.assertFalse(FSUtils.isReflinkUnsupported(
+      new CommandException("cp failed", 1, "cp: error reading 'a': Input/output error")));
+  }
+
+  @Test
+  public void testCountResources() throws RODAException, IOException {
+    Path root = createTree(basePath.resolve("root"));
+    Path linked = createTree(basePath.resolve("linked"));
+    Files.createSymbolicLink(root.resolve("link"), linked);
+    Files.write(FSUtils.getTemporaryPath(root.resolve("c.txt")), "c".getBytes(StandardCharsets.UTF_8));
+    Files.createDirectory(FSUtils.getTemporaryPath(root.resolve("other-folder")));
+
+    // links are followed and temporary files or folders are left out
+    Assert.assertEquals(FSUtils.recursivelyCountPath(root), Long.valueOf(7));
+    try (CloseableIterable<Resource> resources = FSUtils.recursivelyListPath(root, root)) {
+      long listed = 0;
+      for (Resource resource : resources) {
+        Assert.assertNotNull(resource);
+        listed++;
+      }
+      Assert.assertEquals(listed, 7);
+    }
+  }
+
+  private static Path createTree(Path root) throws IOException {
+    Files.createDirectories(root.resolve("folder"));
+    Files.write(root.resolve("a.txt"), "a".getBytes(StandardCharsets.UTF_8));
+    Files.write(root.resolve("folder").resolve("b.txt"), "b".getBytes(StandardCharsets.UTF_8));
+    return root;
+  }
+
+  private static String read(Path path) throws IOException {
+    return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+  }
+}
@@ -8,17 +8,24 @@
 package org.roda.core.storage.fs;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.stream.Stream;
 
 import org.roda.core.TestsHelper;
 import org.roda.core.data.exceptions.GenericException;
 import org.roda.core.data.exceptions.RODAException;
+import org.roda.core.data.v2.ip.StoragePath;
 import org.roda.core.storage.AbstractStorageServiceTest;
+import org.roda.core.storage.DefaultStoragePath;
 import org.roda.core.storage.StorageService;
+import org.roda.core.storage.StringContentPayload;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.testng.Assert;
@@ -109,6 +116,67 @@ public class FileStorageServiceTest extends AbstractStorageServiceTest<FileStora
     }
   }
 
+  @Test
+  public void testTrashNeverReplaces() throws RODAException, IOException {
+    Path dataPath = basePath.resolve("data");
+    FileStorageService trashingStorage = new FileStorageService(dataPath.resolve("storage"), "trash-test");
+    StoragePath path = DefaultStoragePath.parse("container", "file.txt");
+
+    for (String content : Arrays.asList("first", "second")) {
+      trashingStorage.createBinary(path, new StringContentPayload(content), false);
+      trashingStorage.deleteResource(path);
+    }
+
+    // the second deletion goes to a unique folder, keeping the first
+    Path trashPath = dataPath.resolve("trash-test");
+    Path firstTrashed = trashPath.resolve("storage").resolve("container").resolve("file.txt");
+    Assert.assertEquals(new String(Files.readAllBytes(firstTrashed), StandardCharsets.UTF_8), "first");
+    try (Stream<Path> trashed = Files.walk(trashPath)) {
+      Assert.assertEquals(trashed.filter(Files::isRegularFile).count(), 2);
+    }
+  }
+
+  @Test
+  public void testTrashFallsBackToMoveWhenRenameIsNotAtomic() throws RODAException, IOException {
+    Path dataPath = basePath.resolve("data");
+    FileStorageService trashingStorage = new FileStorageService(dataPath.resolve("storage"), "trash-test") {
+      @Override
+      void renameIntoTrash(Path fromPath, Path toPath) throws IOException {
+        // e.g. trash on another file system
+        throw new AtomicMoveNotSupportedException(fromPath.toString(), toPath.toString(), "not atomic");
+      }
+    };
+    StoragePath filePath = DefaultStoragePath.parse("container", "file.txt");
+    StoragePath directoryPath = DefaultStoragePath.parse("container", "directory");
+    trashingStorage.createBinary(filePath, new StringContentPayload("file"), false);
+    trashingStorage.createBinary(DefaultStoragePath.parse("container", "directory", "sub", "file.txt"),
+      new StringContentPayload("in directory"), false);
+
+    trashingStorage.deleteResource(filePath);
+    trashingStorage.deleteResource(directoryPath);
+
+    Path trashedContainer = dataPath.resolve("trash-test").resolve("storage").resolve("container");
+    Assert.assertEquals(new String(Files.readAllBytes(trashedContainer.resolve("file.txt")), StandardCharsets.UTF_8),
+      "file");
+    Assert.assertEquals(new String(
+      Files.readAllBytes(trashedContainer.resolve("directory").resolve("sub").resolve("file.txt")),
+      StandardCharsets.UTF_8), "in directory");
+    Path container = dataPath.resolve("storage").resolve("container");
+    Assert.assertFalse(Files.exists(container.resolve("file.txt")));
+    Assert.assertFalse(Files.exists(container.resolve("directory")));
+  }
+
+  @Test
+  public void testTrashPurgeKeepsPreExistingTrash() throws RODAException, IOException {
+    Path dataPath = basePath.resolve("data");
+    Path preExisting = dataPath.resolve("trash-test").resolve("old.txt");
+    Files.createDirectories(preExisting.getParent());
+    Files.write(preExisting, "old".getBytes(StandardCharsets.UTF_8));
+
+    new FileStorageService(dataPath.resolve("storage"), "trash-test", null, 1, new AtomicFileWriter(), 1);
+    Assert.assertTrue(Files.exists(preExisting));
+  }
+
   @Override
   protected FileStorageService getStorage() {
     return storage;
@@ -0,0 +1,157 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.roda.core.data.common.RodaConstants;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test(groups = {RodaConstants.TEST_GROUP_ALL, RodaConstants.TEST_GROUP_TRAVIS})
+public class CommandRunnerTest {
+
+  private CommandRunner runner;
+
+  @BeforeMethod
+  public void setUp() {
+    runner = new CommandRunner(4);
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    runner.shutdown();
+  }
+
+  @Test
+  public void testCaptureOutput() throws CommandException {
+    String output = runner.execute(shell("echo first; echo second >&2"), true, null);
+    Assert.assertEquals(output, "first" + System.lineSeparator() + "second" + System.lineSeparator());
+
+    List<String> lines = new ArrayList<>();
+    runner.execute(shell("echo first; echo second"), true, null, lines::add);
+    Assert.assertEquals(lines, Arrays.asList("first", "second"));
+  }
+
+  @Test
+  public void testOutputIsNotLostWithoutKillGracePeriod() throws CommandException {
+    runner.setKillGracePeriod(0);
+    String output = runner.execute(shell("sleep 0.2; echo done"), true, null);
+    Assert.assertEquals(output, "done" + System.lineSeparator());
+  }
+
+  @Test
+  public void testOutputBiggerThanMaxSizeIsTruncated() throws CommandException {
+    runner.setMaxOutputSize(10);
+    String output = runner.execute(shell("seq 1 100"), true, null);
+    Assert.assertTrue(output.length() <= 10);
+    Assert.assertTrue(output.startsWith("1" + System.lineSeparator()));
+  }
+
+  @Test
+  public void testOutputBiggerThanMaxSizeFails() {
+    runner.setMaxOutputSize(10);
+    runner.setFailOnOutputTruncation(true);
+    try {
+      runner.execute(shell("seq 1 100"), true, null);
+      Assert.fail("Command with output bigger than max size should fail");
+    } catch (CommandException e) {
+      Assert.assertTrue(e.getOutput().length() <= 10);
+      Assert.assertTrue(e.getOutput().startsWith("1" + System.lineSeparator()));
+    }
+  }
+
+  @Test
+  public void testStreamOutputToFile() throws CommandException, IOException {
+    runner.setMaxOutputSize(10);
+    Path outputFile = Files.createTempFile("command-output", ".txt");
+    try {
+      runner.execute(shell("seq 1 100000"), false, null, outputFile);
+      List<String> lines = Files.readAllLines(outputFile);
+      Assert.assertEquals(lines.size(), 100000);
+      Assert.assertEquals(lines.get(99999), "100000");
+    } finally {
+      Files.deleteIfExists(outputFile);
+    }
+  }
+
+  @Test
+  public void testErrorCode() {
+    try {
+      runner.execute(shell("echo failed; exit 3"), true, null);
+      Assert.fail("Command should fail");
+    } catch (CommandException e) {
+      Assert.assertEquals(e.getExitCode(), 3);
+      Assert.assertEquals(e.getOutput(), "failed" + System.lineSeparator());
+    }
+  }
+
+  @Test
+  public void testTimeout() {
+    long start = System.currentTimeMillis();
+    try {
+      runner.execute(shell("echo started; sleep 30"), true, 500L);
+      Assert.fail("Command should time out");
+    } catch (CommandException e) {
+      Assert.assertEquals(e.getExitCode(), -1);
+      Assert.assertEquals(e.getOutput(), "started" + System.lineSeparator());
+    }
+    Assert.assertTrue(System.currentTimeMillis() - start < 15000);
+  }
+
+  @Test
+  public void testKillAfterGracePeriod() {
+    runner.setKillGracePeriod(200);
+    long start = System.currentTimeMillis();
+    try {
+      // ignores the request to terminate, so it has to be killed
+      runner.execute(shell("trap '' TERM; echo started; while true; do sleep 1; done"), true, 500L);
+      Assert.fail("Command should time out");
+    } catch (CommandException e) {
+      Assert.assertEquals(e.getExitCode(), -1);
+    }
+    Assert.assertTrue(System.currentTimeMillis() - start < 15000);
+  }
+
+  @Test
+  public void testCommandsWaitForFreePumps() throws Exception {
+    // two pump threads, so only one command at a time reading its error apart
+    runner.setMaxPumpThreads(2);
+    List<Thread> threads = new ArrayList<>();
+    List<String> outputs = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      Thread thread = new Thread(() -> {
+        try {
+          String output = runner.execute(shell("sleep 0.1; echo ok"), false, null);
+          synchronized (outputs) {
+            outputs.add(output);
+          }
+        } catch (CommandException e) {
+          // assert below
+        }
+      });
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    Assert.assertEquals(outputs.size(), 4);
+  }
+
+  private static List<String> shell(String script) {
+    return Arrays.asList("sh", "-c", script);
+  }
+}
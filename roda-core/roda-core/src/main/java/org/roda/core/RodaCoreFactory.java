@@ -36,6 +36,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -63,6 +64,7 @@ import org.reflections.scanners.ResourcesScanner;
 import org.reflections.util.ClasspathHelper;
 import org.reflections.util.ConfigurationBuilder;
 import org.reflections.util.FilterBuilder;
+import org.roda.core.common.ConfigurableEmailUtility;
 import org.roda.core.common.LdapUtility;
 import org.roda.core.common.Messages;
 import org.roda.core.common.RodaUtils;
@@ -70,11 +72,16 @@ import org.roda.core.common.UserUtility;
 import org.roda.core.common.iterables.CloseableIterable;
 import org.roda.core.common.monitor.TransferUpdateStatus;
 import org.roda.core.common.monitor.TransferredResourcesScanner;
+import org.roda.core.common.notifications.EmailNotificationProcessor;
+import org.roda.core.common.notifications.HTTPNotificationDelivery;
 import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.common.RodaConstants.IngestFileMaterialization;
 import org.roda.core.data.common.RodaConstants.NodeType;
 import org.roda.core.data.common.RodaConstants.PreservationAgentType;
 import org.roda.core.data.common.RodaConstants.PreservationEventType;
 import org.roda.core.data.common.RodaConstants.SolrType;
+import org.roda.core.data.common.RodaConstants.StorageCopyStrategy;
+import org.roda.core.data.common.RodaConstants.StorageFsyncPolicy;
 import org.roda.core.data.common.RodaConstants.StorageType;
 import org.roda.core.data.exceptions.AlreadyExistsException;
 import org.roda.core.data.exceptions.AuthorizationDeniedException;
@@ -114,8 +121,11 @@ import org.roda.core.storage.DefaultStoragePath;
 import org.roda.core.storage.Resource;
 import org.roda.core.storage.StorageService;
 import org.roda.core.storage.fedora.FedoraStorageService;
+import org.roda.core.storage.fs.AtomicFileWriter;
 import org.roda.core.storage.fs.FSUtils;
 import org.roda.core.storage.fs.FileStorageService;
+import org.roda.core.util.CommandRunner;
+import org.roda.core.util.CommandUtility;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -156,6 +166,7 @@ public class RodaCoreFactory {
   private static Path defaultPath;
 
   private static StorageService storage;
+  private static AtomicFileWriter storageWriter = null;
   private static ModelService model;
   private static IndexService index;
   private static SolrClient solr;
@@ -294,6 +305,9 @@ public class RodaCoreFactory {
         // initialize metrics stuff
         initializeMetrics();
 
+        // configure external commands (timeouts, limits & metrics)
+        configureCommandRunner();
+
         // instantiate storage and model service
         instantiateStorageAndModel();
         LOGGER.debug("Finished instantiating storage & model");
@@ -380,6 +394,45 @@ public class RodaCoreFactory {
     }
   }
 
+  private static void configureCommandRunner() {
+    CommandRunner runner = CommandUtility.getRunner();
+    runner.setDefaultTimeout(getRodaConfiguration().getLong("core.tools.command.timeout", CommandRunner.NO_TIMEOUT));
+    runner.setKillGracePeriod(getRodaConfiguration().getLong("core.tools.command.kill_grace_period", 5000L));
+    runner.setMaxOutputSize(getRodaConfigurationAsInt(10485760, "core", "tools", "command", "max_output_size"));
+    runner.setFailOnOutputTruncation(
+      getRodaConfiguration().getBoolean("core.tools.command.fail_on_output_truncation", false));
+    runner.setMaxPumpThreads(getRodaConfigurationAsInt(256, "core", "tools", "command", "max_pump_threads"));
+
+    String toolPrefix = "core.tools.command.tool.";
+    Iterator<String> keys = getRodaConfiguration().getKeys("core.tools.command.tool");
+    while (keys.hasNext()) {
+      String key = keys.next();
+      String toolAndSetting = key.substring(toolPrefix.length());
+      int lastDot = toolAndSetting.lastIndexOf('.');
+      if (lastDot > 0) {
+        String tool = toolAndSetting.substring(0, lastDot);
+        String setting = toolAndSetting.substring(lastDot + 1);
+        if ("timeout".equals(setting)) {
+          runner.setToolTimeout(tool, getRodaConfiguration().getLong(key));
+        } else if ("max_concurrent".equals(setting)) {
+          runner.setToolConcurrency(tool, getRodaConfiguration().getInt(key));
+        } else {
+          LOGGER.warn("Unknown external command setting '{}'", key);
+        }
+      }
+    }
+
+    runner.setListener((tool, spawnTime, runTime, exitValue, timedOut) -> {
+      metricsRegistry.timer(MetricRegistry.name(CommandRunner.class, tool, "spawn")).update(spawnTime,
+        TimeUnit.NANOSECONDS);
+      metricsRegistry.timer(MetricRegistry.name(CommandRunner.class, tool, "run")).update(runTime,
+        TimeUnit.NANOSECONDS);
+      if (timedOut) {
+        metricsRegistry.counter(MetricRegistry.name(CommandRunner.class, tool, "timeouts")).inc();
+      }
+    });
+  }
+
   private static Path determineRodaHomePath() {
     Path rodaHomePath;
     if (System.getProperty(RodaConstants.INSTALL_FOLDER_SYSTEM_PROPERTY) != null) {
@@ -635,7 +688,11 @@ public class RodaCoreFactory {
     } else if (storageType == RodaConstants.StorageType.FILESYSTEM) {
       LOGGER.debug("Going to instantiate Filesystem on '{}'", storagePath);
       String trashDirName = getRodaConfiguration().getString("core.storage.filesystem.trash", "trash");
-      return new FileStorageService(storagePath, trashDirName);
+      storageWriter = instantiateStorageWriter();
+      // hard links are only allowed in export destinations, never in the
+      // repository storage
+      return new FileStorageService(storagePath, trashDirName, FSUtils.withoutHardLinks(getStorageCopyStrategy()),
+        getStorageCopyThreads(), storageWriter, getStorageTrashPurgeThreads());
     } else {
       LOGGER.error("Unknown storage service '{}'", storageType.name());
       throw new GenericException();
@@ -888,6 +945,16 @@ public class RodaCoreFactory {
     instantiateTransferredResourcesScanner();
 
     processPreservationEventTypeProperties();
+
+    // deliver HTTP notifications that were pending when RODA stopped
+    HTTPNotificationDelivery.resumePending();
+
+    // remove what was left by writes interrupted when RODA stopped
+    if (storage instanceof FileStorageService) {
+      Thread cleanup = new Thread(((FileStorageService) storage)::deleteStaleTemporaryFiles, "storage-temp-cleanup");
+      cleanup.setDaemon(true);
+      cleanup.start();
+    }
   }
 
   private static void instantiateWorkerNodeSpecificObjects() {
@@ -957,6 +1024,20 @@ public class RodaCoreFactory {
         jmxMetricsReporter.stop();
       }
 
+      // stop delivering HTTP notifications (pending ones stay queued)
+      HTTPNotificationDelivery.shutdown();
+      EmailNotificationProcessor.shutdown();
+
+      // sync pending storage writes
+      if (storageWriter != null) {
+        storageWriter.close();
+      }
+
+      // delete local copies of Fedora binaries
+      if (storage instanceof FedoraStorageService) {
+        ((FedoraStorageService) storage).shutdown();
+      }
+
       // delete resources that are no longer needed
       toDeleteDuringShutdown.forEach(e -> FSUtils.deletePathQuietly(e));
 
@@ -1343,6 +1424,8 @@ public class RodaCoreFactory {
     RODA_SCHEMAS_CACHE.invalidateAll();
     I18N_CACHE.invalidateAll();
     processPreservationEventTypeProperties();
+    // reconnect with the new email settings
+    ConfigurableEmailUtility.closeIdleTransports();
 
     LOGGER.info("Reloaded roda configurations after file change!");
   }
@@ -1408,6 +1491,92 @@ public class RodaCoreFactory {
     return getRodaConfigurationAsInt(0, keyParts);
   }
 
+  private static AtomicFileWriter instantiateStorageWriter() {
+    String policy = getRodaConfiguration().getString(RodaConstants.CORE_STORAGE_FILESYSTEM_FSYNC,
+      RodaConstants.DEFAULT_STORAGE_FSYNC_POLICY.name());
+    StorageFsyncPolicy fsyncPolicy;
+    try {
+      fsyncPolicy = StorageFsyncPolicy.valueOf(policy.toUpperCase());
+    } catch (IllegalArgumentException e) {
+      LOGGER.warn("Unknown storage fsync policy '{}', using {}", policy, RodaConstants.DEFAULT_STORAGE_FSYNC_POLICY);
+      fsyncPolicy = RodaConstants.DEFAULT_STORAGE_FSYNC_POLICY;
+    }
+    long batchInterval = getRodaConfiguration().getLong(RodaConstants.CORE_STORAGE_FILESYSTEM_FSYNC_BATCH_INTERVAL,
+      1000L);
+    LOGGER.debug("Storage fsync policy: {}", fsyncPolicy);
+    return new AtomicFileWriter(fsyncPolicy, batchInterval);
+  }
+
+  public static StorageCopyStrategy getStorageCopyStrategy() {
+    String strategy = getRodaConfiguration().getString(RodaConstants.CORE_STORAGE_FILESYSTEM_COPY_STRATEGY,
+      RodaConstants.DEFAULT_STORAGE_COPY_STRATEGY.name());
+    try {
+      StorageCopyStrategy copyStrategy = StorageCopyStrategy.valueOf(strategy.toUpperCase());
+      if (copyStrategy == StorageCopyStrategy.HARDLINK) {
+        LOGGER.warn("Storage copy strategy {} is not allowed, as hard linked files share content with the repository,"
+          + " using {}", copyStrategy, StorageCopyStrategy.COPY);
+        copyStrategy = StorageCopyStrategy.COPY;
+      }
+      return copyStrategy;
+    } catch (IllegalArgumentException e) {
+      LOGGER.warn("Unknown storage copy strategy '{}', using {}", strategy, RodaConstants.DEFAULT_STORAGE_COPY_STRATEGY);
+      return RodaConstants.DEFAULT_STORAGE_COPY_STRATEGY;
+    }
+  }
+
+  public static int getStorageCopyThreads() {
+    return getRodaConfiguration().getInt(RodaConstants.CORE_STORAGE_FILESYSTEM_COPY_THREADS,
+      Runtime.getRuntime().availableProcessors());
+  }
+
+  public static int getStorageTrashPurgeThreads() {
+    return getRodaConfiguration().getInt(RodaConstants.CORE_STORAGE_FILESYSTEM_TRASH_PURGE_THREADS, 0);
+  }
+
+  public static int getEmailPoolSize() {
+    return getRodaConfiguration().getInt(RodaConstants.CORE_EMAIL_POOL_SIZE, 2);
+  }
+
+  public static IngestFileMaterialization getIngestFileMaterialization() {
+    String materialization = getRodaConfiguration().getString(
+      RodaConstants.CORE_INGEST_SIP2AIP_FILE_MATERIALIZATION,
+      RodaConstants.DEFAULT_INGEST_FILE_MATERIALIZATION.name());
+    try {
+      IngestFileMaterialization fileMaterialization = IngestFileMaterialization.valueOf(materialization.toUpperCase());
+      if (fileMaterialization == IngestFileMaterialization.HARDLINK) {
+        LOGGER.warn("Ingest file materialization {} is not allowed, as hard linked files share content with the SIP,"
+          + " using {}", fileMaterialization, IngestFileMaterialization.COPY);
+        fileMaterialization = IngestFileMaterialization.COPY;
+      }
+      return fileMaterialization;
+    } catch (IllegalArgumentException e) {
+      LOGGER.warn("Unknown ingest file materialization '{}', using {}", materialization,
+        RodaConstants.DEFAULT_INGEST_FILE_MATERIALIZATION);
+      return RodaConstants.DEFAULT_INGEST_FILE_MATERIALIZATION;
+    }
+  }
+
+  public static int getIngestSIPToAIPThreads() {
+    return getRodaConfiguration().getInt(RodaConstants.CORE_INGEST_SIP2AIP_THREADS, 4);
+  }
+
+  public static int getTransferredResourcesScanThreads() {
+    return getRodaConfiguration().getInt(RodaConstants.CORE_TRANSFERRED_RESOURCES_SCAN_THREADS, 8);
+  }
+
+  public static int getTransferredResourcesScanBatchSize() {
+    return getRodaConfiguration().getInt(RodaConstants.CORE_TRANSFERRED_RESOURCES_SCAN_BATCH_SIZE, 1000);
+  }
+
+  public static int getActionLogReindexThreads() {
+    return getRodaConfiguration().getInt(RodaConstants.CORE_ACTIONLOG_REINDEX_THREADS,
+      Runtime.getRuntime().availableProcessors());
+  }
+
+  public static int getActionLogReindexBatchSize() {
+    return getRodaConfiguration().getInt(RodaConstants.CORE_ACTIONLOG_REINDEX_BATCH_SIZE, 1000);
+  }
+
   public static List<String> getFixityAlgorithms() {
     List<String> algorithms = RodaCoreFactory.getRodaConfigurationAsList("core", "premis", "fixity", "algorithms");
     if (algorithms == null || algorithms.isEmpty()) {
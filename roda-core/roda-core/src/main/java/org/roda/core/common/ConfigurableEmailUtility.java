@@ -9,25 +9,40 @@ package org.roda.core.common;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
 
 import javax.mail.Message;
 import javax.mail.MessagingException;
 import javax.mail.PasswordAuthentication;
 import javax.mail.Session;
+import javax.mail.Transport;
 import javax.mail.internet.InternetAddress;
 import javax.mail.internet.MimeBodyPart;
 import javax.mail.internet.MimeMessage;
 import javax.mail.internet.MimeMultipart;
 
 import org.roda.core.RodaCoreFactory;
-
-import com.sun.mail.smtp.SMTPTransport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class ConfigurableEmailUtility {
 
+  private static final Logger LOGGER = LoggerFactory.getLogger(ConfigurableEmailUtility.class);
   private static final List<String> DEFAULT_PROPERTIES = Arrays.asList("host", "port", "auth", "starttls.enable");
+  /** header for messages whose recipients are all blind carbon copies */
+  private static final String UNDISCLOSED_RECIPIENTS = "undisclosed-recipients:;";
+  /**
+   * connected SMTP transports, reused instead of connecting for each email, by
+   * the configuration they were connected with
+   */
+  private static final Map<String, BlockingQueue<Transport>> IDLE_TRANSPORTS = new ConcurrentHashMap<>();
   private String protocol;
   private String user;
   private String password;
@@ -49,12 +64,22 @@ public class ConfigurableEmailUtility {
   }
 
   public void sendMail(String recipient, String message) throws MessagingException {
+    sendMail(Collections.singletonList(recipient), message);
+  }
+
+  /**
+   * Send the same message to several recipients at once (as blind carbon copy,
+   * to undisclosed recipients, if more than one), through one of the pooled
+   * SMTP connections
+   */
+  public void sendMail(List<String> recipients, String message) throws MessagingException {
 
     if ("".equals(from)) {
       throw new MessagingException();
     }
 
-    Session session = Session.getDefaultInstance(props, authenticator);
+    // not the default session, which keeps the configuration it was created with
+    Session session = Session.getInstance(props, authenticator);
     session.setDebug(false);
 
     Message msg = new MimeMessage(session);
@@ -64,8 +89,17 @@ public class ConfigurableEmailUtility {
     msg.addHeader("name", fromActor);
     msg.setSubject(subject);
 
-    InternetAddress recipientAddress = new InternetAddress(recipient);
-    msg.setRecipient(Message.RecipientType.TO, recipientAddress);
+    InternetAddress[] recipientAddresses = new InternetAddress[recipients.size()];
+    for (int i = 0; i < recipients.size(); i++) {
+      recipientAddresses[i] = new InternetAddress(recipients.get(i));
+    }
+
+    if (recipientAddresses.length == 1) {
+      msg.setRecipients(Message.RecipientType.TO, recipientAddresses);
+    } else {
+      msg.setHeader("To", UNDISCLOSED_RECIPIENTS);
+      msg.setRecipients(Message.RecipientType.BCC, recipientAddresses);
+    }
 
     String htmlMessage = String.format("<?xml version=\"1.0\" encoding=\"UTF-8\"?>%s", message);
     MimeMultipart mimeMultipart = new MimeMultipart();
@@ -75,10 +109,70 @@ public class ConfigurableEmailUtility {
     msg.setContent(mimeMultipart);
 
     // sending the message
-    SMTPTransport transport = (SMTPTransport) session.getTransport(this.protocol);
+    String poolKey = getPoolKey();
+    Transport transport = borrowTransport(session, poolKey);
+    try {
+      // not the (empty) undisclosed recipients group
+      transport.sendMessage(msg, recipientAddresses);
+    } catch (MessagingException e) {
+      closeQuietly(transport);
+      throw e;
+    }
+    returnTransport(transport, poolKey);
+  }
+
+  /**
+   * Close the pooled SMTP connections, e.g. because the configuration they were
+   * connected with changed
+   */
+  public static void closeIdleTransports() {
+    for (String poolKey : IDLE_TRANSPORTS.keySet()) {
+      BlockingQueue<Transport> transports = IDLE_TRANSPORTS.remove(poolKey);
+      if (transports != null) {
+        Transport transport;
+        while ((transport = transports.poll()) != null) {
+          closeQuietly(transport);
+        }
+      }
+    }
+  }
+
+  private String getPoolKey() {
+    return protocol + "|" + user + "|" + password + "|" + new TreeMap<>(props);
+  }
+
+  private Transport borrowTransport(Session session, String poolKey) throws MessagingException {
+    BlockingQueue<Transport> transports = IDLE_TRANSPORTS.computeIfAbsent(poolKey,
+      key -> new LinkedBlockingQueue<>());
+    Transport transport;
+    while ((transport = transports.poll()) != null) {
+      // checks that the server did not close it meanwhile
+      if (transport.isConnected()) {
+        return transport;
+      }
+      closeQuietly(transport);
+    }
+
+    transport = session.getTransport(this.protocol);
     transport.connect();
-    transport.sendMessage(msg, msg.getAllRecipients());
-    transport.close();
+    return transport;
+  }
+
+  private static void returnTransport(Transport transport, String poolKey) {
+    // the pool is gone if the connections were closed meanwhile
+    BlockingQueue<Transport> transports = IDLE_TRANSPORTS.get(poolKey);
+    if (transports == null || transports.size() >= RodaCoreFactory.getEmailPoolSize()
+      || !transports.offer(transport)) {
+      closeQuietly(transport);
+    }
+  }
+
+  private static void closeQuietly(Transport transport) {
+    try {
+      transport.close();
+    } catch (MessagingException e) {
+      LOGGER.debug("Error closing SMTP connection: {}", e.getMessage());
+    }
   }
 
   private void createSessionParameters() {
@@ -11,15 +11,17 @@ import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Function;
 import java.util.stream.Collectors;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
 
 import org.apache.commons.io.IOUtils;
 import org.roda.core.common.iterables.CloseableIterable;
+import org.roda.core.common.tools.ParallelZipWriter;
+import org.roda.core.common.tools.ZipCompressionPolicy;
 import org.roda.core.common.tools.ZipEntryInfo;
-import org.roda.core.common.tools.ZipTools;
 import org.roda.core.data.exceptions.AuthorizationDeniedException;
 import org.roda.core.data.exceptions.GenericException;
 import org.roda.core.data.exceptions.NotFoundException;
@@ -56,45 +58,14 @@ public class DownloadUtils {
 
         @Override
         public void consumeOutputStream(OutputStream out) throws IOException {
-          CloseableIterable<Resource> resources;
-          BufferedOutputStream bos = new BufferedOutputStream(out);
-          ZipOutputStream zos = new ZipOutputStream(bos);
+          ZipCompressionPolicy policy = ZipCompressionPolicy.fromConfiguration();
           try {
-            resources = storage.listResourcesUnderDirectory(storagePath, true);
-            int basePathSize = storagePath.asList().size();
-
-            for (Resource r : resources) {
-              List<String> pathAsList = r.getStoragePath().asList();
-              List<String> relativePathAsList = pathAsList.subList(basePathSize, pathAsList.size());
-              String entryPath = relativePathAsList.stream().collect(Collectors.joining(ZIP_PATH_DELIMITER));
-
-              if (r.isDirectory()) {
-                // adding a directory
-                entryPath += ZIP_PATH_DELIMITER;
-                zos.putNextEntry(new ZipEntry(entryPath));
-                zos.closeEntry();
-              } else {
-                // adding a file
-                ZipEntry entry = new ZipEntry(entryPath);
-                zos.putNextEntry(entry);
-                Binary binary = storage.getBinary(r.getStoragePath());
-                InputStream inputStream = binary.getContent().createInputStream();
-                IOUtils.copy(inputStream, zos);
-                IOUtils.closeQuietly(inputStream);
-                zos.closeEntry();
-              }
-            }
-
-            IOUtils.closeQuietly(resources);
-
-          } catch (GenericException | RequestNotValidException | NotFoundException | AuthorizationDeniedException e) {
-            throw new IOException(e);
+            zip(storage, storagePath, entryPath -> policy.getCompressionMethod(entryPath),
+              entries -> ParallelZipWriter.getSharedInstance().zip(entries, out));
           } finally {
-            IOUtils.closeQuietly(zos);
-            IOUtils.closeQuietly(bos);
+            // also closed when the listing fails, before zipping starts
             IOUtils.closeQuietly(out);
           }
-
         }
 
         @Override
@@ -147,6 +118,92 @@ public class DownloadUtils {
     return stream;
   }
 
+  /**
+   * Zip the contents of a directory into a file, compressing entries in
+   * parallel.
+   * 
+   * @param compressionMethodResolver
+   *          gives the zip compression method for each entry path (relative to
+   *          the directory)
+   */
+  public static void zip(final StorageService storage, final StoragePath directoryPath, final Path zipFile,
+    final ParallelZipWriter zipWriter, final Function<String, Integer> compressionMethodResolver) throws IOException {
+    zip(storage, directoryPath, compressionMethodResolver, entries -> zipWriter.zip(entries, zipFile));
+  }
+
+  private static void zip(final StorageService storage, final StoragePath directoryPath,
+    final Function<String, Integer> compressionMethodResolver, final ZipEntriesConsumer consumer) throws IOException {
+    CloseableIterable<Resource> resources = null;
+    try {
+      resources = storage.listResourcesUnderDirectory(directoryPath, true);
+      consumer.consume(new ZipEntryIterator(storage, resources.iterator(), directoryPath.asList().size(),
+        compressionMethodResolver));
+    } catch (GenericException | RequestNotValidException | NotFoundException | AuthorizationDeniedException e) {
+      throw new IOException(e);
+    } catch (ZipEntryIterator.UncheckedStorageException e) {
+      throw new IOException(e.getCause());
+    } finally {
+      IOUtils.closeQuietly(resources);
+    }
+  }
+
+  @FunctionalInterface
+  private interface ZipEntriesConsumer {
+    void consume(Iterator<ZipEntryInfo> entries) throws IOException;
+  }
+
+  private static class ZipEntryIterator implements Iterator<ZipEntryInfo> {
+    private final StorageService storage;
+    private final Iterator<Resource> resources;
+    private final int basePathSize;
+    private final Function<String, Integer> compressionMethodResolver;
+
+    public ZipEntryIterator(StorageService storage, Iterator<Resource> resources, int basePathSize,
+      Function<String, Integer> compressionMethodResolver) {
+      this.storage = storage;
+      this.resources = resources;
+      this.basePathSize = basePathSize;
+      this.compressionMethodResolver = compressionMethodResolver;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return resources.hasNext();
+    }
+
+    @Override
+    public ZipEntryInfo next() {
+      Resource r = resources.next();
+      List<String> pathAsList = r.getStoragePath().asList();
+      List<String> relativePathAsList = pathAsList.subList(basePathSize, pathAsList.size());
+      String entryPath = relativePathAsList.stream().collect(Collectors.joining(ZIP_PATH_DELIMITER));
+
+      ZipEntryInfo info;
+      if (r.isDirectory()) {
+        // adding a directory
+        info = new ZipEntryInfo(entryPath + ZIP_PATH_DELIMITER);
+      } else {
+        // adding a file
+        try {
+          Binary binary = storage.getBinary(r.getStoragePath());
+          info = new ZipEntryInfo(entryPath, binary.getContent());
+          info.setCompressionMethod(compressionMethodResolver.apply(entryPath));
+        } catch (GenericException | RequestNotValidException | NotFoundException | AuthorizationDeniedException e) {
+          throw new UncheckedStorageException(e);
+        }
+      }
+      return info;
+    }
+
+    private static class UncheckedStorageException extends RuntimeException {
+      private static final long serialVersionUID = -2389434447716624613L;
+
+      public UncheckedStorageException(Throwable cause) {
+        super(cause);
+      }
+    }
+  }
+
   public static StreamResponse createZipStreamResponse(List<ZipEntryInfo> zipEntries, String zipName) {
 
     final ConsumesOutputStream stream = new ConsumesOutputStream() {
@@ -163,7 +220,11 @@ public class DownloadUtils {
 
       @Override
       public void consumeOutputStream(OutputStream out) throws IOException {
-        ZipTools.zip(zipEntries, out);
+        ZipCompressionPolicy policy = ZipCompressionPolicy.fromConfiguration();
+        for (ZipEntryInfo zipEntry : zipEntries) {
+          zipEntry.setCompressionMethod(policy.getCompressionMethod(zipEntry.getName()));
+        }
+        ParallelZipWriter.getSharedInstance().zip(zipEntries.iterator(), out);
       }
     };
 
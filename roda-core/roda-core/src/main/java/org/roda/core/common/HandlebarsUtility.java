@@ -11,11 +11,17 @@ import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
 
 import org.roda.core.data.exceptions.GenericException;
 
 import com.github.jknack.handlebars.Handlebars;
 import com.github.jknack.handlebars.Template;
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 
 public class HandlebarsUtility {
   private static final Handlebars HANDLEBARS = new Handlebars();
@@ -23,6 +29,16 @@ public class HandlebarsUtility {
   private static final String HELPER_IF = "ifCond";
   private static final String CONDITION_AND = "&&";
   private static final String CONDITION_OR = "||";
+  private static final int TEMPLATE_CACHE_SIZE = 500;
+
+  /** compiled templates, by template text, as the same ones are used over and over */
+  private static final LoadingCache<String, Template> TEMPLATE_CACHE = CacheBuilder.newBuilder()
+    .maximumSize(TEMPLATE_CACHE_SIZE).build(new CacheLoader<String, Template>() {
+      @Override
+      public Template load(String template) throws IOException {
+        return getHandlebars().compileInline(template);
+      }
+    });
 
   private HandlebarsUtility() {
     super();
@@ -65,8 +81,14 @@ public class HandlebarsUtility {
 
   public static String executeHandlebars(String template, Map<String, ?> scopes) throws GenericException {
     try {
-      Template templ = getHandlebars().compileInline(template);
+      Template templ = TEMPLATE_CACHE.get(template);
       return templ.apply(scopes);
+    } catch (ExecutionException e) {
+      throw new GenericException(e.getCause());
+    } catch (UncheckedExecutionException e) {
+      // e.g. template parse errors
+      Throwables.throwIfUnchecked(e.getCause());
+      throw e;
     } catch (IOException e) {
       throw new GenericException(e);
     }
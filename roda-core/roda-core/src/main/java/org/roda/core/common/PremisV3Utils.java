@@ -95,7 +95,7 @@ import gov.loc.premis.v3.StringPlusAuthority;
 public final class PremisV3Utils {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(PremisV3Utils.class);
-  private static final String FIXITY_ORIGINATOR = "RODA";
+  public static final String FIXITY_ORIGINATOR = "RODA";
   private static final String W3C_XML_SCHEMA_NS_URI = "http://www.w3.org/2001/XMLSchema";
 
   /** Private empty constructor */
@@ -383,6 +383,17 @@ public final class PremisV3Utils {
   public static ContentPayload createBaseFile(File originalFile, ModelService model,
     Collection<String> fixityAlgorithms) throws GenericException, RequestNotValidException, NotFoundException,
     AuthorizationDeniedException, ValidationException, XmlException {
+    return createBaseFile(originalFile, model, fixityAlgorithms, null);
+  }
+
+  /**
+   * @param calculatedFixities
+   *          fixities already calculated while reading the file for other
+   *          purposes, or null to obtain them from the binary
+   */
+  public static ContentPayload createBaseFile(File originalFile, ModelService model,
+    Collection<String> fixityAlgorithms, List<Fixity> calculatedFixities) throws GenericException,
+    RequestNotValidException, NotFoundException, AuthorizationDeniedException, ValidationException, XmlException {
     ObjectDocument document = ObjectDocument.Factory.newInstance();
     gov.loc.premis.v3.File file = gov.loc.premis.v3.File.Factory.newInstance();
     file.addNewPreservationLevel()
@@ -400,7 +411,14 @@ public final class PremisV3Utils {
     fdct.setFormatVersion("");
     Binary binary = model.getStorage().getBinary(ModelUtils.getFileStoragePath(originalFile));
 
-    if (binary.getContentDigest() != null && !binary.getContentDigest().isEmpty()) {
+    if (calculatedFixities != null) {
+      for (Fixity fixity : calculatedFixities) {
+        FixityComplexType premisFixity = occt.addNewFixity();
+        premisFixity.setMessageDigest(fixity.getMessageDigest());
+        premisFixity.setMessageDigestAlgorithm(getStringPlusAuthority(fixity.getMessageDigestAlgorithm()));
+        premisFixity.setMessageDigestOriginator(getStringPlusAuthority(fixity.getMessageDigestOriginator()));
+      }
+    } else if (binary.getContentDigest() != null && !binary.getContentDigest().isEmpty()) {
       // use binary content digest information
       for (Entry<String, String> entry : binary.getContentDigest().entrySet()) {
         FixityComplexType premisFixity = occt.addNewFixity();
@@ -8,52 +8,89 @@
 package org.roda.core.common.monitor;
 
 import java.io.IOException;
-import java.nio.file.FileVisitOption;
-import java.nio.file.FileVisitResult;
-import java.nio.file.FileVisitor;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.attribute.BasicFileAttributes;
-import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
-import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 import org.roda.core.RodaCoreFactory;
 import org.roda.core.data.common.RodaConstants;
 import org.roda.core.data.exceptions.GenericException;
 import org.roda.core.data.exceptions.RequestNotValidException;
+import org.roda.core.data.v2.index.filter.EmptyKeyFilterParameter;
 import org.roda.core.data.v2.index.filter.Filter;
 import org.roda.core.data.v2.index.filter.NotSimpleFilterParameter;
 import org.roda.core.data.v2.index.filter.SimpleFilterParameter;
 import org.roda.core.data.v2.ip.TransferredResource;
 import org.roda.core.index.IndexService;
 import org.roda.core.index.utils.SolrUtils;
+import org.roda.core.util.IdUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Updates the index of the transferred resources (or of one of their folders)
+ * walking the folders in parallel and sending the resources to the index in
+ * batches.
+ *
+ * The first scan indexes everything and removes from the index what was not
+ * found. Later scans only index what changed since the previous one: files
+ * modified after it, the entries of folders whose list of entries changed
+ * (which changes the folder modification date) and the folders with changes
+ * below them, removing from the index the entries no longer found in the
+ * changed folders. All folders are still listed, as the modification date of a
+ * folder does not reflect the changes deeper in its subtree.
+ */
 public class ReindexTransferredResourcesRunnable implements Runnable {
   private static final Logger LOGGER = LoggerFactory.getLogger(ReindexTransferredResourcesRunnable.class);
 
+  /** for file systems with coarse modification dates */
+  private static final long MODIFICATION_DATE_TOLERANCE = 2000;
+  private static final List<String> CHILDREN_FIELDS_TO_RETURN = Arrays.asList(RodaConstants.INDEX_UUID,
+    RodaConstants.TRANSFERRED_RESOURCE_RELATIVEPATH, RodaConstants.TRANSFERRED_RESOURCE_ISFILE,
+    RodaConstants.TRANSFERRED_RESOURCE_SIZE);
+
+  private TransferredResourcesScanner scanner;
   private Path basePath;
   private Optional<String> folderRelativePath;
   private IndexService index;
+  private boolean forceFullScan;
+
+  private Date lastScanDate;
+  private long modifiedSince;
+  private int batchSize;
+  private List<TransferredResource> batch = new ArrayList<>();
 
-  public ReindexTransferredResourcesRunnable(IndexService index, Path basePath, Optional<String> folderRelativePath) {
-    this.basePath = basePath;
+  public ReindexTransferredResourcesRunnable(TransferredResourcesScanner scanner, IndexService index,
+    Optional<String> folderRelativePath, boolean forceFullScan) {
+    this.scanner = scanner;
+    this.basePath = scanner.getBasePath();
     this.index = index;
     this.folderRelativePath = folderRelativePath;
+    this.forceFullScan = forceFullScan;
   }
 
   @Override
   public void run() {
 
     long start = System.currentTimeMillis();
-    Date lastScanDate = new Date();
+    lastScanDate = new Date();
+    batchSize = Math.max(1, RodaCoreFactory.getTransferredResourcesScanBatchSize());
     RodaCoreFactory.setTransferredResourcesScannerUpdateStatus(folderRelativePath, true);
     try {
-      EnumSet<FileVisitOption> opts = EnumSet.of(FileVisitOption.FOLLOW_LINKS);
       Path path;
       if (folderRelativePath.isPresent()) {
         path = basePath.resolve(Paths.get(folderRelativePath.get()));
@@ -61,83 +98,247 @@ public class ReindexTransferredResourcesRunnable implements Runnable {
         path = basePath;
       }
 
-      LOGGER.info("Start indexing transferred resources {}", path);
-      Files.walkFileTree(path, opts, Integer.MAX_VALUE, new FileVisitor<Path>() {
+      Date previousScanDate = scanner.getLastScanDate(folderRelativePath);
+      boolean fullScan = forceFullScan || previousScanDate == null;
+      modifiedSince = fullScan ? Long.MIN_VALUE : previousScanDate.getTime() - MODIFICATION_DATE_TOLERANCE;
 
-        ArrayDeque<BasicFileAttributes> actualDirectoryAttributesStack = new ArrayDeque<>();
-        ArrayDeque<Long> fileSizeStack = new ArrayDeque<>();
+      LOGGER.info("Start indexing transferred resources {} ({})", path,
+        fullScan ? "full scan" : "changes since " + previousScanDate);
+      if (Files.isDirectory(path)) {
+        BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, RodaCoreFactory.getTransferredResourcesScanThreads()));
+        try {
+          pool.invoke(new ScanFolderTask(path, attrs, fullScan, Collections.emptyList()));
+        } finally {
+          pool.shutdown();
+        }
+      } else if (Files.exists(path)) {
+        BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+        add(TransferredResourcesScanner.createTransferredResource(path, attrs, attrs.size(), basePath, lastScanDate));
+      } else if (folderRelativePath.isPresent()) {
+        // the folder was removed
+        deleteDescendants(folderRelativePath.get());
+        index.delete(TransferredResource.class,
+          Collections.singletonList(IdUtils.getTransferredResourceUUID(folderRelativePath.get())));
+      }
 
-        @Override
-        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
-          actualDirectoryAttributesStack.push(attrs);
-          fileSizeStack.push(0L);
-          return FileVisitResult.CONTINUE;
+      flush();
+      index.commit(TransferredResource.class);
+
+      if (fullScan) {
+        Filter filter;
+        String formattedDate = SolrUtils.getLastScanDate(lastScanDate);
+        if (!folderRelativePath.isPresent()) {
+          filter = new Filter(
+            new NotSimpleFilterParameter(RodaConstants.TRANSFERRED_RESOURCE_LAST_SCAN_DATE, formattedDate));
+        } else {
+          filter = new Filter(
+            new SimpleFilterParameter(RodaConstants.TRANSFERRED_RESOURCE_ANCESTORS, folderRelativePath.get()),
+            new NotSimpleFilterParameter(RodaConstants.TRANSFERRED_RESOURCE_LAST_SCAN_DATE, formattedDate));
         }
 
-        @Override
-        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+        index.delete(TransferredResource.class, filter);
+        index.commit(TransferredResource.class);
+      }
+
+      scanner.setLastScanDate(folderRelativePath, lastScanDate);
+      LOGGER.info("End indexing Transferred Resources. Time elapsed: {} seconds",
+        (System.currentTimeMillis() - start) / 1000);
+    } catch (IOException | GenericException | RequestNotValidException | RuntimeException e) {
+      LOGGER.error("Error reindexing Transferred Resources", e);
+    } finally {
+      RodaCoreFactory.setTransferredResourcesScannerUpdateStatus(folderRelativePath, false);
+    }
+  }
+
+  private boolean isModified(BasicFileAttributes attrs) {
+    return attrs.lastModifiedTime().toMillis() >= modifiedSince;
+  }
+
+  private void add(TransferredResource resource) {
+    List<TransferredResource> toIndex = null;
+    synchronized (this) {
+      batch.add(resource);
+      if (batch.size() >= batchSize) {
+        toIndex = batch;
+        batch = new ArrayList<>();
+      }
+    }
+
+    if (toIndex != null) {
+      index(toIndex);
+    }
+  }
+
+  private void flush() {
+    List<TransferredResource> toIndex;
+    synchronized (this) {
+      toIndex = batch;
+      batch = new ArrayList<>();
+    }
+    index(toIndex);
+  }
+
+  private void index(List<TransferredResource> resources) {
+    try {
+      index.create(TransferredResource.class, resources);
+    } catch (GenericException e) {
+      LOGGER.error("Error adding paths to Transferred Resources index", e);
+    }
+  }
+
+  /**
+   * Remove resources, and everything below them, from the index
+   */
+  private void delete(Collection<TransferredResource> resources) {
+    List<String> uuids = new ArrayList<>();
+    for (TransferredResource resource : resources) {
+      uuids.add(resource.getUUID());
+      if (!resource.isFile()) {
+        deleteDescendants(resource.getRelativePath());
+      }
+    }
+
+    try {
+      index.delete(TransferredResource.class, uuids);
+    } catch (GenericException | RequestNotValidException e) {
+      LOGGER.error("Error removing paths from Transferred Resources index", e);
+    }
+  }
+
+  private void deleteDescendants(String relativePath) {
+    try {
+      index.delete(TransferredResource.class,
+        new Filter(new SimpleFilterParameter(RodaConstants.TRANSFERRED_RESOURCE_ANCESTORS, relativePath)));
+    } catch (GenericException | RequestNotValidException e) {
+      LOGGER.error("Error removing paths from Transferred Resources index", e);
+    }
+  }
+
+  private Map<String, TransferredResource> retrieveIndexedChildren(Path folder) {
+    Filter filter;
+    if (folder.equals(basePath)) {
+      filter = new Filter(new EmptyKeyFilterParameter(RodaConstants.TRANSFERRED_RESOURCE_PARENT_UUID));
+    } else {
+      filter = new Filter(new SimpleFilterParameter(RodaConstants.TRANSFERRED_RESOURCE_PARENT_UUID,
+        IdUtils.createUUID(basePath.relativize(folder).toString())));
+    }
+
+    Map<String, TransferredResource> children = new HashMap<>();
+    for (TransferredResource child : index.findAll(TransferredResource.class, filter, CHILDREN_FIELDS_TO_RETURN)) {
+      children.put(child.getUUID(), child);
+    }
+    return children;
+  }
+
+  private static final class ScanResult {
+    private final long size;
+    private final boolean changed;
+
+    private ScanResult(long size, boolean changed) {
+      this.size = size;
+      this.changed = changed;
+    }
+  }
+
+  /**
+   * Indexes the changes in a folder and forks a task per sub-folder
+   */
+  private final class ScanFolderTask extends RecursiveTask<ScanResult> {
+    private static final long serialVersionUID = 1L;
+
+    private final transient Path folder;
+    private final transient BasicFileAttributes attrs;
+    private final boolean forced;
+    private final transient List<Object> ancestorKeys;
+
+    /**
+     * @param forced
+     *          index everything in the folder, as it is new to the index
+     * @param ancestorKeys
+     *          file keys of the folders above, to detect loops of links
+     */
+    private ScanFolderTask(Path folder, BasicFileAttributes attrs, boolean forced, List<Object> ancestorKeys) {
+      this.folder = folder;
+      this.attrs = attrs;
+      this.forced = forced;
+      this.ancestorKeys = ancestorKeys;
+    }
+
+    @Override
+    protected ScanResult compute() {
+      boolean entriesChanged = forced || isModified(attrs);
+      Map<String, TransferredResource> indexedChildren = entriesChanged && !forced ? retrieveIndexedChildren(folder)
+        : new HashMap<>();
+      boolean changed = entriesChanged;
+      long size = 0;
+
+      List<Object> keys = ancestorKeys;
+      if (attrs.fileKey() != null) {
+        keys = new ArrayList<>(ancestorKeys);
+        keys.add(attrs.fileKey());
+      }
+
+      List<ScanFolderTask> subTasks = new ArrayList<>();
+      try (DirectoryStream<Path> children = Files.newDirectoryStream(folder)) {
+        for (Path child : children) {
+          BasicFileAttributes childAttrs;
           try {
-            long size = Files.size(file);
-            long actualSize = fileSizeStack.pop();
-            fileSizeStack.push(actualSize + size);
-            TransferredResource resource = TransferredResourcesScanner.createTransferredResource(file, attrs, size,
-              basePath, lastScanDate);
-            index.create(TransferredResource.class, resource);
-          } catch (GenericException | RequestNotValidException e) {
-            LOGGER.error("Error adding path to Transferred Resources index", e);
+            childAttrs = Files.readAttributes(child, BasicFileAttributes.class);
+          } catch (IOException e) {
+            LOGGER.debug("Could not read attributes of {}", child, e);
+            continue;
           }
 
-          return FileVisitResult.CONTINUE;
-        }
-
-        @Override
-        public FileVisitResult visitFileFailed(Path file, IOException exc) throws IOException {
-          return FileVisitResult.CONTINUE;
-        }
+          TransferredResource indexedChild = indexedChildren
+            .remove(IdUtils.getTransferredResourceUUID(basePath.relativize(child)));
 
-        @Override
-        public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
-          if (!dir.equals(basePath)) {
-            BasicFileAttributes actualDirectoryAttributes = actualDirectoryAttributesStack.pop();
-            long fileSize = fileSizeStack.pop();
-            TransferredResource resource = TransferredResourcesScanner.createTransferredResource(dir,
-              actualDirectoryAttributes, fileSize, basePath, lastScanDate);
-
-            if (!fileSizeStack.isEmpty()) {
-              long actualSize = fileSizeStack.pop();
-              fileSizeStack.push(actualSize + fileSize);
+          if (childAttrs.isDirectory()) {
+            if (childAttrs.fileKey() != null && keys.contains(childAttrs.fileKey())) {
+              LOGGER.warn("Not indexing {} as it links to one of its parent folders", child);
+            } else {
+              boolean newChild = indexedChild == null || indexedChild.isFile();
+              subTasks.add(new ScanFolderTask(child, childAttrs, forced || (entriesChanged && newChild), keys));
+            }
+          } else {
+            long childSize = childAttrs.size();
+            size += childSize;
+            if (indexedChild != null && !indexedChild.isFile()) {
+              // a folder was replaced by a file with the same name
+              deleteDescendants(indexedChild.getRelativePath());
             }
 
-            try {
-              index.create(TransferredResource.class, resource);
-            } catch (GenericException | RequestNotValidException e) {
-              LOGGER.error("Error adding path to Transferred Resources index", e);
+            if (forced || isModified(childAttrs)
+              || (entriesChanged && (indexedChild == null || indexedChild.getSize() != childSize))) {
+              add(TransferredResourcesScanner.createTransferredResource(child, childAttrs, childSize, basePath,
+                lastScanDate));
+              changed = true;
             }
           }
-          return FileVisitResult.CONTINUE;
         }
-      });
+      } catch (IOException | DirectoryIteratorException e) {
+        LOGGER.warn("Could not list all entries of {}", folder, e);
+        // do not remove from the index what could not be listed
+        indexedChildren.clear();
+      }
 
-      index.commit(TransferredResource.class);
+      if (!indexedChildren.isEmpty()) {
+        delete(indexedChildren.values());
+        changed = true;
+      }
 
-      Filter filter;
-      String formattedDate = SolrUtils.getLastScanDate(lastScanDate);
-      if (!folderRelativePath.isPresent()) {
-        filter = new Filter(
-          new NotSimpleFilterParameter(RodaConstants.TRANSFERRED_RESOURCE_LAST_SCAN_DATE, formattedDate));
-      } else {
-        filter = new Filter(
-          new SimpleFilterParameter(RodaConstants.TRANSFERRED_RESOURCE_ANCESTORS, folderRelativePath.get()),
-          new NotSimpleFilterParameter(RodaConstants.TRANSFERRED_RESOURCE_LAST_SCAN_DATE, formattedDate));
+      invokeAll(subTasks);
+      for (ScanFolderTask subTask : subTasks) {
+        ScanResult result = subTask.join();
+        size += result.size;
+        changed |= result.changed;
       }
 
-      index.delete(TransferredResource.class, filter);
-      index.commit(TransferredResource.class);
-      LOGGER.info("End indexing Transferred Resources. Time elapsed: {} seconds",
-        (System.currentTimeMillis() - start) / 1000);
-      RodaCoreFactory.setTransferredResourcesScannerUpdateStatus(folderRelativePath, false);
-    } catch (IOException | GenericException | RequestNotValidException | RuntimeException e) {
-      LOGGER.error("Error reindexing Transferred Resources", e);
+      if (changed && !folder.equals(basePath)) {
+        add(TransferredResourcesScanner.createTransferredResource(folder, attrs, size, basePath, lastScanDate));
+      }
+
+      return new ScanResult(size, changed);
     }
   }
-}
\ No newline at end of file
+}
@@ -24,6 +24,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -56,6 +57,8 @@ public class TransferredResourcesScanner {
 
   private final Path basePath;
   private IndexService index;
+  /** start dates of the last complete scans, by folder ("" for all) */
+  private final Map<String, Date> lastScanDates = new ConcurrentHashMap<>();
 
   public TransferredResourcesScanner(Path basePath, IndexService index) {
     this.basePath = basePath;
@@ -145,7 +148,7 @@ public class TransferredResourcesScanner {
     Path basePath, Date lastScanDate) {
     Date d = new Date(attr.creationTime().toMillis());
 
-    TransferredResource tr = instantiateTransferredResource(resourcePath, basePath);
+    TransferredResource tr = instantiateTransferredResource(resourcePath, basePath, !attr.isDirectory());
     tr.setSize(size);
     tr.setCreationDate(d);
     tr.setLastScanDate(lastScanDate);
@@ -154,10 +157,15 @@ public class TransferredResourcesScanner {
   }
 
   public static TransferredResource instantiateTransferredResource(Path resourcePath, Path basePath) {
+    return instantiateTransferredResource(resourcePath, basePath, !FSUtils.isDirectory(resourcePath));
+  }
+
+  private static TransferredResource instantiateTransferredResource(Path resourcePath, Path basePath,
+    boolean isFile) {
     Path relativeToBase = basePath.relativize(resourcePath);
     TransferredResource tr = new TransferredResource();
 
-    tr.setFile(!FSUtils.isDirectory(resourcePath));
+    tr.setFile(isFile);
     tr.setFullPath(resourcePath.toString());
     String id = relativeToBase.toString();
     tr.setId(id);
@@ -206,12 +214,46 @@ public class TransferredResourcesScanner {
     index.commit(TransferredResource.class);
   }
 
+  /**
+   * @return the start date of the last complete scan that included the folder
+   *         (i.e. of the folder itself or of one of its ancestors), or null if
+   *         there was none
+   */
+  protected Date getLastScanDate(Optional<String> folderRelativePath) {
+    Date ret = lastScanDates.get("");
+    if (folderRelativePath.isPresent()) {
+      List<String> split = new ArrayList<>(Arrays.asList(folderRelativePath.get().split("/")));
+      while (!split.isEmpty()) {
+        Date folderDate = lastScanDates.get(StringUtils.join(split, "/"));
+        if (folderDate != null && (ret == null || folderDate.after(ret))) {
+          ret = folderDate;
+        }
+        split.remove(split.size() - 1);
+      }
+    }
+    return ret;
+  }
+
+  protected void setLastScanDate(Optional<String> folderRelativePath, Date lastScanDate) {
+    lastScanDates.put(folderRelativePath.orElse(""), lastScanDate);
+  }
+
   public void updateTransferredResources(Optional<String> folderRelativePath, boolean waitToFinish)
     throws IsStillUpdatingException, GenericException {
+    updateTransferredResources(folderRelativePath, waitToFinish, false);
+  }
+
+  /**
+   * @param fullScan
+   *          index everything, instead of only what changed since the last
+   *          scan (e.g. after clearing the index)
+   */
+  public void updateTransferredResources(Optional<String> folderRelativePath, boolean waitToFinish,
+    boolean fullScan) throws IsStillUpdatingException, GenericException {
     if (!RodaCoreFactory.getTransferredResourcesScannerUpdateStatus(folderRelativePath)) {
       if (index != null) {
-        ReindexTransferredResourcesRunnable reindexRunnable = new ReindexTransferredResourcesRunnable(index, basePath,
-          folderRelativePath);
+        ReindexTransferredResourcesRunnable reindexRunnable = new ReindexTransferredResourcesRunnable(this, index,
+          folderRelativePath, fullScan);
 
         if (waitToFinish) {
           reindexRunnable.run();
@@ -9,9 +9,15 @@ package org.roda.core.common.notifications;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import javax.mail.MessagingException;
 
@@ -21,7 +27,9 @@ import org.roda.core.RodaCoreFactory;
 import org.roda.core.common.ConfigurableEmailUtility;
 import org.roda.core.common.HandlebarsUtility;
 import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.exceptions.AuthorizationDeniedException;
 import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.exceptions.NotFoundException;
 import org.roda.core.data.v2.notifications.Notification;
 import org.roda.core.data.v2.notifications.Notification.NOTIFICATION_STATE;
 import org.roda.core.data.v2.user.User;
@@ -34,9 +42,14 @@ public class EmailNotificationProcessor implements NotificationProcessor {
   private static final String FROM = "from";
   private static final String RECIPIENT = "recipient";
   private static final Logger LOGGER = LoggerFactory.getLogger(EmailNotificationProcessor.class);
+  private static final long SHUTDOWN_TIMEOUT = 10000;
+  private static ExecutorService asyncExecutor = null;
   private Map<String, Object> scope;
   private String templateName;
   private String localeString;
+  private boolean async = false;
+  /** emails waiting to be sent in the background, recipients by body */
+  private Map<String, List<String>> pendingMessages = null;
 
   public EmailNotificationProcessor(String templateName) {
     this.scope = new HashMap<>();
@@ -54,6 +67,17 @@ public class EmailNotificationProcessor implements NotificationProcessor {
     this.localeString = localeString;
   }
 
+  /**
+   * @param async
+   *          send the emails in the background, so that the notification is
+   *          created with state CREATED and updated once they are sent
+   */
+  public EmailNotificationProcessor(String templateName, Map<String, Object> scope, boolean async) {
+    this.templateName = templateName;
+    this.scope = scope;
+    this.async = async;
+  }
+
   @Override
   public Notification processNotification(ModelService model, final Notification notification) {
     Notification processedNotification = new Notification(notification);
@@ -93,17 +117,24 @@ public class EmailNotificationProcessor implements NotificationProcessor {
       }
 
       scope.remove(RECIPIENT);
-      ConfigurableEmailUtility emailUtility = new ConfigurableEmailUtility(processedNotification.getFromUser(),
-        processedNotification.getSubject());
 
-      for (String recipient : recipients) {
-        String modifiedBody = getUpdatedMessageBody(model, notification, recipient, template, scope);
+      if (!recipients.isEmpty()) {
         String host = RodaCoreFactory.getRodaConfigurationAsString("core", "email", "host");
         if (StringUtils.isNotBlank(host)) {
-          LOGGER.debug("Sending email ...");
-          emailUtility.sendMail(recipient, modifiedBody);
-          LOGGER.debug("Email sent");
-          processedNotification.setState(NOTIFICATION_STATE.COMPLETED);
+          // recipients that get the same body are sent a single message
+          Map<String, List<String>> messages = new LinkedHashMap<>();
+          for (String recipient : recipients) {
+            String modifiedBody = getUpdatedMessageBody(model, notification, recipient, template, scope);
+            messages.computeIfAbsent(modifiedBody, body -> new ArrayList<>()).add(recipient);
+          }
+
+          if (async) {
+            pendingMessages = messages;
+            processedNotification.setState(NOTIFICATION_STATE.CREATED);
+          } else {
+            sendMessages(processedNotification, messages);
+            processedNotification.setState(NOTIFICATION_STATE.COMPLETED);
+          }
         } else {
           processedNotification.setState(NOTIFICATION_STATE.FAILED);
           LOGGER.debug("SMTP not defined, cannot send emails");
@@ -116,6 +147,42 @@ public class EmailNotificationProcessor implements NotificationProcessor {
     return processedNotification;
   }
 
+  @Override
+  public void notificationCreated(ModelService model, Notification notification) {
+    if (pendingMessages != null) {
+      Map<String, List<String>> messages = pendingMessages;
+      Notification deliveredNotification = new Notification(notification);
+      pendingMessages = null;
+
+      getAsyncExecutor().execute(() -> {
+        try {
+          sendMessages(deliveredNotification, messages);
+          deliveredNotification.setState(NOTIFICATION_STATE.COMPLETED);
+        } catch (MessagingException | RuntimeException e) {
+          deliveredNotification.setState(NOTIFICATION_STATE.FAILED);
+          LOGGER.debug("Error sending e-mail: {}", e.getMessage());
+        }
+
+        try {
+          model.updateNotification(deliveredNotification);
+        } catch (GenericException | NotFoundException | AuthorizationDeniedException e) {
+          LOGGER.error("Could not update the state of notification {}", deliveredNotification.getId(), e);
+        }
+      });
+    }
+  }
+
+  private static void sendMessages(Notification notification, Map<String, List<String>> messages)
+    throws MessagingException {
+    ConfigurableEmailUtility emailUtility = new ConfigurableEmailUtility(notification.getFromUser(),
+      notification.getSubject());
+    for (Entry<String, List<String>> message : messages.entrySet()) {
+      LOGGER.debug("Sending email to {} recipient(s) ...", message.getValue().size());
+      emailUtility.sendMail(message.getValue(), message.getKey());
+      LOGGER.debug("Email sent");
+    }
+  }
+
   private String getUpdatedMessageBody(ModelService model, Notification notification, String recipient, String template,
     Map<String, Object> scopes) throws GenericException {
 
@@ -141,4 +208,42 @@ public class EmailNotificationProcessor implements NotificationProcessor {
     return HandlebarsUtility.executeHandlebars(template, scopes);
   }
 
+  /** only created if emails are sent in the background */
+  private static synchronized ExecutorService getAsyncExecutor() {
+    if (asyncExecutor == null) {
+      asyncExecutor = Executors.newFixedThreadPool(Math.max(1, RodaCoreFactory.getEmailPoolSize()), runnable -> {
+        Thread thread = new Thread(runnable, "email-notification-sender");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    return asyncExecutor;
+  }
+
+  /**
+   * Stop sending emails in the background, waiting a while for the ones already
+   * queued to be sent
+   */
+  public static void shutdown() {
+    ExecutorService executor;
+    synchronized (EmailNotificationProcessor.class) {
+      executor = asyncExecutor;
+      asyncExecutor = null;
+    }
+
+    if (executor != null) {
+      executor.shutdown();
+      try {
+        if (!executor.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS)) {
+          LOGGER.warn("Emails still being sent were interrupted by the shutdown");
+          executor.shutdownNow();
+        }
+      } catch (InterruptedException e) {
+        executor.shutdownNow();
+        Thread.currentThread().interrupt();
+      }
+    }
+    ConfigurableEmailUtility.closeIdleTransports();
+  }
+
 }
@@ -0,0 +1,330 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.common.notifications;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+import org.roda.core.RodaCoreFactory;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.exceptions.AuthorizationDeniedException;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.exceptions.NotFoundException;
+import org.roda.core.data.utils.JsonUtils;
+import org.roda.core.data.v2.notifications.Notification;
+import org.roda.core.data.v2.notifications.Notification.NOTIFICATION_STATE;
+import org.roda.core.model.ModelService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Delivers HTTP notifications in the background, through a client shared by
+ * the whole process (which keeps connections alive between notifications).
+ *
+ * Notifications waiting to be delivered are kept in a folder under the RODA
+ * data folder, so that they survive a restart. Failed deliveries are retried
+ * with exponential backoff until the configured number of retries is reached,
+ * and only then is the notification marked as FAILED. Any 2xx response counts
+ * as delivered.
+ *
+ * After {@link #shutdown()} no more deliveries are attempted (new ones are only
+ * queued) until {@link #resumePending()} is called again.
+ */
+public final class HTTPNotificationDelivery {
+  private static final Logger LOGGER = LoggerFactory.getLogger(HTTPNotificationDelivery.class);
+
+  private static final int DEFAULT_TIMEOUT = 10000;
+  private static final int DEFAULT_POOL_SIZE = 4;
+  private static final int DEFAULT_MAX_RETRIES = 5;
+  private static final long DEFAULT_RETRY_DELAY = 60000;
+  private static final long MAX_RETRY_DELAY = 6 * 60 * 60 * 1000L;
+
+  static final String QUEUE_FOLDER = "http-notifications";
+  private static final String TEMP_SUFFIX = ".tmp";
+
+  private static CloseableHttpClient httpClient = null;
+  private static ScheduledExecutorService scheduler = null;
+  private static boolean stopped = false;
+
+  private HTTPNotificationDelivery() {
+    // do nothing
+  }
+
+  /**
+   * Queue a notification to be posted to an endpoint, updating its state once
+   * it is delivered or all retries failed
+   */
+  public static void enqueue(String notificationId, String endpoint, String content) {
+    PendingDelivery delivery = new PendingDelivery(notificationId, endpoint, content);
+    try {
+      persist(delivery);
+    } catch (GenericException e) {
+      // still try to deliver it, it will only not survive a restart
+      LOGGER.warn("Could not persist HTTP notification {}", notificationId, e);
+    }
+    schedule(delivery, 0);
+  }
+
+  /**
+   * Start delivering notifications, scheduling again the deliveries that were
+   * pending when RODA (or the delivery) stopped
+   */
+  public static void resumePending() {
+    synchronized (HTTPNotificationDelivery.class) {
+      stopped = false;
+    }
+
+    Path queuePath = getQueuePath();
+    if (!Files.isDirectory(queuePath)) {
+      return;
+    }
+
+    try (DirectoryStream<Path> entries = Files.newDirectoryStream(queuePath,
+      "*" + RodaConstants.NOTIFICATION_FILE_EXTENSION)) {
+      for (Path entry : entries) {
+        try {
+          PendingDelivery delivery = JsonUtils.readObjectFromFile(entry, PendingDelivery.class);
+          LOGGER.info("Resuming delivery of HTTP notification {}", delivery.getNotificationId());
+          schedule(delivery, 0);
+        } catch (GenericException e) {
+          LOGGER.error("Could not read pending HTTP notification {}", entry, e);
+        }
+      }
+    } catch (IOException e) {
+      LOGGER.error("Could not list pending HTTP notifications in {}", queuePath, e);
+    }
+  }
+
+  public static synchronized void shutdown() {
+    stopped = true;
+    if (scheduler != null) {
+      // pending deliveries stay queued and are resumed on the next start
+      scheduler.shutdownNow();
+      scheduler = null;
+    }
+    if (httpClient != null) {
+      try {
+        httpClient.close();
+      } catch (IOException e) {
+        LOGGER.warn("Could not close HTTP notification client", e);
+      }
+      httpClient = null;
+    }
+  }
+
+  private static void attempt(PendingDelivery delivery) {
+    if (post(delivery.getEndpoint(), delivery.getContent())) {
+      LOGGER.debug("Notification {} sent", delivery.getNotificationId());
+      finish(delivery, NOTIFICATION_STATE.COMPLETED);
+      return;
+    }
+
+    delivery.setAttempts(delivery.getAttempts() + 1);
+    int maxRetries = RodaCoreFactory.getRodaConfiguration().getInt(RodaConstants.NOTIFICATION_HTTP_MAX_RETRIES,
+      DEFAULT_MAX_RETRIES);
+    if (delivery.getAttempts() > maxRetries) {
+      LOGGER.warn("Notification {} not sent after {} attempts", delivery.getNotificationId(), delivery.getAttempts());
+      finish(delivery, NOTIFICATION_STATE.FAILED);
+      return;
+    }
+
+    long delay = getRetryDelay(delivery.getAttempts());
+    LOGGER.debug("Notification {} not sent, retrying in {} ms", delivery.getNotificationId(), delay);
+    try {
+      persist(delivery);
+    } catch (GenericException e) {
+      LOGGER.warn("Could not persist HTTP notification {}", delivery.getNotificationId(), e);
+    }
+    schedule(delivery, delay);
+  }
+
+  private static synchronized void schedule(PendingDelivery delivery, long delay) {
+    if (stopped) {
+      // it stays queued and is resumed on the next start
+      LOGGER.info("HTTP notification delivery is stopped, notification {} stays queued",
+        delivery.getNotificationId());
+      return;
+    }
+    getScheduler().schedule(() -> attempt(delivery), delay, TimeUnit.MILLISECONDS);
+  }
+
+  private static long getRetryDelay(int attempts) {
+    long delay = RodaCoreFactory.getRodaConfiguration().getLong(RodaConstants.NOTIFICATION_HTTP_RETRY_DELAY,
+      DEFAULT_RETRY_DELAY);
+    return Math.min(delay << Math.min(attempts - 1, 30), MAX_RETRY_DELAY);
+  }
+
+  private static boolean post(String endpoint, String content) {
+    HttpPost httppost = new HttpPost(endpoint);
+    try {
+      httppost.setEntity(new StringEntity(content));
+    } catch (IOException e) {
+      LOGGER.debug("HTTP POST error: {}", e.getMessage());
+      return false;
+    }
+
+    try (CloseableHttpResponse response = getHttpClient().execute(httppost)) {
+      // the entity must be consumed for the connection to be reused
+      String responseTxt = response.getEntity() != null ? EntityUtils.toString(response.getEntity()) : null;
+      int statusCode = response.getStatusLine().getStatusCode();
+      if (statusCode < 200 || statusCode >= 300) {
+        LOGGER.debug("HTTP POST error: {}", response.getStatusLine());
+        return false;
+      }
+      LOGGER.debug("HTTP response: {}", responseTxt);
+      return true;
+    } catch (IOException | RuntimeException e) {
+      LOGGER.debug("HTTP POST error: {}", e.getMessage());
+      return false;
+    }
+  }
+
+  private static void finish(PendingDelivery delivery, NOTIFICATION_STATE state) {
+    try {
+      Files.deleteIfExists(getQueuePath().resolve(getEntryName(delivery)));
+    } catch (IOException e) {
+      LOGGER.warn("Could not remove HTTP notification {} from queue", delivery.getNotificationId(), e);
+    }
+
+    ModelService model = RodaCoreFactory.getModelService();
+    try {
+      Notification notification = model.retrieveNotification(delivery.getNotificationId());
+      notification.setState(state);
+      model.updateNotification(notification);
+    } catch (GenericException | NotFoundException | AuthorizationDeniedException e) {
+      LOGGER.error("Could not update the state of notification {}", delivery.getNotificationId(), e);
+    }
+  }
+
+  private static void persist(PendingDelivery delivery) throws GenericException {
+    Path queuePath = getQueuePath();
+    Path entryPath = queuePath.resolve(getEntryName(delivery));
+    Path tempPath = queuePath.resolve(getEntryName(delivery) + TEMP_SUFFIX);
+    try {
+      Files.createDirectories(queuePath);
+      Files.write(tempPath, JsonUtils.getJsonFromObject(delivery).getBytes(StandardCharsets.UTF_8));
+      Files.move(tempPath, entryPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      throw new GenericException("Could not persist HTTP notification to " + entryPath, e);
+    }
+  }
+
+  private static String getEntryName(PendingDelivery delivery) {
+    return delivery.getNotificationId() + RodaConstants.NOTIFICATION_FILE_EXTENSION;
+  }
+
+  private static Path getQueuePath() {
+    return RodaCoreFactory.getDataPath().resolve(QUEUE_FOLDER);
+  }
+
+  private static synchronized CloseableHttpClient getHttpClient() {
+    if (stopped) {
+      throw new IllegalStateException("HTTP notification delivery is stopped");
+    }
+    if (httpClient == null) {
+      int poolSize = getPoolSize();
+      int timeout = RodaCoreFactory.getRodaConfiguration().getInt(RodaConstants.NOTIFICATION_HTTP_TIMEOUT,
+        DEFAULT_TIMEOUT);
+
+      PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+      connectionManager.setMaxTotal(poolSize);
+      connectionManager.setDefaultMaxPerRoute(poolSize);
+      RequestConfig requestConfig = RequestConfig.custom().setSocketTimeout(timeout).setConnectTimeout(timeout)
+        .setConnectionRequestTimeout(timeout).build();
+
+      httpClient = HttpClients.custom().setConnectionManager(connectionManager).setDefaultRequestConfig(requestConfig)
+        .build();
+    }
+    return httpClient;
+  }
+
+  private static synchronized ScheduledExecutorService getScheduler() {
+    if (scheduler == null) {
+      AtomicInteger threadNumber = new AtomicInteger(1);
+      scheduler = new ScheduledThreadPoolExecutor(getPoolSize(), runnable -> {
+        Thread thread = new Thread(runnable, "http-notification-sender-" + threadNumber.getAndIncrement());
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    return scheduler;
+  }
+
+  private static int getPoolSize() {
+    return Math.max(1,
+      RodaCoreFactory.getRodaConfiguration().getInt(RodaConstants.NOTIFICATION_HTTP_POOL_SIZE, DEFAULT_POOL_SIZE));
+  }
+
+  public static class PendingDelivery implements Serializable {
+    private static final long serialVersionUID = -2390271860475413958L;
+
+    private String notificationId;
+    private String endpoint;
+    private String content;
+    private int attempts = 0;
+
+    public PendingDelivery() {
+      super();
+    }
+
+    public PendingDelivery(String notificationId, String endpoint, String content) {
+      this.notificationId = notificationId;
+      this.endpoint = endpoint;
+      this.content = content;
+    }
+
+    public String getNotificationId() {
+      return notificationId;
+    }
+
+    public void setNotificationId(String notificationId) {
+      this.notificationId = notificationId;
+    }
+
+    public String getEndpoint() {
+      return endpoint;
+    }
+
+    public void setEndpoint(String endpoint) {
+      this.endpoint = endpoint;
+    }
+
+    public String getContent() {
+      return content;
+    }
+
+    public void setContent(String content) {
+      this.content = content;
+    }
+
+    public int getAttempts() {
+      return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+      this.attempts = attempts;
+    }
+  }
+}
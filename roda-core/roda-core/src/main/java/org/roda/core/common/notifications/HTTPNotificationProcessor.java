@@ -7,23 +7,8 @@
  */
 package org.roda.core.common.notifications;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.util.Map;
 
-import org.apache.commons.io.IOUtils;
-import org.apache.http.HttpEntity;
-import org.apache.http.HttpResponse;
-import org.apache.http.HttpStatus;
-import org.apache.http.client.config.RequestConfig;
-import org.apache.http.client.methods.HttpPost;
-import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
-import org.roda.core.RodaCoreFactory;
-import org.roda.core.data.common.RodaConstants;
 import org.roda.core.data.utils.JsonUtils;
 import org.roda.core.data.v2.jobs.Job;
 import org.roda.core.data.v2.notifications.Notification;
@@ -32,6 +17,12 @@ import org.roda.core.model.ModelService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Posts a notification to an HTTP endpoint. The notification is created with
+ * state CREATED and delivered in the background by
+ * {@link HTTPNotificationDelivery}, which updates its state once it is sent
+ * (or all retries failed).
+ */
 public class HTTPNotificationProcessor implements NotificationProcessor {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(HTTPNotificationProcessor.class);
@@ -40,6 +31,8 @@ public class HTTPNotificationProcessor implements NotificationProcessor {
 
   private String endpoint;
   private Map<String, Object> scope;
+  /** content waiting to be posted once the notification is stored */
+  private String pendingContent = null;
 
   public HTTPNotificationProcessor(String endpoint, Map<String, Object> scope) {
     this.endpoint = endpoint;
@@ -54,17 +47,9 @@ public class HTTPNotificationProcessor implements NotificationProcessor {
       String content = createNotificationContent(job);
       notification.setBody(content);
       if (endpoint != null) {
-        LOGGER.debug("Sending notification via HTTP ...");
-        int timeout = RodaCoreFactory.getRodaConfiguration().getInt(RodaConstants.NOTIFICATION_HTTP_TIMEOUT, 10000);
-        boolean success = post(endpoint, content, timeout);
-
-        if (success) {
-          LOGGER.debug("Notification sent");
-          notification.setState(NOTIFICATION_STATE.COMPLETED);
-        } else {
-          LOGGER.debug("Notification not sent");
-          notification.setState(NOTIFICATION_STATE.FAILED);
-        }
+        LOGGER.debug("Queueing notification to be sent via HTTP ...");
+        pendingContent = content;
+        notification.setState(NOTIFICATION_STATE.CREATED);
       } else {
         LOGGER.warn("No endpoint, cannot send notification.");
       }
@@ -73,63 +58,16 @@ public class HTTPNotificationProcessor implements NotificationProcessor {
     return notification;
   }
 
-  private String createNotificationContent(Job job) {
-    // TODO: create content (XML?) from Job
-    return JsonUtils.getJsonFromObject(job);
-  }
-
-  private boolean post(String endpoint, String content, int timeout) {
-    boolean success = true;
-    RequestConfig requestConfig = RequestConfig.custom().setSocketTimeout(timeout).setConnectTimeout(timeout)
-      .setConnectionRequestTimeout(timeout).build();
-
-    try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
-      HttpPost httppost = new HttpPost(endpoint);
-      httppost.setConfig(requestConfig);
-      httppost.setEntity(new StringEntity(content));
-
-      HttpResponse response = httpclient.execute(httppost);
-      if (response.getStatusLine().getStatusCode() != HttpStatus.SC_OK) {
-        success = false;
-      } else {
-        HttpEntity entity = response.getEntity();
-        String responseTxt = processEntity(entity);
-        LOGGER.debug("HTTP response: {}", responseTxt);
-      }
-    } catch (IOException e) {
-      LOGGER.debug("HTTP POST error: {}", e.getMessage());
-      success = false;
+  @Override
+  public void notificationCreated(ModelService model, Notification notification) {
+    if (pendingContent != null) {
+      HTTPNotificationDelivery.enqueue(notification.getId(), endpoint, pendingContent);
+      pendingContent = null;
     }
-
-    return success;
   }
 
-  // FIXME 20160905 hsilva: is this method really needed? and, is this the best
-  // way to implement it (30 lines)?
-  private String processEntity(HttpEntity entity) {
-    String responseTxt = null;
-    if (entity != null) {
-      InputStream is = null;
-      try {
-        is = entity.getContent();
-        StringBuilder sb = new StringBuilder();
-        String line;
-
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(is))) {
-          while ((line = br.readLine()) != null) {
-            sb.append(line);
-          }
-        } catch (IOException e) {
-          // do nothing
-        }
-
-        responseTxt = sb.toString();
-      } catch (UnsupportedOperationException | IOException e1) {
-        // do nothing
-      } finally {
-        IOUtils.closeQuietly(is);
-      }
-    }
-    return responseTxt;
+  private String createNotificationContent(Job job) {
+    // TODO: create content (XML?) from Job
+    return JsonUtils.getJsonFromObject(job);
   }
 }
@@ -13,4 +13,12 @@ import org.roda.core.model.ModelService;
 @FunctionalInterface
 public interface NotificationProcessor {
   public Notification processNotification(ModelService model, Notification notification);
+
+  /**
+   * Called once the processed notification is stored, e.g. to deliver it in
+   * the background and then update its state
+   */
+  public default void notificationCreated(ModelService model, Notification notification) {
+    // nothing to do by default
+  }
 }
@@ -0,0 +1,339 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.common.tools;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+
+import org.apache.commons.compress.archivers.zip.ScatterZipOutputStream;
+import org.apache.commons.compress.archivers.zip.Zip64Mode;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntryRequest;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.io.IOUtils;
+import org.roda.core.RodaCoreFactory;
+import org.roda.core.storage.fs.FSUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes zip files compressing entries in parallel.
+ *
+ * Deflated entries are compressed by a pool of workers (shared by all writers)
+ * into temporary scatter files and then appended, in the order they were
+ * given, to the final zip. Stored entries (see {@link ZipCompressionPolicy})
+ * are copied as-is when writing to a file; when writing to a stream their size
+ * and checksum must be known before their data, so they also go through a
+ * scatter file (still stored), which computes them while reading the entry
+ * once. The amount of entries being prepared at
+ * the same time, shared by all the zips being written with the same writer, is
+ * limited by a budget so that several zips can be written concurrently without
+ * exhausting disk or I/O. ZIP64 is used when needed.
+ */
+public class ParallelZipWriter {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ParallelZipWriter.class);
+
+  private static ParallelZipWriter sharedInstance = null;
+  private static ExecutorService sharedExecutor = null;
+
+  private final ExecutorService executor;
+  private final Semaphore budget;
+  private final Path tempDirectory;
+
+  /**
+   * @param executor
+   *          pool of threads used to compress entries
+   * @param maxPendingEntries
+   *          max number of entries being prepared at the same time (i.e. the
+   *          I/O budget)
+   * @param tempDirectory
+   *          folder where scatter files are created
+   */
+  public ParallelZipWriter(ExecutorService executor, int maxPendingEntries, Path tempDirectory) {
+    this.executor = executor;
+    this.budget = new Semaphore(Math.max(1, maxPendingEntries));
+    this.tempDirectory = tempDirectory;
+  }
+
+  /**
+   * Create a writer, compressing entries with the pool shared by all writers
+   * (of <code>core.export.zip.threads</code> threads), using the budget (
+   * <code>core.export.zip.max_pending_entries</code>) defined in RODA
+   * configuration.
+   */
+  public static ParallelZipWriter fromConfiguration() {
+    int threads = getConfiguredThreads();
+    int maxPendingEntries = 2 * threads;
+    Path tempDirectory = null;
+    if (RodaCoreFactory.getRodaConfiguration() != null) {
+      maxPendingEntries = RodaCoreFactory.getRodaConfigurationAsInt(2 * threads, "core", "export", "zip",
+        "max_pending_entries");
+      tempDirectory = RodaCoreFactory.getWorkingDirectory();
+    }
+    return new ParallelZipWriter(getSharedExecutor(), maxPendingEntries, tempDirectory);
+  }
+
+  private static int getConfiguredThreads() {
+    int processors = Runtime.getRuntime().availableProcessors();
+    if (RodaCoreFactory.getRodaConfiguration() != null) {
+      return Math.max(1, RodaCoreFactory.getRodaConfigurationAsInt(processors, "core", "export", "zip", "threads"));
+    }
+    return processors;
+  }
+
+  private static synchronized ExecutorService getSharedExecutor() {
+    if (sharedExecutor == null) {
+      sharedExecutor = Executors.newFixedThreadPool(getConfiguredThreads(), new ZipThreadFactory());
+    }
+    return sharedExecutor;
+  }
+
+  /**
+   * Writer shared by all on-the-fly zip downloads
+   */
+  public static synchronized ParallelZipWriter getSharedInstance() {
+    if (sharedInstance == null) {
+      sharedInstance = fromConfiguration();
+    }
+    return sharedInstance;
+  }
+
+  /**
+   * Zip entries into a file, which allows stored entries to be written without
+   * computing their checksum beforehand.
+   */
+  public void zip(Iterator<ZipEntryInfo> entries, Path zipFile) throws IOException {
+    ZipArchiveOutputStream zaos = new ZipArchiveOutputStream(zipFile.toFile());
+    try {
+      zip(entries, zaos);
+    } finally {
+      zaos.close();
+    }
+  }
+
+  /**
+   * Zip entries into an output stream. The output stream is closed at the end.
+   */
+  public void zip(Iterator<ZipEntryInfo> entries, OutputStream out) throws IOException {
+    ZipArchiveOutputStream zaos = new ZipArchiveOutputStream(new BufferedOutputStream(out));
+    try {
+      zip(entries, zaos);
+    } finally {
+      IOUtils.closeQuietly(zaos);
+      IOUtils.closeQuietly(out);
+    }
+  }
+
+  private void zip(Iterator<ZipEntryInfo> entries, ZipArchiveOutputStream zaos) throws IOException {
+    zaos.setUseZip64(Zip64Mode.AsNeeded);
+    Deque<PreparedEntry> pending = new ArrayDeque<>();
+    try {
+      while (entries.hasNext()) {
+        ZipEntryInfo info = entries.next();
+
+        // write finished entries (in order) while waiting for budget
+        while (!budget.tryAcquire()) {
+          if (pending.isEmpty()) {
+            budget.acquire();
+            break;
+          }
+          pending.poll().writeTo(zaos);
+        }
+
+        PreparedEntry entry = new PreparedEntry(info, zaos.isSeekable());
+        pending.add(entry);
+        entry.submit();
+
+        while (!pending.isEmpty() && pending.peek().isDone()) {
+          pending.poll().writeTo(zaos);
+        }
+      }
+
+      while (!pending.isEmpty()) {
+        pending.poll().writeTo(zaos);
+      }
+
+      zaos.finish();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while creating zip", e);
+    } finally {
+      for (PreparedEntry entry : pending) {
+        entry.cancel();
+      }
+    }
+  }
+
+  private class PreparedEntry implements Callable<PreparedEntry> {
+    private final ZipEntryInfo info;
+    private final ZipArchiveEntry entry;
+    private final boolean needsScatter;
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private boolean started = false;
+    private boolean cancelled = false;
+    private Path scatterFile = null;
+    private ScatterZipOutputStream scatter = null;
+    private Future<PreparedEntry> future = null;
+    private boolean released = false;
+
+    public PreparedEntry(ZipEntryInfo info, boolean targetIsSeekable) {
+      this.info = info;
+      this.entry = new ZipArchiveEntry(info.getName());
+      if (info.isDirectory()) {
+        this.entry.setMethod(ZipEntry.STORED);
+        this.entry.setSize(0);
+        this.entry.setCrc(0);
+        this.needsScatter = false;
+      } else {
+        this.entry.setMethod(info.getCompressionMethod());
+        // a stored entry needs size & crc before its data when written to a
+        // stream, the scatter file computes them while reading it once
+        this.needsScatter = entry.getMethod() != ZipEntry.STORED || !targetIsSeekable;
+      }
+    }
+
+    public void submit() throws IOException {
+      if (!needsScatter) {
+        // nothing to prepare, stored entries are copied as-is
+        return;
+      }
+
+      scatterFile = tempDirectory != null ? Files.createTempFile(tempDirectory, "zip", ".scatter")
+        : Files.createTempFile("zip", ".scatter");
+      future = executor.submit(this);
+    }
+
+    public boolean isDone() {
+      return future == null || future.isDone();
+    }
+
+    @Override
+    public PreparedEntry call() throws IOException {
+      synchronized (this) {
+        if (cancelled) {
+          return this;
+        }
+        started = true;
+      }
+
+      try {
+        scatter = ScatterZipOutputStream.fileBased(scatterFile.toFile());
+        scatter.addArchiveEntry(ZipArchiveEntryRequest.createZipArchiveEntryRequest(entry, () -> {
+          try {
+            return info.getPayload().createInputStream();
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        }));
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
+      } finally {
+        finished.countDown();
+      }
+      return this;
+    }
+
+    public void writeTo(ZipArchiveOutputStream zaos) throws IOException, InterruptedException {
+      try {
+        if (future != null) {
+          future.get();
+        }
+
+        if (scatter != null) {
+          scatter.writeTo(zaos);
+        } else if (info.isDirectory()) {
+          zaos.putArchiveEntry(entry);
+          zaos.closeArchiveEntry();
+        } else {
+          zaos.putArchiveEntry(entry);
+          try (InputStream in = info.getPayload().createInputStream()) {
+            IOUtils.copyLarge(in, zaos);
+          }
+          zaos.closeArchiveEntry();
+        }
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        throw cause instanceof IOException ? (IOException) cause
+          : new IOException("Error compressing zip entry " + info.getName(), cause);
+      } finally {
+        cleanUp();
+      }
+    }
+
+    public void cancel() {
+      if (future != null) {
+        boolean running;
+        synchronized (this) {
+          cancelled = true;
+          running = started;
+        }
+        future.cancel(true);
+
+        // the worker must be done with the scatter file before it is deleted
+        if (running) {
+          boolean interrupted = false;
+          while (true) {
+            try {
+              finished.await();
+              break;
+            } catch (InterruptedException e) {
+              interrupted = true;
+            }
+          }
+          if (interrupted) {
+            Thread.currentThread().interrupt();
+          }
+        }
+      }
+      cleanUp();
+    }
+
+    private void cleanUp() {
+      if (scatter != null) {
+        IOUtils.closeQuietly(scatter);
+      }
+      if (scatterFile != null) {
+        FSUtils.deletePathQuietly(scatterFile);
+      }
+      if (!released) {
+        released = true;
+        budget.release();
+      }
+    }
+  }
+
+  private static class ZipThreadFactory implements ThreadFactory {
+    private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "zip-worker-" + threadNumber.getAndIncrement());
+      thread.setDaemon(true);
+      thread.setUncaughtExceptionHandler((t, e) -> LOGGER.error("Error in zip worker {}", t.getName(), e));
+      return thread;
+    }
+  }
+}
@@ -0,0 +1,119 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.common.tools;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.roda.core.RodaCoreFactory;
+
+/**
+ * Decides which zip entries should be stored (not deflated) because their
+ * content is already compressed (e.g. JPEG, MP4, PDF/A, ZIP).
+ *
+ * Defaults can be overridden in roda-core.properties using the keys
+ * <code>core.export.zip.stored.mimetypes</code>,
+ * <code>core.export.zip.stored.pronoms</code> and
+ * <code>core.export.zip.stored.extensions</code>.
+ */
+public class ZipCompressionPolicy {
+
+  private static final List<String> DEFAULT_STORED_MIMETYPES = Arrays.asList("image/jpeg", "image/png", "image/gif",
+    "image/jp2", "image/jpx", "image/webp", "video/mp4", "video/mpeg", "video/quicktime", "video/webm",
+    "video/x-matroska", "audio/mpeg", "audio/mp4", "audio/ogg", "application/zip", "application/gzip",
+    "application/x-gzip", "application/x-bzip2", "application/x-xz", "application/x-7z-compressed",
+    "application/x-rar-compressed", "application/pdf", "application/epub+zip");
+
+  private static final List<String> DEFAULT_STORED_PRONOMS = Arrays.asList(
+    // JPEG
+    "fmt/41", "fmt/42", "fmt/43", "fmt/44", "x-fmt/398", "x-fmt/390", "x-fmt/391",
+    // JPEG 2000
+    "x-fmt/392", "fmt/151",
+    // PNG & GIF
+    "fmt/11", "fmt/12", "fmt/13", "fmt/3", "fmt/4",
+    // MPEG-4, MPEG video & MP3
+    "fmt/199", "fmt/649", "fmt/640", "fmt/134",
+    // PDF/A
+    "fmt/95", "fmt/354", "fmt/476", "fmt/477", "fmt/478", "fmt/479", "fmt/480",
+    // ZIP, GZIP, 7z & RAR
+    "x-fmt/263", "x-fmt/266", "fmt/484", "x-fmt/264", "fmt/411");
+
+  private static final List<String> DEFAULT_STORED_EXTENSIONS = Arrays.asList("jpg", "jpeg", "png", "gif", "jp2",
+    "jpx", "webp", "mp4", "m4v", "m4a", "mov", "mkv", "webm", "mpg", "mpeg", "mp3", "ogg", "oga", "ogv", "zip", "gz",
+    "tgz", "bz2", "xz", "7z", "rar", "docx", "xlsx", "pptx", "odt", "ods", "odp", "epub", "pdf");
+
+  private final Set<String> storedMimetypes;
+  private final Set<String> storedPronoms;
+  private final Set<String> storedExtensions;
+
+  public ZipCompressionPolicy(List<String> storedMimetypes, List<String> storedPronoms,
+    List<String> storedExtensions) {
+    this.storedMimetypes = toLowerCaseSet(storedMimetypes);
+    this.storedPronoms = toLowerCaseSet(storedPronoms);
+    this.storedExtensions = toLowerCaseSet(storedExtensions);
+  }
+
+  /**
+   * Create a policy using the lists defined in RODA configuration, falling back
+   * to the default lists of already compressed formats.
+   */
+  public static ZipCompressionPolicy fromConfiguration() {
+    return new ZipCompressionPolicy(getConfiguredList(DEFAULT_STORED_MIMETYPES, "mimetypes"),
+      getConfiguredList(DEFAULT_STORED_PRONOMS, "pronoms"), getConfiguredList(DEFAULT_STORED_EXTENSIONS, "extensions"));
+  }
+
+  private static List<String> getConfiguredList(List<String> defaultValues, String kind) {
+    List<String> values = null;
+    if (RodaCoreFactory.getRodaConfiguration() != null) {
+      values = RodaCoreFactory.getRodaConfigurationAsList("core", "export", "zip", "stored", kind);
+    }
+    return values == null || values.isEmpty() ? defaultValues : values;
+  }
+
+  private static Set<String> toLowerCaseSet(List<String> values) {
+    Set<String> ret = new HashSet<>();
+    for (String value : values) {
+      ret.add(value.trim().toLowerCase(Locale.ENGLISH));
+    }
+    return ret;
+  }
+
+  /**
+   * Get the compression method using only the entry name (file extension)
+   *
+   * @return {@link ZipEntry#STORED} or {@link ZipEntry#DEFLATED}
+   */
+  public int getCompressionMethod(String entryName) {
+    return getCompressionMethod(entryName, null, null);
+  }
+
+  /**
+   * Get the compression method using the format information, when available,
+   * and falling back to the entry name (file extension)
+   *
+   * @return {@link ZipEntry#STORED} or {@link ZipEntry#DEFLATED}
+   */
+  public int getCompressionMethod(String entryName, String mimetype, String pronom) {
+    boolean alreadyCompressed;
+    if (StringUtils.isNotBlank(pronom) || StringUtils.isNotBlank(mimetype)) {
+      alreadyCompressed = (pronom != null && storedPronoms.contains(pronom.trim().toLowerCase(Locale.ENGLISH)))
+        || (mimetype != null && storedMimetypes.contains(mimetype.trim().toLowerCase(Locale.ENGLISH)));
+    } else {
+      String extension = FilenameUtils.getExtension(entryName);
+      alreadyCompressed = storedExtensions.contains(extension.toLowerCase(Locale.ENGLISH));
+    }
+    return alreadyCompressed ? ZipEntry.STORED : ZipEntry.DEFLATED;
+  }
+
+}
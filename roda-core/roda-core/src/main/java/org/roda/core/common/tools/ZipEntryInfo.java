@@ -9,6 +9,7 @@ package org.roda.core.common.tools;
 
 import java.io.FileNotFoundException;
 import java.nio.file.Path;
+import java.util.zip.ZipEntry;
 
 import org.roda.core.storage.ContentPayload;
 import org.roda.core.storage.fs.FSPathContentPayload;
@@ -24,6 +25,19 @@ public class ZipEntryInfo {
 
   private final ContentPayload payload;
 
+  private int compressionMethod = ZipEntry.DEFLATED;
+
+  /**
+   * Create a new zip entry info for a directory
+   * 
+   * @param name
+   *          the directory name, ending with a slash
+   */
+  public ZipEntryInfo(String name) {
+    this(name, (ContentPayload) null);
+    this.compressionMethod = ZipEntry.STORED;
+  }
+
   /**
    * Create a new zip entry info
    * 
@@ -59,4 +73,22 @@ public class ZipEntryInfo {
     return payload;
   }
 
+  public boolean isDirectory() {
+    return payload == null;
+  }
+
+  /**
+   * Get the zip compression method, either {@link ZipEntry#DEFLATED} (default)
+   * or {@link ZipEntry#STORED}
+   * 
+   * @return the compression method of the zip entry
+   */
+  public int getCompressionMethod() {
+    return compressionMethod;
+  }
+
+  public void setCompressionMethod(int compressionMethod) {
+    this.compressionMethod = compressionMethod;
+  }
+
 }
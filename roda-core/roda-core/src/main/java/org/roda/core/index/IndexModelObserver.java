@@ -12,6 +12,7 @@ import java.io.InputStream;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import javax.xml.parsers.ParserConfigurationException;
@@ -38,6 +39,7 @@ import org.roda.core.data.v2.formats.Format;
 import org.roda.core.data.v2.index.IsIndexed;
 import org.roda.core.data.v2.index.facet.Facets;
 import org.roda.core.data.v2.index.filter.Filter;
+import org.roda.core.data.v2.index.filter.OneOfManyFilterParameter;
 import org.roda.core.data.v2.index.filter.SimpleFilterParameter;
 import org.roda.core.data.v2.index.sort.Sorter;
 import org.roda.core.data.v2.ip.AIP;
@@ -93,6 +95,7 @@ import org.xml.sax.SAXException;
 public class IndexModelObserver implements ModelObserver {
 
   private static final int TEN_MB_IN_BYTES = 10485760;
+  private static final int DELETE_BATCH_SIZE = 500;
   private static final Logger LOGGER = LoggerFactory.getLogger(IndexModelObserver.class);
 
   private final SolrClient index;
@@ -497,41 +500,80 @@ public class IndexModelObserver implements ModelObserver {
       SolrInputDocument aipDoc = SolrUtils.updateAIPParentId(aip.getId(), newParentId, topAncestors);
       index.add(RodaConstants.INDEX_AIP, aipDoc);
       updateRepresentationAndFileAncestors(aip, topAncestors);
+      updateDescendantsAncestors(aip);
+    } catch (RequestNotValidException | GenericException | AuthorizationDeniedException | SolrServerException
+      | IOException | NotFoundException e) {
+      LOGGER.error("Error indexing moved AIP {} from {} to {}", aip.getId(), oldParentId, newParentId, e);
+    }
+  }
 
-      LOGGER.debug("Finding descendants of moved aip {}", aip.getId());
-      Filter filter = new Filter(new SimpleFilterParameter(RodaConstants.AIP_ANCESTORS, aip.getId()),
-        new SimpleFilterParameter(RodaConstants.AIP_GHOST, Boolean.FALSE.toString()));
-      List<String> aipFields = Arrays.asList(RodaConstants.INDEX_UUID, RodaConstants.AIP_PARENT_ID,
-        RodaConstants.AIP_HAS_REPRESENTATIONS);
-      boolean justActive = false;
-      boolean removeDuplicates = true;
-
-      List<IndexedAIP> items = new ArrayList<>();
-      new IterableIndexResult<>(index, IndexedAIP.class, filter, Sorter.NONE, Facets.NONE, null, justActive,
-        removeDuplicates, aipFields).forEach(items::add);
-
-      for (IndexedAIP item : items) {
-        SolrInputDocument descendantDoc;
-        try {
-          LOGGER.debug("Reindexing aip {} descendant {}", aip.getId(), item.getId());
-          List<String> ancestors = SolrUtils.getAncestors(item.getParentID(), model);
-          descendantDoc = SolrUtils.updateAIPAncestors(item.getId(), ancestors);
-          index.add(RodaConstants.INDEX_AIP, descendantDoc);
-
-          // update representation and file ancestors information
-          if (item.getHasRepresentations()) {
-            AIP aipModel = model.retrieveAIP(item.getId());
-            updateRepresentationAndFileAncestors(aipModel, ancestors);
-          }
+  @Override
+  public void aipsMoved(List<AIP> aips, String newParentId) {
+    List<String> topAncestors;
+    List<SolrInputDocument> aipDocs = new ArrayList<>(aips.size());
+    try {
+      // all share the same parent, so its ancestors are obtained only once
+      topAncestors = SolrUtils.getAncestors(newParentId, model);
+      for (AIP aip : aips) {
+        aipDocs.add(SolrUtils.updateAIPParentId(aip.getId(), newParentId, topAncestors));
+      }
+    } catch (RequestNotValidException | GenericException | AuthorizationDeniedException e) {
+      LOGGER.error("Error indexing {} AIPs moved to {}", aips.size(), newParentId, e);
+      return;
+    }
 
-        } catch (SolrServerException | IOException | NotFoundException e) {
-          LOGGER.error("Error indexing moved AIP {} from {} to {}", aip.getId(), oldParentId, newParentId, e);
-        }
+    if (!aipDocs.isEmpty()) {
+      try {
+        LOGGER.debug("Reindexing {} moved aips", aipDocs.size());
+        index.add(RodaConstants.INDEX_AIP, aipDocs);
+      } catch (SolrServerException | SolrException | IOException e) {
+        LOGGER.error("Error indexing {} AIPs moved to {}", aips.size(), newParentId, e);
+        return;
       }
+    }
 
-    } catch (RequestNotValidException | GenericException | AuthorizationDeniedException | SolrServerException
-      | IOException | NotFoundException e) {
-      LOGGER.error("Error indexing moved AIP {} from {} to {}", aip.getId(), oldParentId, newParentId, e);
+    for (AIP aip : aips) {
+      try {
+        updateRepresentationAndFileAncestors(aip, topAncestors);
+        updateDescendantsAncestors(aip);
+      } catch (RequestNotValidException | GenericException | AuthorizationDeniedException | SolrServerException
+        | IOException | NotFoundException e) {
+        LOGGER.error("Error indexing moved AIP {} to {}", aip.getId(), newParentId, e);
+      }
+    }
+  }
+
+  private void updateDescendantsAncestors(AIP aip)
+    throws RequestNotValidException, GenericException, AuthorizationDeniedException {
+    LOGGER.debug("Finding descendants of moved aip {}", aip.getId());
+    Filter filter = new Filter(new SimpleFilterParameter(RodaConstants.AIP_ANCESTORS, aip.getId()),
+      new SimpleFilterParameter(RodaConstants.AIP_GHOST, Boolean.FALSE.toString()));
+    List<String> aipFields = Arrays.asList(RodaConstants.INDEX_UUID, RodaConstants.AIP_PARENT_ID,
+      RodaConstants.AIP_HAS_REPRESENTATIONS);
+    boolean justActive = false;
+    boolean removeDuplicates = true;
+
+    List<IndexedAIP> items = new ArrayList<>();
+    new IterableIndexResult<>(index, IndexedAIP.class, filter, Sorter.NONE, Facets.NONE, null, justActive,
+      removeDuplicates, aipFields).forEach(items::add);
+
+    for (IndexedAIP item : items) {
+      SolrInputDocument descendantDoc;
+      try {
+        LOGGER.debug("Reindexing aip {} descendant {}", aip.getId(), item.getId());
+        List<String> ancestors = SolrUtils.getAncestors(item.getParentID(), model);
+        descendantDoc = SolrUtils.updateAIPAncestors(item.getId(), ancestors);
+        index.add(RodaConstants.INDEX_AIP, descendantDoc);
+
+        // update representation and file ancestors information
+        if (item.getHasRepresentations()) {
+          AIP aipModel = model.retrieveAIP(item.getId());
+          updateRepresentationAndFileAncestors(aipModel, ancestors);
+        }
+
+      } catch (SolrServerException | IOException | NotFoundException e) {
+        LOGGER.error("Error indexing descendant {} of moved AIP {}", item.getId(), aip.getId(), e);
+      }
     }
   }
 
@@ -557,13 +599,23 @@ public class IndexModelObserver implements ModelObserver {
 
   @Override
   public void aipDeleted(String aipId, boolean deleteIncidences) {
-    deleteDocumentFromIndex(IndexedAIP.class, aipId);
-    deleteDocumentsFromIndex(IndexedRepresentation.class, RodaConstants.REPRESENTATION_AIP_ID, aipId);
-    deleteDocumentsFromIndex(IndexedFile.class, RodaConstants.FILE_AIP_ID, aipId);
-    deleteDocumentsFromIndex(IndexedPreservationEvent.class, RodaConstants.PRESERVATION_EVENT_AIP_ID, aipId);
+    aipsDeleted(Collections.singletonList(aipId), deleteIncidences);
+  }
 
-    if (deleteIncidences) {
-      deleteDocumentsFromIndex(RiskIncidence.class, RodaConstants.RISK_INCIDENCE_AIP_ID, aipId);
+  @Override
+  public void aipsDeleted(List<String> aipIds, boolean deleteIncidences) {
+    // one request per collection for each batch of AIPs, with a query small
+    // enough for the Solr boolean clauses limit
+    for (int i = 0; i < aipIds.size(); i += DELETE_BATCH_SIZE) {
+      List<String> batch = aipIds.subList(i, Math.min(i + DELETE_BATCH_SIZE, aipIds.size()));
+      deleteDocumentFromIndex(IndexedAIP.class, batch.toArray(new String[batch.size()]));
+      deleteDocumentsFromIndex(IndexedRepresentation.class, RodaConstants.REPRESENTATION_AIP_ID, batch);
+      deleteDocumentsFromIndex(IndexedFile.class, RodaConstants.FILE_AIP_ID, batch);
+      deleteDocumentsFromIndex(IndexedPreservationEvent.class, RodaConstants.PRESERVATION_EVENT_AIP_ID, batch);
+
+      if (deleteIncidences) {
+        deleteDocumentsFromIndex(RiskIncidence.class, RodaConstants.RISK_INCIDENCE_AIP_ID, batch);
+      }
     }
   }
 
@@ -922,6 +974,15 @@ public class IndexModelObserver implements ModelObserver {
     }
   }
 
+  private <T extends IsIndexed> void deleteDocumentsFromIndex(Class<T> classToDelete, String fieldName,
+    List<String> fieldValues) {
+    try {
+      SolrUtils.delete(index, classToDelete, new Filter(new OneOfManyFilterParameter(fieldName, fieldValues)));
+    } catch (GenericException | RequestNotValidException e) {
+      LOGGER.error("Error deleting from index", e);
+    }
+  }
+
   @Override
   public ReturnWithExceptions<Void> jobReportCreatedOrUpdated(Report jobReport, Job job) {
     ReturnWithExceptions<Void> exceptions = new ReturnWithExceptions<>();
@@ -1127,6 +1188,36 @@ public class IndexModelObserver implements ModelObserver {
     return exceptions;
   }
 
+  @Override
+  public ReturnWithExceptions<Void> riskIncidencesCreatedOrUpdated(List<RiskIncidence> riskIncidences,
+    boolean commit) {
+    ReturnWithExceptions<Void> exceptions = new ReturnWithExceptions<>();
+    List<SolrInputDocument> incidenceDocs = new ArrayList<>(riskIncidences.size());
+    for (RiskIncidence riskIncidence : riskIncidences) {
+      incidenceDocs.add(SolrUtils.riskIncidenceToSolrDocument(riskIncidence));
+    }
+
+    if (!incidenceDocs.isEmpty()) {
+      try {
+        index.add(RodaConstants.INDEX_RISK_INCIDENCE, incidenceDocs);
+      } catch (SolrServerException | SolrException | IOException e) {
+        LOGGER.error("Risk incidence documents were not added to index");
+        exceptions.addException(e);
+      }
+    }
+
+    if (commit) {
+      try {
+        SolrUtils.commit(index, RiskIncidence.class);
+      } catch (GenericException | SolrException e) {
+        LOGGER.warn("Commit did not run as expected");
+        exceptions.addException(e);
+      }
+    }
+
+    return exceptions;
+  }
+
   @Override
   public void riskIncidenceDeleted(String riskIncidenceId, boolean commit) {
     deleteDocumentFromIndex(RiskIncidence.class, riskIncidenceId);
@@ -14,10 +14,16 @@ import java.io.InputStreamReader;
 import java.io.Serializable;
 import java.nio.file.NoSuchFileException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
 import org.apache.commons.io.IOUtils;
@@ -27,6 +33,7 @@ import org.apache.solr.common.util.DateUtil;
 import org.roda.core.RodaCoreFactory;
 import org.roda.core.common.ReturnWithExceptions;
 import org.roda.core.common.iterables.CloseableIterable;
+import org.roda.core.common.iterables.CloseableIterables;
 import org.roda.core.data.common.RodaConstants;
 import org.roda.core.data.exceptions.AuthorizationDeniedException;
 import org.roda.core.data.exceptions.GenericException;
@@ -73,6 +80,7 @@ import org.roda.core.data.v2.user.User;
 import org.roda.core.index.utils.IterableIndexResult;
 import org.roda.core.index.utils.SolrUtils;
 import org.roda.core.model.ModelService;
+import org.roda.core.model.iterables.LogEntryStorageIterable;
 import org.roda.core.model.utils.ModelUtils;
 import org.roda.core.storage.Binary;
 import org.roda.core.storage.DefaultStoragePath;
@@ -340,20 +348,97 @@ public class IndexService {
 
   public void reindexActionLogs()
     throws GenericException, NotFoundException, AuthorizationDeniedException, RequestNotValidException {
+    List<CloseableIterable<OptionalWithCause<LogEntry>>> logFiles = new ArrayList<>();
 
     try (CloseableIterable<Resource> actionLogs = model.getStorage()
       .listResourcesUnderContainer(DefaultStoragePath.parse(RodaConstants.STORAGE_CONTAINER_ACTIONLOG), false)) {
 
       for (Resource resource : actionLogs) {
         if (resource instanceof Binary) {
-          Binary b = (Binary) resource;
-          InputStreamReader reader = new InputStreamReader(b.getContent().createInputStream());
-          reindexActionLog(reader);
+          logFiles.add(new LogEntryStorageIterable(CloseableIterables.fromList(Collections.singletonList(resource))));
         }
       }
     } catch (IOException e) {
       throw new GenericException("Error retrieving/processing logs from storage", e);
     }
+
+    reindexActionLogs(logFiles, entry -> LOGGER.warn("Could not reindex log entry", entry.getCause()));
+  }
+
+  /**
+   * Index the entries of several log files, reading the files in parallel and
+   * sending their entries to the index in batches, with a single commit at the
+   * end.
+   *
+   * @param onFailure
+   *          called, from the indexing threads, with each log entry that could
+   *          not be read or indexed
+   * @return the number of log entries indexed
+   */
+  public long reindexActionLogs(List<CloseableIterable<OptionalWithCause<LogEntry>>> logFiles,
+    Consumer<OptionalWithCause<LogEntry>> onFailure) throws GenericException {
+    int batchSize = Math.max(1, RodaCoreFactory.getActionLogReindexBatchSize());
+    ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, RodaCoreFactory.getActionLogReindexThreads()));
+    AtomicLong indexed = new AtomicLong(0);
+
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (CloseableIterable<OptionalWithCause<LogEntry>> logFile : logFiles) {
+        futures.add(executor.submit(() -> indexed.addAndGet(reindexActionLog(logFile, batchSize, onFailure))));
+      }
+
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new GenericException("Interrupted while reindexing action logs", e);
+    } catch (ExecutionException e) {
+      throw new GenericException("Error reindexing action logs", e.getCause());
+    } finally {
+      executor.shutdownNow();
+      for (CloseableIterable<OptionalWithCause<LogEntry>> logFile : logFiles) {
+        IOUtils.closeQuietly(logFile);
+      }
+    }
+
+    commit(LogEntry.class);
+    return indexed.get();
+  }
+
+  private long reindexActionLog(CloseableIterable<OptionalWithCause<LogEntry>> logFile, int batchSize,
+    Consumer<OptionalWithCause<LogEntry>> onFailure) {
+    long indexed = 0;
+    List<LogEntry> batch = new ArrayList<>(batchSize);
+    for (OptionalWithCause<LogEntry> entry : logFile) {
+      if (entry.isPresent()) {
+        batch.add(entry.get());
+        if (batch.size() >= batchSize) {
+          indexed += reindexActionLogBatch(batch, onFailure);
+        }
+      } else {
+        onFailure.accept(entry);
+      }
+    }
+
+    indexed += reindexActionLogBatch(batch, onFailure);
+    return indexed;
+  }
+
+  private int reindexActionLogBatch(List<LogEntry> batch, Consumer<OptionalWithCause<LogEntry>> onFailure) {
+    int indexed = 0;
+    try {
+      create(LogEntry.class, batch);
+      indexed = batch.size();
+    } catch (GenericException e) {
+      LOGGER.error("Log entries were not added to index", e);
+      for (int i = 0; i < batch.size(); i++) {
+        onFailure.accept(OptionalWithCause.empty(e));
+      }
+    } finally {
+      batch.clear();
+    }
+    return indexed;
   }
 
   public void reindexActionLog(InputStreamReader reader) throws GenericException {
@@ -394,7 +479,7 @@ public class IndexService {
     if (AIP.class.equals(objectClass)) {
       reindexAIPs();
     } else if (TransferredResource.class.equals(objectClass)) {
-      RodaCoreFactory.getTransferredResourcesScanner().updateTransferredResources(Optional.empty(), true);
+      RodaCoreFactory.getTransferredResourcesScanner().updateTransferredResources(Optional.empty(), true, true);
     } else {
       StoragePath containerPath = ModelUtils.getContainerPath(objectClass);
       CloseableIterable<Resource> listResourcesUnderDirectory = null;
@@ -551,6 +636,13 @@ public class IndexService {
     SolrUtils.create(getSolrClient(), classToCreate, instance);
   }
 
+  /**
+   * Add several instances with a single request to the index
+   */
+  public <T extends IsIndexed> void create(Class<T> classToCreate, List<T> instances) throws GenericException {
+    SolrUtils.create(getSolrClient(), classToCreate, instances);
+  }
+
   public SolrClient getSolrClient() {
     return solrClient;
   }
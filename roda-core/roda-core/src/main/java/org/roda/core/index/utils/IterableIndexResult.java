@@ -16,23 +16,26 @@ import java.util.NoSuchElementException;
 import java.util.Set;
 
 import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.common.params.CursorMarkParams;
 import org.roda.core.data.common.RodaConstants;
 import org.roda.core.data.exceptions.GenericException;
 import org.roda.core.data.exceptions.RequestNotValidException;
+import org.roda.core.data.v2.common.Pair;
 import org.roda.core.data.v2.index.IndexResult;
 import org.roda.core.data.v2.index.IsIndexed;
 import org.roda.core.data.v2.index.facet.FacetFieldResult;
 import org.roda.core.data.v2.index.facet.Facets;
 import org.roda.core.data.v2.index.filter.Filter;
 import org.roda.core.data.v2.index.sort.Sorter;
-import org.roda.core.data.v2.index.sublist.Sublist;
 import org.roda.core.data.v2.user.User;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Does search in the index, using the Solr.find() method, and if configured
- * removes duplicate objects (via uuid comparison) thus providing iterator
+ * Does search in the index, walking the results with a Solr cursor (see
+ * {@link SolrUtils#findWithCursor}), and if configured removes duplicate objects
+ * (via uuid comparison) thus providing iterator. Only one page of results is
+ * held in memory at a time.
  * 
  * @author Hélder Silva <hsilva@keep.pt>
  */
@@ -58,7 +61,7 @@ public class IterableIndexResult<T extends IsIndexed> implements Iterable<T> {
 
         // see if a new page needs to be obtained
         if (currentObjectInPartialList == indexResultObjects.size()) {
-          getResults(sublist.setFirstElementIndex(sublist.getFirstElementIndex() + PAGE_SIZE));
+          getResults();
           currentObjectInPartialList = 0;
         }
 
@@ -77,7 +80,6 @@ public class IterableIndexResult<T extends IsIndexed> implements Iterable<T> {
   private Class<T> returnClass;
   private Filter filter;
   private Sorter sorter;
-  private Sublist sublist;
   private Facets facets;
   private User user;
   private boolean justActive;
@@ -87,6 +89,8 @@ public class IterableIndexResult<T extends IsIndexed> implements Iterable<T> {
   private Set<String> uniqueUUIDs = new HashSet<>();
   private IndexResult<T> indexResult = null;
   private List<T> indexResultObjects;
+  private List<FacetFieldResult> facetResults = Collections.emptyList();
+  private String cursorMark = CursorMarkParams.CURSOR_MARK_START;
   private int currentObject = 0;
   private int currentObjectInPartialList = 0;
   private long totalObjects = -1;
@@ -104,22 +108,25 @@ public class IterableIndexResult<T extends IsIndexed> implements Iterable<T> {
     this.filter = filter;
     this.sorter = sorter;
     this.facets = facets;
-    // 20170512 hsilva: this is the default & non configurable page size to be
-    // used
-    this.sublist = new Sublist(0, PAGE_SIZE);
     this.user = user;
     this.justActive = justActive;
     this.removeDuplicates = removeDuplicates;
     this.fieldsToReturn = fieldsToReturn;
-    getResults(this.sublist);
+    getResults();
   }
 
-  private void getResults(final Sublist sublist) {
+  private void getResults() {
     try {
-      indexResult = SolrUtils.find(solrClient, returnClass, filter, sorter, sublist, facets, user, justActive,
-        fieldsToReturn);
-      if (totalObjects == -1) {
+      // 20170512 hsilva: PAGE_SIZE is the default & non configurable page size
+      // to be used
+      boolean firstPage = totalObjects == -1;
+      Pair<IndexResult<T>, String> page = SolrUtils.findWithCursor(solrClient, returnClass, filter, sorter,
+        PAGE_SIZE, firstPage ? facets : Facets.NONE, user, justActive, fieldsToReturn, cursorMark);
+      indexResult = page.getFirst();
+      cursorMark = page.getSecond();
+      if (firstPage) {
         totalObjects = indexResult.getTotalCount();
+        facetResults = indexResult.getFacetResults();
       }
 
       if (removeDuplicates) {
@@ -135,6 +142,11 @@ public class IterableIndexResult<T extends IsIndexed> implements Iterable<T> {
       } else {
         indexResultObjects = indexResult.getResults();
       }
+
+      if (indexResultObjects.isEmpty()) {
+        // objects were removed from the index while iterating
+        totalObjects = currentObject;
+      }
     } catch (GenericException | RequestNotValidException e) {
       // just set index result to null & let iterator return proper values
       indexResult = null;
@@ -143,7 +155,7 @@ public class IterableIndexResult<T extends IsIndexed> implements Iterable<T> {
   }
 
   public List<FacetFieldResult> getFacetResults() {
-    return indexResult != null ? indexResult.getFacetResults() : Collections.emptyList();
+    return facetResults;
   }
 
   @Override
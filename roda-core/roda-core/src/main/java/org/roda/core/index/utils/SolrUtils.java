@@ -13,6 +13,7 @@ import java.io.Serializable;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.EnumMap;
 import java.util.HashMap;
@@ -48,6 +49,7 @@ import org.apache.solr.common.SolrDocumentList;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.SolrInputDocument;
 import org.apache.solr.common.SolrInputField;
+import org.apache.solr.common.params.CursorMarkParams;
 import org.apache.solr.common.params.FacetParams;
 import org.apache.solr.common.util.DateUtil;
 import org.apache.solr.handler.loader.XMLLoader;
@@ -66,6 +68,7 @@ import org.roda.core.data.exceptions.RequestNotValidException;
 import org.roda.core.data.utils.JsonUtils;
 import org.roda.core.data.v2.LiteRODAObject;
 import org.roda.core.data.v2.common.OptionalWithCause;
+import org.roda.core.data.v2.common.Pair;
 import org.roda.core.data.v2.formats.Format;
 import org.roda.core.data.v2.index.IndexResult;
 import org.roda.core.data.v2.index.IndexRunnable;
@@ -162,6 +165,7 @@ public class SolrUtils {
   private static final Logger LOGGER = LoggerFactory.getLogger(SolrUtils.class);
 
   private static final String DEFAULT_QUERY_PARSER_OPERATOR = "AND";
+  private static final String FILTER_QUERY_NO_CACHE = "{!cache=false}";
 
   private static final Set<String> NON_REPEATABLE_FIELDS = new HashSet<>(Arrays.asList(RodaConstants.AIP_TITLE,
     RodaConstants.AIP_LEVEL, RodaConstants.AIP_DATE_INITIAL, RodaConstants.AIP_DATE_FINAL));
@@ -237,7 +241,7 @@ public class SolrUtils {
     IndexResult<T> ret;
     SolrQuery query = new SolrQuery();
     query.setParam("q.op", DEFAULT_QUERY_PARSER_OPERATOR);
-    query.setQuery(parseFilter(filter));
+    parseAndConfigureFilter(filter, query);
     query.setSorts(parseSorter(sorter));
     query.setStart(sublist.getFirstElementIndex());
     query.setRows(sublist.getMaximumElementCount());
@@ -282,14 +286,14 @@ public class SolrUtils {
     IndexResult<T> ret;
     SolrQuery query = new SolrQuery();
     query.setParam("q.op", DEFAULT_QUERY_PARSER_OPERATOR);
-    query.setQuery(parseFilter(filter));
+    parseAndConfigureFilter(filter, query);
     query.setSorts(parseSorter(sorter));
     query.setStart(sublist.getFirstElementIndex());
     query.setRows(sublist.getMaximumElementCount());
     query.setFields(fieldsToReturn.toArray(new String[fieldsToReturn.size()]));
     parseAndConfigureFacets(facets, query);
     if (hasPermissionFilters(classToRetrieve)) {
-      query.addFilterQuery(getFilterQueries(user, justActive, classToRetrieve));
+      query.addFilterQuery(getFilterQueries(user, justActive, classToRetrieve).toArray(new String[0]));
     }
 
     try {
@@ -306,6 +310,57 @@ public class SolrUtils {
     return ret;
   }
 
+  /**
+   * Find a page of results using a Solr cursor, which (unlike start/rows
+   * paging) costs the same for any page, so that all results can be walked no
+   * matter how many they are. The index unique key is added to the sorter, as
+   * a cursor needs a total order.
+   * 
+   * @param cursorMark
+   *          {@link CursorMarkParams#CURSOR_MARK_START} for the first page or
+   *          the cursor mark returned with the previous page
+   * @return the results and the cursor mark of the next page, which is the
+   *         same as the given one if there are no more results
+   */
+  public static <T extends IsIndexed> Pair<IndexResult<T>, String> findWithCursor(SolrClient index,
+    Class<T> classToRetrieve, Filter filter, Sorter sorter, int pageSize, Facets facets, User user,
+    boolean justActive, List<String> fieldsToReturn, String cursorMark)
+    throws GenericException, RequestNotValidException {
+    Pair<IndexResult<T>, String> ret;
+    SolrQuery query = new SolrQuery();
+    query.setParam("q.op", DEFAULT_QUERY_PARSER_OPERATOR);
+    parseAndConfigureFilter(filter, query);
+    List<SortClause> sorts = parseSorter(sorter);
+    if (sorts.stream().noneMatch(sort -> RodaConstants.INDEX_UUID.equals(sort.getItem()))) {
+      sorts.add(new SortClause(RodaConstants.INDEX_UUID, ORDER.asc));
+    }
+    query.setSorts(sorts);
+    query.setStart(0);
+    query.setRows(pageSize);
+    query.set(CursorMarkParams.CURSOR_MARK_PARAM, cursorMark);
+    if (!fieldsToReturn.isEmpty()) {
+      query.setFields(fieldsToReturn.toArray(new String[fieldsToReturn.size()]));
+    }
+    parseAndConfigureFacets(facets, query);
+    if (hasPermissionFilters(classToRetrieve)) {
+      query.addFilterQuery(getFilterQueries(user, justActive, classToRetrieve).toArray(new String[0]));
+    }
+
+    try {
+      QueryResponse response = index.query(getIndexName(classToRetrieve).get(0), query);
+      ret = Pair.of(queryResponseToIndexResult(response, classToRetrieve, facets, fieldsToReturn),
+        response.getNextCursorMark());
+    } catch (SolrServerException | IOException e) {
+      throw new GenericException("Could not query index", e);
+    } catch (SolrException e) {
+      throw new RequestNotValidException(e.getMessage());
+    } catch (RuntimeException e) {
+      throw new GenericException("Unexpected exception while querying index", e);
+    }
+
+    return ret;
+  }
+
   /*
    * "Internal" helper methods
    * ____________________________________________________________________________________________________________________
@@ -787,6 +842,42 @@ public class SolrUtils {
     return ret.toString();
   }
 
+  /**
+   * Sets the query and filter queries of a search. Exact matches and ranges,
+   * which do not need to be scored, are sent as one filter query each, so that
+   * Solr caches them independently of the rest of the search; free text
+   * searches and nested filters remain in the main query.
+   */
+  private static void parseAndConfigureFilter(Filter filter, SolrQuery query) throws RequestNotValidException {
+    Filter mainFilter = new Filter();
+    if (filter != null) {
+      for (FilterParameter parameter : filter.getParameters()) {
+        if (isFilterQueryParameter(parameter)) {
+          StringBuilder filterQuery = new StringBuilder();
+          parseFilterParameter(filterQuery, parameter, false);
+          if (filterQuery.length() > 0) {
+            if (parameter instanceof DateRangeFilterParameter || parameter instanceof DateIntervalFilterParameter
+              || parameter instanceof LongRangeFilterParameter) {
+              // ranges are rarely repeated
+              filterQuery.insert(0, FILTER_QUERY_NO_CACHE);
+            }
+            query.addFilterQuery(filterQuery.toString());
+          }
+        } else {
+          mainFilter.add(parameter);
+        }
+      }
+    }
+    query.setQuery(parseFilter(mainFilter));
+  }
+
+  private static boolean isFilterQueryParameter(FilterParameter parameter) {
+    return parameter instanceof SimpleFilterParameter || parameter instanceof OneOfManyFilterParameter
+      || parameter instanceof NotSimpleFilterParameter || parameter instanceof EmptyKeyFilterParameter
+      || parameter instanceof DateRangeFilterParameter || parameter instanceof DateIntervalFilterParameter
+      || parameter instanceof LongRangeFilterParameter;
+  }
+
   private static void parseFilterParameter(StringBuilder ret, FilterParameter parameter,
     boolean prefixWithANDOperatorIfBuilderNotEmpty) throws RequestNotValidException {
     if (parameter instanceof SimpleFilterParameter) {
@@ -1063,23 +1154,30 @@ public class SolrUtils {
       if (!"".equals(facets.getQuery())) {
         query.addFacetQuery(facets.getQuery());
       }
-      StringBuilder filterQuery = new StringBuilder();
       for (Entry<String, FacetParameter> parameter : facets.getParameters().entrySet()) {
         FacetParameter facetParameter = parameter.getValue();
         setSolrFacetParameterSort(query, facetParameter);
 
         if (facetParameter instanceof SimpleFacetParameter) {
           setQueryFacetParameter(query, (SimpleFacetParameter) facetParameter);
-          appendValuesUsingOROperator(filterQuery, facetParameter.getName(),
-            ((SimpleFacetParameter) facetParameter).getValues(), true);
+
+          // one filter query per facet, so that each selection is cached on its
+          // own and reused by any combination with other facets
+          List<String> values = ((SimpleFacetParameter) facetParameter).getValues();
+          if (!values.isEmpty()) {
+            StringBuilder filterQuery = new StringBuilder();
+            if (values.size() > 1) {
+              // combinations of several values are rarely repeated
+              filterQuery.append(FILTER_QUERY_NO_CACHE);
+            }
+            appendValuesUsingOROperator(filterQuery, facetParameter.getName(), values, false);
+            query.addFilterQuery(filterQuery.toString());
+            LOGGER.trace("Query after defining facet {}: {}", facetParameter.getName(), query);
+          }
         } else {
           LOGGER.error("Unsupported facet parameter class: {}", facetParameter.getClass().getName());
         }
       }
-      if (filterQuery.length() > 0) {
-        query.addFilterQuery(filterQuery.toString());
-        LOGGER.trace("Query after defining facets: {}", query);
-      }
     }
   }
 
@@ -1107,28 +1205,40 @@ public class SolrUtils {
    * Roda user > Apache Solr filter query
    * ____________________________________________________________________________________________________________________
    */
-  private static <T extends IsIndexed> String getFilterQueries(User user, boolean justActive,
+  /**
+   * Permissions and state are sent as separate filter queries, so that Solr
+   * caches each of them on its own: the state filter is shared by all users and
+   * the permissions filter by all requests of the same user, regardless of the
+   * other.
+   */
+  private static <T extends IsIndexed> List<String> getFilterQueries(User user, boolean justActive,
     Class<T> classToRetrieve) {
-
-    StringBuilder fq = new StringBuilder();
+    List<String> filterQueries = new ArrayList<>();
 
     // TODO find a better way to define admin super powers
     if (user != null && !RodaConstants.ADMIN.equals(user.getName())) {
+      StringBuilder fq = new StringBuilder();
       fq.append("(");
       String usersKey = RodaConstants.INDEX_PERMISSION_USERS_PREFIX + PermissionType.READ;
       appendExactMatch(fq, usersKey, user.getId(), true, false);
 
+      // sorted, so that the same groups always produce the same filter query
       String groupsKey = RodaConstants.INDEX_PERMISSION_GROUPS_PREFIX + PermissionType.READ;
-      appendValuesUsingOROperatorForQuery(fq, groupsKey, new ArrayList<>(user.getGroups()), true);
+      List<String> groups = new ArrayList<>(user.getGroups());
+      Collections.sort(groups);
+      appendValuesUsingOROperatorForQuery(fq, groupsKey, groups, true);
 
       fq.append(")");
+      filterQueries.add(fq.toString());
     }
 
     if (justActive && !IndexedDIP.class.equals(classToRetrieve) && !DIPFile.class.equals(classToRetrieve)) {
-      appendExactMatch(fq, RodaConstants.STATE, AIPState.ACTIVE.toString(), true, true);
+      StringBuilder fq = new StringBuilder();
+      appendExactMatch(fq, RodaConstants.STATE, AIPState.ACTIVE.toString(), true, false);
+      filterQueries.add(fq.toString());
     }
 
-    return fq.toString();
+    return filterQueries;
   }
 
   private static void appendValuesUsingOROperatorForQuery(StringBuilder ret, String key, List<String> values,
@@ -1193,6 +1303,21 @@ public class SolrUtils {
     }
   }
 
+  public static <T extends IsIndexed> void create(SolrClient index, Class<T> classToCreate, List<T> instances)
+    throws GenericException {
+    if (!instances.isEmpty()) {
+      try {
+        List<SolrInputDocument> docs = new ArrayList<>(instances.size());
+        for (T instance : instances) {
+          docs.add(toSolrDocument(classToCreate, instance));
+        }
+        index.add(getIndexName(classToCreate).get(0), docs);
+      } catch (SolrServerException | IOException | NotSupportedException e) {
+        throw new GenericException("Error adding instances to index", e);
+      }
+    }
+  }
+
   /*
    * Crosswalks: RODA Objects <-> Apache Solr documents
    * ____________________________________________________________________________________________________________________
@@ -2870,7 +2995,7 @@ public class SolrUtils {
     query.setParam("q.op", DEFAULT_QUERY_PARSER_OPERATOR);
     query.setQuery(queryBuilder.toString());
     if (hasPermissionFilters(classToRetrieve)) {
-      query.addFilterQuery(getFilterQueries(user, justActive, classToRetrieve));
+      query.addFilterQuery(getFilterQueries(user, justActive, classToRetrieve).toArray(new String[0]));
     }
     parseAndConfigureFacets(new Facets(new SimpleFacetParameter(field)), query);
     List<String> suggestions = new ArrayList<>();
@@ -0,0 +1,82 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.model;
+
+import java.util.concurrent.locks.Lock;
+
+import org.roda.core.data.exceptions.AuthorizationDeniedException;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.exceptions.NotFoundException;
+import org.roda.core.data.exceptions.RequestNotValidException;
+import org.roda.core.data.v2.ip.AIP;
+
+/**
+ * Changes to the metadata (aip.json) of one AIP, made while holding the lock of
+ * that AIP and written once, on {@link #commit()}.
+ *
+ * While it is open, all {@link ModelService} methods called by the same thread
+ * that change the metadata of the AIP (e.g. creating representations or
+ * descriptive metadata) change the AIP of the unit of work instead of writing
+ * aip.json, and retrieving the AIP returns it as well. Units of work on the same
+ * AIP may be nested, in which case only the outermost one writes aip.json.
+ * Closing without committing discards the metadata changes (but not changes
+ * already done to other files). Updating several AIPs at the same time (nested
+ * units of work on different AIPs) should be done in the stripe order of their
+ * locks, otherwise taking a lock may fail after a timeout instead of
+ * deadlocking.
+ *
+ * <pre>
+ * try (AIPUnitOfWork update = model.beginAIPUpdate(aipId)) {
+ *   model.createRepresentation(...);
+ *   model.createDescriptiveMetadata(...);
+ *   update.commit();
+ * }
+ * </pre>
+ */
+public class AIPUnitOfWork implements AutoCloseable {
+
+  private final ModelService model;
+  private final Lock lock;
+  private final AIP aip;
+  private int depth = 1;
+
+  AIPUnitOfWork(ModelService model, Lock lock, AIP aip) {
+    this.model = model;
+    this.lock = lock;
+    this.aip = aip;
+  }
+
+  public AIP getAIP() {
+    return aip;
+  }
+
+  AIPUnitOfWork join() {
+    depth++;
+    return this;
+  }
+
+  /**
+   * Write aip.json, unless this unit of work is nested in another one on the
+   * same AIP, which will do it
+   */
+  public void commit() throws GenericException, NotFoundException, RequestNotValidException,
+    AuthorizationDeniedException {
+    if (depth == 1) {
+      model.updateAIPMetadata(aip);
+    }
+  }
+
+  @Override
+  public void close() {
+    depth--;
+    if (depth == 0) {
+      model.endAIPUpdate(this);
+      lock.unlock();
+    }
+  }
+}
@@ -0,0 +1,30 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.model;
+
+import org.roda.core.data.v2.jobs.Job;
+import org.roda.core.data.v2.jobs.Report;
+
+/**
+ * Listener of changes to jobs and job reports, notified as soon as they are
+ * saved (e.g. to push job progress to clients instead of having them poll the
+ * index).
+ * 
+ * Listeners are called by the threads updating the jobs, so they must return
+ * quickly and not throw exceptions.
+ */
+public interface JobEventListener {
+
+  void jobCreatedOrUpdated(Job job);
+
+  void jobDeleted(String jobId);
+
+  void jobReportCreatedOrUpdated(Report jobReport, Job job);
+
+  void jobReportDeleted(String jobReportId);
+}
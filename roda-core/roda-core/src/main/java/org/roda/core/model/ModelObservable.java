@@ -9,6 +9,7 @@ package org.roda.core.model;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.roda.core.data.v2.formats.Format;
 import org.roda.core.data.v2.ip.AIP;
@@ -28,13 +29,28 @@ import org.roda.core.data.v2.risks.Risk;
 import org.roda.core.data.v2.risks.RiskIncidence;
 import org.roda.core.data.v2.user.Group;
 import org.roda.core.data.v2.user.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public abstract class ModelObservable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ModelObservable.class);
+
   private final List<ModelObserver> observers;
+  /** subscribed and unsubscribed while jobs are running */
+  private final List<JobEventListener> jobEventListeners;
 
   public ModelObservable() {
     super();
     this.observers = new ArrayList<>();
+    this.jobEventListeners = new CopyOnWriteArrayList<>();
+  }
+
+  public void addJobEventListener(JobEventListener listener) {
+    jobEventListeners.add(listener);
+  }
+
+  public void removeJobEventListener(JobEventListener listener) {
+    jobEventListeners.remove(listener);
   }
 
   public void addModelObserver(ModelObserver observer) {
@@ -63,6 +79,12 @@ public abstract class ModelObservable {
     }
   }
 
+  public void notifyAipsMoved(List<AIP> aips, String newParentId) {
+    for (ModelObserver observer : observers) {
+      observer.aipsMoved(aips, newParentId);
+    }
+  }
+
   public void notifyAipStateUpdated(AIP aip) {
     for (ModelObserver observer : observers) {
       observer.aipStateUpdated(aip);
@@ -75,6 +97,12 @@ public abstract class ModelObservable {
     }
   }
 
+  public void notifyAipsDeleted(List<String> aipIds) {
+    for (ModelObserver observer : observers) {
+      observer.aipsDeleted(aipIds, true);
+    }
+  }
+
   public void notifyDescriptiveMetadataCreated(DescriptiveMetadata descriptiveMetadata) {
     for (ModelObserver observer : observers) {
       observer.descriptiveMetadataCreated(descriptiveMetadata);
@@ -200,24 +228,52 @@ public abstract class ModelObservable {
     for (ModelObserver observer : observers) {
       observer.jobCreatedOrUpdated(job, reindexJobReports);
     }
+    for (JobEventListener listener : jobEventListeners) {
+      try {
+        listener.jobCreatedOrUpdated(job);
+      } catch (RuntimeException e) {
+        LOGGER.warn("Error notifying job event listener", e);
+      }
+    }
   }
 
   public void notifyJobDeleted(String jobId) {
     for (ModelObserver observer : observers) {
       observer.jobDeleted(jobId);
     }
+    for (JobEventListener listener : jobEventListeners) {
+      try {
+        listener.jobDeleted(jobId);
+      } catch (RuntimeException e) {
+        LOGGER.warn("Error notifying job event listener", e);
+      }
+    }
   }
 
   public void notifyJobReportCreatedOrUpdated(Report jobReport, Job job) {
     for (ModelObserver observer : observers) {
       observer.jobReportCreatedOrUpdated(jobReport, job);
     }
+    for (JobEventListener listener : jobEventListeners) {
+      try {
+        listener.jobReportCreatedOrUpdated(jobReport, job);
+      } catch (RuntimeException e) {
+        LOGGER.warn("Error notifying job event listener", e);
+      }
+    }
   }
 
   public void notifyJobReportDeleted(String jobReportId) {
     for (ModelObserver observer : observers) {
       observer.jobReportDeleted(jobReportId);
     }
+    for (JobEventListener listener : jobEventListeners) {
+      try {
+        listener.jobReportDeleted(jobReportId);
+      } catch (RuntimeException e) {
+        LOGGER.warn("Error notifying job event listener", e);
+      }
+    }
   }
 
   public void notifyAipPermissionsUpdated(AIP aip) {
@@ -256,6 +312,12 @@ public abstract class ModelObservable {
     }
   }
 
+  public void notifyRiskIncidencesCreatedOrUpdated(List<RiskIncidence> riskIncidences, boolean commit) {
+    for (ModelObserver observer : observers) {
+      observer.riskIncidencesCreatedOrUpdated(riskIncidences, commit);
+    }
+  }
+
   public void notifyRiskIncidenceDeleted(String riskIncidenceId, boolean commit) {
     for (ModelObserver observer : observers) {
       observer.riskIncidenceDeleted(riskIncidenceId, commit);
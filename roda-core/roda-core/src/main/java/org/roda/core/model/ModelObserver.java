@@ -39,8 +39,12 @@ public interface ModelObserver {
 
   public void aipMoved(AIP aip, String oldParentId, String newParentId);
 
+  public void aipsMoved(List<AIP> aips, String newParentId);
+
   public void aipDeleted(String aipId, boolean deleteIncidences);
 
+  public void aipsDeleted(List<String> aipIds, boolean deleteIncidences);
+
   public ReturnWithExceptions<Void> descriptiveMetadataCreated(DescriptiveMetadata descriptiveMetadataBinary);
 
   public void descriptiveMetadataUpdated(DescriptiveMetadata descriptiveMetadataBinary);
@@ -102,6 +106,8 @@ public interface ModelObserver {
 
   public ReturnWithExceptions<Void> riskIncidenceCreatedOrUpdated(RiskIncidence riskIncidence, boolean commit);
 
+  public ReturnWithExceptions<Void> riskIncidencesCreatedOrUpdated(List<RiskIncidence> riskIncidences, boolean commit);
+
   public void riskIncidenceDeleted(String riskIncidenceId, boolean commit);
 
   public ReturnWithExceptions<Void> representationInformationCreatedOrUpdated(RepresentationInformation ri,
@@ -18,13 +18,18 @@ import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
 import java.util.stream.Collectors;
 
 import org.apache.commons.io.IOUtils;
@@ -97,6 +102,7 @@ import org.roda.core.model.iterables.LogEntryStorageIterable;
 import org.roda.core.model.utils.ModelUtils;
 import org.roda.core.model.utils.ResourceListUtils;
 import org.roda.core.model.utils.ResourceParseUtils;
+import org.roda.core.model.utils.StripedLocks;
 import org.roda.core.storage.Binary;
 import org.roda.core.storage.BinaryVersion;
 import org.roda.core.storage.ContentPayload;
@@ -127,8 +133,13 @@ public class ModelService extends ModelObservable {
   private static final Logger LOGGER = LoggerFactory.getLogger(ModelService.class);
   private static final DateTimeFormatter LOG_NAME_DATE_FORMAT = DateTimeFormat.forPattern("yyyy-MM-dd");
   private static final boolean FAIL_IF_NO_DESCRIPTIVE_METADATA_SCHEMA = false;
+  private static final int AIP_LOCK_STRIPES = 256;
+  private static final long AIP_LOCK_OUT_OF_ORDER_TIMEOUT = 30;
+  /** shared by all instances, so that changes to the same AIP are serialized */
+  private static final StripedLocks AIP_LOCKS = new StripedLocks(AIP_LOCK_STRIPES);
   private final StorageService storage;
   private Object logFileLock = new Object();
+  private final ThreadLocal<Map<String, AIPUnitOfWork>> aipUnitsOfWork = ThreadLocal.withInitial(HashMap::new);
 
   public ModelService(StorageService storage) {
     super();
@@ -202,7 +213,7 @@ public class ModelService extends ModelObservable {
     storage.createBinary(metadataStoragePath, new StringContentPayload(json), asReference);
   }
 
-  private void updateAIPMetadata(AIP aip)
+  void updateAIPMetadata(AIP aip)
     throws GenericException, NotFoundException, RequestNotValidException, AuthorizationDeniedException {
     updateAIPMetadata(aip, ModelUtils.getAIPStoragePath(aip.getId()));
   }
@@ -234,9 +245,72 @@ public class ModelService extends ModelObservable {
 
   public AIP retrieveAIP(String aipId)
     throws RequestNotValidException, NotFoundException, GenericException, AuthorizationDeniedException {
+    AIPUnitOfWork unitOfWork = aipUnitsOfWork.get().get(aipId);
+    if (unitOfWork != null) {
+      return unitOfWork.getAIP();
+    }
     return ResourceParseUtils.getAIPMetadata(getStorage(), aipId);
   }
 
+  /**
+   * Lock the AIP and load its metadata, so that several changes can be done to
+   * it and written once. If this thread already has a unit of work on the AIP,
+   * it is joined.
+   * 
+   * @see AIPUnitOfWork
+   */
+  public AIPUnitOfWork beginAIPUpdate(String aipId)
+    throws RequestNotValidException, NotFoundException, GenericException, AuthorizationDeniedException {
+    AIPUnitOfWork unitOfWork = aipUnitsOfWork.get().get(aipId);
+    if (unitOfWork != null) {
+      return unitOfWork.join();
+    }
+
+    Lock lock = lockAIP(aipId);
+    try {
+      unitOfWork = new AIPUnitOfWork(this, lock, ResourceParseUtils.getAIPMetadata(getStorage(), aipId));
+    } catch (RequestNotValidException | NotFoundException | GenericException | AuthorizationDeniedException
+      | RuntimeException e) {
+      lock.unlock();
+      throw e;
+    }
+    aipUnitsOfWork.get().put(aipId, unitOfWork);
+    return unitOfWork;
+  }
+
+  /**
+   * Take the lock of an AIP. Threads updating several AIPs at the same time
+   * must take their locks in stripe order, otherwise two of them could wait
+   * for each other forever, so a lock in a lower stripe than one already held
+   * is only waited for a limited time.
+   */
+  private Lock lockAIP(String aipId) throws GenericException {
+    Lock lock = AIP_LOCKS.get(aipId);
+    int stripe = AIP_LOCKS.indexOf(aipId);
+    int highestHeldStripe = -1;
+    for (String heldAipId : aipUnitsOfWork.get().keySet()) {
+      highestHeldStripe = Math.max(highestHeldStripe, AIP_LOCKS.indexOf(heldAipId));
+    }
+
+    if (stripe >= highestHeldStripe) {
+      lock.lock();
+      return lock;
+    }
+
+    try {
+      if (lock.tryLock(AIP_LOCK_OUT_OF_ORDER_TIMEOUT, TimeUnit.SECONDS)) {
+        return lock;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    throw new GenericException("Could not lock AIP " + aipId + " while updating other AIPs");
+  }
+
+  void endAIPUpdate(AIPUnitOfWork unitOfWork) {
+    aipUnitsOfWork.get().remove(unitOfWork.getAIP().getId());
+  }
+
   /**
    * Create a new AIP
    * 
@@ -370,14 +444,14 @@ public class ModelService extends ModelObservable {
 
   public AIP notifyAipCreated(String aipId)
     throws RequestNotValidException, GenericException, NotFoundException, AuthorizationDeniedException {
-    AIP aip = ResourceParseUtils.getAIPMetadata(getStorage(), aipId);
+    AIP aip = retrieveAIP(aipId);
     notifyAipCreated(aip);
     return aip;
   }
 
   public AIP notifyAipUpdated(String aipId)
     throws RequestNotValidException, GenericException, NotFoundException, AuthorizationDeniedException {
-    AIP aip = ResourceParseUtils.getAIPMetadata(getStorage(), aipId);
+    AIP aip = retrieveAIP(aipId);
     notifyAipUpdated(aip);
     return aip;
   }
@@ -438,23 +512,51 @@ public class ModelService extends ModelObservable {
     return aip;
   }
 
+  /**
+   * Update the AIP with the properties of the given one. The AIP is reloaded
+   * while locked and only the properties that are not managed by other methods
+   * are copied, so that concurrent changes to its representations and
+   * descriptive metadata are kept.
+   */
   public AIP updateAIP(AIP aip, String updatedBy)
     throws GenericException, NotFoundException, RequestNotValidException, AuthorizationDeniedException {
-    aip.setUpdatedBy(updatedBy);
-    aip.setUpdatedOn(new Date());
-    updateAIPMetadata(aip);
-    notifyAipUpdated(aip);
-    return aip;
+    AIP updatedAIP;
+    try (AIPUnitOfWork update = beginAIPUpdate(aip.getId())) {
+      updatedAIP = update.getAIP();
+      updatedAIP.setParentId(aip.getParentId());
+      updatedAIP.setType(aip.getType());
+      updatedAIP.setState(aip.getState());
+      updatedAIP.setPermissions(aip.getPermissions());
+      updatedAIP.setGhost(aip.getGhost());
+      updatedAIP.setIngestSIPIds(aip.getIngestSIPIds());
+      updatedAIP.setIngestJobId(aip.getIngestJobId());
+      updatedAIP.setIngestUpdateJobIds(aip.getIngestUpdateJobIds());
+      updatedAIP.setFormat(aip.getFormat());
+      updatedAIP.setRelationships(aip.getRelationships());
+      updatedAIP.setUpdatedBy(updatedBy);
+      updatedAIP.setUpdatedOn(new Date());
+      update.commit();
+    }
+    notifyAipUpdated(updatedAIP);
+    return updatedAIP;
   }
 
+  /**
+   * Update only the state of the AIP, reloading it while locked
+   */
   public AIP updateAIPState(AIP aip, String updatedBy)
     throws GenericException, NotFoundException, RequestNotValidException, AuthorizationDeniedException {
-    aip.setUpdatedBy(updatedBy);
-    aip.setUpdatedOn(new Date());
-    updateAIPMetadata(aip);
+    AIP updatedAIP;
+    try (AIPUnitOfWork update = beginAIPUpdate(aip.getId())) {
+      updatedAIP = update.getAIP();
+      updatedAIP.setState(aip.getState());
+      updatedAIP.setUpdatedBy(updatedBy);
+      updatedAIP.setUpdatedOn(new Date());
+      update.commit();
+    }
 
-    notifyAipStateUpdated(aip);
-    return aip;
+    notifyAipStateUpdated(updatedAIP);
+    return updatedAIP;
   }
 
   public AIP moveAIP(String aipId, String parentId, String updatedBy)
@@ -465,18 +567,56 @@ public class ModelService extends ModelObservable {
     }
 
     // TODO ADD RESTRICTIONS
-    AIP aip = ResourceParseUtils.getAIPMetadata(getStorage(), aipId);
-    String oldParentId = aip.getParentId();
-    aip.setParentId(parentId);
-    aip.setUpdatedOn(new Date());
-    aip.setUpdatedBy(updatedBy);
-    updateAIPMetadata(aip);
+    AIP aip;
+    String oldParentId;
+    try (AIPUnitOfWork update = beginAIPUpdate(aipId)) {
+      aip = update.getAIP();
+      oldParentId = aip.getParentId();
+      aip.setParentId(parentId);
+      aip.setUpdatedOn(new Date());
+      aip.setUpdatedBy(updatedBy);
+      update.commit();
+    }
 
     notifyAipMoved(aip, oldParentId, parentId);
 
     return aip;
   }
 
+  /**
+   * Move several AIPs to the same parent, updating all of them in the index
+   * together
+   *
+   * @return the errors of the AIPs that could not be moved, by AIP id
+   */
+  public Map<String, RODAException> moveAIPs(List<String> aipIds, String parentId, String updatedBy) {
+    Map<String, RODAException> errors = new LinkedHashMap<>();
+    List<AIP> movedAips = new ArrayList<>();
+
+    for (String aipId : aipIds) {
+      if (aipId.equals(parentId)) {
+        errors.put(aipId, new RequestNotValidException("Cannot set itself as its parent: " + aipId));
+        continue;
+      }
+
+      try (AIPUnitOfWork update = beginAIPUpdate(aipId)) {
+        AIP aip = update.getAIP();
+        aip.setParentId(parentId);
+        aip.setUpdatedOn(new Date());
+        aip.setUpdatedBy(updatedBy);
+        update.commit();
+        movedAips.add(aip);
+      } catch (RequestNotValidException | NotFoundException | GenericException | AuthorizationDeniedException e) {
+        errors.put(aipId, e);
+      }
+    }
+
+    if (!movedAips.isEmpty()) {
+      notifyAipsMoved(movedAips, parentId);
+    }
+    return errors;
+  }
+
   public void deleteAIP(String aipId)
     throws RequestNotValidException, NotFoundException, GenericException, AuthorizationDeniedException {
     StoragePath aipPath = ModelUtils.getAIPStoragePath(aipId);
@@ -484,6 +624,30 @@ public class ModelService extends ModelObservable {
     notifyAipDeleted(aipId);
   }
 
+  /**
+   * Delete several AIPs, removing all of them from the index together
+   *
+   * @return the errors of the AIPs that could not be deleted, by AIP id
+   */
+  public Map<String, RODAException> deleteAIPs(List<String> aipIds) {
+    Map<String, RODAException> errors = new LinkedHashMap<>();
+    List<String> deletedAipIds = new ArrayList<>();
+
+    for (String aipId : aipIds) {
+      try {
+        storage.deleteResource(ModelUtils.getAIPStoragePath(aipId));
+        deletedAipIds.add(aipId);
+      } catch (RequestNotValidException | NotFoundException | GenericException | AuthorizationDeniedException e) {
+        errors.put(aipId, e);
+      }
+    }
+
+    if (!deletedAipIds.isEmpty()) {
+      notifyAipsDeleted(deletedAipIds);
+    }
+    return errors;
+  }
+
   private ValidationReport isAIPvalid(ModelService model, Directory directory,
     boolean failIfNoDescriptiveMetadataSchema)
     throws GenericException, RequestNotValidException, NotFoundException, AuthorizationDeniedException {
@@ -503,12 +667,15 @@ public class ModelService extends ModelObservable {
 
   public void changeAIPType(String aipId, String type, String updatedBy)
     throws RequestNotValidException, NotFoundException, GenericException, AuthorizationDeniedException {
-    AIP aip = retrieveAIP(aipId);
-    aip.setType(type);
-    aip.setUpdatedOn(new Date());
-    aip.setUpdatedBy(updatedBy);
+    AIP aip;
+    try (AIPUnitOfWork update = beginAIPUpdate(aipId)) {
+      aip = update.getAIP();
+      aip.setType(type);
+      aip.setUpdatedOn(new Date());
+      aip.setUpdatedBy(updatedBy);
+      update.commit();
+    }
     notifyAipUpdated(aip);
-    updateAIPMetadata(aip);
   }
 
   /***************** Descriptive Metadata related *****************/
@@ -537,7 +704,7 @@ public class ModelService extends ModelObservable {
     String descriptiveMetadataId)
     throws RequestNotValidException, GenericException, NotFoundException, AuthorizationDeniedException {
 
-    AIP aip = ResourceParseUtils.getAIPMetadata(getStorage(), aipId);
+    AIP aip = retrieveAIP(aipId);
 
     DescriptiveMetadata ret = null;
     for (DescriptiveMetadata descriptiveMetadata : getDescriptiveMetadata(aip, representationId)) {
@@ -591,9 +758,10 @@ public class ModelService extends ModelObservable {
     DescriptiveMetadata descriptiveMetadata = new DescriptiveMetadata(descriptiveMetadataId, aipId, representationId,
       descriptiveMetadataType, descriptiveMetadataVersion);
 
-    AIP aip = ResourceParseUtils.getAIPMetadata(getStorage(), aipId);
-    aip.addDescriptiveMetadata(descriptiveMetadata);
-    updateAIPMetadata(aip);
+    try (AIPUnitOfWork update = beginAIPUpdate(aipId)) {
+      update.getAIP().addDescriptiveMetadata(descriptiveMetadata);
+      update.commit();
+    }
 
     if (notify) {
       notifyDescriptiveMetadataCreated(descriptiveMetadata);
@@ -628,11 +796,11 @@ public class ModelService extends ModelObservable {
     storage.updateBinaryContent(binaryPath, descriptiveMetadataPayload, asReference, createIfNotExists);
 
     // set descriptive metadata type
-    AIP aip = ResourceParseUtils.getAIPMetadata(getStorage(), aipId);
-    ret = updateDescriptiveMetadata(aip, representationId, descriptiveMetadataId, descriptiveMetadataType,
-      descriptiveMetadataVersion);
-
-    updateAIPMetadata(aip);
+    try (AIPUnitOfWork update = beginAIPUpdate(aipId)) {
+      ret = updateDescriptiveMetadata(update.getAIP(), representationId, descriptiveMetadataId,
+        descriptiveMetadataType, descriptiveMetadataVersion);
+      update.commit();
+    }
     notifyDescriptiveMetadataUpdated(ret);
 
     return ret;
@@ -670,10 +838,10 @@ public class ModelService extends ModelObservable {
     storage.deleteResource(binaryPath);
 
     // update AIP metadata
-    AIP aip = ResourceParseUtils.getAIPMetadata(getStorage(), aipId);
-    deleteDescriptiveMetadata(aip, representationId, descriptiveMetadataId);
-
-    updateAIPMetadata(aip);
+    try (AIPUnitOfWork update = beginAIPUpdate(aipId)) {
+      deleteDescriptiveMetadata(update.getAIP(), representationId, descriptiveMetadataId);
+      update.commit();
+    }
     notifyDescriptiveMetadataDeleted(aipId, representationId, descriptiveMetadataId);
   }
 
@@ -834,7 +1002,7 @@ public class ModelService extends ModelObservable {
   public Representation retrieveRepresentation(String aipId, String representationId)
     throws RequestNotValidException, GenericException, NotFoundException, AuthorizationDeniedException {
 
-    AIP aip = ResourceParseUtils.getAIPMetadata(getStorage(), aipId);
+    AIP aip = retrieveAIP(aipId);
 
     Representation ret = null;
     for (Representation representation : aip.getRepresentations()) {
@@ -862,9 +1030,10 @@ public class ModelService extends ModelObservable {
     storage.createDirectory(directoryPath);
 
     // update AIP metadata
-    AIP aip = ResourceParseUtils.getAIPMetadata(getStorage(), aipId);
-    aip.getRepresentations().add(representation);
-    updateAIPMetadata(aip);
+    try (AIPUnitOfWork update = beginAIPUpdate(aipId)) {
+      update.getAIP().getRepresentations().add(representation);
+      update.commit();
+    }
 
     if (notify) {
       notifyRepresentationCreated(representation);
@@ -896,9 +1065,10 @@ public class ModelService extends ModelObservable {
     representation.setUpdatedBy(createdBy);
 
     // update AIP metadata
-    AIP aip = ResourceParseUtils.getAIPMetadata(getStorage(), aipId);
-    aip.getRepresentations().add(representation);
-    updateAIPMetadata(aip);
+    try (AIPUnitOfWork update = beginAIPUpdate(aipId)) {
+      update.getAIP().getRepresentations().add(representation);
+      update.commit();
+    }
 
     notifyRepresentationCreated(representation);
     return representation;
@@ -911,43 +1081,54 @@ public class ModelService extends ModelObservable {
 
   public void changeRepresentationType(String aipId, String representationId, String type, String updatedBy)
     throws RequestNotValidException, NotFoundException, GenericException, AuthorizationDeniedException {
-    AIP aip = retrieveAIP(aipId);
-    Iterator<Representation> it = aip.getRepresentations().iterator();
-
-    while (it.hasNext()) {
-      Representation representation = it.next();
-      if (representation.getId().equals(representationId)) {
-        representation.setType(type);
-        representation.setUpdatedOn(new Date());
-        representation.setUpdatedBy(updatedBy);
-        notifyRepresentationUpdated(representation);
-        break;
+    Representation updatedRepresentation = null;
+    try (AIPUnitOfWork update = beginAIPUpdate(aipId)) {
+      Iterator<Representation> it = update.getAIP().getRepresentations().iterator();
+
+      while (it.hasNext()) {
+        Representation representation = it.next();
+        if (representation.getId().equals(representationId)) {
+          representation.setType(type);
+          representation.setUpdatedOn(new Date());
+          representation.setUpdatedBy(updatedBy);
+          updatedRepresentation = representation;
+          break;
+        }
       }
+
+      update.commit();
     }
 
-    updateAIPMetadata(aip);
+    if (updatedRepresentation != null) {
+      notifyRepresentationUpdated(updatedRepresentation);
+    }
   }
 
   public void changeRepresentationStates(String aipId, String representationId, List<String> newStates,
     String updatedBy)
     throws RequestNotValidException, NotFoundException, GenericException, AuthorizationDeniedException {
-    AIP aip = retrieveAIP(aipId);
-    Iterator<Representation> it = aip.getRepresentations().iterator();
     Optional<Representation> representation = Optional.empty();
 
-    while (it.hasNext()) {
-      Representation next = it.next();
-      if (next.getId().equals(representationId)) {
-        representation = Optional.of(next);
-        break;
+    try (AIPUnitOfWork update = beginAIPUpdate(aipId)) {
+      Iterator<Representation> it = update.getAIP().getRepresentations().iterator();
+
+      while (it.hasNext()) {
+        Representation next = it.next();
+        if (next.getId().equals(representationId)) {
+          representation = Optional.of(next);
+          break;
+        }
+      }
+
+      if (representation.isPresent()) {
+        representation.get().setRepresentationStates(newStates);
+        representation.get().setUpdatedOn(new Date());
+        representation.get().setUpdatedBy(updatedBy);
+        update.commit();
       }
     }
 
     if (representation.isPresent()) {
-      representation.get().setRepresentationStates(newStates);
-      representation.get().setUpdatedOn(new Date());
-      representation.get().setUpdatedBy(updatedBy);
-      updateAIPMetadata(aip);
       notifyRepresentationUpdated(representation.get());
     }
   }
@@ -981,16 +1162,17 @@ public class ModelService extends ModelObservable {
     storage.deleteResource(representationPath);
 
     // update AIP metadata
-    AIP aip = ResourceParseUtils.getAIPMetadata(getStorage(), aipId);
-    for (Iterator<Representation> it = aip.getRepresentations().iterator(); it.hasNext();) {
-      Representation representation = it.next();
-      if (representation.getId().equals(representationId)) {
-        it.remove();
-        break;
+    try (AIPUnitOfWork update = beginAIPUpdate(aipId)) {
+      for (Iterator<Representation> it = update.getAIP().getRepresentations().iterator(); it.hasNext();) {
+        Representation representation = it.next();
+        if (representation.getId().equals(representationId)) {
+          it.remove();
+          break;
+        }
       }
-    }
 
-    updateAIPMetadata(aip);
+      update.commit();
+    }
     notifyRepresentationDeleted(aipId, representationId);
   }
 
@@ -1988,12 +2170,20 @@ public class ModelService extends ModelObservable {
     notifyJobReportDeleted(jobReportId);
   }
 
+  /**
+   * Update only the permissions of the AIP, reloading it while locked
+   */
   public void updateAIPPermissions(AIP aip, String updatedBy)
     throws GenericException, NotFoundException, RequestNotValidException, AuthorizationDeniedException {
-    aip.setUpdatedBy(updatedBy);
-    aip.setUpdatedOn(new Date());
-    updateAIPMetadata(aip);
-    notifyAipPermissionsUpdated(aip);
+    AIP updatedAIP;
+    try (AIPUnitOfWork update = beginAIPUpdate(aip.getId())) {
+      updatedAIP = update.getAIP();
+      updatedAIP.setPermissions(aip.getPermissions());
+      updatedAIP.setUpdatedBy(updatedBy);
+      updatedAIP.setUpdatedOn(new Date());
+      update.commit();
+    }
+    notifyAipPermissionsUpdated(updatedAIP);
   }
 
   public void updateDIPPermissions(DIP dip)
@@ -2123,6 +2313,36 @@ public class ModelService extends ModelObservable {
     return riskIncidence;
   }
 
+  /**
+   * Create several risk incidences at once, writing all of them before indexing
+   * them in a single batch.
+   *
+   * @return the risk incidences that were created, i.e. without the ones that
+   *         could not be written to storage
+   */
+  public List<RiskIncidence> createRiskIncidences(Collection<RiskIncidence> riskIncidences, boolean commit) {
+    List<RiskIncidence> created = new ArrayList<>(riskIncidences.size());
+    Date detectedOn = new Date();
+
+    for (RiskIncidence riskIncidence : riskIncidences) {
+      try {
+        riskIncidence.setId(IdUtils.createUUID());
+        riskIncidence.setDetectedOn(detectedOn);
+
+        String riskIncidenceAsJson = JsonUtils.getJsonFromObject(riskIncidence);
+        StoragePath riskIncidencePath = ModelUtils.getRiskIncidenceStoragePath(riskIncidence.getId());
+        storage.createBinary(riskIncidencePath, new StringContentPayload(riskIncidenceAsJson), false);
+        created.add(riskIncidence);
+      } catch (GenericException | RequestNotValidException | AuthorizationDeniedException | NotFoundException
+        | AlreadyExistsException e) {
+        LOGGER.error("Error creating risk incidence in storage", e);
+      }
+    }
+
+    notifyRiskIncidencesCreatedOrUpdated(created, commit);
+    return created;
+  }
+
   public RiskIncidence updateRiskIncidence(RiskIncidence riskIncidence, boolean commit) throws GenericException {
     try {
       riskIncidence.setRiskId(riskIncidence.getRiskId());
@@ -2181,6 +2401,8 @@ public class ModelService extends ModelObservable {
       LOGGER.error("Error creating notification in storage", e);
       throw new GenericException(e);
     }
+
+    processor.notificationCreated(this, processedNotification);
     return processedNotification;
   }
 
@@ -2733,6 +2955,38 @@ public class ModelService extends ModelObservable {
     return CloseableIterables.concat(inStorage, notStorage);
   }
 
+  /**
+   * Same log entries as {@link #listLogEntries(int)}, but with one iterable per
+   * log file, so that they can be processed in parallel
+   */
+  public List<CloseableIterable<OptionalWithCause<LogEntry>>> listLogEntriesByFile(int daysToIndex) {
+    List<CloseableIterable<OptionalWithCause<LogEntry>>> ret = new ArrayList<>();
+
+    try (CloseableIterable<Resource> actionLogs = getStorage()
+      .listResourcesUnderContainer(DefaultStoragePath.parse(RodaConstants.STORAGE_CONTAINER_ACTIONLOG), false)) {
+      for (Resource resource : actionLogs) {
+        if (daysToIndex <= 0 || isToIndex(resource.getStoragePath().getName(), daysToIndex)) {
+          ret.add(new LogEntryStorageIterable(CloseableIterables.fromList(Collections.singletonList(resource))));
+        }
+      }
+    } catch (NotFoundException | GenericException | AuthorizationDeniedException | RequestNotValidException
+      | IOException e) {
+      LOGGER.error("Error getting action log from storage", e);
+    }
+
+    try (DirectoryStream<Path> logFiles = Files.newDirectoryStream(RodaCoreFactory.getLogPath())) {
+      for (Path logFile : logFiles) {
+        if (daysToIndex <= 0 || isToIndex(logFile.getFileName().toString(), daysToIndex)) {
+          ret.add(new LogEntryFileSystemIterable(Collections.singletonList(logFile)));
+        }
+      }
+    } catch (IOException e) {
+      LOGGER.error("Error getting action log from storage", e);
+    }
+
+    return ret;
+  }
+
   private boolean isToIndex(String fileName, int daysToIndex) {
     boolean isToIndex = false;
     String fileNameWithoutExtension = fileName.replaceFirst(".log$", "");
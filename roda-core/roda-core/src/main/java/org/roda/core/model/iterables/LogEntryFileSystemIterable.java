@@ -15,6 +15,7 @@ import java.nio.file.DirectoryStream.Filter;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
 
 import org.apache.commons.io.IOUtils;
@@ -116,23 +117,33 @@ public class LogEntryFileSystemIterable implements CloseableIterable<OptionalWit
   }
 
   private final DirectoryStream<Path> directoryStream;
+  private final List<Path> logFiles;
 
   public LogEntryFileSystemIterable(Path logPath) throws IOException {
     this.directoryStream = Files.newDirectoryStream(logPath);
+    this.logFiles = null;
   }
 
   public LogEntryFileSystemIterable(Path logPath, Filter<? super Path> filter) throws IOException {
     this.directoryStream = Files.newDirectoryStream(logPath, filter);
+    this.logFiles = null;
+  }
+
+  public LogEntryFileSystemIterable(List<Path> logFiles) {
+    this.directoryStream = null;
+    this.logFiles = logFiles;
   }
 
   @Override
   public void close() throws IOException {
-    directoryStream.close();
+    if (directoryStream != null) {
+      directoryStream.close();
+    }
   }
 
   @Override
   public Iterator<OptionalWithCause<LogEntry>> iterator() {
-    Iterator<Path> paths = directoryStream.iterator();
+    Iterator<Path> paths = directoryStream != null ? directoryStream.iterator() : logFiles.iterator();
     return new LogEntryIterator(paths);
   }
 }
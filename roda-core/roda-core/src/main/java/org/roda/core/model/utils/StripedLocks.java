@@ -0,0 +1,43 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.model.utils;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed set of (reentrant) locks shared by an unbounded number of keys, e.g.
+ * AIP ids. Two keys may share the same lock, which only costs some contention,
+ * but no lock needs to be created or removed per key.
+ */
+public class StripedLocks {
+
+  private final Lock[] locks;
+
+  public StripedLocks(int stripes) {
+    locks = new Lock[Math.max(1, stripes)];
+    for (int i = 0; i < locks.length; i++) {
+      locks[i] = new ReentrantLock();
+    }
+  }
+
+  public Lock get(String key) {
+    return locks[indexOf(key)];
+  }
+
+  /**
+   * Index of the stripe of a key. Code that holds several locks at the same
+   * time must take them in increasing index order to avoid deadlocks.
+   */
+  public int indexOf(String key) {
+    int hash = key.hashCode();
+    // spread the hash so that similar ids do not fall in the same stripe
+    hash ^= hash >>> 16;
+    return Math.floorMod(hash, locks.length);
+  }
+}
@@ -0,0 +1,179 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.plugins.plugins.antivirus;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.commons.configuration.Configuration;
+import org.roda.core.RodaCoreFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Anti-virus using a running ClamAV daemon (clamd), which keeps the signature
+ * database loaded between scans.
+ *
+ * In INSTREAM mode (default) the files are streamed to the daemon, in
+ * parallel, using a pool of connections shared by all the scans. In MULTISCAN
+ * mode the daemon scans the path itself, which requires it to have access to
+ * RODA storage. In INSTREAM mode, files longer than the daemon accepts as a
+ * stream (<code>StreamMaxLength</code>, 25 MB by default) make the scan fail,
+ * unless they are allowed to be scanned by path.
+ *
+ * Configured with the <code>core.plugins.internal.virus_check.clamd.*</code>
+ * properties.
+ */
+public class ClamdAntiVirus implements AntiVirus {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ClamdAntiVirus.class);
+
+  private static final String CONFIG_PREFIX = "core.plugins.internal.virus_check.clamd.";
+  private static final String OK = "OK";
+  private static final String FOUND = "FOUND";
+
+  public enum ClamdScanMode {
+    INSTREAM, MULTISCAN
+  }
+
+  /** clients (and scan threads) shared by all instances using the same daemon */
+  private static final Map<String, ClamdScanner> SCANNERS = new ConcurrentHashMap<>();
+
+  private final ClamdScanner scanner;
+  private final ClamdScanMode mode;
+
+  public ClamdAntiVirus() {
+    Configuration config = RodaCoreFactory.getRodaConfiguration();
+    String host = config.getString(CONFIG_PREFIX + "host", "localhost");
+    int port = config.getInt(CONFIG_PREFIX + "port", 3310);
+    this.mode = ClamdScanMode
+      .valueOf(config.getString(CONFIG_PREFIX + "mode", ClamdScanMode.INSTREAM.name()).trim().toUpperCase());
+    this.scanner = SCANNERS.computeIfAbsent(host + ":" + port, k -> {
+      int connections = config.getInt(CONFIG_PREFIX + "connections", Runtime.getRuntime().availableProcessors());
+      ClamdClient client = new ClamdClient(host, port, config.getInt(CONFIG_PREFIX + "timeout", 60000), connections,
+        config.getInt(CONFIG_PREFIX + "chunk_size", 65536), config.getLong(CONFIG_PREFIX + "max_idle_time", 20000),
+        config.getLong(CONFIG_PREFIX + "stream_max_length", ClamdClient.DEFAULT_STREAM_MAX_LENGTH));
+      client.setScanTimeout(config.getInt(CONFIG_PREFIX + "scan_timeout", ClamdClient.NO_SCAN_TIMEOUT));
+      client.setScanLongFilesByPath(config.getBoolean(CONFIG_PREFIX + "scan_long_files_by_path", false));
+      return new ClamdScanner(client, connections);
+    });
+  }
+
+  /**
+   * @param scanThreads
+   *          max number of files being streamed at the same time
+   */
+  public ClamdAntiVirus(ClamdClient client, int scanThreads, ClamdScanMode mode) {
+    this.scanner = new ClamdScanner(client, scanThreads);
+    this.mode = mode;
+  }
+
+  @Override
+  public VirusCheckResult checkForVirus(Path path) throws RuntimeException {
+    LOGGER.debug("Executing virus scan in {} using clamd ({})", path, mode);
+    try {
+      List<String> responses;
+      if (mode == ClamdScanMode.MULTISCAN) {
+        responses = scanner.client.multiscan(path);
+      } else {
+        responses = scanner.scanAll(path);
+      }
+
+      List<String> problems = responses.stream().filter(r -> !r.endsWith(OK)).collect(Collectors.toList());
+      boolean clean = problems.isEmpty();
+
+      StringBuilder report = new StringBuilder();
+      for (String problem : problems) {
+        report.append(problem).append(System.lineSeparator());
+      }
+      if (mode == ClamdScanMode.INSTREAM) {
+        report.append("Scanned files: ").append(responses.size()).append(System.lineSeparator());
+      }
+      report.append("Infected files: ").append(problems.stream().filter(r -> r.endsWith(FOUND)).count());
+
+      return new VirusCheckResult(clean, report.toString());
+    } catch (IOException e) {
+      throw new RuntimeException("Error executing virus scan using clamd: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * @return the client, shared with other instances using the same daemon
+   */
+  public ClamdClient getClient() {
+    return scanner.client;
+  }
+
+  @Override
+  public String getVersion() {
+    try {
+      return scanner.client.version();
+    } catch (IOException e) {
+      LOGGER.warn("Could not get clamd version: {}", e.getMessage());
+      return "1.0";
+    }
+  }
+
+  private static class ClamdScanner {
+    private final ClamdClient client;
+    private final ExecutorService executor;
+
+    public ClamdScanner(ClamdClient client, int scanThreads) {
+      this.client = client;
+      this.executor = Executors.newFixedThreadPool(Math.max(1, scanThreads), runnable -> {
+        Thread thread = new Thread(runnable, "clamd-scan");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+
+    /**
+     * Stream all files under path to clamd, in parallel
+     *
+     * @return one response per file, prefixed by the relative file path
+     */
+    public List<String> scanAll(Path path) throws IOException {
+      List<Path> files;
+      try (Stream<Path> stream = Files.walk(path)) {
+        files = stream.filter(Files::isRegularFile).collect(Collectors.toList());
+      }
+
+      List<Future<String>> futures = new ArrayList<>();
+      for (Path file : files) {
+        Path relative = Files.isDirectory(path) ? path.relativize(file) : file.getFileName();
+        futures.add(executor.submit(() -> relative + ": " + client.scan(file)));
+      }
+
+      List<String> responses = new ArrayList<>();
+      try {
+        for (Future<String> future : futures) {
+          responses.add(future.get());
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while scanning " + path, e);
+      } catch (ExecutionException e) {
+        throw e.getCause() instanceof IOException ? (IOException) e.getCause()
+          : new IOException("Error scanning " + path, e.getCause());
+      } finally {
+        futures.forEach(f -> f.cancel(true));
+      }
+      return responses;
+    }
+  }
+}
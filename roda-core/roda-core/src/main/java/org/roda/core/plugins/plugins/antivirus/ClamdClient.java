@@ -0,0 +1,517 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.plugins.plugins.antivirus;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Client of a ClamAV daemon (clamd), using its socket protocol.
+ *
+ * Files are streamed to the daemon (INSTREAM) over a pool of persistent
+ * connections (IDSESSION), so that neither a new process nor a new connection
+ * is needed for each scan and the daemon does not need access to the files.
+ * Alternatively, the daemon can scan a path itself, in parallel (MULTISCAN).
+ *
+ * clamd rejects streams longer than its <code>StreamMaxLength</code> (25 MB by
+ * default) with an "INSTREAM size limit exceeded" error, so scanning larger
+ * files fails unless the client is allowed to scan them by path (SCAN), which
+ * requires the daemon to have access to them. The stream max length given to
+ * the client should match the daemon's.
+ *
+ * The daemon sends nothing while scanning a path, so path scans (SCAN and
+ * MULTISCAN) use their own read timeout, unbounded by default.
+ */
+public class ClamdClient implements Closeable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ClamdClient.class);
+
+  private static final byte[] END_OF_STREAM = new byte[] {0, 0, 0, 0};
+  private static final int MAX_RESPONSE_SIZE = 1024 * 1024;
+  private static final String STREAM_PREFIX = "stream: ";
+  private static final String SIZE_LIMIT_EXCEEDED = "size limit exceeded";
+
+  /** clamd default StreamMaxLength */
+  public static final long DEFAULT_STREAM_MAX_LENGTH = 25L * 1024 * 1024;
+
+  /** No read timeout on path scans */
+  public static final int NO_SCAN_TIMEOUT = 0;
+
+  private final String host;
+  private final int port;
+  private final int timeout;
+  private final int chunkSize;
+  private final long maxIdleTime;
+  private final long streamMaxLength;
+  private volatile int scanTimeout = NO_SCAN_TIMEOUT;
+  private volatile boolean scanLongFilesByPath = false;
+
+  private final Semaphore connections;
+  private final Deque<Session> idleSessions = new ArrayDeque<>();
+  private boolean closed = false;
+
+  /**
+   * @param timeout
+   *          connect and read timeout, in milliseconds (except for path
+   *          scans)
+   * @param maxConnections
+   *          max number of connections (i.e. concurrent scans)
+   * @param chunkSize
+   *          size of the chunks in which files are streamed
+   * @param maxIdleTime
+   *          time, in milliseconds, after which an idle connection is no
+   *          longer reused (it should be lower than clamd IdleTimeout)
+   */
+  public ClamdClient(String host, int port, int timeout, int maxConnections, int chunkSize, long maxIdleTime) {
+    this(host, port, timeout, maxConnections, chunkSize, maxIdleTime, DEFAULT_STREAM_MAX_LENGTH);
+  }
+
+  /**
+   * @param streamMaxLength
+   *          max number of bytes streamed to the daemon (clamd
+   *          StreamMaxLength), larger files are not streamed
+   */
+  public ClamdClient(String host, int port, int timeout, int maxConnections, int chunkSize, long maxIdleTime,
+    long streamMaxLength) {
+    this.host = host;
+    this.port = port;
+    this.timeout = timeout;
+    this.chunkSize = chunkSize;
+    this.maxIdleTime = maxIdleTime;
+    this.streamMaxLength = streamMaxLength;
+    this.connections = new Semaphore(Math.max(1, maxConnections), true);
+  }
+
+  /**
+   * @return clamd version (e.g. ClamAV 0.99.2/22470/Mon Oct 17 2016)
+   */
+  public String version() throws IOException {
+    try (Socket socket = connect()) {
+      sendCommand(socket, "VERSION");
+      return readResponse(socket.getInputStream());
+    }
+  }
+
+  public long getStreamMaxLength() {
+    return streamMaxLength;
+  }
+
+  /**
+   * @param scanTimeout
+   *          read timeout, in milliseconds, of path scans (SCAN and
+   *          MULTISCAN), which take as long as the daemon needs to scan all
+   *          the files ({@link #NO_SCAN_TIMEOUT} to wait forever)
+   */
+  public void setScanTimeout(int scanTimeout) {
+    this.scanTimeout = Math.max(NO_SCAN_TIMEOUT, scanTimeout);
+  }
+
+  /**
+   * @param scanLongFilesByPath
+   *          if true, files longer than the stream max length are scanned by
+   *          path (the daemon must have access to them), otherwise scanning
+   *          them fails
+   */
+  public void setScanLongFilesByPath(boolean scanLongFilesByPath) {
+    this.scanLongFilesByPath = scanLongFilesByPath;
+  }
+
+  public boolean isScanLongFilesByPath() {
+    return scanLongFilesByPath;
+  }
+
+  /**
+   * @return why content longer than the stream max length is not scanned
+   */
+  public String getTooLongMessage() {
+    return "longer than clamd accepts as a stream (" + streamMaxLength
+      + " bytes), increase clamd StreamMaxLength (and the client stream max length) or allow long files to be scanned by path";
+  }
+
+  /**
+   * Whether clamd refused a stream for being longer than its StreamMaxLength
+   */
+  public static boolean isSizeLimitExceeded(String response) {
+    return response != null && response.toLowerCase().contains(SIZE_LIMIT_EXCEEDED);
+  }
+
+  /**
+   * Stream a file to clamd or, if it is too long to be streamed and that is
+   * allowed, ask clamd to scan it by path.
+   *
+   * @return scan result (e.g. "OK" or "Eicar-Test-Signature FOUND")
+   * @throws IOException
+   *           if the file could not be scanned, e.g. it is too long to be
+   *           streamed and scanning it by path is not allowed
+   */
+  public String scan(Path file) throws IOException {
+    if (Files.size(file) > streamMaxLength) {
+      return scanLongFile(file);
+    }
+
+    String response = stream(file);
+    if (isSizeLimitExceeded(response)) {
+      // the daemon StreamMaxLength is lower than configured
+      LOGGER.warn("clamd refused to scan {} as a stream ({}), its StreamMaxLength is lower than {}", file, response,
+        streamMaxLength);
+      return scanLongFile(file);
+    }
+    return StringUtils.removeStart(response, STREAM_PREFIX);
+  }
+
+  private String scanLongFile(Path file) throws IOException {
+    if (!scanLongFilesByPath) {
+      throw new IOException("File " + file + " is " + getTooLongMessage());
+    }
+    LOGGER.debug("Scanning {} by path, it is longer than clamd accepts as a stream", file);
+    return scanPath(file);
+  }
+
+  /**
+   * Ask clamd to scan a file by path (SCAN), e.g. one too long to be streamed.
+   * The daemon must have access to the path.
+   *
+   * @return scan result (e.g. "OK" or "Eicar-Test-Signature FOUND")
+   */
+  public String scanPath(Path file) throws IOException {
+    String path = file.toAbsolutePath().toString();
+    acquireConnection();
+    try (Socket socket = connect(scanTimeout)) {
+      sendCommand(socket, "SCAN " + path);
+      return StringUtils.removeStart(readResponse(new BufferedInputStream(socket.getInputStream())), path + ": ");
+    } finally {
+      connections.release();
+    }
+  }
+
+  private void acquireConnection() throws IOException {
+    try {
+      connections.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for a clamd connection", e);
+    }
+  }
+
+  private String stream(Path file) throws IOException {
+    acquireConnection();
+    try {
+      Session session = borrowSession();
+      try {
+        return stream(session, file);
+      } catch (IOException e) {
+        // the daemon may have closed an idle session, try once with a new one
+        LOGGER.debug("Error scanning {} using clamd session, retrying with a new session", file, e);
+        session = newSession();
+        return stream(session, file);
+      }
+    } finally {
+      connections.release();
+    }
+  }
+
+  private String stream(Session session, Path file) throws IOException {
+    boolean reusable = false;
+    try {
+      sendCommand(session.socket, "INSTREAM");
+      DataOutputStream out = new DataOutputStream(session.socket.getOutputStream());
+      byte[] buffer = new byte[chunkSize];
+      try (InputStream in = Files.newInputStream(file)) {
+        int read;
+        while ((read = IOUtils.read(in, buffer)) > 0) {
+          out.writeInt(read);
+          out.write(buffer, 0, read);
+        }
+        out.write(END_OF_STREAM);
+        out.flush();
+      } catch (SocketException e) {
+        String refusal = readRefusal(session);
+        if (refusal != null) {
+          return refusal;
+        }
+        throw e;
+      }
+
+      String response = stripSessionId(readResponse(session.in));
+      reusable = !response.endsWith("ERROR");
+      return response;
+    } finally {
+      if (reusable) {
+        returnSession(session);
+      } else {
+        session.close();
+      }
+    }
+  }
+
+  /**
+   * Start streaming content to clamd, e.g. while it is being read for other
+   * purposes. The scan holds a connection until it is closed. Content longer
+   * than {@link #getStreamMaxLength()} is refused by the daemon and must be
+   * scanned by path instead.
+   */
+  public StreamScan startScan() throws IOException {
+    acquireConnection();
+    try {
+      Session session = borrowSession();
+      try {
+        sendCommand(session.socket, "INSTREAM");
+      } catch (IOException e) {
+        // the daemon may have closed an idle session, try once with a new one
+        session.close();
+        session = newSession();
+        sendCommand(session.socket, "INSTREAM");
+      }
+      return new StreamScan(session);
+    } catch (IOException | RuntimeException e) {
+      connections.release();
+      throw e;
+    }
+  }
+
+  /**
+   * Ask clamd to scan a path (file or folder) using multiple threads. The
+   * daemon must have access to the path.
+   *
+   * @return one response per infected file or error (e.g.
+   *         "/path/to/file: Eicar-Test-Signature FOUND") or a single OK
+   *         response.
+   */
+  public List<String> multiscan(Path path) throws IOException {
+    List<String> responses = new ArrayList<>();
+    try (Socket socket = connect(scanTimeout)) {
+      sendCommand(socket, "MULTISCAN " + path.toAbsolutePath());
+      InputStream in = new BufferedInputStream(socket.getInputStream());
+      while (true) {
+        try {
+          responses.add(readResponse(in));
+        } catch (EOFException e) {
+          break;
+        }
+      }
+    }
+    return responses;
+  }
+
+  private Socket connect() throws IOException {
+    return connect(timeout);
+  }
+
+  private Socket connect(int readTimeout) throws IOException {
+    Socket socket = new Socket();
+    try {
+      socket.connect(new InetSocketAddress(host, port), timeout);
+      socket.setSoTimeout(readTimeout);
+    } catch (IOException e) {
+      IOUtils.closeQuietly(socket);
+      throw new IOException("Could not connect to clamd at " + host + ":" + port, e);
+    }
+    return socket;
+  }
+
+  private static void sendCommand(Socket socket, String command) throws IOException {
+    socket.getOutputStream().write(("z" + command + "\0").getBytes(StandardCharsets.US_ASCII));
+    socket.getOutputStream().flush();
+  }
+
+  private static String readResponse(InputStream in) throws IOException {
+    ByteArrayOutputStream response = new ByteArrayOutputStream();
+    int b;
+    while ((b = in.read()) != 0) {
+      if (b == -1) {
+        if (response.size() == 0) {
+          throw new EOFException("clamd closed the connection");
+        }
+        break;
+      }
+      if (response.size() < MAX_RESPONSE_SIZE) {
+        response.write(b);
+      }
+    }
+    return new String(response.toByteArray(), StandardCharsets.UTF_8).trim();
+  }
+
+  /**
+   * clamd may refuse a stream (e.g. size limit exceeded) and close the
+   * connection while it is being written, its response says why
+   *
+   * @return the response, or null if there is none
+   */
+  private static String readRefusal(Session session) {
+    try {
+      return stripSessionId(readResponse(session.in));
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  private static String stripSessionId(String response) {
+    int separator = response.indexOf(": ");
+    if (separator > 0 && response.substring(0, separator).chars().allMatch(Character::isDigit)) {
+      return response.substring(separator + 2);
+    }
+    return response;
+  }
+
+  private Session borrowSession() throws IOException {
+    synchronized (idleSessions) {
+      while (!idleSessions.isEmpty()) {
+        Session session = idleSessions.pollLast();
+        if (System.currentTimeMillis() - session.lastUsed < maxIdleTime) {
+          return session;
+        }
+        session.close();
+      }
+    }
+    return newSession();
+  }
+
+  private Session newSession() throws IOException {
+    Socket socket = connect();
+    try {
+      sendCommand(socket, "IDSESSION");
+      return new Session(socket);
+    } catch (IOException e) {
+      IOUtils.closeQuietly(socket);
+      throw e;
+    }
+  }
+
+  private void returnSession(Session session) {
+    session.lastUsed = System.currentTimeMillis();
+    synchronized (idleSessions) {
+      if (closed) {
+        session.close();
+      } else {
+        idleSessions.add(session);
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    synchronized (idleSessions) {
+      closed = true;
+      for (Session session : idleSessions) {
+        session.close();
+      }
+      idleSessions.clear();
+    }
+  }
+
+  /**
+   * Content being streamed to clamd
+   */
+  public class StreamScan implements Closeable {
+    private final Session session;
+    private final DataOutputStream out;
+    private boolean reusable = false;
+    private boolean closed = false;
+
+    private StreamScan(Session session) throws IOException {
+      this.session = session;
+      this.out = new DataOutputStream(session.socket.getOutputStream());
+    }
+
+    /**
+     * @throws IOException
+     *           if the content could not be sent, with the daemon response as
+     *           message if it refused the stream (e.g. "INSTREAM size limit
+     *           exceeded. ERROR")
+     */
+    public void write(byte[] buffer, int offset, int length) throws IOException {
+      int written = 0;
+      try {
+        while (written < length) {
+          int n = Math.min(chunkSize, length - written);
+          out.writeInt(n);
+          out.write(buffer, offset + written, n);
+          written += n;
+        }
+      } catch (SocketException e) {
+        String refusal = readRefusal(session);
+        throw refusal != null ? new IOException(refusal, e) : e;
+      }
+    }
+
+    /**
+     * @return clamd response without the session id (e.g. "stream: OK" or
+     *         "stream: Eicar-Test-Signature FOUND")
+     */
+    public String finish() throws IOException {
+      try {
+        out.write(END_OF_STREAM);
+        out.flush();
+      } catch (SocketException e) {
+        String refusal = readRefusal(session);
+        if (refusal != null) {
+          return refusal;
+        }
+        throw e;
+      }
+      String response = stripSessionId(readResponse(session.in));
+      reusable = !response.endsWith("ERROR");
+      return response;
+    }
+
+    @Override
+    public void close() {
+      if (!closed) {
+        closed = true;
+        if (reusable) {
+          returnSession(session);
+        } else {
+          session.close();
+        }
+        connections.release();
+      }
+    }
+  }
+
+  private static class Session {
+    private final Socket socket;
+    private final InputStream in;
+    private long lastUsed;
+
+    public Session(Socket socket) throws IOException {
+      this.socket = socket;
+      this.in = new BufferedInputStream(socket.getInputStream());
+      this.lastUsed = System.currentTimeMillis();
+    }
+
+    public void close() {
+      try {
+        // politely end the session, the daemon closes the connection anyway
+        sendCommand(socket, "END");
+      } catch (IOException e) {
+        // do nothing
+      }
+      IOUtils.closeQuietly(socket);
+    }
+  }
+}
@@ -10,13 +10,14 @@ package org.roda.core.plugins.plugins.base;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
-import org.apache.commons.lang.StringUtils;
 import org.roda.core.data.common.RodaConstants;
 import org.roda.core.data.common.RodaConstants.PreservationEventType;
 import org.roda.core.data.exceptions.AuthorizationDeniedException;
 import org.roda.core.data.exceptions.GenericException;
 import org.roda.core.data.exceptions.NotFoundException;
+import org.roda.core.data.exceptions.RODAException;
 import org.roda.core.data.exceptions.RequestNotValidException;
 import org.roda.core.data.v2.LiteOptionalWithCause;
 import org.roda.core.data.v2.Void;
@@ -45,6 +46,7 @@ import org.slf4j.LoggerFactory;
 
 public class CleanupFailedIngestAIPsPlugin extends AbstractPlugin<Void> {
   private static final Logger LOGGER = LoggerFactory.getLogger(CleanupFailedIngestAIPsPlugin.class);
+  private static final int DELETE_BATCH_SIZE = 100;
 
   @Override
   public void init() throws PluginException {
@@ -97,32 +99,44 @@ public class CleanupFailedIngestAIPsPlugin extends AbstractPlugin<Void> {
     // remove self
     activeJobsIds.remove(job.getId());
 
-    // find & delete aips
+    // find & delete aips, removing each batch from the index together
     IterableIndexResult<IndexedAIP> aipsToDelete = findAipsToDelete(index, activeJobsIds);
+    List<String> aipIds = new ArrayList<>();
     for (IndexedAIP indexedAIP : aipsToDelete) {
-      String error = "";
-      try {
-        LOGGER.debug("Removing unwanted AIP {}", indexedAIP.getId());
-        model.deleteAIP(indexedAIP.getId());
-      } catch (RequestNotValidException | NotFoundException | GenericException | AuthorizationDeniedException e) {
-        error = e.getMessage();
+      aipIds.add(indexedAIP.getId());
+      if (aipIds.size() >= DELETE_BATCH_SIZE) {
+        deleteAIPs(model, report, job, jobPluginInfo, aipIds);
+        aipIds.clear();
       }
+    }
+
+    if (!aipIds.isEmpty()) {
+      deleteAIPs(model, report, job, jobPluginInfo, aipIds);
+    }
+
+    jobPluginInfo.setSourceObjectsCount((int) aipsToDelete.getTotalObjects());
+  }
 
-      Report reportItem = PluginHelper.initPluginReportItem(this, indexedAIP.getId(), AIP.class,
-        AIPState.INGEST_PROCESSING);
-      if (StringUtils.isNotBlank(error)) {
+  private void deleteAIPs(ModelService model, Report report, Job job, SimpleJobPluginInfo jobPluginInfo,
+    List<String> aipIds) {
+    LOGGER.debug("Removing unwanted AIPs {}", aipIds);
+    Map<String, RODAException> errors = model.deleteAIPs(aipIds);
+
+    for (String aipId : aipIds) {
+      Report reportItem = PluginHelper.initPluginReportItem(this, aipId, AIP.class, AIPState.INGEST_PROCESSING);
+      RODAException error = errors.get(aipId);
+      if (error != null) {
         reportItem.setPluginState(PluginState.FAILURE)
-          .setPluginDetails("Removal of AIP " + indexedAIP.getId() + " did not end successfully: " + error);
+          .setPluginDetails("Removal of AIP " + aipId + " did not end successfully: " + error.getMessage());
         jobPluginInfo.incrementObjectsProcessedWithFailure();
       } else {
         reportItem.setPluginState(PluginState.SUCCESS)
-          .setPluginDetails("Removal of AIP " + indexedAIP.getId() + " ended successfully");
+          .setPluginDetails("Removal of AIP " + aipId + " ended successfully");
         jobPluginInfo.incrementObjectsProcessedWithSuccess();
       }
       report.addReport(reportItem);
       PluginHelper.updatePartialJobReport(this, model, reportItem, true, job);
     }
-    jobPluginInfo.setSourceObjectsCount((int) aipsToDelete.getTotalObjects());
   }
 
   private List<String> findActiveJobs(IndexService index) {
@@ -8,20 +8,23 @@
 package org.roda.core.plugins.plugins.base;
 
 import java.io.IOException;
-import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-import org.apache.commons.io.IOUtils;
-import org.roda.core.common.ConsumesOutputStream;
+import org.roda.core.RodaCoreFactory;
 import org.roda.core.common.DownloadUtils;
+import org.roda.core.common.tools.ParallelZipWriter;
+import org.roda.core.common.tools.ZipCompressionPolicy;
 import org.roda.core.data.common.RodaConstants;
 import org.roda.core.data.common.RodaConstants.ExportType;
 import org.roda.core.data.common.RodaConstants.PreservationEventType;
@@ -33,9 +36,13 @@ import org.roda.core.data.exceptions.JobException;
 import org.roda.core.data.exceptions.NotFoundException;
 import org.roda.core.data.exceptions.RequestNotValidException;
 import org.roda.core.data.v2.LiteOptionalWithCause;
+import org.roda.core.data.v2.index.filter.Filter;
+import org.roda.core.data.v2.index.filter.SimpleFilterParameter;
 import org.roda.core.data.v2.ip.AIP;
 import org.roda.core.data.v2.ip.AIPState;
+import org.roda.core.data.v2.ip.IndexedFile;
 import org.roda.core.data.v2.ip.StoragePath;
+import org.roda.core.data.v2.ip.metadata.FileFormat;
 import org.roda.core.data.v2.jobs.Job;
 import org.roda.core.data.v2.jobs.PluginParameter;
 import org.roda.core.data.v2.jobs.PluginParameter.PluginParameterType;
@@ -52,7 +59,6 @@ import org.roda.core.plugins.PluginException;
 import org.roda.core.plugins.orchestrate.SimpleJobPluginInfo;
 import org.roda.core.plugins.plugins.PluginHelper;
 import org.roda.core.storage.DefaultStoragePath;
-import org.roda.core.storage.Directory;
 import org.roda.core.storage.StorageService;
 import org.roda.core.storage.fs.FSUtils;
 import org.roda.core.storage.fs.FileStorageService;
@@ -194,7 +200,8 @@ public class ExportAIPPlugin extends AbstractPlugin<AIP> {
   private Report exportFolders(List<AIP> aips, StorageService storage, ModelService model, IndexService index,
     Report report, SimpleJobPluginInfo jobPluginInfo, Job job) {
     try {
-      FileStorageService localStorage = new FileStorageService(Paths.get(outputFolder));
+      FileStorageService localStorage = new FileStorageService(Paths.get(outputFolder), null,
+        RodaCoreFactory.getStorageCopyStrategy(), RodaCoreFactory.getStorageCopyThreads());
       for (AIP aip : aips) {
         LOGGER.debug("Exporting AIP {} to folder", aip.getId());
         String error = null;
@@ -242,46 +249,107 @@ public class ExportAIPPlugin extends AbstractPlugin<AIP> {
 
   private Report exportMultiZip(List<AIP> aips, Path outputPath, Report report, ModelService model, IndexService index,
     StorageService storage, SimpleJobPluginInfo jobPluginInfo, Job job) {
-    for (AIP aip : aips) {
-      LOGGER.debug("Exporting AIP {} to ZIP", aip.getId());
-      OutputStream os = null;
-      String error = null;
-      try {
-        Path zip = outputPath.resolve(aip.getId() + ".zip");
-        if (FSUtils.exists(zip) && removeIfAlreadyExists) {
-          Files.delete(zip);
-        } else if (FSUtils.exists(zip) && !removeIfAlreadyExists) {
-          error = "File " + zip.toString() + " already exists";
-        }
-        if (error == null) {
-          os = Files.newOutputStream(zip, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+    int parallelAIPs = RodaCoreFactory.getRodaConfigurationAsInt(2, "core", "export", "zip", "parallel_aips");
+    ExecutorService aipExecutor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelAIPs, aips.size())));
+    ZipCompressionPolicy compressionPolicy = ZipCompressionPolicy.fromConfiguration();
 
-          Directory directory = storage.getDirectory(ModelUtils.getAIPStoragePath(aip.getId()));
-          ConsumesOutputStream cos = DownloadUtils.download(storage, directory);
-          cos.consumeOutputStream(os);
+    ParallelZipWriter zipWriter = ParallelZipWriter.fromConfiguration();
+    try {
+      List<Future<String>> results = new ArrayList<>();
+      for (AIP aip : aips) {
+        results.add(aipExecutor.submit(() -> exportZip(aip, outputPath, index, storage, zipWriter, compressionPolicy)));
+      }
+
+      for (int i = 0; i < aips.size(); i++) {
+        AIP aip = aips.get(i);
+        String error;
+        try {
+          error = results.get(i).get();
+        } catch (ExecutionException e) {
+          LOGGER.error("Error exporting AIP " + aip.getId() + ": " + e.getMessage(), e);
+          error = e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          error = "Export was interrupted";
         }
-      } catch (Exception e) {
-        LOGGER.error("Error exporting AIP " + aip.getId() + ": " + e.getMessage());
-        error = e.getMessage();
-      } finally {
-        if (os != null) {
-          IOUtils.closeQuietly(os);
+
+        Report reportItem = PluginHelper.initPluginReportItem(this, aip.getId(), AIP.class, AIPState.ACTIVE);
+        if (error != null) {
+          reportItem.setPluginState(PluginState.FAILURE)
+            .setPluginDetails("Export AIP did not end successfully: " + error);
+          jobPluginInfo.incrementObjectsProcessedWithFailure();
+        } else {
+          reportItem.setPluginState(PluginState.SUCCESS).setPluginDetails("Export AIP ended successfully");
+          jobPluginInfo.incrementObjectsProcessedWithSuccess();
         }
+        report.addReport(reportItem);
+        PluginHelper.updatePartialJobReport(this, model, reportItem, true, job);
       }
+    } finally {
+      aipExecutor.shutdownNow();
+    }
+    return report;
+  }
 
-      Report reportItem = PluginHelper.initPluginReportItem(this, aip.getId(), AIP.class, AIPState.ACTIVE);
-      if (error != null) {
-        reportItem.setPluginState(PluginState.FAILURE)
-          .setPluginDetails("Export AIP did not end successfully: " + error);
-        jobPluginInfo.incrementObjectsProcessedWithFailure();
-      } else {
-        reportItem.setPluginState(PluginState.SUCCESS).setPluginDetails("Export AIP ended successfully");
-        jobPluginInfo.incrementObjectsProcessedWithSuccess();
+  /**
+   * @return the error message or null if the export ended successfully
+   */
+  private String exportZip(AIP aip, Path outputPath, IndexService index, StorageService storage,
+    ParallelZipWriter zipWriter, ZipCompressionPolicy compressionPolicy) {
+    LOGGER.debug("Exporting AIP {} to ZIP", aip.getId());
+    String error = null;
+    try {
+      Path zip = outputPath.resolve(aip.getId() + ".zip");
+      if (FSUtils.exists(zip) && removeIfAlreadyExists) {
+        Files.delete(zip);
+      } else if (FSUtils.exists(zip) && !removeIfAlreadyExists) {
+        error = "File " + zip.toString() + " already exists";
       }
-      report.addReport(reportItem);
-      PluginHelper.updatePartialJobReport(this, model, reportItem, true, job);
+      if (error == null) {
+        Map<String, FileFormat> formats = getFileFormats(aip.getId(), index);
+        DownloadUtils.zip(storage, ModelUtils.getAIPStoragePath(aip.getId()), zip, zipWriter, entryPath -> {
+          FileFormat format = formats.get(entryPath);
+          return format == null ? compressionPolicy.getCompressionMethod(entryPath)
+            : compressionPolicy.getCompressionMethod(entryPath, format.getMimeType(), format.getPronom());
+        });
+      }
+    } catch (Exception e) {
+      LOGGER.error("Error exporting AIP " + aip.getId() + ": " + e.getMessage());
+      error = e.getMessage();
     }
-    return report;
+    return error;
+  }
+
+  /**
+   * Gets the identified formats of the AIP files, indexed by their path inside
+   * the AIP (i.e. the zip entry path)
+   */
+  private Map<String, FileFormat> getFileFormats(String aipId, IndexService index) {
+    Map<String, FileFormat> formats = new HashMap<>();
+    Filter filter = new Filter(new SimpleFilterParameter(RodaConstants.FILE_AIP_ID, aipId));
+    List<String> fieldsToReturn = Arrays.asList(RodaConstants.INDEX_UUID, RodaConstants.FILE_AIP_ID,
+      RodaConstants.FILE_REPRESENTATION_ID, RodaConstants.FILE_PATH, RodaConstants.FILE_FILE_ID,
+      RodaConstants.FILE_ISDIRECTORY, RodaConstants.FILE_FORMAT_MIMETYPE, RodaConstants.FILE_PRONOM);
+
+    try {
+      for (IndexedFile file : index.findAll(IndexedFile.class, filter, fieldsToReturn)) {
+        if (!file.isDirectory() && file.getFileFormat() != null) {
+          List<String> entryPath = new ArrayList<>();
+          entryPath.add(RodaConstants.STORAGE_DIRECTORY_REPRESENTATIONS);
+          entryPath.add(file.getRepresentationId());
+          entryPath.add(RodaConstants.STORAGE_DIRECTORY_DATA);
+          if (file.getPath() != null) {
+            entryPath.addAll(file.getPath());
+          }
+          entryPath.add(file.getId());
+          formats.put(String.join("/", entryPath), file.getFileFormat());
+        }
+      }
+    } catch (RuntimeException e) {
+      LOGGER.warn("Could not obtain file formats of AIP {}, using file extensions instead", aipId, e);
+    }
+
+    return formats;
   }
 
   @Override
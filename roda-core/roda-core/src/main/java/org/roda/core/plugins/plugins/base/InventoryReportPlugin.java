@@ -220,7 +220,7 @@ public class InventoryReportPlugin extends AbstractPlugin<AIP> {
         @Override
         public void process(IndexService index, ModelService model, StorageService storage, Report report, Job cachedJob,
           SimpleJobPluginInfo jobPluginInfo, Plugin<AIP> plugin, AIP object) {
-          processAIP(model, storage, jobPluginInfo, csvFilePrinter, object);
+          processAIP(index, model, storage, jobPluginInfo, csvFilePrinter, object);
         }
       }, new RODAProcessingLogic<AIP>() {
         @Override
@@ -234,28 +234,27 @@ public class InventoryReportPlugin extends AbstractPlugin<AIP> {
     }
   }
 
-  private void processAIP(ModelService model, StorageService storage, SimpleJobPluginInfo jobPluginInfo,
-    CSVPrinter csvFilePrinter, AIP aip) {
+  private void processAIP(IndexService index, ModelService model, StorageService storage,
+    SimpleJobPluginInfo jobPluginInfo, CSVPrinter csvFilePrinter, AIP aip) {
     if (csvFilePrinter == null) {
       LOGGER.warn("CSVPrinter is NULL! Skipping...");
       return;
     }
 
     try {
+      // records are printed as they are obtained, straight to the CSV file of
+      // this block of AIPs (blocks are processed in parallel, each with its own
+      // file, which are merged in the end)
       if (outputDataInformation && aip.getRepresentations() != null) {
-        List<List<String>> dataInformation = InventoryReportPluginUtils.getDataInformation(fields, aip, model, storage);
-        csvFilePrinter.printRecords(dataInformation);
+        InventoryReportPluginUtils.printDataInformation(csvFilePrinter, fields, aip, index, model, storage);
       }
       if (outputDescriptiveMetadataInformation && aip.getDescriptiveMetadata() != null) {
-        List<List<String>> dataInformation = InventoryReportPluginUtils.getDescriptiveMetadataInformation(fields, aip,
-          model, storage);
-        csvFilePrinter.printRecords(dataInformation);
+        InventoryReportPluginUtils.printDescriptiveMetadataInformation(csvFilePrinter, fields, aip, storage);
       }
       if (otherMetadataTypes != null && !otherMetadataTypes.isEmpty()) {
         for (String otherMetadataType : otherMetadataTypes) {
-          List<List<String>> otherMetadataInformation = InventoryReportPluginUtils.getOtherMetadataInformation(fields,
-            otherMetadataType, aip, model, storage);
-          csvFilePrinter.printRecords(otherMetadataInformation);
+          InventoryReportPluginUtils.printOtherMetadataInformation(csvFilePrinter, fields, otherMetadataType, aip,
+            model, storage);
         }
       }
       jobPluginInfo.incrementObjectsProcessedWithSuccess();
@@ -13,38 +13,50 @@ import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
-import org.apache.commons.io.IOUtils;
+import org.apache.commons.csv.CSVPrinter;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.xmlbeans.XmlException;
 import org.roda.core.common.PremisV3Utils;
 import org.roda.core.common.iterables.CloseableIterable;
+import org.roda.core.data.common.RodaConstants;
 import org.roda.core.data.exceptions.AuthorizationDeniedException;
 import org.roda.core.data.exceptions.GenericException;
 import org.roda.core.data.exceptions.NotFoundException;
 import org.roda.core.data.exceptions.RequestNotValidException;
 import org.roda.core.data.v2.common.OptionalWithCause;
+import org.roda.core.data.v2.index.filter.Filter;
+import org.roda.core.data.v2.index.filter.SimpleFilterParameter;
 import org.roda.core.data.v2.ip.AIP;
 import org.roda.core.data.v2.ip.File;
+import org.roda.core.data.v2.ip.IndexedFile;
 import org.roda.core.data.v2.ip.Representation;
 import org.roda.core.data.v2.ip.StoragePath;
 import org.roda.core.data.v2.ip.metadata.DescriptiveMetadata;
 import org.roda.core.data.v2.ip.metadata.Fixity;
 import org.roda.core.data.v2.ip.metadata.OtherMetadata;
+import org.roda.core.index.IndexService;
 import org.roda.core.model.ModelService;
 import org.roda.core.model.utils.ModelUtils;
 import org.roda.core.storage.Binary;
 import org.roda.core.storage.StorageService;
 import org.roda.core.storage.fs.FSUtils;
 import org.roda.core.util.FileUtility;
+import org.roda.core.util.IdUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class InventoryReportPluginUtils {
   private static final Logger LOGGER = LoggerFactory.getLogger(InventoryReportPluginUtils.class);
 
+  private static final Pattern INDEXED_HASH_PATTERN = Pattern.compile("^(\\S+) \\(([^,)]+)");
+
   private InventoryReportPluginUtils() {
     // do nothing
   }
@@ -62,45 +74,84 @@ public class InventoryReportPluginUtils {
     }
   }
 
-  public static List<List<String>> getDataInformation(List<String> fields, AIP aip, ModelService model,
-    StorageService storage) {
-    List<List<String>> dataInformation = new ArrayList<>();
+  /**
+   * Prints a CSV record for each file of the AIP representations, as they are
+   * listed. Fixities are taken from the index when present there, so that the
+   * PREMIS file of each file does not have to be read and parsed.
+   */
+  public static void printDataInformation(CSVPrinter printer, List<String> fields, AIP aip, IndexService index,
+    ModelService model, StorageService storage) throws IOException {
+    Map<String, Map<String, String>> indexedFixities = getIndexedFixities(fields, aip, index);
     for (Representation representation : aip.getRepresentations()) {
       boolean recursive = true;
-      try {
-        CloseableIterable<OptionalWithCause<File>> representationFiles = model.listFilesUnder(aip.getId(),
-          representation.getId(), recursive);
+      try (CloseableIterable<OptionalWithCause<File>> representationFiles = model.listFilesUnder(aip.getId(),
+        representation.getId(), recursive)) {
         for (OptionalWithCause<File> subfile : representationFiles) {
           if (subfile.isPresent()) {
-            dataInformation.add(retrieveFileInfo(fields, subfile.get(), aip, model, storage));
+            File file = subfile.get();
+            printer.printRecord(
+              retrieveFileInfo(fields, file, aip, indexedFixities.get(IdUtils.getFileId(file)), model, storage));
           } else {
             LOGGER.error("Cannot retrieve file information", subfile.getCause());
           }
         }
-        IOUtils.closeQuietly(representationFiles);
       } catch (NotFoundException | GenericException | RequestNotValidException | AuthorizationDeniedException e) {
         LOGGER.error("Error retrieving files of representation '{}' of AIP '{}': " + e.getMessage(),
           representation.getId(), aip.getId());
       }
     }
-    return dataInformation;
   }
 
-  public static List<List<String>> getDescriptiveMetadataInformation(List<String> fields, AIP aip, ModelService model,
-    StorageService storage) {
-    List<List<String>> descriptiveMetadataInformation = new ArrayList<>();
+  /**
+   * Gets the fixities of the AIP files that are in the index (by algorithm),
+   * indexed by file UUID, if the fields include any checksum
+   */
+  private static Map<String, Map<String, String>> getIndexedFixities(List<String> fields, AIP aip,
+    IndexService index) {
+    Map<String, Map<String, String>> fixities = new HashMap<>();
+    boolean hasChecksumFields = fields.stream()
+      .anyMatch(field -> InventoryReportPlugin.CHECKSUM_ALGORITHMS.contains(field.toUpperCase()));
+    if (!hasChecksumFields) {
+      return fixities;
+    }
+
+    Filter filter = new Filter(new SimpleFilterParameter(RodaConstants.FILE_AIP_ID, aip.getId()));
+    List<String> fieldsToReturn = Arrays.asList(RodaConstants.INDEX_UUID, RodaConstants.FILE_AIP_ID,
+      RodaConstants.FILE_ISDIRECTORY, RodaConstants.FILE_HASH);
+    try {
+      for (IndexedFile file : index.findAll(IndexedFile.class, filter, fieldsToReturn)) {
+        if (!file.isDirectory() && file.getHash() != null) {
+          Map<String, String> fileFixities = new HashMap<>();
+          for (String hash : file.getHash()) {
+            // indexed as "digest (algorithm[, originator])"
+            Matcher matcher = INDEXED_HASH_PATTERN.matcher(hash);
+            if (matcher.find()) {
+              fileFixities.put(matcher.group(2).trim().toUpperCase(), matcher.group(1));
+            }
+          }
+          if (!fileFixities.isEmpty()) {
+            fixities.put(file.getUUID(), fileFixities);
+          }
+        }
+      }
+    } catch (RuntimeException e) {
+      LOGGER.warn("Could not obtain indexed fixities of AIP {}, using PREMIS files instead", aip.getId(), e);
+    }
+    return fixities;
+  }
+
+  public static void printDescriptiveMetadataInformation(CSVPrinter printer, List<String> fields, AIP aip,
+    StorageService storage) throws IOException {
     for (DescriptiveMetadata dm : aip.getDescriptiveMetadata()) {
-      descriptiveMetadataInformation.add(retrieveDescriptiveMetadataInfo(fields, aip, dm, storage));
+      printer.printRecord(retrieveDescriptiveMetadataInfo(fields, aip, dm, storage));
     }
     if (aip.getRepresentations() != null) {
       for (Representation r : aip.getRepresentations()) {
         for (DescriptiveMetadata dm : r.getDescriptiveMetadata()) {
-          descriptiveMetadataInformation.add(retrieveDescriptiveMetadataInfo(fields, aip, dm, storage));
+          printer.printRecord(retrieveDescriptiveMetadataInfo(fields, aip, dm, storage));
         }
       }
     }
-    return descriptiveMetadataInformation;
-
   }
 
   private static List<String> retrieveDescriptiveMetadataInfo(List<String> fields, AIP aip, DescriptiveMetadata dm,
@@ -150,9 +201,14 @@ public class InventoryReportPluginUtils {
 
   public static List<String> retrieveFileInfo(List<String> fields, File file, AIP aip, ModelService model,
     StorageService storage) {
+    return retrieveFileInfo(fields, file, aip, null, model, storage);
+  }
+
+  private static List<String> retrieveFileInfo(List<String> fields, File file, AIP aip,
+    Map<String, String> indexedFixities, ModelService model, StorageService storage) {
 
     List<String> fileInfo = new ArrayList<>();
-    List<Fixity> fixities = null;
+    Map<String, String> fixities = indexedFixities;
 
     for (String fieldName : fields) {
       if (fieldName.equalsIgnoreCase(InventoryReportPlugin.CSV_FIELD_SIP_ID)) {
@@ -171,7 +227,13 @@ public class InventoryReportPluginUtils {
         if (!file.isDirectory()) {
           if (fixities == null) {
             try {
-              fixities = PremisV3Utils.extractFixities(model.retrievePreservationFile(file));
+              Map<String, String> premisFixities = new HashMap<>();
+              for (Fixity fixity : PremisV3Utils.extractFixities(model.retrievePreservationFile(file))) {
+                if (fixity.getMessageDigestAlgorithm() != null) {
+                  premisFixities.put(fixity.getMessageDigestAlgorithm().toUpperCase(), fixity.getMessageDigest());
+                }
+              }
+              fixities = premisFixities;
             } catch (GenericException | RequestNotValidException | NotFoundException | AuthorizationDeniedException
               | XmlException | IOException e) {
               LOGGER.error("Error extracting fixities from premis file.", e);
@@ -194,16 +256,9 @@ public class InventoryReportPluginUtils {
     return fileInfo;
   }
 
-  private static String getFixity(String fixityAlgorithm, List<Fixity> fixities, File file, StorageService storage) {
-    String fixity = "";
-    if (fixities != null && !fixities.isEmpty()) {
-      for (Fixity f : fixities) {
-        if (f.getMessageDigestAlgorithm() != null && f.getMessageDigestAlgorithm().equalsIgnoreCase(fixityAlgorithm)) {
-          fixity = f.getMessageDigest();
-          break;
-        }
-      }
-    }
+  private static String getFixity(String fixityAlgorithm, Map<String, String> fixities, File file,
+    StorageService storage) {
+    String fixity = fixities != null ? fixities.get(fixityAlgorithm.toUpperCase()) : null;
     if (StringUtils.isBlank(fixity)) {
       try {
         Binary binary = storage.getBinary(ModelUtils.getFileStoragePath(file));
@@ -216,24 +271,20 @@ public class InventoryReportPluginUtils {
     return fixity;
   }
 
-  public static List<List<String>> getOtherMetadataInformation(List<String> fields, String otherMetadataType, AIP aip,
-    ModelService model, StorageService storage) {
-    List<List<String>> otherMetadataInformation = new ArrayList<>();
-    try {
-      CloseableIterable<OptionalWithCause<OtherMetadata>> otherMetadatas = model.listOtherMetadata(aip.getId(),
-        otherMetadataType, true);
+  public static void printOtherMetadataInformation(CSVPrinter printer, List<String> fields, String otherMetadataType,
+    AIP aip, ModelService model, StorageService storage) throws IOException {
+    try (CloseableIterable<OptionalWithCause<OtherMetadata>> otherMetadatas = model.listOtherMetadata(aip.getId(),
+      otherMetadataType, true)) {
       for (OptionalWithCause<OtherMetadata> otherMetadata : otherMetadatas) {
         if (otherMetadata.isPresent()) {
-          otherMetadataInformation.add(retrieveOtherMetadataInfo(fields, otherMetadata.get(), aip, storage));
+          printer.printRecord(retrieveOtherMetadataInfo(fields, otherMetadata.get(), aip, storage));
         } else {
           LOGGER.error("Cannot retrieve other metadata information", otherMetadata.getCause());
         }
       }
-      IOUtils.closeQuietly(otherMetadatas);
     } catch (RequestNotValidException | NotFoundException | GenericException | AuthorizationDeniedException e) {
       LOGGER.error("Error retrieving other metadata.", e);
     }
-    return otherMetadataInformation;
   }
 
   private static List<String> retrieveOtherMetadataInfo(List<String> fields, OtherMetadata otherMetadata, AIP aip,
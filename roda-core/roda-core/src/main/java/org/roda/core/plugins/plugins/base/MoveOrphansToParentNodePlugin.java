@@ -10,16 +10,24 @@ package org.roda.core.plugins.plugins.base;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
 
 import org.roda.core.data.common.RodaConstants;
 import org.roda.core.data.common.RodaConstants.PreservationEventType;
 import org.roda.core.data.exceptions.InvalidParameterException;
 import org.roda.core.data.exceptions.RODAException;
 import org.roda.core.data.v2.LiteOptionalWithCause;
+import org.roda.core.data.v2.index.filter.Filter;
+import org.roda.core.data.v2.index.filter.OneOfManyFilterParameter;
 import org.roda.core.data.v2.ip.AIP;
 import org.roda.core.data.v2.ip.AIPState;
+import org.roda.core.data.v2.ip.IndexedAIP;
 import org.roda.core.data.v2.jobs.Job;
 import org.roda.core.data.v2.jobs.PluginParameter;
 import org.roda.core.data.v2.jobs.PluginParameter.PluginParameterType;
@@ -100,41 +108,86 @@ public class MoveOrphansToParentNodePlugin extends AbstractPlugin<AIP> {
       @Override
       public void process(IndexService index, ModelService model, StorageService storage, Report report, Job cachedJob,
         SimpleJobPluginInfo jobPluginInfo, Plugin<AIP> plugin, List<AIP> objects) {
-        processAIPs(model, jobPluginInfo, cachedJob, objects);
+        processAIPs(index, model, jobPluginInfo, cachedJob, objects);
       }
     }, index, model, storage, liteList);
   }
 
-  private void processAIPs(ModelService model, SimpleJobPluginInfo jobPluginInfo, Job cachedJob, List<AIP> list) {
+  private void processAIPs(IndexService index, ModelService model, SimpleJobPluginInfo jobPluginInfo, Job cachedJob,
+    List<AIP> list) {
+    Set<String> parentIds = new HashSet<>();
     for (AIP aip : list) {
-      try {
-        LOGGER.debug("Processing AIP {}", aip.getId());
-        String parentId = aip.getParentId();
-
-        if (parentId != null) {
-          try {
-            model.retrieveAIP(parentId);
-          } catch (RODAException e) {
-            // orphan was found
-            aip.setParentId(newParentId);
-            model.updateAIP(aip, cachedJob.getUsername());
-            // reporting
-            Report reportItem = PluginHelper.initPluginReportItem(this, aip.getId(), AIP.class, AIPState.ACTIVE)
-              .setPluginState(PluginState.SUCCESS)
-              .setPluginDetails(String.format(MOVED_ORPHAN_AIP_FROM_TO, parentId, newParentId));
-            PluginHelper.updatePartialJobReport(this, model, reportItem, true, cachedJob);
-          }
-        }
+      if (aip.getParentId() != null) {
+        parentIds.add(aip.getParentId());
+      }
+    }
+    Set<String> missingParentIds = getMissingParentIds(index, model, parentIds);
 
+    Map<String, String> orphanParentIds = new LinkedHashMap<>();
+    for (AIP aip : list) {
+      LOGGER.debug("Processing AIP {}", aip.getId());
+      if (aip.getParentId() != null && missingParentIds.contains(aip.getParentId())) {
+        orphanParentIds.put(aip.getId(), aip.getParentId());
+      } else {
         jobPluginInfo.incrementObjectsProcessedWithSuccess();
-      } catch (RODAException e) {
-        LOGGER.error("Error processing AIP {} (RemoveOrphansAction)", aip.getId(), e);
-        Report reportItem = PluginHelper.initPluginReportItem(this, aip.getId(), AIP.class, AIPState.ACTIVE)
-          .setPluginState(PluginState.FAILURE).addPluginDetails(e.getMessage());
-        PluginHelper.updatePartialJobReport(this, model, reportItem, true, cachedJob);
+      }
+    }
+
+    if (orphanParentIds.isEmpty()) {
+      return;
+    }
+
+    // all orphans are moved together, being updated in the index at once
+    Map<String, RODAException> errors = model.moveAIPs(new ArrayList<>(orphanParentIds.keySet()), newParentId,
+      cachedJob.getUsername());
+
+    for (Entry<String, String> orphan : orphanParentIds.entrySet()) {
+      String aipId = orphan.getKey();
+      Report reportItem = PluginHelper.initPluginReportItem(this, aipId, AIP.class, AIPState.ACTIVE);
+      if (errors.containsKey(aipId)) {
+        LOGGER.error("Error processing AIP {} (RemoveOrphansAction)", aipId, errors.get(aipId));
+        reportItem.setPluginState(PluginState.FAILURE).addPluginDetails(errors.get(aipId).getMessage());
         jobPluginInfo.incrementObjectsProcessedWithFailure();
+      } else {
+        reportItem.setPluginState(PluginState.SUCCESS)
+          .setPluginDetails(String.format(MOVED_ORPHAN_AIP_FROM_TO, orphan.getValue(), newParentId));
+        jobPluginInfo.incrementObjectsProcessedWithSuccess();
+      }
+      PluginHelper.updatePartialJobReport(this, model, reportItem, true, cachedJob);
+    }
+  }
+
+  /**
+   * Finds, with a single index query, which of the parents do not exist. Those
+   * missing from the index are confirmed in the model (once per parent), as
+   * they may not have been indexed yet.
+   */
+  private Set<String> getMissingParentIds(IndexService index, ModelService model, Set<String> parentIds) {
+    Set<String> missingParentIds = new HashSet<>(parentIds);
+    if (parentIds.isEmpty()) {
+      return missingParentIds;
+    }
+
+    Filter filter = new Filter(new OneOfManyFilterParameter(RodaConstants.INDEX_UUID, new ArrayList<>(parentIds)));
+    try {
+      for (IndexedAIP parent : index.findAll(IndexedAIP.class, filter, false,
+        Arrays.asList(RodaConstants.INDEX_UUID))) {
+        missingParentIds.remove(parent.getId());
+      }
+    } catch (RuntimeException e) {
+      LOGGER.warn("Could not find parent AIPs in index, checking all of them in the model", e);
+    }
+
+    Iterator<String> it = missingParentIds.iterator();
+    while (it.hasNext()) {
+      try {
+        model.retrieveAIP(it.next());
+        it.remove();
+      } catch (RODAException e) {
+        // orphans were found
       }
     }
+    return missingParentIds;
   }
 
   @Override
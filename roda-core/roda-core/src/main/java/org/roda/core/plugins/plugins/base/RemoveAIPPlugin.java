@@ -7,15 +7,17 @@
  */
 package org.roda.core.plugins.plugins.base;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.roda.core.data.common.RodaConstants;
 import org.roda.core.data.common.RodaConstants.PreservationEventType;
-import org.roda.core.data.exceptions.AuthorizationDeniedException;
 import org.roda.core.data.exceptions.GenericException;
 import org.roda.core.data.exceptions.NotFoundException;
-import org.roda.core.data.exceptions.RequestNotValidException;
+import org.roda.core.data.exceptions.RODAException;
 import org.roda.core.data.v2.LiteOptionalWithCause;
 import org.roda.core.data.v2.ip.AIP;
 import org.roda.core.data.v2.ip.AIPState;
@@ -29,7 +31,7 @@ import org.roda.core.model.ModelService;
 import org.roda.core.plugins.AbstractPlugin;
 import org.roda.core.plugins.Plugin;
 import org.roda.core.plugins.PluginException;
-import org.roda.core.plugins.RODAObjectProcessingLogic;
+import org.roda.core.plugins.RODAObjectsProcessingLogic;
 import org.roda.core.plugins.orchestrate.SimpleJobPluginInfo;
 import org.roda.core.plugins.plugins.PluginHelper;
 import org.roda.core.storage.StorageService;
@@ -68,35 +70,54 @@ public class RemoveAIPPlugin extends AbstractPlugin<AIP> {
   @Override
   public Report execute(IndexService index, ModelService model, StorageService storage,
     List<LiteOptionalWithCause> liteList) throws PluginException {
-    return PluginHelper.processObjects(this, new RODAObjectProcessingLogic<AIP>() {
+    return PluginHelper.processObjects(this, new RODAObjectsProcessingLogic<AIP>() {
       @Override
       public void process(IndexService index, ModelService model, StorageService storage, Report report, Job cachedJob,
-        SimpleJobPluginInfo jobPluginInfo, Plugin<AIP> plugin, AIP object) {
-        processAIP(model, index, report, jobPluginInfo, cachedJob, object);
+        SimpleJobPluginInfo jobPluginInfo, Plugin<AIP> plugin, List<AIP> objects) {
+        processAIPs(model, index, report, jobPluginInfo, cachedJob, objects);
       }
     }, index, model, storage, liteList);
   }
 
-  private void processAIP(ModelService model, IndexService index, Report report, SimpleJobPluginInfo jobPluginInfo,
-    Job job, AIP aip) {
-    Report reportItem = PluginHelper.initPluginReportItem(this, aip.getId(), AIP.class, AIPState.ACTIVE);
-
-    try {
-      LOGGER.debug("Removing AIP {}", aip.getId());
-      IndexedAIP iAIP = index.retrieve(IndexedAIP.class, aip.getId(),
-        Arrays.asList(RodaConstants.INDEX_UUID, RodaConstants.AIP_TITLE));
-      model.deleteAIP(aip.getId());
-      reportItem.setPluginState(PluginState.SUCCESS).setPluginDetails("Removal of AIP " + aip.getId() + " (title: "
-        + iAIP.getTitle() + "; level: " + iAIP.getLevel() + ") ended successfully");
-      jobPluginInfo.incrementObjectsProcessedWithSuccess();
-    } catch (RequestNotValidException | NotFoundException | GenericException | AuthorizationDeniedException e) {
-      reportItem.setPluginState(PluginState.FAILURE)
-        .setPluginDetails("Removal of AIP " + aip.getId() + " did not end successfully: " + e.getMessage());
-      jobPluginInfo.incrementObjectsProcessedWithFailure();
+  private void processAIPs(ModelService model, IndexService index, Report report, SimpleJobPluginInfo jobPluginInfo,
+    Job job, List<AIP> aips) {
+    // retrieved before the AIPs are removed from the index
+    Map<String, IndexedAIP> indexedAIPs = new HashMap<>();
+    Map<String, RODAException> errors = new HashMap<>();
+    List<String> aipIds = new ArrayList<>();
+
+    for (AIP aip : aips) {
+      try {
+        indexedAIPs.put(aip.getId(), index.retrieve(IndexedAIP.class, aip.getId(),
+          Arrays.asList(RodaConstants.INDEX_UUID, RodaConstants.AIP_TITLE)));
+        aipIds.add(aip.getId());
+      } catch (NotFoundException | GenericException e) {
+        errors.put(aip.getId(), e);
+      }
     }
 
-    report.addReport(reportItem);
-    PluginHelper.updatePartialJobReport(this, model, reportItem, true, job);
+    // all AIPs of the block are removed from the index together
+    LOGGER.debug("Removing AIPs {}", aipIds);
+    errors.putAll(model.deleteAIPs(aipIds));
+
+    for (AIP aip : aips) {
+      Report reportItem = PluginHelper.initPluginReportItem(this, aip.getId(), AIP.class, AIPState.ACTIVE);
+      RODAException error = errors.get(aip.getId());
+
+      if (error == null) {
+        IndexedAIP iAIP = indexedAIPs.get(aip.getId());
+        reportItem.setPluginState(PluginState.SUCCESS).setPluginDetails("Removal of AIP " + aip.getId() + " (title: "
+          + iAIP.getTitle() + "; level: " + iAIP.getLevel() + ") ended successfully");
+        jobPluginInfo.incrementObjectsProcessedWithSuccess();
+      } else {
+        reportItem.setPluginState(PluginState.FAILURE)
+          .setPluginDetails("Removal of AIP " + aip.getId() + " did not end successfully: " + error.getMessage());
+        jobPluginInfo.incrementObjectsProcessedWithFailure();
+      }
+
+      report.addReport(reportItem);
+      PluginHelper.updatePartialJobReport(this, model, reportItem, true, job);
+    }
   }
 
   @Override
@@ -0,0 +1,38 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.plugins.plugins.characterization;
+
+import java.io.IOException;
+
+import org.roda.core.data.v2.ip.File;
+
+/**
+ * Consumer of the bytes of a file read by
+ * {@link SinglePassCharacterizationUtils}, which reads each file once and
+ * sends its bytes to all consumers (e.g. to calculate digests and scan for
+ * viruses).
+ *
+ * A consumer is used for one file at a time, from the same thread.
+ */
+public interface CharacterizationConsumer {
+
+  /**
+   * Called before the first bytes of the file
+   */
+  void start(File file) throws IOException;
+
+  void update(byte[] buffer, int offset, int length) throws IOException;
+
+  /**
+   * Called after the last bytes of the file, or after an error reading it
+   *
+   * @param success
+   *          true if the whole file was read
+   */
+  void end(File file, boolean success) throws IOException;
+}
@@ -0,0 +1,77 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.plugins.plugins.characterization;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.roda.core.data.v2.ip.File;
+import org.roda.core.data.v2.ip.metadata.Fixity;
+import org.roda.core.util.FileUtility;
+
+/**
+ * Calculates the fixity (message digests) of a file
+ */
+public class FixityCharacterizationConsumer implements CharacterizationConsumer {
+
+  private final Collection<String> algorithms;
+  private final String originator;
+  private final Map<String, MessageDigest> digestors = new LinkedHashMap<>();
+  private List<Fixity> fixities = null;
+
+  public FixityCharacterizationConsumer(Collection<String> algorithms, String originator) {
+    this.algorithms = algorithms;
+    this.originator = originator;
+  }
+
+  @Override
+  public void start(File file) throws IOException {
+    digestors.clear();
+    fixities = null;
+    for (String algorithm : algorithms) {
+      try {
+        digestors.put(algorithm, MessageDigest.getInstance(algorithm));
+      } catch (NoSuchAlgorithmException e) {
+        throw new IOException("Unsupported fixity algorithm " + algorithm, e);
+      }
+    }
+  }
+
+  @Override
+  public void update(byte[] buffer, int offset, int length) {
+    for (MessageDigest digestor : digestors.values()) {
+      digestor.update(buffer, offset, length);
+    }
+  }
+
+  @Override
+  public void end(File file, boolean success) {
+    if (success) {
+      fixities = new ArrayList<>();
+      for (Entry<String, MessageDigest> entry : digestors.entrySet()) {
+        fixities.add(
+          new Fixity(entry.getKey(), FileUtility.byteArrayToHexString(entry.getValue().digest()), originator));
+      }
+    }
+    digestors.clear();
+  }
+
+  /**
+   * @return the fixities of the last file, or null if it could not be read
+   */
+  public List<Fixity> getFixities() {
+    return fixities;
+  }
+}
@@ -9,6 +9,7 @@ package org.roda.core.plugins.plugins.characterization;
 
 import java.io.IOException;
 import java.util.Collection;
+import java.util.List;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.xmlbeans.XmlException;
@@ -23,6 +24,7 @@ import org.roda.core.data.exceptions.RequestNotValidException;
 import org.roda.core.data.v2.common.OptionalWithCause;
 import org.roda.core.data.v2.ip.AIP;
 import org.roda.core.data.v2.ip.File;
+import org.roda.core.data.v2.ip.metadata.Fixity;
 import org.roda.core.data.v2.ip.metadata.PreservationMetadata;
 import org.roda.core.data.v2.ip.metadata.PreservationMetadata.PreservationMetadataType;
 import org.roda.core.data.v2.validation.ValidationException;
@@ -50,16 +52,7 @@ public class PremisSkeletonPluginUtils {
     Collection<String> fixityAlgorithms) throws IOException, RequestNotValidException, GenericException,
     NotFoundException, AuthorizationDeniedException, XmlException, ValidationException {
 
-    gov.loc.premis.v3.Representation representation;
-
-    try {
-      Binary preservationObject = model.retrievePreservationRepresentation(aipId, representationId);
-      representation = PremisV3Utils.binaryToRepresentation(preservationObject.getContent(), false);
-    } catch (NotFoundException e) {
-      representation = PremisV3Utils.createBaseRepresentation(aipId, representationId);
-    }
-
-    boolean notifyInSteps = false;
+    gov.loc.premis.v3.Representation representation = retrievePremisRepresentation(model, aipId, representationId);
 
     boolean recursive = true;
     CloseableIterable<OptionalWithCause<File>> allFiles = model.listFilesUnder(aipId, representationId, recursive);
@@ -82,6 +75,29 @@ public class PremisSkeletonPluginUtils {
     }
     IOUtils.closeQuietly(allFiles);
 
+    savePremisRepresentation(model, aipId, representationId, representation);
+  }
+
+  /**
+   * Retrieves the PREMIS representation or, if it does not exist yet, creates a
+   * base one (which is only stored by
+   * {@link #savePremisRepresentation(ModelService, String, String, gov.loc.premis.v3.Representation)})
+   */
+  public static gov.loc.premis.v3.Representation retrievePremisRepresentation(ModelService model, String aipId,
+    String representationId)
+    throws RequestNotValidException, GenericException, AuthorizationDeniedException, ValidationException {
+    try {
+      Binary preservationObject = model.retrievePreservationRepresentation(aipId, representationId);
+      return PremisV3Utils.binaryToRepresentation(preservationObject.getContent(), false);
+    } catch (NotFoundException e) {
+      return PremisV3Utils.createBaseRepresentation(aipId, representationId);
+    }
+  }
+
+  public static void savePremisRepresentation(ModelService model, String aipId, String representationId,
+    gov.loc.premis.v3.Representation representation) throws RequestNotValidException, GenericException,
+    NotFoundException, AuthorizationDeniedException, ValidationException {
+    boolean notifyInSteps = false;
     ContentPayload representationPayload = PremisV3Utils.representationToBinary(representation);
     try {
       model.createPreservationMetadata(PreservationMetadataType.REPRESENTATION, aipId, representationId,
@@ -112,6 +128,18 @@ public class PremisSkeletonPluginUtils {
   public static void createPremisSkeletonOnFile(ModelService model, File file, Collection<String> fixityAlgorithms,
     gov.loc.premis.v3.Representation representation) throws RequestNotValidException, GenericException,
     AuthorizationDeniedException, NotFoundException, ValidationException, XmlException, IOException {
+    createPremisSkeletonOnFile(model, file, fixityAlgorithms, null, representation);
+  }
+
+  /**
+   * @param calculatedFixities
+   *          fixities already calculated (e.g. by
+   *          {@link SinglePassCharacterizationUtils}), or null
+   */
+  public static void createPremisSkeletonOnFile(ModelService model, File file, Collection<String> fixityAlgorithms,
+    List<Fixity> calculatedFixities, gov.loc.premis.v3.Representation representation)
+    throws RequestNotValidException, GenericException, AuthorizationDeniedException, NotFoundException,
+    ValidationException, XmlException, IOException {
     boolean notifyInSteps = false;
 
     if (!file.isDirectory()) {
@@ -119,7 +147,8 @@ public class PremisSkeletonPluginUtils {
       try {
         model.retrievePreservationFile(file.getAipId(), file.getRepresentationId(), file.getPath(), file.getId());
       } catch (NotFoundException e) {
-        ContentPayload filePreservation = PremisV3Utils.createBaseFile(file, model, fixityAlgorithms);
+        ContentPayload filePreservation = PremisV3Utils.createBaseFile(file, model, fixityAlgorithms,
+          calculatedFixities);
         String pmId;
         try {
           PreservationMetadata pm = model.createPreservationMetadata(PreservationMetadataType.FILE, file.getAipId(),
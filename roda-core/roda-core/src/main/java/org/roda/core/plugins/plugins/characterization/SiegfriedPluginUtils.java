@@ -7,6 +7,9 @@
  */
 package org.roda.core.plugins.plugins.characterization;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
@@ -70,19 +73,32 @@ public class SiegfriedPluginUtils {
       new String(Base64.encode(sourceDirectory.toString().getBytes())));
   }
 
-  public static String runSiegfriedOnPath(Path sourceDirectory) throws PluginException {
+  /**
+   * Runs Siegfried on a file or folder. On standalone mode, the output (which
+   * can be very big for folders with many files) is written to a temporary
+   * file and parsed from there, instead of being kept in memory as a string.
+   */
+  public static JsonNode runSiegfriedOnPath(Path sourceDirectory) throws PluginException {
     try {
       String siegfriedMode = RodaCoreFactory.getRodaConfigurationAsString("core", "tools", "siegfried", "mode");
       if ("server".equalsIgnoreCase(siegfriedMode)) {
         LOGGER.debug("Running Siegfried on server mode");
         String endpoint = getSiegfriedServerEndpoint(sourceDirectory);
-        return HTTPUtility.doGet(endpoint);
+        return JsonUtils.parseJson(HTTPUtility.doGet(endpoint));
       } else {
         LOGGER.debug("Running Siegfried on standalone mode");
         List<String> command = getBatchCommand(sourceDirectory);
-        return CommandUtility.execute(command, false);
+        Path output = Files.createTempFile("siegfried", ".json");
+        try {
+          CommandUtility.execute(command, false, output);
+          try (InputStream json = Files.newInputStream(output)) {
+            return JsonUtils.parseJson(json);
+          }
+        } finally {
+          Files.deleteIfExists(output);
+        }
       }
-    } catch (CommandException | GenericException e) {
+    } catch (CommandException | GenericException | IOException e) {
       throw new PluginException("Error while executing Siegfried: " + e.getMessage());
     }
   }
@@ -155,9 +171,7 @@ public class SiegfriedPluginUtils {
     List<LinkingIdentifier> sources = new ArrayList<>();
 
     if (FSUtils.exists(path)) {
-      String siegfriedOutput = SiegfriedPluginUtils.runSiegfriedOnPath(path);
-
-      final JsonNode jsonObject = JsonUtils.parseJson(siegfriedOutput);
+      final JsonNode jsonObject = SiegfriedPluginUtils.runSiegfriedOnPath(path);
       final JsonNode files = jsonObject.get("files");
 
       for (JsonNode file : files) {
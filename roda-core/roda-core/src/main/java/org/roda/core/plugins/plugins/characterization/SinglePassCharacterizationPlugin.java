@@ -0,0 +1,357 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.plugins.plugins.characterization;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.xmlbeans.XmlException;
+import org.roda.core.RodaCoreFactory;
+import org.roda.core.common.PremisV3Utils;
+import org.roda.core.common.iterables.CloseableIterable;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.common.RodaConstants.PreservationEventType;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.exceptions.NotFoundException;
+import org.roda.core.data.exceptions.RODAException;
+import org.roda.core.data.v2.LiteOptionalWithCause;
+import org.roda.core.data.v2.common.OptionalWithCause;
+import org.roda.core.data.v2.ip.AIP;
+import org.roda.core.data.v2.ip.AIPState;
+import org.roda.core.data.v2.ip.File;
+import org.roda.core.data.v2.ip.Representation;
+import org.roda.core.data.v2.ip.StoragePath;
+import org.roda.core.data.v2.jobs.Job;
+import org.roda.core.data.v2.jobs.PluginParameter;
+import org.roda.core.data.v2.jobs.PluginType;
+import org.roda.core.data.v2.jobs.Report;
+import org.roda.core.data.v2.jobs.Report.PluginState;
+import org.roda.core.index.IndexService;
+import org.roda.core.model.ModelService;
+import org.roda.core.model.utils.ModelUtils;
+import org.roda.core.plugins.AbstractPlugin;
+import org.roda.core.plugins.Plugin;
+import org.roda.core.plugins.PluginException;
+import org.roda.core.plugins.RODAObjectProcessingLogic;
+import org.roda.core.plugins.orchestrate.SimpleJobPluginInfo;
+import org.roda.core.plugins.plugins.PluginHelper;
+import org.roda.core.plugins.plugins.antivirus.AntiVirus;
+import org.roda.core.plugins.plugins.antivirus.ClamdAntiVirus;
+import org.roda.core.plugins.plugins.antivirus.VirusCheckResult;
+import org.roda.core.storage.Binary;
+import org.roda.core.storage.DirectResourceAccess;
+import org.roda.core.storage.Resource;
+import org.roda.core.storage.StorageService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Characterizes the files of an AIP reading each file only once: its bytes are
+ * sent to all {@link CharacterizationConsumer}s, which calculate the fixity
+ * (creating the PREMIS skeleton) and, when the configured anti-virus is a
+ * ClamAV daemon, scan it for viruses. The rest of the AIP (metadata,
+ * documentation, schemas and submission) is scanned separately, so the whole
+ * AIP is always checked.
+ *
+ * Format identification is left to {@link SiegfriedPlugin}: Siegfried reads
+ * the files by path (its binary walks the representation folder once, in a
+ * single process), so feeding it from this pass would mean one process per
+ * file.
+ */
+public class SinglePassCharacterizationPlugin extends AbstractPlugin<AIP> {
+  private static final Logger LOGGER = LoggerFactory.getLogger(SinglePassCharacterizationPlugin.class);
+
+  public static final PluginParameter PARAMETER_VIRUS_CHECK = new PluginParameter("parameter.virus_check",
+    "Virus check", PluginParameterType.BOOLEAN, "true", true, false,
+    "If true, the files are scanned for malicious software using the configured antivirus.");
+
+  private boolean virusCheck;
+  private AntiVirus antiVirus = null;
+
+  @Override
+  public void init() throws PluginException {
+    String antiVirusClassName = RodaCoreFactory.getRodaConfiguration().getString(
+      "core.plugins.internal.virus_check.antiVirusClassname", "org.roda.core.plugins.plugins.antivirus.ClamAntiVirus");
+
+    try {
+      antiVirus = (AntiVirus) Class.forName(antiVirusClassName).newInstance();
+    } catch (ClassNotFoundException | InstantiationException | IllegalAccessException e) {
+      LOGGER.warn("Error loading antivirus", e);
+    }
+  }
+
+  @Override
+  public void shutdown() {
+    // do nothing
+  }
+
+  public static String getStaticName() {
+    return "Single pass characterization";
+  }
+
+  @Override
+  public String getName() {
+    return getStaticName();
+  }
+
+  public static String getStaticDescription() {
+    return "Computes file fixity information of all data files within an AIP, reading each file only once, and scans the whole AIP for malicious software. Virus scanning of data files shares the same read when the "
+      + "configured antivirus is a ClamAV daemon (clamd), otherwise the configured antivirus scans the AIP separately.";
+  }
+
+  @Override
+  public String getDescription() {
+    return getStaticDescription();
+  }
+
+  @Override
+  public String getVersionImpl() {
+    return "1.0";
+  }
+
+  @Override
+  public List<PluginParameter> getParameters() {
+    ArrayList<PluginParameter> pluginParameters = new ArrayList<>();
+    pluginParameters.add(PARAMETER_VIRUS_CHECK);
+    return pluginParameters;
+  }
+
+  @Override
+  public Report execute(IndexService index, ModelService model, StorageService storage,
+    List<LiteOptionalWithCause> liteList) throws PluginException {
+    virusCheck = PluginHelper.getBooleanFromParameters(this, PARAMETER_VIRUS_CHECK) && antiVirus != null;
+
+    return PluginHelper.processObjects(this, new RODAObjectProcessingLogic<AIP>() {
+      @Override
+      public void process(IndexService index, ModelService model, StorageService storage, Report report, Job cachedJob,
+        SimpleJobPluginInfo jobPluginInfo, Plugin<AIP> plugin, AIP object) {
+        processAIP(index, model, storage, report, jobPluginInfo, cachedJob, object);
+      }
+    }, index, model, storage, liteList);
+  }
+
+  private void processAIP(IndexService index, ModelService model, StorageService storage, Report report,
+    SimpleJobPluginInfo jobPluginInfo, Job job, AIP aip) {
+    Report reportItem = PluginHelper.initPluginReportItem(this, aip.getId(), AIP.class, AIPState.INGEST_PROCESSING);
+    PluginHelper.updatePartialJobReport(this, model, reportItem, false, job);
+    PluginState state = PluginState.SUCCESS;
+    StringBuilder details = new StringBuilder();
+
+    List<String> algorithms = RodaCoreFactory.getFixityAlgorithms();
+    FixityCharacterizationConsumer fixityConsumer = new FixityCharacterizationConsumer(algorithms,
+      PremisV3Utils.FIXITY_ORIGINATOR);
+    VirusScanCharacterizationConsumer virusConsumer = virusCheck && antiVirus instanceof ClamdAntiVirus
+      ? new VirusScanCharacterizationConsumer(((ClamdAntiVirus) antiVirus).getClient()) : null;
+
+    try {
+      for (Representation representation : aip.getRepresentations()) {
+        LOGGER.debug("Processing representation {} from AIP {}", representation.getId(), aip.getId());
+        characterizeRepresentation(model, aip.getId(), representation.getId(), algorithms, fixityConsumer,
+          virusConsumer);
+        model.notifyRepresentationUpdated(representation);
+      }
+
+      if (virusConsumer != null) {
+        scanOtherBinaries(storage, aip, virusConsumer);
+        virusConsumer.scanLongFiles(storage);
+        details.append(virusConsumer.getReport());
+        if (!virusConsumer.isClean()) {
+          state = PluginState.FAILURE;
+        }
+      } else if (virusCheck) {
+        // the configured antivirus cannot share the read, it scans the AIP
+        VirusCheckResult result = checkForVirus(storage, aip);
+        details.append(result.getReport());
+        if (!result.isClean()) {
+          state = PluginState.FAILURE;
+        }
+      }
+    } catch (RODAException | XmlException | IOException | RuntimeException e) {
+      LOGGER.error("Error processing AIP {}", aip.getId(), e);
+      state = PluginState.FAILURE;
+      details.append(e.getMessage());
+    }
+
+    reportItem.setPluginState(state).setPluginDetails(details.toString());
+    jobPluginInfo.incrementObjectsProcessed(state);
+
+    try {
+      boolean notify = true;
+      PluginHelper.createPluginEvent(this, aip.getId(), model, index, state, details.toString(), notify);
+    } catch (RODAException e) {
+      LOGGER.error("Error creating event: {}", e.getMessage(), e);
+    }
+
+    report.addReport(reportItem);
+    PluginHelper.updatePartialJobReport(this, model, reportItem, true, job);
+  }
+
+  private void characterizeRepresentation(ModelService model, String aipId, String representationId,
+    List<String> algorithms, FixityCharacterizationConsumer fixityConsumer,
+    VirusScanCharacterizationConsumer virusConsumer) throws RODAException, XmlException, IOException {
+    gov.loc.premis.v3.Representation representation = PremisSkeletonPluginUtils.retrievePremisRepresentation(model,
+      aipId, representationId);
+
+    boolean recursive = true;
+    CloseableIterable<OptionalWithCause<File>> allFiles = model.listFilesUnder(aipId, representationId, recursive);
+    try {
+      for (OptionalWithCause<File> oFile : allFiles) {
+        if (!oFile.isPresent()) {
+          LOGGER.error("Cannot process File", oFile.getCause());
+          continue;
+        }
+
+        File file = oFile.get();
+        if (file.isDirectory()) {
+          continue;
+        }
+
+        boolean hasPremis = true;
+        try {
+          model.retrievePreservationFile(aipId, representationId, file.getPath(), file.getId());
+        } catch (NotFoundException e) {
+          // the PREMIS skeleton is created below
+          hasPremis = false;
+        }
+
+        List<CharacterizationConsumer> consumers = new ArrayList<>();
+        if (!hasPremis) {
+          consumers.add(fixityConsumer);
+        }
+        if (virusConsumer != null) {
+          consumers.add(virusConsumer);
+        }
+
+        if (!consumers.isEmpty()) {
+          SinglePassCharacterizationUtils.characterize(model, file, consumers);
+        }
+
+        if (!hasPremis) {
+          PremisSkeletonPluginUtils.createPremisSkeletonOnFile(model, file, algorithms, fixityConsumer.getFixities(),
+            representation);
+        }
+      }
+    } finally {
+      IOUtils.closeQuietly(allFiles);
+    }
+
+    PremisSkeletonPluginUtils.savePremisRepresentation(model, aipId, representationId, representation);
+  }
+
+  /**
+   * Scans the binaries of the AIP that are not representation data files (e.g.
+   * metadata, documentation, schemas and submission)
+   */
+  private void scanOtherBinaries(StorageService storage, AIP aip, VirusScanCharacterizationConsumer virusConsumer)
+    throws RODAException {
+    List<List<String>> dataPaths = new ArrayList<>();
+    for (Representation representation : aip.getRepresentations()) {
+      dataPaths.add(ModelUtils.getRepresentationDataStoragePath(aip.getId(), representation.getId()).asList());
+    }
+    int aipPathSize = ModelUtils.getAIPStoragePath(aip.getId()).asList().size();
+
+    boolean recursive = true;
+    try (CloseableIterable<Resource> resources = storage
+      .listResourcesUnderDirectory(ModelUtils.getAIPStoragePath(aip.getId()), recursive)) {
+      for (Resource resource : resources) {
+        List<String> path = resource.getStoragePath().asList();
+        if (resource.isDirectory() || dataPaths.stream().anyMatch(
+          dataPath -> path.size() > dataPath.size() && path.subList(0, dataPath.size()).equals(dataPath))) {
+          continue;
+        }
+
+        StoragePath storagePath = resource.getStoragePath();
+        Binary binary = resource instanceof Binary ? (Binary) resource : storage.getBinary(storagePath);
+        virusConsumer.scan(binary, StringUtils.join(path.subList(aipPathSize, path.size()), "/"));
+      }
+    } catch (IOException e) {
+      throw new GenericException("Error listing AIP " + aip.getId() + " to scan it", e);
+    }
+  }
+
+  private VirusCheckResult checkForVirus(StorageService storage, AIP aip) throws RODAException {
+    DirectResourceAccess directAccess = storage.getDirectAccess(ModelUtils.getAIPStoragePath(aip.getId()));
+    try {
+      return antiVirus.checkForVirus(directAccess.getPath());
+    } finally {
+      IOUtils.closeQuietly(directAccess);
+    }
+  }
+
+  public AntiVirus getAntiVirus() {
+    return antiVirus;
+  }
+
+  public void setAntiVirus(AntiVirus antiVirus) {
+    this.antiVirus = antiVirus;
+  }
+
+  @Override
+  public Plugin<AIP> cloneMe() {
+    SinglePassCharacterizationPlugin plugin = new SinglePassCharacterizationPlugin();
+    plugin.setAntiVirus(getAntiVirus());
+    return plugin;
+  }
+
+  @Override
+  public PluginType getType() {
+    return PluginType.AIP_TO_AIP;
+  }
+
+  @Override
+  public boolean areParameterValuesValid() {
+    return true;
+  }
+
+  @Override
+  public PreservationEventType getPreservationEventType() {
+    return PreservationEventType.MESSAGE_DIGEST_CALCULATION;
+  }
+
+  @Override
+  public String getPreservationEventDescription() {
+    return "Created base PREMIS objects with file fixity information, reading each file once, and scanned the AIP for malicious programs.";
+  }
+
+  @Override
+  public String getPreservationEventSuccessMessage() {
+    return "Files were successfully characterized and do not contain any known malicious programs.";
+  }
+
+  @Override
+  public String getPreservationEventFailureMessage() {
+    return "Failed to characterize files or a malicious program was detected inside the package.";
+  }
+
+  @Override
+  public Report beforeAllExecute(IndexService index, ModelService model, StorageService storage)
+    throws PluginException {
+    // do nothing
+    return null;
+  }
+
+  @Override
+  public Report afterAllExecute(IndexService index, ModelService model, StorageService storage) throws PluginException {
+    // do nothing
+    return null;
+  }
+
+  @Override
+  public List<String> getCategories() {
+    return Arrays.asList(RodaConstants.PLUGIN_CATEGORY_CHARACTERIZATION, RodaConstants.PLUGIN_CATEGORY_VALIDATION);
+  }
+
+  @Override
+  public List<Class<AIP>> getObjectClasses() {
+    return Arrays.asList(AIP.class);
+  }
+}
@@ -0,0 +1,82 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.plugins.plugins.characterization;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+import org.roda.core.data.exceptions.AuthorizationDeniedException;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.exceptions.NotFoundException;
+import org.roda.core.data.exceptions.RequestNotValidException;
+import org.roda.core.data.v2.ip.File;
+import org.roda.core.model.ModelService;
+import org.roda.core.model.utils.ModelUtils;
+import org.roda.core.storage.Binary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class SinglePassCharacterizationUtils {
+  private static final Logger LOGGER = LoggerFactory.getLogger(SinglePassCharacterizationUtils.class);
+
+  // reads files in 1Mbyte chunks, as FileUtility checksums
+  private static final int BUFFER_SIZE = 1048576;
+
+  private SinglePassCharacterizationUtils() {
+    // do nothing
+  }
+
+  /**
+   * Reads the file content once, sending its bytes to all consumers
+   *
+   * @return number of bytes read
+   */
+  public static long characterize(ModelService model, File file, List<CharacterizationConsumer> consumers)
+    throws IOException, RequestNotValidException, GenericException, NotFoundException, AuthorizationDeniedException {
+    Binary binary = model.getStorage().getBinary(ModelUtils.getFileStoragePath(file));
+    return characterize(binary, file, consumers);
+  }
+
+  public static long characterize(Binary binary, File file, List<CharacterizationConsumer> consumers)
+    throws IOException {
+    LOGGER.debug("Characterizing {} using {} consumer(s)", file, consumers.size());
+    for (CharacterizationConsumer consumer : consumers) {
+      consumer.start(file);
+    }
+
+    long size = 0;
+    boolean success = false;
+    try (InputStream in = binary.getContent().createInputStream()) {
+      byte[] buffer = new byte[BUFFER_SIZE];
+      int n;
+      while ((n = in.read(buffer, 0, BUFFER_SIZE)) != -1) {
+        for (CharacterizationConsumer consumer : consumers) {
+          consumer.update(buffer, 0, n);
+        }
+        size += n;
+      }
+      success = true;
+    } finally {
+      IOException endException = null;
+      for (CharacterizationConsumer consumer : consumers) {
+        try {
+          consumer.end(file, success);
+        } catch (IOException e) {
+          LOGGER.debug("Error ending characterization of {}", file, e);
+          endException = e;
+        }
+      }
+      if (success && endException != null) {
+        throw endException;
+      }
+    }
+
+    return size;
+  }
+}
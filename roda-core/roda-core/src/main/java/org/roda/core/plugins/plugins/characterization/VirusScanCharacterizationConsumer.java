@@ -0,0 +1,235 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.plugins.plugins.characterization;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.roda.core.data.exceptions.RODAException;
+import org.roda.core.data.exceptions.RequestNotValidException;
+import org.roda.core.data.v2.ip.File;
+import org.roda.core.data.v2.ip.StoragePath;
+import org.roda.core.model.utils.ModelUtils;
+import org.roda.core.plugins.plugins.antivirus.ClamdClient;
+import org.roda.core.plugins.plugins.antivirus.ClamdClient.StreamScan;
+import org.roda.core.storage.Binary;
+import org.roda.core.storage.DirectResourceAccess;
+import org.roda.core.storage.StorageService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Streams files to a ClamAV daemon (clamd) while they are being read,
+ * collecting the files that are infected or could not be scanned. Binaries that
+ * are not read for other purposes (e.g. metadata) can also be
+ * {@link #scan(Binary, String) scanned} on their own.
+ *
+ * Files longer than clamd accepts as a stream (StreamMaxLength) are not
+ * streamed. If the client allows it, they are scanned by path afterwards by
+ * {@link #scanLongFiles(StorageService)}, otherwise they are reported as not
+ * scanned.
+ */
+public class VirusScanCharacterizationConsumer implements CharacterizationConsumer {
+  private static final Logger LOGGER = LoggerFactory.getLogger(VirusScanCharacterizationConsumer.class);
+
+  private static final int BUFFER_SIZE = 1048576;
+
+  private final ClamdClient client;
+  private final List<String> problems = new ArrayList<>();
+  private int scannedFiles = 0;
+  private final Map<String, StoragePath> longFiles = new LinkedHashMap<>();
+  private StreamScan scan = null;
+  private long streamed = 0;
+  private boolean tooLong = false;
+  private String error = null;
+
+  public VirusScanCharacterizationConsumer(ClamdClient client) {
+    this.client = client;
+  }
+
+  @Override
+  public void start(File file) {
+    begin();
+  }
+
+  private void begin() {
+    error = null;
+    streamed = 0;
+    tooLong = false;
+    try {
+      scan = client.startScan();
+    } catch (IOException e) {
+      fail(e);
+    }
+  }
+
+  @Override
+  public void update(byte[] buffer, int offset, int length) {
+    if (scan != null) {
+      if (streamed + length > client.getStreamMaxLength()) {
+        stopTooLong();
+        return;
+      }
+
+      try {
+        scan.write(buffer, offset, length);
+        streamed += length;
+      } catch (IOException e) {
+        if (ClamdClient.isSizeLimitExceeded(e.getMessage())) {
+          stopTooLong();
+        } else {
+          fail(e);
+        }
+      }
+    }
+  }
+
+  /**
+   * clamd refuses streams longer than its StreamMaxLength, so the file can only
+   * be scanned by path
+   */
+  private void stopTooLong() {
+    tooLong = true;
+    IOUtils.closeQuietly(scan);
+    scan = null;
+  }
+
+  @Override
+  public void end(File file, boolean success) {
+    StoragePath storagePath = null;
+    try {
+      storagePath = ModelUtils.getFileStoragePath(file);
+    } catch (RequestNotValidException e) {
+      LOGGER.debug("Could not get storage path of {}", file, e);
+    }
+    finish(getRelativePath(file), storagePath, success);
+  }
+
+  /**
+   * Scans a binary that is not read for other purposes
+   *
+   * @param relativePath
+   *          path of the binary to use in the report
+   */
+  public void scan(Binary binary, String relativePath) {
+    begin();
+    boolean success = false;
+    try (InputStream in = binary.getContent().createInputStream()) {
+      byte[] buffer = new byte[BUFFER_SIZE];
+      int n;
+      while ((n = in.read(buffer, 0, BUFFER_SIZE)) != -1) {
+        update(buffer, 0, n);
+      }
+      success = true;
+    } catch (IOException e) {
+      LOGGER.debug("Error reading {} to scan it", relativePath, e);
+      error = "ERROR " + e.getMessage();
+    }
+    finish(relativePath, binary.getStoragePath(), success);
+  }
+
+  /**
+   * Scans, by path, the files that were too long to be streamed. clamd must
+   * have access to them.
+   */
+  public void scanLongFiles(StorageService storage) {
+    for (Map.Entry<String, StoragePath> longFile : longFiles.entrySet()) {
+      String response;
+      DirectResourceAccess directAccess = storage.getDirectAccess(longFile.getValue());
+      try {
+        response = client.scanPath(directAccess.getPath());
+      } catch (IOException | RODAException e) {
+        LOGGER.debug("Error scanning {} by path", longFile.getKey(), e);
+        response = "ERROR " + e.getMessage();
+      } finally {
+        IOUtils.closeQuietly(directAccess);
+      }
+      record(longFile.getKey(), response);
+    }
+    longFiles.clear();
+  }
+
+  private void finish(String relativePath, StoragePath storagePath, boolean success) {
+    String response = error;
+    if (scan != null) {
+      try {
+        if (success) {
+          response = StringUtils.removeStart(scan.finish(), "stream: ");
+        }
+      } catch (IOException e) {
+        response = "ERROR " + e.getMessage();
+      } finally {
+        IOUtils.closeQuietly(scan);
+        scan = null;
+      }
+    }
+
+    if (success && (tooLong || ClamdClient.isSizeLimitExceeded(response))) {
+      if (client.isScanLongFilesByPath() && storagePath != null) {
+        longFiles.put(relativePath, storagePath);
+      } else {
+        record(relativePath, "ERROR " + client.getTooLongMessage());
+      }
+    } else {
+      record(relativePath, response);
+    }
+  }
+
+  private void record(String relativePath, String response) {
+    if (response != null) {
+      scannedFiles++;
+      if (!response.endsWith("OK")) {
+        problems.add(relativePath + ": " + response);
+      }
+    }
+  }
+
+  private void fail(IOException e) {
+    LOGGER.debug("Error streaming file to clamd", e);
+    error = "ERROR " + e.getMessage();
+    IOUtils.closeQuietly(scan);
+    scan = null;
+  }
+
+  private static String getRelativePath(File file) {
+    List<String> path = new ArrayList<>();
+    path.add(file.getRepresentationId());
+    path.addAll(file.getPath());
+    path.add(file.getId());
+    return StringUtils.join(path, "/");
+  }
+
+  public boolean isClean() {
+    return problems.isEmpty();
+  }
+
+  /**
+   * @return report of all files scanned since the last reset
+   */
+  public String getReport() {
+    StringBuilder report = new StringBuilder();
+    for (String problem : problems) {
+      report.append(problem).append(System.lineSeparator());
+    }
+    report.append("Scanned files: ").append(scannedFiles).append(System.lineSeparator());
+    report.append("Infected files: ").append(problems.stream().filter(p -> p.endsWith("FOUND")).count());
+    return report.toString();
+  }
+
+  public void reset() {
+    problems.clear();
+    longFiles.clear();
+    scannedFiles = 0;
+  }
+}
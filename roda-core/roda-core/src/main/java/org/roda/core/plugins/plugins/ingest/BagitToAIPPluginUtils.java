@@ -20,11 +20,10 @@ import org.roda.core.data.v2.ip.AIP;
 import org.roda.core.data.v2.ip.AIPState;
 import org.roda.core.data.v2.ip.Permissions;
 import org.roda.core.data.v2.ip.Representation;
+import org.roda.core.model.AIPUnitOfWork;
 import org.roda.core.model.ModelService;
 import org.roda.core.storage.ContentPayload;
 import org.roda.core.storage.StringContentPayload;
-import org.roda.core.storage.fs.FSPathContentPayload;
-import org.roda_project.commons_ip.model.IPFile;
 import org.roda_project.commons_ip.model.IPRepresentation;
 import org.roda_project.commons_ip.model.SIP;
 import org.roda_project.commons_ip.model.impl.bagit.BagitUtils;
@@ -58,21 +57,25 @@ public class BagitToAIPPluginUtils {
     AIP aip = model.createAIP(state, computedParentId.orElse(null), aipType, permissions, ingestSIPIds, ingestJobId,
       notify, createdBy);
 
-    model.createDescriptiveMetadata(aip.getId(), metadataFilename, metadataAsPayload, METADATA_TYPE, METADATA_VERSION,
-      notify);
+    // aip.json is written once, with all the changes
+    try (AIPUnitOfWork update = model.beginAIPUpdate(aip.getId())) {
+      model.createDescriptiveMetadata(aip.getId(), metadataFilename, metadataAsPayload, METADATA_TYPE,
+        METADATA_VERSION, notify);
 
-    boolean original = true;
-    String representationType = RodaConstants.REPRESENTATION_TYPE_MIXED;
+      boolean original = true;
+      String representationType = RodaConstants.REPRESENTATION_TYPE_MIXED;
 
-    for (IPRepresentation irep : bagit.getRepresentations()) {
-      Representation rep = model.createRepresentation(aip.getId(), irep.getRepresentationID(), original,
-        representationType, notify, createdBy);
+      for (IPRepresentation irep : bagit.getRepresentations()) {
+        Representation rep = model.createRepresentation(aip.getId(), irep.getRepresentationID(), original,
+          representationType, notify, createdBy);
 
-      for (IPFile bagFile : irep.getData()) {
-        ContentPayload payload = new FSPathContentPayload(bagFile.getPath());
-        model.createFile(aip.getId(), rep.getId(), bagFile.getRelativeFolders(), bagFile.getFileName(), payload,
-          notify);
+        IngestHelper.processDataFiles(irep.getData(), (bagFile, payload) -> {
+          model.createFile(aip.getId(), rep.getId(), bagFile.getRelativeFolders(), bagFile.getFileName(), payload,
+            notify);
+        });
       }
+
+      update.commit();
     }
 
     model.notifyAipCreated(aip.getId());
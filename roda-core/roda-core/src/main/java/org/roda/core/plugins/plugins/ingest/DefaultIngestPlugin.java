@@ -15,8 +15,8 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
 
 import org.apache.commons.lang3.StringUtils;
 import org.roda.core.RodaCoreFactory;
@@ -153,106 +153,88 @@ public abstract class DefaultIngestPlugin extends AbstractPlugin<TransferredReso
       // an AIP)
       pluginReport = transformTransferredResourceIntoAnAIP(index, model, storage, resources);
       mergeReports(jobPluginInfo, pluginReport);
-      final List<AIP> aips = getAIPsFromReports(model, jobPluginInfo);
+      jobPluginInfo.updateCounters();
       PluginHelper.updateJobInformation(this, jobPluginInfo.incrementStepsCompletedByOne());
 
       // this event can only be created after AIPs exist and that's why it is
       // performed here, after transformTransferredResourceIntoAnAIP
       createIngestStartedEvent(model, index, jobPluginInfo, startDate);
 
+      // 2) to 10) the remaining steps are executed as a staged pipeline: the
+      // AIPs of each transferred resource move to the next step as soon as
+      // they are done with the previous one
+      IngestPipeline<String> pipeline = new IngestPipeline<>(
+        RodaCoreFactory.getRodaConfigurationAsInt(10, "core", "ingest", "pipeline", "queue_size"),
+        RodaCoreFactory.getRodaConfigurationAsInt(10, "core", "ingest", "pipeline", "max_batch_size"));
+
       // 2) virus check
-      if (!aips.isEmpty() && PluginHelper.verifyIfStepShouldBePerformed(this,
-        getPluginParameter(RodaConstants.PLUGIN_PARAMS_DO_VIRUS_CHECK))) {
-        pluginReport = doVirusCheck(index, model, storage, aips);
-        mergeReports(jobPluginInfo, pluginReport);
-        recalculateAIPsList(model, index, jobPluginInfo, aips, true);
-        PluginHelper.updateJobInformation(this, jobPluginInfo.incrementStepsCompletedByOne());
-      }
+      addStep(pipeline, index, model, storage, jobPluginInfo, RodaConstants.PLUGIN_PARAMS_DO_VIRUS_CHECK,
+        AntivirusPlugin.class.getName(), null, true);
 
       // 3) descriptive metadata validation
-      if (!aips.isEmpty() && PluginHelper.verifyIfStepShouldBePerformed(this,
-        getPluginParameter(RodaConstants.PLUGIN_PARAMS_DO_DESCRIPTIVE_METADATA_VALIDATION))) {
-        pluginReport = doDescriptiveMetadataValidation(index, model, storage, aips);
-        mergeReports(jobPluginInfo, pluginReport);
-        recalculateAIPsList(model, index, jobPluginInfo, aips, true);
-        PluginHelper.updateJobInformation(this, jobPluginInfo.incrementStepsCompletedByOne());
-      }
+      addStep(pipeline, index, model, storage, jobPluginInfo,
+        RodaConstants.PLUGIN_PARAMS_DO_DESCRIPTIVE_METADATA_VALIDATION,
+        DescriptiveMetadataValidationPlugin.class.getName(), null, true);
 
       // 4) create file fixity information
-      if (!aips.isEmpty() && PluginHelper.verifyIfStepShouldBePerformed(this,
-        getPluginParameter(RodaConstants.PLUGIN_PARAMS_CREATE_PREMIS_SKELETON))) {
-        pluginReport = createFileFixityInformation(index, model, storage, aips);
-        mergeReports(jobPluginInfo, pluginReport);
-        recalculateAIPsList(model, index, jobPluginInfo, aips, true);
-        PluginHelper.updateJobInformation(this, jobPluginInfo.incrementStepsCompletedByOne());
-      }
+      addStep(pipeline, index, model, storage, jobPluginInfo, RodaConstants.PLUGIN_PARAMS_CREATE_PREMIS_SKELETON,
+        PremisSkeletonPlugin.class.getName(), null, true);
 
       // 5) format identification (using Siegfried)
-      if (!aips.isEmpty() && PluginHelper.verifyIfStepShouldBePerformed(this,
-        getPluginParameter(RodaConstants.PLUGIN_PARAMS_DO_FILE_FORMAT_IDENTIFICATION))) {
-        pluginReport = doFileFormatIdentification(index, model, storage, aips);
-        mergeReports(jobPluginInfo, pluginReport);
-        recalculateAIPsList(model, index, jobPluginInfo, aips, false);
-        PluginHelper.updateJobInformation(this, jobPluginInfo.incrementStepsCompletedByOne());
-      }
+      addStep(pipeline, index, model, storage, jobPluginInfo,
+        RodaConstants.PLUGIN_PARAMS_DO_FILE_FORMAT_IDENTIFICATION, SiegfriedPlugin.class.getName(), null, false);
 
       // 6) Format validation - PDF/A format validator (using VeraPDF)
-      if (!aips.isEmpty() && PluginHelper.verifyIfStepShouldBePerformed(this,
-        getPluginParameter(RodaConstants.PLUGIN_PARAMS_DO_VERAPDF_CHECK))) {
-        Map<String, String> params = new HashMap<>();
-        params.put("profile", "1b");
-        pluginReport = doVeraPDFCheck(index, model, storage, aips, params);
-        mergeReports(jobPluginInfo, pluginReport);
-        recalculateAIPsList(model, index, jobPluginInfo, aips, false);
-        PluginHelper.updateJobInformation(this, jobPluginInfo.incrementStepsCompletedByOne());
-      }
+      Map<String, String> veraPDFParams = new HashMap<>();
+      veraPDFParams.put("profile", "1b");
+      addStep(pipeline, index, model, storage, jobPluginInfo, RodaConstants.PLUGIN_PARAMS_DO_VERAPDF_CHECK,
+        RodaConstants.PLUGIN_CLASS_VERAPDF, veraPDFParams, false);
 
       // 7.1) feature extraction (using Apache Tika)
       // 7.2) full-text extraction (using Apache Tika)
-      if (!aips.isEmpty() && (PluginHelper.verifyIfStepShouldBePerformed(this,
-        getPluginParameter(RodaConstants.PLUGIN_PARAMS_DO_FEATURE_EXTRACTION))
-        || PluginHelper.verifyIfStepShouldBePerformed(this,
-          getPluginParameter(RodaConstants.PLUGIN_PARAMS_DO_FULL_TEXT_EXTRACTION)))) {
+      boolean doFeatureExtraction = PluginHelper.verifyIfStepShouldBePerformed(this,
+        getPluginParameter(RodaConstants.PLUGIN_PARAMS_DO_FEATURE_EXTRACTION));
+      boolean doFullTextExtraction = PluginHelper.verifyIfStepShouldBePerformed(this,
+        getPluginParameter(RodaConstants.PLUGIN_PARAMS_DO_FULL_TEXT_EXTRACTION));
+      if (doFeatureExtraction || doFullTextExtraction) {
         Map<String, String> params = new HashMap<>();
-        params.put(RodaConstants.PLUGIN_PARAMS_DO_FEATURE_EXTRACTION, PluginHelper.verifyIfStepShouldBePerformed(this,
-          getPluginParameter(RodaConstants.PLUGIN_PARAMS_DO_FEATURE_EXTRACTION)) ? "true" : "false");
-        params.put(RodaConstants.PLUGIN_PARAMS_DO_FULLTEXT_EXTRACTION, PluginHelper.verifyIfStepShouldBePerformed(this,
-          getPluginParameter(RodaConstants.PLUGIN_PARAMS_DO_FULL_TEXT_EXTRACTION)) ? "true" : "false");
-        pluginReport = doFeatureAndFullTextExtraction(index, model, storage, aips, params);
-        mergeReports(jobPluginInfo, pluginReport);
-        recalculateAIPsList(model, index, jobPluginInfo, aips, false);
-        PluginHelper.updateJobInformation(this, jobPluginInfo.incrementStepsCompletedByOne());
+        params.put(RodaConstants.PLUGIN_PARAMS_DO_FEATURE_EXTRACTION, doFeatureExtraction ? "true" : "false");
+        params.put(RodaConstants.PLUGIN_PARAMS_DO_FULLTEXT_EXTRACTION, doFullTextExtraction ? "true" : "false");
+        addStep(pipeline, index, model, storage, jobPluginInfo, RodaConstants.PLUGIN_CLASS_TIKA_FULLTEXT, params,
+          false);
       }
 
       // 8) validation of digital signature
-      if (!aips.isEmpty() && PluginHelper.verifyIfStepShouldBePerformed(this,
-        getPluginParameter(RodaConstants.PLUGIN_PARAMS_DO_DIGITAL_SIGNATURE_VALIDATION))) {
-        pluginReport = doDigitalSignatureValidation(index, model, storage, aips);
-        mergeReports(jobPluginInfo, pluginReport);
-        recalculateAIPsList(model, index, jobPluginInfo, aips, false);
-        PluginHelper.updateJobInformation(this, jobPluginInfo.incrementStepsCompletedByOne());
-      }
+      addStep(pipeline, index, model, storage, jobPluginInfo,
+        RodaConstants.PLUGIN_PARAMS_DO_DIGITAL_SIGNATURE_VALIDATION, RodaConstants.PLUGIN_CLASS_DIGITAL_SIGNATURE,
+        null, false);
 
       // 9) verify producer authorization
-      if (!aips.isEmpty() && PluginHelper.verifyIfStepShouldBePerformed(this,
-        getPluginParameter(RodaConstants.PLUGIN_PARAMS_DO_PRODUCER_AUTHORIZATION_CHECK))) {
-        pluginReport = verifyProducerAuthorization(index, model, storage, aips);
-        mergeReports(jobPluginInfo, pluginReport);
-        recalculateAIPsList(model, index, jobPluginInfo, aips, true);
-        PluginHelper.updateJobInformation(this, jobPluginInfo.incrementStepsCompletedByOne());
-      }
+      addStep(pipeline, index, model, storage, jobPluginInfo,
+        RodaConstants.PLUGIN_PARAMS_DO_PRODUCER_AUTHORIZATION_CHECK, VerifyUserAuthorizationPlugin.class.getName(),
+        null, true);
 
       // 10) Auto accept
-      if (!aips.isEmpty()) {
-        if (PluginHelper.verifyIfStepShouldBePerformed(this,
-          getPluginParameter(RodaConstants.PLUGIN_PARAMS_DO_AUTO_ACCEPT))) {
-          pluginReport = doAutoAccept(index, model, storage, aips);
-          mergeReports(jobPluginInfo, pluginReport);
-          recalculateAIPsList(model, index, jobPluginInfo, aips, true);
-          jobPluginInfo.incrementStepsCompletedByOne();
-        } else {
-          updateAIPsToBeAppraised(model, aips, jobPluginInfo);
-        }
+      boolean doAutoAccept = PluginHelper.verifyIfStepShouldBePerformed(this,
+        getPluginParameter(RodaConstants.PLUGIN_PARAMS_DO_AUTO_ACCEPT));
+      if (doAutoAccept) {
+        addStep(pipeline, index, model, storage, jobPluginInfo, AutoAcceptSIPPlugin.class.getName(), null, true);
+      }
+
+      List<String> transferredResourceIds = new ArrayList<>(jobPluginInfo.getTransferredResourceToAipIds().keySet());
+      List<String> ingestedTransferredResourceIds;
+      try {
+        ingestedTransferredResourceIds = pipeline.run(transferredResourceIds);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new PluginException("Ingest was interrupted", e);
+      } catch (ExecutionException e) {
+        throw new PluginException("Ingest step failed", e.getCause());
+      }
+
+      final List<AIP> aips = getAIPs(model, jobPluginInfo, ingestedTransferredResourceIds);
+      if (!doAutoAccept) {
+        updateAIPsToBeAppraised(model, aips, jobPluginInfo);
       }
 
       // X) move SIPs to PROCESSED folder??? (default: false)
@@ -346,21 +328,21 @@ public abstract class DefaultIngestPlugin extends AbstractPlugin<TransferredReso
     }
   }
 
-  private List<AIP> getAIPsFromReports(ModelService model, IngestJobPluginInfo jobPluginInfo) {
+  private List<AIP> getAIPs(ModelService model, IngestJobPluginInfo jobPluginInfo,
+    List<String> transferredResourceIds) {
     List<AIP> aips = new ArrayList<>();
-    List<String> aipIds = jobPluginInfo.getAipIds();
-
-    LOGGER.debug("Getting AIPs: {}", aipIds);
-    for (String aipId : aipIds) {
-      try {
-        aips.add(model.retrieveAIP(aipId));
-      } catch (RequestNotValidException | NotFoundException | GenericException | AuthorizationDeniedException e) {
-        LOGGER.error("Error while retrieving AIP", e);
+    for (String transferredResourceId : transferredResourceIds) {
+      List<String> aipIds = jobPluginInfo.getAipIds(transferredResourceId);
+      if (aipIds != null) {
+        for (String aipId : aipIds) {
+          try {
+            aips.add(model.retrieveAIP(aipId));
+          } catch (RequestNotValidException | NotFoundException | GenericException | AuthorizationDeniedException e) {
+            LOGGER.error("Error while retrieving AIP", e);
+          }
+        }
       }
     }
-    LOGGER.debug("Done retrieving AIPs");
-
-    jobPluginInfo.updateCounters();
     return aips;
   }
 
@@ -420,8 +402,9 @@ public abstract class DefaultIngestPlugin extends AbstractPlugin<TransferredReso
 
       long duration = (new Date().getTime() - job.getStartDate().getTime()) / 1000;
       scopes.put("duration", duration + " seconds");
+      // sent in the background, not to hold the job while emails go out
       model.createNotification(notification,
-        new EmailNotificationProcessor(RodaConstants.INGEST_EMAIL_TEMPLATE, scopes));
+        new EmailNotificationProcessor(RodaConstants.INGEST_EMAIL_TEMPLATE, scopes, true));
     }
 
     String httpNotifications = PluginHelper.getStringFromParameters(this,
@@ -446,53 +429,97 @@ public abstract class DefaultIngestPlugin extends AbstractPlugin<TransferredReso
   }
 
   /**
-   * Recalculates (if failures must be noticed) and updates AIP objects (by
-   * obtaining them from model)
+   * Adds a step to the pipeline, if it should be performed
    */
-  private void recalculateAIPsList(ModelService model, IndexService index, IngestJobPluginInfo jobPluginInfo,
-    List<AIP> aips, boolean removeAIPProcessingFailed) {
-    aips.clear();
-    List<AIP> transferredResourceAips;
-    List<String> transferredResourcesToRemoveFromjobPluginInfo = new ArrayList<>();
-    boolean oneTransferredResourceAipFailed;
-    for (Entry<String, Map<String, Report>> transferredResourcejobPluginInfoEntry : jobPluginInfo
-      .getReportsFromBeingProcessed().entrySet()) {
-      String transferredResourceId = transferredResourcejobPluginInfoEntry.getKey();
-      transferredResourceAips = new ArrayList<>();
-      oneTransferredResourceAipFailed = false;
-
-      if (jobPluginInfo.getAipIds(transferredResourceId) != null) {
-        for (String aipId : jobPluginInfo.getAipIds(transferredResourceId)) {
-          Report aipReport = transferredResourcejobPluginInfoEntry.getValue().get(aipId);
-          if (removeAIPProcessingFailed && aipReport.getPluginState() == PluginState.FAILURE) {
-            LOGGER.trace("Removing AIP {} from the list", aipReport.getOutcomeObjectId());
-            oneTransferredResourceAipFailed = true;
-            break;
-          } else {
-            try {
-              transferredResourceAips.add(model.retrieveAIP(aipId));
-            } catch (RequestNotValidException | NotFoundException | GenericException | AuthorizationDeniedException e) {
-              LOGGER.error("Error while retrieving AIP", e);
-            }
+  private void addStep(IngestPipeline<String> pipeline, IndexService index, ModelService model,
+    StorageService storage, IngestJobPluginInfo jobPluginInfo, String stepParameterId, String pluginClassName,
+    Map<String, String> params, boolean removeAIPProcessingFailed) {
+    if (PluginHelper.verifyIfStepShouldBePerformed(this, getPluginParameter(stepParameterId))) {
+      addStep(pipeline, index, model, storage, jobPluginInfo, pluginClassName, params, removeAIPProcessingFailed);
+    }
+  }
+
+  private void addStep(IngestPipeline<String> pipeline, IndexService index, ModelService model,
+    StorageService storage, IngestJobPluginInfo jobPluginInfo, String pluginClassName, Map<String, String> params,
+    boolean removeAIPProcessingFailed) {
+    String stepName = pluginClassName.substring(pluginClassName.lastIndexOf('.') + 1);
+    pipeline.addStage(stepName, transferredResourceIds -> executeStep(index, model, storage, jobPluginInfo,
+      transferredResourceIds, pluginClassName, params, removeAIPProcessingFailed), () -> {
+        synchronized (jobPluginInfo) {
+          try {
+            PluginHelper.updateJobInformation(this, jobPluginInfo.incrementStepsCompletedByOne());
+          } catch (JobException e) {
+            LOGGER.error("Error updating job information", e);
           }
         }
+      });
+  }
 
-        if (oneTransferredResourceAipFailed) {
-          LOGGER.trace(
-            "Will not process AIPs from transferred resource '{}' any longer because at least one of them failed",
-            transferredResourceId);
-          jobPluginInfo.incrementObjectsProcessedWithFailure();
-          jobPluginInfo.failOtherTransferredResourceAIPs(model, index, transferredResourceId);
-          transferredResourcesToRemoveFromjobPluginInfo.add(transferredResourceId);
-        } else {
-          aips.addAll(transferredResourceAips);
+  /**
+   * Executes a step plugin on the AIPs of the given transferred resources
+   * 
+   * @return the transferred resources that should continue to be processed
+   */
+  private List<String> executeStep(IndexService index, ModelService model, StorageService storage,
+    IngestJobPluginInfo jobPluginInfo, List<String> transferredResourceIds, String pluginClassName,
+    Map<String, String> params, boolean removeAIPProcessingFailed) {
+    List<String> aipIds = new ArrayList<>();
+    synchronized (jobPluginInfo) {
+      for (String transferredResourceId : transferredResourceIds) {
+        List<String> transferredResourceAipIds = jobPluginInfo.getAipIds(transferredResourceId);
+        if (transferredResourceAipIds != null) {
+          aipIds.addAll(transferredResourceAipIds);
         }
       }
     }
 
-    for (String transferredResourceId : transferredResourcesToRemoveFromjobPluginInfo) {
-      jobPluginInfo.remove(transferredResourceId);
+    Report pluginReport = executePlugin(index, model, storage, aipIds, pluginClassName, params);
+
+    synchronized (jobPluginInfo) {
+      mergeReports(jobPluginInfo, pluginReport);
+      return recalculateTransferredResources(model, index, jobPluginInfo, transferredResourceIds,
+        removeAIPProcessingFailed);
+    }
+  }
+
+  /**
+   * Recalculates (if failures must be noticed) which transferred resources
+   * should continue to be processed
+   */
+  private List<String> recalculateTransferredResources(ModelService model, IndexService index,
+    IngestJobPluginInfo jobPluginInfo, List<String> transferredResourceIds, boolean removeAIPProcessingFailed) {
+    List<String> remaining = new ArrayList<>();
+    for (String transferredResourceId : transferredResourceIds) {
+      List<String> aipIds = jobPluginInfo.getAipIds(transferredResourceId);
+      Map<String, Report> aipReports = jobPluginInfo.getReportsFromBeingProcessed().get(transferredResourceId);
+      if (aipIds == null || aipReports == null) {
+        continue;
+      }
+
+      boolean oneTransferredResourceAipFailed = false;
+      if (removeAIPProcessingFailed) {
+        for (String aipId : aipIds) {
+          Report aipReport = aipReports.get(aipId);
+          if (aipReport != null && aipReport.getPluginState() == PluginState.FAILURE) {
+            LOGGER.trace("Removing AIP {} from the list", aipReport.getOutcomeObjectId());
+            oneTransferredResourceAipFailed = true;
+            break;
+          }
+        }
+      }
+
+      if (oneTransferredResourceAipFailed) {
+        LOGGER.trace(
+          "Will not process AIPs from transferred resource '{}' any longer because at least one of them failed",
+          transferredResourceId);
+        jobPluginInfo.incrementObjectsProcessedWithFailure();
+        jobPluginInfo.failOtherTransferredResourceAIPs(model, index, transferredResourceId);
+        jobPluginInfo.remove(transferredResourceId);
+      } else {
+        remaining.add(transferredResourceId);
+      }
     }
+    return remaining;
   }
 
   private int calculateEfectiveTotalSteps() {
@@ -570,55 +597,7 @@ public abstract class DefaultIngestPlugin extends AbstractPlugin<TransferredReso
     }
   }
 
-  private Report createFileFixityInformation(IndexService index, ModelService model, StorageService storage,
-    List<AIP> aips) {
-    return executePlugin(index, model, storage, aips, PremisSkeletonPlugin.class.getName());
-  }
-
-  private Report doVirusCheck(IndexService index, ModelService model, StorageService storage, List<AIP> aips) {
-    return executePlugin(index, model, storage, aips, AntivirusPlugin.class.getName());
-  }
-
-  private Report doVeraPDFCheck(IndexService index, ModelService model, StorageService storage, List<AIP> aips,
-    Map<String, String> params) {
-    return executePlugin(index, model, storage, aips, RodaConstants.PLUGIN_CLASS_VERAPDF, params);
-  }
-
-  private Report doDescriptiveMetadataValidation(IndexService index, ModelService model, StorageService storage,
-    List<AIP> aips) {
-    return executePlugin(index, model, storage, aips, DescriptiveMetadataValidationPlugin.class.getName());
-  }
-
-  private Report verifyProducerAuthorization(IndexService index, ModelService model, StorageService storage,
-    List<AIP> aips) {
-    return executePlugin(index, model, storage, aips, VerifyUserAuthorizationPlugin.class.getName());
-  }
-
-  private Report doFileFormatIdentification(IndexService index, ModelService model, StorageService storage,
-    List<AIP> aips) {
-    return executePlugin(index, model, storage, aips, SiegfriedPlugin.class.getName());
-  }
-
-  private Report doDigitalSignatureValidation(IndexService index, ModelService model, StorageService storage,
-    List<AIP> aips) {
-    return executePlugin(index, model, storage, aips, RodaConstants.PLUGIN_CLASS_DIGITAL_SIGNATURE);
-  }
-
-  private Report doFeatureAndFullTextExtraction(IndexService index, ModelService model, StorageService storage,
-    List<AIP> aips, Map<String, String> params) {
-    return executePlugin(index, model, storage, aips, RodaConstants.PLUGIN_CLASS_TIKA_FULLTEXT, params);
-  }
-
-  private Report doAutoAccept(IndexService index, ModelService model, StorageService storage, List<AIP> aips) {
-    return executePlugin(index, model, storage, aips, AutoAcceptSIPPlugin.class.getName());
-  }
-
-  private Report executePlugin(IndexService index, ModelService model, StorageService storage, List<AIP> aips,
-    String pluginClassName) {
-    return executePlugin(index, model, storage, aips, pluginClassName, null);
-  }
-
-  private Report executePlugin(IndexService index, ModelService model, StorageService storage, List<AIP> aips,
+  private Report executePlugin(IndexService index, ModelService model, StorageService storage, List<String> aipIds,
     String pluginClassName, Map<String, String> params) {
     Plugin<AIP> plugin = RodaCoreFactory.getPluginManager().getPlugin(pluginClassName, AIP.class);
     Map<String, String> mergedParams = new HashMap<>(getParameterValues());
@@ -628,7 +607,11 @@ public abstract class DefaultIngestPlugin extends AbstractPlugin<TransferredReso
 
     try {
       plugin.setParameterValues(mergedParams);
-      List<LiteOptionalWithCause> lites = LiteRODAObjectFactory.transformIntoLiteWithCause(model, aips);
+      // lites are created from the ids, the plugin loads each AIP only once
+      List<LiteOptionalWithCause> lites = new ArrayList<>();
+      for (String aipId : aipIds) {
+        LiteRODAObjectFactory.get(AIP.class, aipId).ifPresent(lite -> lites.add(LiteOptionalWithCause.of(lite)));
+      }
       return plugin.execute(index, model, storage, lites);
     } catch (InvalidParameterException | PluginException | RuntimeException e) {
       LOGGER.error("Error executing plugin", e);
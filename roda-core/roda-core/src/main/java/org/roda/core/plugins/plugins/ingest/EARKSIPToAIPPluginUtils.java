@@ -8,6 +8,7 @@
 package org.roda.core.plugins.plugins.ingest;
 
 import java.io.IOException;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -28,6 +29,7 @@ import org.roda.core.data.v2.ip.Representation;
 import org.roda.core.data.v2.ip.metadata.PreservationMetadata.PreservationMetadataType;
 import org.roda.core.data.v2.jobs.Report;
 import org.roda.core.data.v2.validation.ValidationException;
+import org.roda.core.model.AIPUnitOfWork;
 import org.roda.core.model.ModelService;
 import org.roda.core.storage.ContentPayload;
 import org.roda.core.storage.StorageService;
@@ -60,25 +62,30 @@ public class EARKSIPToAIPPluginUtils {
     AIP aip = model.createAIP(state, parentId.orElse(null), aipType, permissions, ingestSIPIds, ingestJobId, notify,
       username);
 
-    // process IP information
-    processIPInformation(model, sip, aip.getId(), notify, false);
+    // aip.json is written once, with all the changes
+    try (AIPUnitOfWork update = model.beginAIPUpdate(aip.getId())) {
+      // process IP information
+      processIPInformation(model, sip, aip.getId(), notify, false);
 
-    // process IPRepresentation information
-    for (IPRepresentation representation : sip.getRepresentations()) {
-      processIPRepresentationInformation(model, representation, aip.getId(), notify, false, username, null);
-    }
+      // process IPRepresentation information
+      for (IPRepresentation representation : sip.getRepresentations()) {
+        processIPRepresentationInformation(model, representation, aip.getId(), notify, false, username, null);
+      }
 
-    model.notifyAipCreated(aip.getId());
+      AIP createdAIP = update.getAIP();
 
-    AIP createdAIP = model.retrieveAIP(aip.getId());
+      // Set Permissions (the AIP is only indexed once written, below)
+      Permissions readPermissions = PermissionUtils.grantReadPermissionToUserGroup(model, createdAIP,
+        aip.getPermissions());
+      Permissions finalPermissions = PermissionUtils.grantAllPermissions(username, readPermissions, fullPermissions);
+      createdAIP.setPermissions(finalPermissions);
+      createdAIP.setUpdatedBy(username);
+      createdAIP.setUpdatedOn(new Date());
 
-    // Set Permissions
-    Permissions readPermissions = PermissionUtils.grantReadPermissionToUserGroup(model, createdAIP,
-      aip.getPermissions());
-    Permissions finalPermissions = PermissionUtils.grantAllPermissions(username, readPermissions, fullPermissions);
-    createdAIP.setPermissions(finalPermissions);
-    model.updateAIP(createdAIP, username);
+      update.commit();
+    }
 
+    model.notifyAipCreated(aip.getId());
     return model.retrieveAIP(aip.getId());
   }
 
@@ -93,21 +100,29 @@ public class EARKSIPToAIPPluginUtils {
     NotFoundException, GenericException, AlreadyExistsException, AuthorizationDeniedException, ValidationException {
     boolean notify = false;
 
-    // process IP information
-    processIPInformation(model, sip, indexedAIP.getId(), notify, true);
+    AIP aip;
 
-    // process IPRepresentation information
-    for (IPRepresentation representation : sip.getRepresentations()) {
-      processIPRepresentationInformation(model, representation, indexedAIP.getId(), notify, true, username, reportItem);
-    }
+    // aip.json is written once, with all the changes
+    try (AIPUnitOfWork update = model.beginAIPUpdate(indexedAIP.getId())) {
+      // process IP information
+      processIPInformation(model, sip, indexedAIP.getId(), notify, true);
 
-    AIP aip = model.retrieveAIP(indexedAIP.getId());
-    aip.setGhost(false);
-    if (searchScope.isPresent()) {
-      aip.setParentId(searchScope.get());
+      // process IPRepresentation information
+      for (IPRepresentation representation : sip.getRepresentations()) {
+        processIPRepresentationInformation(model, representation, indexedAIP.getId(), notify, true, username,
+          reportItem);
+      }
+
+      aip = update.getAIP();
+      aip.setGhost(false);
+      if (searchScope.isPresent()) {
+        aip.setParentId(searchScope.get());
+      }
+      aip.addIngestUpdateJobId(ingestJobId);
+      model.updateAIP(aip, username);
+
+      update.commit();
     }
-    aip.addIngestUpdateJobId(ingestJobId);
-    model.updateAIP(aip, username);
 
     return aip;
   }
@@ -255,28 +270,31 @@ public class EARKSIPToAIPPluginUtils {
       notify);
 
     // process representation files
-    for (IPFile file : sr.getData()) {
+    final String representationId = representation.getId();
+    IngestHelper.processDataFiles(sr.getData(), (file, payload) -> {
       List<String> directoryPath = file.getRelativeFolders();
       String fileId = file.getFileName();
-      ContentPayload payload = new FSPathContentPayload(file.getPath());
       try {
-        File createdFile = model.createFile(aipId, representation.getId(), directoryPath, fileId, payload, notify);
+        File createdFile = model.createFile(aipId, representationId, directoryPath, fileId, payload, notify);
         if (reportItem != null && update) {
-          reportItem.getUpdateInformation().addFileData(aipId, IdUtils.getRepresentationId(representation),
-            createdFile);
+          synchronized (reportItem) {
+            reportItem.getUpdateInformation().addFileData(aipId, IdUtils.getRepresentationId(aipId, representationId),
+              createdFile);
+          }
         }
       } catch (AlreadyExistsException e) {
         if (update) {
-          File updatedFile = model.updateFile(aipId, representation.getId(), directoryPath, fileId, payload, true,
-            notify);
+          File updatedFile = model.updateFile(aipId, representationId, directoryPath, fileId, payload, true, notify);
           if (reportItem != null) {
-            reportItem.getUpdateInformation().addFileData(aipId, IdUtils.getRepresentationId(representation),
-              updatedFile);
+            synchronized (reportItem) {
+              reportItem.getUpdateInformation().addFileData(aipId,
+                IdUtils.getRepresentationId(aipId, representationId), updatedFile);
+            }
           }
         } else
           throw e;
       }
-    }
+    });
 
     // process representation documentation
     processDocumentation(model, sr.getDocumentation(), aipId, representation.getId(), false);
@@ -7,14 +7,46 @@
  */
 package org.roda.core.plugins.plugins.ingest;
 
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.apache.commons.lang3.StringUtils;
+import org.roda.core.RodaCoreFactory;
+import org.roda.core.data.common.RodaConstants.IngestFileMaterialization;
+import org.roda.core.data.exceptions.AlreadyExistsException;
+import org.roda.core.data.exceptions.AuthorizationDeniedException;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.exceptions.NotFoundException;
+import org.roda.core.data.exceptions.RequestNotValidException;
+import org.roda.core.storage.ContentPayload;
+import org.roda.core.storage.StorageService;
+import org.roda.core.storage.fs.FSPathContentPayload;
+import org.roda.core.storage.fs.FSUtils;
+import org.roda.core.storage.fs.FileStorageService;
 import org.roda_project.commons_ip.model.IPDescriptiveMetadata;
+import org.roda_project.commons_ip.model.IPFile;
 import org.roda_project.commons_ip.model.IPRepresentation;
 import org.roda_project.commons_ip.model.MetadataType;
 import org.roda_project.commons_ip.model.MetadataType.MetadataTypeEnum;
 import org.roda_project.commons_ip.model.SIP;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public final class IngestHelper {
+  private static final Logger LOGGER = LoggerFactory.getLogger(IngestHelper.class);
+
+  private static final String SIP_DATA_CLONE_FOLDER = "sip-data";
+
+  private static ExecutorService sharedExecutor = null;
 
   private IngestHelper() {
 
@@ -40,4 +72,201 @@ public final class IngestHelper {
     }
     return type;
   }
+
+  /**
+   * Payload of a SIP file that, depending on the configured ingest file
+   * materialization, may be linked or moved into the storage
+   */
+  public static ContentPayload getDataPayload(IPFile file) {
+    return new FSPathContentPayload(file.getPath(), RodaCoreFactory.getIngestFileMaterialization());
+  }
+
+  /**
+   * Processes the data files of a SIP (e.g. creating them in the model) using a
+   * pool of threads shared by all ingests, as files that cannot be linked or
+   * moved into the storage have their bytes copied.
+   *
+   * When files are to be cloned into a file system storage (copy-on-write), all
+   * of them are cloned at once into a temporary folder of the storage and each
+   * file is then moved into place, instead of spawning one clone per file.
+   */
+  public static void processDataFiles(List<IPFile> files, IPFileProcessor processor) throws RequestNotValidException,
+    GenericException, AlreadyExistsException, AuthorizationDeniedException, NotFoundException {
+    Path dataRoot = getDataRoot(files);
+    Path clone = cloneDataRoot(dataRoot, files);
+    try {
+      processEachFile(files, file -> processor.process(file, getDataPayload(file, clone)));
+    } finally {
+      if (clone != null) {
+        FSUtils.deletePathQuietly(clone);
+      }
+    }
+  }
+
+  private static void processEachFile(List<IPFile> files, IPFileTask task)
+    throws RequestNotValidException, GenericException, AlreadyExistsException, AuthorizationDeniedException,
+    NotFoundException {
+    int threads = Math.min(RodaCoreFactory.getIngestSIPToAIPThreads(), files.size());
+    if (threads <= 1) {
+      for (IPFile file : files) {
+        task.process(file);
+      }
+      return;
+    }
+
+    ExecutorService executor = getSharedExecutor();
+    List<Future<Void>> futures = new ArrayList<>();
+    try {
+      for (IPFile file : files) {
+        futures.add(executor.submit(() -> {
+          task.process(file);
+          return null;
+        }));
+      }
+
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RequestNotValidException) {
+        throw (RequestNotValidException) cause;
+      } else if (cause instanceof AlreadyExistsException) {
+        throw (AlreadyExistsException) cause;
+      } else if (cause instanceof AuthorizationDeniedException) {
+        throw (AuthorizationDeniedException) cause;
+      } else if (cause instanceof NotFoundException) {
+        throw (NotFoundException) cause;
+      } else if (cause instanceof GenericException) {
+        throw (GenericException) cause;
+      } else {
+        throw new GenericException("Error processing SIP files", cause);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new GenericException("Interrupted while processing SIP files", e);
+    } finally {
+      // on error, the files not started yet are skipped and the ones being
+      // processed are waited for, as their source may be removed afterwards
+      for (Future<Void> future : futures) {
+        future.cancel(false);
+      }
+      for (Future<Void> future : futures) {
+        awaitQuietly(future);
+      }
+    }
+  }
+
+  private static void awaitQuietly(Future<Void> future) {
+    if (!future.isCancelled()) {
+      try {
+        future.get();
+      } catch (ExecutionException e) {
+        // already reported
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Folder that contains all the data files, following their relative folders
+   *
+   * @return the folder or null if the files do not share one
+   */
+  private static Path getDataRoot(List<IPFile> files) {
+    Path root = null;
+    for (IPFile file : files) {
+      Path fileRoot = file.getPath().getParent();
+      for (int i = 0; i < file.getRelativeFolders().size() && fileRoot != null; i++) {
+        fileRoot = fileRoot.getParent();
+      }
+
+      if (fileRoot == null || (root != null && !root.equals(fileRoot))
+        || !resolve(fileRoot, file).equals(file.getPath())) {
+        return null;
+      }
+      root = fileRoot;
+    }
+    return root;
+  }
+
+  private static Path cloneDataRoot(Path dataRoot, List<IPFile> files) {
+    IngestFileMaterialization materialization = RodaCoreFactory.getIngestFileMaterialization();
+    StorageService storage = RodaCoreFactory.getStorageService();
+    Path storagePath = RodaCoreFactory.getStoragePath();
+    if (dataRoot == null || files.size() < 2 || storagePath == null || !(storage instanceof FileStorageService)
+      || (materialization != IngestFileMaterialization.REFLINK
+        && materialization != IngestFileMaterialization.AUTO)) {
+      return null;
+    }
+
+    // outside the storage, so that it is never listed nor counted, but on the
+    // same file store, so that its files can be moved into the storage
+    Path clone = FSUtils.getTemporaryPathBeside(storagePath, SIP_DATA_CLONE_FOLDER);
+    if (clone != null && FSUtils.cloneDirectory(dataRoot, clone)) {
+      return clone;
+    } else {
+      LOGGER.debug("Could not clone {} at once, materializing each file", dataRoot);
+      return null;
+    }
+  }
+
+  private static ContentPayload getDataPayload(IPFile file, Path clone) {
+    if (clone != null) {
+      Path clonedFile = resolve(clone, file);
+      if (FSUtils.exists(clonedFile)) {
+        // the clone is private to this ingest, so it can be moved into place
+        return new FSPathContentPayload(clonedFile, IngestFileMaterialization.MOVE);
+      }
+    }
+    return getDataPayload(file);
+  }
+
+  private static Path resolve(Path root, IPFile file) {
+    Path path = root;
+    for (String folder : file.getRelativeFolders()) {
+      path = path.resolve(folder);
+    }
+    return path.resolve(file.getFileName());
+  }
+
+  private static synchronized ExecutorService getSharedExecutor() {
+    if (sharedExecutor == null) {
+      int threads = Math.max(1, RodaCoreFactory.getIngestSIPToAIPThreads());
+      ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(), new DataFilesThreadFactory());
+      pool.allowCoreThreadTimeOut(true);
+      sharedExecutor = pool;
+    }
+    return sharedExecutor;
+  }
+
+  @FunctionalInterface
+  private interface IPFileTask {
+    void process(IPFile file) throws RequestNotValidException, GenericException, AlreadyExistsException,
+      AuthorizationDeniedException, NotFoundException;
+  }
+
+  private static class DataFilesThreadFactory implements ThreadFactory {
+    private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "ingest-data-files-" + threadNumber.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+
+  @FunctionalInterface
+  public interface IPFileProcessor {
+    /**
+     * @param payload
+     *          content of the file, to be used instead of
+     *          {@link IngestHelper#getDataPayload(IPFile)}
+     */
+    void process(IPFile file, ContentPayload payload) throws RequestNotValidException, GenericException,
+      AlreadyExistsException, AuthorizationDeniedException, NotFoundException;
+  }
 }
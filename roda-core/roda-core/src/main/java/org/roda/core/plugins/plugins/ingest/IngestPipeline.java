@@ -0,0 +1,282 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.plugins.plugins.ingest;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.roda.core.RodaCoreFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Staged (SEDA-like) pipeline used by ingest: stages are connected by bounded
+ * queues, so that an item moves to the next stage as soon as the previous one
+ * is done with it instead of waiting for all the other items.
+ *
+ * When items pile up in front of a stage they are processed together, up to a
+ * max batch size, which keeps the per-execution overhead of slower stages low.
+ * Each stage processes one batch at a time, in the order items arrived, and
+ * batches run in a pool of threads shared by all pipelines. A stage only takes
+ * a batch when there is room for it in front of the next stage, so pipelines
+ * never wait for each other's threads.
+ *
+ * An error in a stage stops the pipeline: no more batches are started and
+ * {@link #run(List)} fails.
+ *
+ * @param <G>
+ *          type of the items flowing in the pipeline (e.g. the AIPs created
+ *          from a transferred resource)
+ */
+public class IngestPipeline<G> {
+  private static final Logger LOGGER = LoggerFactory.getLogger(IngestPipeline.class);
+
+  private static ExecutorService sharedExecutor = null;
+
+  private final ExecutorService executor;
+  private final int queueCapacity;
+  private final int maxBatchSize;
+  private final List<Stage<G>> stages = new ArrayList<>();
+
+  /**
+   * Create a pipeline running its stages in the pool shared by all pipelines
+   *
+   * @param queueCapacity
+   *          max number of items waiting between two stages
+   * @param maxBatchSize
+   *          max number of items processed at once by a stage
+   */
+  public IngestPipeline(int queueCapacity, int maxBatchSize) {
+    this(getSharedExecutor(), queueCapacity, maxBatchSize);
+  }
+
+  /**
+   * @param executor
+   *          pool of threads running the batches of all stages
+   */
+  public IngestPipeline(ExecutorService executor, int queueCapacity, int maxBatchSize) {
+    this.executor = executor;
+    this.queueCapacity = Math.max(1, queueCapacity);
+    this.maxBatchSize = Math.max(1, maxBatchSize);
+  }
+
+  /**
+   * @param logic
+   *          processes a batch of items and returns the ones that should
+   *          continue to the next stage
+   * @param onStageFinished
+   *          called, in a pool thread, after the stage processed all items
+   */
+  public IngestPipeline<G> addStage(String name, StageLogic<G> logic, Runnable onStageFinished) {
+    stages.add(new Stage<>(name, logic, onStageFinished));
+    return this;
+  }
+
+  public boolean isEmpty() {
+    return stages.isEmpty();
+  }
+
+  /**
+   * Push all items through the pipeline, blocking until the last stage is done
+   *
+   * @return the items that went through all stages
+   * @throws ExecutionException
+   *           if a stage failed, which stopped the pipeline
+   */
+  public List<G> run(List<G> items) throws InterruptedException, ExecutionException {
+    if (stages.isEmpty() || items.isEmpty()) {
+      return new ArrayList<>(items);
+    }
+    return new Execution(items).await();
+  }
+
+  private static int getConfiguredThreads() {
+    int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+    if (RodaCoreFactory.getRodaConfiguration() != null) {
+      threads = RodaCoreFactory.getRodaConfigurationAsInt(threads, "core", "ingest", "pipeline", "threads");
+    }
+    return Math.max(1, threads);
+  }
+
+  private static synchronized ExecutorService getSharedExecutor() {
+    if (sharedExecutor == null) {
+      int threads = getConfiguredThreads();
+      ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(), new PipelineThreadFactory());
+      pool.allowCoreThreadTimeOut(true);
+      sharedExecutor = pool;
+    }
+    return sharedExecutor;
+  }
+
+  @FunctionalInterface
+  public interface StageLogic<G> {
+    List<G> process(List<G> batch);
+  }
+
+  private static class Stage<G> {
+    private final String name;
+    private final StageLogic<G> logic;
+    private final Runnable onStageFinished;
+
+    public Stage(String name, StageLogic<G> logic, Runnable onStageFinished) {
+      this.name = name;
+      this.logic = logic;
+      this.onStageFinished = onStageFinished;
+    }
+  }
+
+  /**
+   * State of one run of the pipeline, guarded by its own lock
+   */
+  private class Execution {
+    /** items waiting in front of each stage, and the output of the last one */
+    private final List<Deque<G>> queues = new ArrayList<>();
+    /** index of the first stage that has not seen all its items yet */
+    private int firstOpenStage = 0;
+    private final boolean[] running;
+    private int runningTasks = 0;
+    private Throwable error = null;
+    private boolean cancelled = false;
+
+    Execution(List<G> items) {
+      queues.add(new ArrayDeque<>(items));
+      for (int i = 0; i < stages.size(); i++) {
+        queues.add(new ArrayDeque<>());
+      }
+      running = new boolean[stages.size()];
+    }
+
+    synchronized List<G> await() throws InterruptedException, ExecutionException {
+      schedule();
+      try {
+        while (error == null && (firstOpenStage < stages.size() || runningTasks > 0)) {
+          wait();
+        }
+        // let the batches that already started end before giving up
+        while (runningTasks > 0) {
+          wait();
+        }
+      } catch (InterruptedException e) {
+        cancelled = true;
+        throw e;
+      }
+
+      if (error != null) {
+        throw new ExecutionException("Ingest pipeline stopped due to an error", error);
+      }
+      return new ArrayList<>(queues.get(stages.size()));
+    }
+
+    /**
+     * Start the batches (and stage endings) that can run now, from the last
+     * stage to the first so that items already in the pipeline go out first
+     */
+    private void schedule() {
+      if (error != null || cancelled) {
+        return;
+      }
+
+      for (int i = stages.size() - 1; i >= firstOpenStage; i--) {
+        if (running[i]) {
+          continue;
+        }
+
+        final int stageIndex = i;
+        Deque<G> in = queues.get(i);
+        Deque<G> out = queues.get(i + 1);
+        boolean lastStage = i == stages.size() - 1;
+        if (!in.isEmpty() && (lastStage || out.size() < queueCapacity)) {
+          List<G> batch = new ArrayList<>();
+          while (!in.isEmpty() && batch.size() < maxBatchSize) {
+            batch.add(in.poll());
+          }
+          start(i, () -> processBatch(stages.get(stageIndex), stageIndex, batch));
+        } else if (in.isEmpty() && i == firstOpenStage) {
+          // the previous stages are done, so this one has seen all its items
+          start(i, () -> finishStage(stages.get(stageIndex), stageIndex));
+        }
+      }
+    }
+
+    private void start(int stageIndex, Runnable task) {
+      running[stageIndex] = true;
+      runningTasks++;
+      executor.execute(task);
+    }
+
+    private void processBatch(Stage<G> stage, int stageIndex, List<G> batch) {
+      List<G> processed = null;
+      Throwable failure = null;
+      try {
+        LOGGER.debug("Ingest pipeline stage '{}' processing {} item(s)", stage.name, batch.size());
+        processed = stage.logic.process(batch);
+      } catch (RuntimeException | Error e) {
+        LOGGER.error("Error in ingest pipeline stage '{}', stopping the pipeline", stage.name, e);
+        failure = e;
+      }
+
+      synchronized (this) {
+        if (failure != null) {
+          error = failure;
+        } else if (processed != null) {
+          queues.get(stageIndex + 1).addAll(processed);
+        }
+        taskEnded(stageIndex);
+      }
+    }
+
+    private void finishStage(Stage<G> stage, int stageIndex) {
+      Throwable failure = null;
+      try {
+        if (stage.onStageFinished != null) {
+          stage.onStageFinished.run();
+        }
+      } catch (RuntimeException | Error e) {
+        LOGGER.error("Error finishing ingest pipeline stage '{}', stopping the pipeline", stage.name, e);
+        failure = e;
+      }
+
+      synchronized (this) {
+        if (failure != null) {
+          error = failure;
+        } else {
+          firstOpenStage = stageIndex + 1;
+        }
+        taskEnded(stageIndex);
+      }
+    }
+
+    private void taskEnded(int stageIndex) {
+      running[stageIndex] = false;
+      runningTasks--;
+      schedule();
+      notifyAll();
+    }
+  }
+
+  private static class PipelineThreadFactory implements ThreadFactory {
+    private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "ingest-pipeline-" + threadNumber.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
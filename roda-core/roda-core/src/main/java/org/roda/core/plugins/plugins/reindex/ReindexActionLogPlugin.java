@@ -142,46 +142,58 @@ public class ReindexActionLogPlugin extends AbstractPlugin<Void> {
     SimpleJobPluginInfo jobPluginInfo) {
     report.setPluginState(PluginState.SUCCESS);
 
-    for (OptionalWithCause<LogEntry> logEntry : model.listLogEntries(dontReindexOlderThanXDays)) {
-      jobPluginInfo.incrementObjectsCount();
-
-      if (logEntry.isPresent()) {
-        index.reindexActionLog(logEntry.get());
-        jobPluginInfo.incrementObjectsProcessedWithSuccess();
-      } else {
-        jobPluginInfo.incrementObjectsProcessedWithFailure();
-
-        // INFO when log entry is not present, a unique id is needed to create
-        // multiple reports
-        String id;
-
-        StringBuilder message = new StringBuilder("Could not parse log entry: ");
-        if (logEntry.getCause() instanceof LogEntryJsonParseException) {
-          LogEntryJsonParseException cause = (LogEntryJsonParseException) logEntry.getCause();
-          id = IdUtils.createUUID(cause.getFilename() + cause.getLine());
-          message.append("Error parsing JSON on file " + cause.getFilename() + " on line " + cause.getLine());
-          if (cause.getCause() != null) {
-            message.append("\n cause: [" + cause.getCause().getCause().getClass().getSimpleName() + "] "
-              + cause.getCause().getCause().getMessage());
-          }
-        } else {
-          id = IdUtils.createUUID();
-          RODAException cause = logEntry.getCause();
-          message.append("[" + cause.getClass().getSimpleName() + "] " + cause.getMessage());
-          if (cause.getCause() != null) {
-            message.append(
-              "\n cause: [" + cause.getCause().getClass().getSimpleName() + "] " + cause.getCause().getMessage());
-          }
+    try {
+      // log files are indexed in parallel, so failures arrive from several
+      // threads
+      long indexed = index.reindexActionLogs(model.listLogEntriesByFile(dontReindexOlderThanXDays), logEntry -> {
+        synchronized (report) {
+          reportFailure(model, report, job, jobPluginInfo, logEntry);
         }
+      });
 
-        Report reportItem = PluginHelper.initPluginReportItem(this, id, LogEntry.class);
-        reportItem.setPluginState(PluginState.FAILURE).setPluginDetails(message.toString());
-        report.addReport(reportItem);
+      synchronized (report) {
+        jobPluginInfo.incrementObjectsCount((int) indexed);
+        jobPluginInfo.incrementObjectsProcessedWithSuccess((int) indexed);
+      }
+    } catch (GenericException e) {
+      LOGGER.error("Error reindexing action logs", e);
+      report.setPluginState(PluginState.FAILURE).setPluginDetails(e.getMessage());
+    }
+  }
 
-        PluginHelper.updatePartialJobReport(this, model, reportItem, false, job);
+  private void reportFailure(ModelService model, Report report, Job job, SimpleJobPluginInfo jobPluginInfo,
+    OptionalWithCause<LogEntry> logEntry) {
+    jobPluginInfo.incrementObjectsCount();
+    jobPluginInfo.incrementObjectsProcessedWithFailure();
+
+    // INFO when log entry is not present, a unique id is needed to create
+    // multiple reports
+    String id;
+
+    StringBuilder message = new StringBuilder("Could not parse log entry: ");
+    if (logEntry.getCause() instanceof LogEntryJsonParseException) {
+      LogEntryJsonParseException cause = (LogEntryJsonParseException) logEntry.getCause();
+      id = IdUtils.createUUID(cause.getFilename() + cause.getLine());
+      message.append("Error parsing JSON on file " + cause.getFilename() + " on line " + cause.getLine());
+      if (cause.getCause() != null) {
+        message.append("\n cause: [" + cause.getCause().getCause().getClass().getSimpleName() + "] "
+          + cause.getCause().getCause().getMessage());
+      }
+    } else {
+      id = IdUtils.createUUID();
+      RODAException cause = logEntry.getCause();
+      message.append("[" + cause.getClass().getSimpleName() + "] " + cause.getMessage());
+      if (cause.getCause() != null) {
+        message.append(
+          "\n cause: [" + cause.getCause().getClass().getSimpleName() + "] " + cause.getCause().getMessage());
       }
     }
 
+    Report reportItem = PluginHelper.initPluginReportItem(this, id, LogEntry.class);
+    reportItem.setPluginState(PluginState.FAILURE).setPluginDetails(message.toString());
+    report.addReport(reportItem);
+
+    PluginHelper.updatePartialJobReport(this, model, reportItem, false, job);
   }
 
   @Override
@@ -11,8 +11,10 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.roda.core.data.common.RodaConstants;
 import org.roda.core.data.common.RodaConstants.PreservationEventType;
@@ -187,29 +189,47 @@ public class RiskAssociationPlugin<T extends IsRODAObject> extends AbstractPlugi
     return new Report();
   }
 
+  /**
+   * Create the incidences of all objects of the block at once, so that they are
+   * indexed in a single batch
+   *
+   * @return the incidences that were created
+   */
+  private Set<RiskIncidence> createIncidences(ModelService model, List<List<RiskIncidence>> incidencesByObject) {
+    List<RiskIncidence> incidences = new ArrayList<>();
+    for (List<RiskIncidence> objectIncidences : incidencesByObject) {
+      incidences.addAll(objectIncidences);
+    }
+    return new HashSet<>(model.createRiskIncidences(incidences, false));
+  }
+
   private Pair<SimpleJobPluginInfo, Report> addIncidenceToAIPList(ModelService model, IndexService index,
     List<AIP> list, List<String> risks, SimpleJobPluginInfo jobPluginInfo, Report pluginReport, Job job)
     throws JobException {
 
+    List<List<RiskIncidence>> incidencesByAIP = new ArrayList<>();
     for (AIP aip : list) {
-      PluginState state = PluginState.SUCCESS;
-
+      List<RiskIncidence> incidences = new ArrayList<>();
       for (String riskId : risks) {
-        try {
-          RiskIncidence incidence = new RiskIncidence();
-          incidence.setDetectedOn(new Date());
-          incidence.setDetectedBy(job.getUsername());
-          incidence.setRiskId(riskId);
-          incidence.setAipId(aip.getId());
-          incidence.setObjectClass(AIP.class.getSimpleName());
-          incidence.setStatus(INCIDENCE_STATUS.UNMITIGATED);
-          incidence.setSeverity(Risk.SEVERITY_LEVEL.valueOf(severity));
-          incidence.setDescription(incidenceDescription);
-          model.createRiskIncidence(incidence, false);
-        } catch (GenericException e) {
-          state = PluginState.FAILURE;
-        }
+        RiskIncidence incidence = new RiskIncidence();
+        incidence.setDetectedOn(new Date());
+        incidence.setDetectedBy(job.getUsername());
+        incidence.setRiskId(riskId);
+        incidence.setAipId(aip.getId());
+        incidence.setObjectClass(AIP.class.getSimpleName());
+        incidence.setStatus(INCIDENCE_STATUS.UNMITIGATED);
+        incidence.setSeverity(Risk.SEVERITY_LEVEL.valueOf(severity));
+        incidence.setDescription(incidenceDescription);
+        incidences.add(incidence);
       }
+      incidencesByAIP.add(incidences);
+    }
+
+    Set<RiskIncidence> created = createIncidences(model, incidencesByAIP);
+
+    for (int i = 0; i < list.size(); i++) {
+      AIP aip = list.get(i);
+      PluginState state = created.containsAll(incidencesByAIP.get(i)) ? PluginState.SUCCESS : PluginState.FAILURE;
 
       jobPluginInfo.incrementObjectsProcessed(state);
       Report reportItem = PluginHelper.initPluginReportItem(this, aip.getId(), AIP.class);
@@ -232,25 +252,30 @@ public class RiskAssociationPlugin<T extends IsRODAObject> extends AbstractPlugi
     List<Representation> list, List<String> risks, SimpleJobPluginInfo jobPluginInfo, Report pluginReport, Job job)
     throws JobException {
 
+    List<List<RiskIncidence>> incidencesByRepresentation = new ArrayList<>();
     for (Representation representation : list) {
-      PluginState state = PluginState.SUCCESS;
-
+      List<RiskIncidence> incidences = new ArrayList<>();
       for (String riskId : risks) {
-        try {
-          RiskIncidence incidence = new RiskIncidence();
-          incidence.setDetectedOn(new Date());
-          incidence.setDetectedBy(job.getUsername());
-          incidence.setRiskId(riskId);
-          incidence.setAipId(representation.getAipId());
-          incidence.setRepresentationId(representation.getId());
-          incidence.setObjectClass(Representation.class.getSimpleName());
-          incidence.setStatus(INCIDENCE_STATUS.UNMITIGATED);
-          incidence.setSeverity(SEVERITY_LEVEL.valueOf(severity));
-          model.createRiskIncidence(incidence, false);
-        } catch (GenericException e) {
-          state = PluginState.FAILURE;
-        }
+        RiskIncidence incidence = new RiskIncidence();
+        incidence.setDetectedOn(new Date());
+        incidence.setDetectedBy(job.getUsername());
+        incidence.setRiskId(riskId);
+        incidence.setAipId(representation.getAipId());
+        incidence.setRepresentationId(representation.getId());
+        incidence.setObjectClass(Representation.class.getSimpleName());
+        incidence.setStatus(INCIDENCE_STATUS.UNMITIGATED);
+        incidence.setSeverity(SEVERITY_LEVEL.valueOf(severity));
+        incidences.add(incidence);
       }
+      incidencesByRepresentation.add(incidences);
+    }
+
+    Set<RiskIncidence> created = createIncidences(model, incidencesByRepresentation);
+
+    for (int i = 0; i < list.size(); i++) {
+      Representation representation = list.get(i);
+      PluginState state = created.containsAll(incidencesByRepresentation.get(i)) ? PluginState.SUCCESS
+        : PluginState.FAILURE;
 
       jobPluginInfo.incrementObjectsProcessed(state);
       Report reportItem = PluginHelper.initPluginReportItem(this, IdUtils.getRepresentationId(representation),
@@ -275,27 +300,31 @@ public class RiskAssociationPlugin<T extends IsRODAObject> extends AbstractPlugi
     List<File> list, List<String> risks, SimpleJobPluginInfo jobPluginInfo, Report pluginReport, Job job)
     throws JobException {
 
+    List<List<RiskIncidence>> incidencesByFile = new ArrayList<>();
     for (File file : list) {
-      PluginState state = PluginState.SUCCESS;
-
+      List<RiskIncidence> incidences = new ArrayList<>();
       for (String riskId : risks) {
-        try {
-          RiskIncidence incidence = new RiskIncidence();
-          incidence.setDetectedOn(new Date());
-          incidence.setDetectedBy(job.getUsername());
-          incidence.setRiskId(riskId);
-          incidence.setAipId(file.getAipId());
-          incidence.setRepresentationId(file.getRepresentationId());
-          incidence.setFilePath(file.getPath());
-          incidence.setFileId(file.getId());
-          incidence.setObjectClass(File.class.getSimpleName());
-          incidence.setStatus(INCIDENCE_STATUS.UNMITIGATED);
-          incidence.setSeverity(SEVERITY_LEVEL.valueOf(severity));
-          model.createRiskIncidence(incidence, false);
-        } catch (GenericException e) {
-          state = PluginState.FAILURE;
-        }
+        RiskIncidence incidence = new RiskIncidence();
+        incidence.setDetectedOn(new Date());
+        incidence.setDetectedBy(job.getUsername());
+        incidence.setRiskId(riskId);
+        incidence.setAipId(file.getAipId());
+        incidence.setRepresentationId(file.getRepresentationId());
+        incidence.setFilePath(file.getPath());
+        incidence.setFileId(file.getId());
+        incidence.setObjectClass(File.class.getSimpleName());
+        incidence.setStatus(INCIDENCE_STATUS.UNMITIGATED);
+        incidence.setSeverity(SEVERITY_LEVEL.valueOf(severity));
+        incidences.add(incidence);
       }
+      incidencesByFile.add(incidences);
+    }
+
+    Set<RiskIncidence> created = createIncidences(model, incidencesByFile);
+
+    for (int i = 0; i < list.size(); i++) {
+      File file = list.get(i);
+      PluginState state = created.containsAll(incidencesByFile.get(i)) ? PluginState.SUCCESS : PluginState.FAILURE;
 
       jobPluginInfo.incrementObjectsProcessed(state);
       Report reportItem = PluginHelper.initPluginReportItem(this, IdUtils.getFileId(file), File.class);
@@ -0,0 +1,71 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.storage;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.roda.core.data.exceptions.GenericException;
+
+/**
+ * File listing the binaries already copied between storage services (one path,
+ * relative to the copied resource, per line), so that an interrupted copy can
+ * be resumed without copying them again.
+ *
+ * @see StorageServiceUtils#copyBetweenStorageServices(StorageService,
+ *      org.roda.core.data.v2.ip.StoragePath, StorageService,
+ *      org.roda.core.data.v2.ip.StoragePath, Class, int, StorageCopyManifest)
+ */
+public class StorageCopyManifest implements Closeable {
+
+  private static final String SEPARATOR = "/";
+
+  private final Set<String> copied = new HashSet<>();
+  private final BufferedWriter writer;
+
+  public StorageCopyManifest(Path manifestPath) throws GenericException {
+    try {
+      if (Files.exists(manifestPath)) {
+        copied.addAll(Files.readAllLines(manifestPath, StandardCharsets.UTF_8));
+      }
+      writer = Files.newBufferedWriter(manifestPath, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+        StandardOpenOption.APPEND);
+    } catch (IOException e) {
+      throw new GenericException("Could not open storage copy manifest " + manifestPath, e);
+    }
+  }
+
+  public synchronized boolean isCopied(List<String> relativePath) {
+    return copied.contains(String.join(SEPARATOR, relativePath));
+  }
+
+  public synchronized void markCopied(List<String> relativePath) throws GenericException {
+    String entry = String.join(SEPARATOR, relativePath);
+    try {
+      writer.write(entry);
+      writer.newLine();
+      writer.flush();
+      copied.add(entry);
+    } catch (IOException e) {
+      throw new GenericException("Could not write to storage copy manifest", e);
+    }
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    writer.close();
+  }
+}
@@ -8,8 +8,12 @@
 package org.roda.core.storage;
 
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.commons.io.IOUtils;
 import org.roda.core.common.iterables.CloseableIterable;
@@ -28,6 +32,8 @@ import org.roda.core.data.v2.ip.StoragePath;
  */
 public final class StorageServiceUtils {
 
+  private static final int DEFAULT_THREADS = 4;
+
   /**
    * Private empty constructor
    */
@@ -58,7 +64,27 @@ public final class StorageServiceUtils {
   public static void moveBetweenStorageServices(StorageService fromService, StoragePath fromStoragePath,
     StorageService toService, StoragePath toStoragePath, Class<? extends Entity> rootEntity) throws GenericException,
     RequestNotValidException, NotFoundException, AlreadyExistsException, AuthorizationDeniedException {
-    copyOrMoveBetweenStorageServices(fromService, fromStoragePath, toService, toStoragePath, rootEntity, false);
+    copyOrMoveBetweenStorageServices(fromService, fromStoragePath, toService, toStoragePath, rootEntity, false,
+      DEFAULT_THREADS, null);
+  }
+
+  /**
+   * Move resources from a given storage service/storage path to another storage
+   * service/storage path, copying binaries in parallel (the source is deleted
+   * once everything is copied)
+   * 
+   * @param threads
+   *          number of binaries copied at the same time
+   * @param manifest
+   *          manifest of the binaries already copied, to resume an interrupted
+   *          move, or null
+   */
+  public static void moveBetweenStorageServices(StorageService fromService, StoragePath fromStoragePath,
+    StorageService toService, StoragePath toStoragePath, Class<? extends Entity> rootEntity, int threads,
+    StorageCopyManifest manifest) throws GenericException, RequestNotValidException, NotFoundException,
+    AlreadyExistsException, AuthorizationDeniedException {
+    copyOrMoveBetweenStorageServices(fromService, fromStoragePath, toService, toStoragePath, rootEntity, false,
+      threads, manifest);
   }
 
   /**
@@ -84,32 +110,43 @@ public final class StorageServiceUtils {
   public static void copyBetweenStorageServices(StorageService fromService, StoragePath fromStoragePath,
     StorageService toService, StoragePath toStoragePath, Class<? extends Entity> rootEntity) throws GenericException,
     RequestNotValidException, NotFoundException, AlreadyExistsException, AuthorizationDeniedException {
-    copyOrMoveBetweenStorageServices(fromService, fromStoragePath, toService, toStoragePath, rootEntity, true);
+    copyOrMoveBetweenStorageServices(fromService, fromStoragePath, toService, toStoragePath, rootEntity, true,
+      DEFAULT_THREADS, null);
+  }
+
+  /**
+   * Copy resources from a given "storage service/storage path" to another
+   * "storage service/storage path", copying binaries in parallel
+   * 
+   * @param threads
+   *          number of binaries copied at the same time
+   * @param manifest
+   *          manifest of the binaries already copied, to resume an interrupted
+   *          copy, or null
+   */
+  public static void copyBetweenStorageServices(StorageService fromService, StoragePath fromStoragePath,
+    StorageService toService, StoragePath toStoragePath, Class<? extends Entity> rootEntity, int threads,
+    StorageCopyManifest manifest) throws GenericException, RequestNotValidException, NotFoundException,
+    AlreadyExistsException, AuthorizationDeniedException {
+    copyOrMoveBetweenStorageServices(fromService, fromStoragePath, toService, toStoragePath, rootEntity, true,
+      threads, manifest);
   }
 
   private static void copyOrMoveBetweenStorageServices(StorageService fromService, StoragePath fromStoragePath,
-    StorageService toService, StoragePath toStoragePath, Class<? extends Entity> rootEntity, boolean copy)
-    throws GenericException, RequestNotValidException, NotFoundException, AlreadyExistsException,
-    AuthorizationDeniedException {
-    if (Container.class.isAssignableFrom(rootEntity)) {
-      toService.createContainer(toStoragePath);
-      boolean recursive = false;
-      CloseableIterable<Resource> childResourcesIterator = fromService.listResourcesUnderContainer(fromStoragePath,
-        recursive);
-      iterateAndCopyOrMoveResources(fromService, fromStoragePath, toService, toStoragePath, childResourcesIterator,
-        copy);
-      if (!copy) {
-        fromService.deleteContainer(fromStoragePath);
-      }
-    } else if (Directory.class.isAssignableFrom(rootEntity)) {
-      toService.createDirectory(toStoragePath);
-      boolean recursive = false;
-      CloseableIterable<Resource> childResourcesIterator = fromService.listResourcesUnderDirectory(fromStoragePath,
-        recursive);
-      iterateAndCopyOrMoveResources(fromService, fromStoragePath, toService, toStoragePath, childResourcesIterator,
-        copy);
+    StorageService toService, StoragePath toStoragePath, Class<? extends Entity> rootEntity, boolean copy,
+    int threads, StorageCopyManifest manifest) throws GenericException, RequestNotValidException, NotFoundException,
+    AlreadyExistsException, AuthorizationDeniedException {
+    if (Container.class.isAssignableFrom(rootEntity) || Directory.class.isAssignableFrom(rootEntity)) {
+      ParallelCopy parallelCopy = new ParallelCopy(fromService, fromStoragePath, toService, toStoragePath, threads,
+        manifest);
+      parallelCopy.run(Container.class.isAssignableFrom(rootEntity));
+
       if (!copy) {
-        fromService.deleteResource(fromStoragePath);
+        if (Container.class.isAssignableFrom(rootEntity)) {
+          fromService.deleteContainer(fromStoragePath);
+        } else {
+          fromService.deleteResource(fromStoragePath);
+        }
       }
     } else {
       Binary binary = fromService.getBinary(fromStoragePath);
@@ -121,23 +158,149 @@ public final class StorageServiceUtils {
     }
   }
 
-  private static void iterateAndCopyOrMoveResources(StorageService fromService, StoragePath fromStoragePath,
-    StorageService toService, StoragePath toStoragePath, CloseableIterable<Resource> childResourcesIterable,
-    boolean copy) throws RequestNotValidException, AlreadyExistsException, GenericException, NotFoundException,
-    AuthorizationDeniedException {
-
-    Iterator<Resource> iterator = childResourcesIterable.iterator();
-    while (iterator.hasNext()) {
-      Resource child = iterator.next();
-      if (copy) {
-        toService.copy(fromService, child.getStoragePath(),
-          extractToStoragePathChild(fromStoragePath, child.getStoragePath(), toStoragePath));
-      } else {
-        toService.move(fromService, child.getStoragePath(),
-          extractToStoragePathChild(fromStoragePath, child.getStoragePath(), toStoragePath));
+  /**
+   * Walks the source tree in the calling thread, creating each directory before
+   * its children, while a bounded pool of workers copies the binaries
+   */
+  private static class ParallelCopy {
+    private final StorageService fromService;
+    private final StoragePath fromStoragePath;
+    private final StorageService toService;
+    private final StoragePath toStoragePath;
+    private final StorageCopyManifest manifest;
+    private final ExecutorService executor;
+    /** binaries submitted but not copied yet, bounding the memory used */
+    private final Semaphore pending;
+    private final AtomicReference<Exception> error = new AtomicReference<>();
+
+    ParallelCopy(StorageService fromService, StoragePath fromStoragePath, StorageService toService,
+      StoragePath toStoragePath, int threads, StorageCopyManifest manifest) {
+      this.fromService = fromService;
+      this.fromStoragePath = fromStoragePath;
+      this.toService = toService;
+      this.toStoragePath = toStoragePath;
+      this.manifest = manifest;
+      this.executor = Executors.newFixedThreadPool(Math.max(1, threads));
+      this.pending = new Semaphore(Math.max(1, threads) * 2);
+    }
+
+    void run(boolean container) throws GenericException, RequestNotValidException, NotFoundException,
+      AlreadyExistsException, AuthorizationDeniedException {
+      try {
+        if (container) {
+          createResumable(() -> toService.createContainer(toStoragePath));
+          copyChildren(fromService.listResourcesUnderContainer(fromStoragePath, false));
+        } else {
+          createResumable(() -> toService.createDirectory(toStoragePath));
+          copyChildren(fromService.listResourcesUnderDirectory(fromStoragePath, false));
+        }
+      } finally {
+        executor.shutdown();
+        try {
+          executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          executor.shutdownNow();
+          error.compareAndSet(null, new GenericException("Interrupted while copying " + fromStoragePath, e));
+        }
+      }
+
+      rethrow(error.get());
+    }
+
+    private void copyChildren(CloseableIterable<Resource> children) throws GenericException,
+      RequestNotValidException, NotFoundException, AlreadyExistsException, AuthorizationDeniedException {
+      try {
+        for (Resource child : children) {
+          if (error.get() != null) {
+            break;
+          }
+
+          StoragePath toChildPath = extractToStoragePathChild(fromStoragePath, child.getStoragePath(), toStoragePath);
+          if (child.isDirectory()) {
+            createResumable(() -> toService.createDirectory(toChildPath));
+            copyChildren(fromService.listResourcesUnderDirectory(child.getStoragePath(), false));
+          } else {
+            submitBinary(child, toChildPath);
+          }
+        }
+      } finally {
+        IOUtils.closeQuietly(children);
+      }
+    }
+
+    private void submitBinary(Resource child, StoragePath toChildPath) throws GenericException {
+      List<String> relativePath = child.getStoragePath().asList().subList(fromStoragePath.asList().size(),
+        child.getStoragePath().asList().size());
+      if (manifest != null && manifest.isCopied(relativePath)) {
+        return;
+      }
+
+      try {
+        pending.acquire();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new GenericException("Interrupted while copying " + fromStoragePath, e);
+      }
+
+      executor.execute(() -> {
+        try {
+          if (error.get() == null) {
+            Binary binary = child instanceof Binary ? (Binary) child : fromService.getBinary(child.getStoragePath());
+            if (manifest != null) {
+              // may have been partially copied before being interrupted
+              toService.updateBinaryContent(toChildPath, binary.getContent(), false, true);
+              manifest.markCopied(relativePath);
+            } else {
+              toService.createBinary(toChildPath, binary.getContent(), false);
+            }
+          }
+        } catch (Exception e) {
+          error.compareAndSet(null, e);
+        } finally {
+          pending.release();
+        }
+      });
+    }
+
+    /**
+     * Create a container or directory, which may already exist when resuming
+     */
+    private void createResumable(StorageAction action) throws GenericException, RequestNotValidException,
+      AlreadyExistsException, AuthorizationDeniedException {
+      try {
+        action.run();
+      } catch (AlreadyExistsException e) {
+        if (manifest == null) {
+          throw e;
+        }
       }
     }
-    IOUtils.closeQuietly(childResourcesIterable);
+  }
+
+  @FunctionalInterface
+  private interface StorageAction {
+    void run() throws GenericException, RequestNotValidException, AlreadyExistsException,
+      AuthorizationDeniedException;
+  }
+
+  private static void rethrow(Exception e) throws GenericException, RequestNotValidException, NotFoundException,
+    AlreadyExistsException, AuthorizationDeniedException {
+    if (e == null) {
+      return;
+    } else if (e instanceof GenericException) {
+      throw (GenericException) e;
+    } else if (e instanceof RequestNotValidException) {
+      throw (RequestNotValidException) e;
+    } else if (e instanceof NotFoundException) {
+      throw (NotFoundException) e;
+    } else if (e instanceof AlreadyExistsException) {
+      throw (AlreadyExistsException) e;
+    } else if (e instanceof AuthorizationDeniedException) {
+      throw (AuthorizationDeniedException) e;
+    } else {
+      throw new GenericException("Error copying between storage services", e);
+    }
   }
 
   private static StoragePath extractToStoragePathChild(StoragePath fromStoragePath, StoragePath fromStoragePathChild,
@@ -0,0 +1,214 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.storage.fedora;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.v2.ip.StoragePath;
+import org.roda.core.storage.Binary;
+import org.roda.core.storage.fs.FSUtils;
+import org.roda.core.util.IdUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Local copies of Fedora binaries used to give direct (file system) access to
+ * them, reused until the content of the binary changes (i.e. its content
+ * digest, from which Fedora derives the datastream etag, changes).
+ *
+ * Binaries are copied from the cache to the folder of each direct access, so
+ * that whoever uses them may change or delete them without affecting the cache
+ * or other accesses. The least recently used binaries are evicted when the
+ * cache grows over its size.
+ *
+ * Each cache has its own temporary folder, only accessible by its owner and
+ * created when the first binary is fetched, so that caches never share (nor
+ * clear) each other's binaries. The folder is deleted when the cache is
+ * {@link #clear() cleared}.
+ */
+public class FedoraDirectAccessCache {
+  private static final Logger LOGGER = LoggerFactory.getLogger(FedoraDirectAccessCache.class);
+  /** cached binaries are archive content, so only the owner may read them */
+  private static final String CACHE_FOLDER_PERMISSIONS = "rwx------";
+  private static final String CACHE_FOLDER_PREFIX = "roda-fedora-direct-access-";
+
+  private final Path parentPath;
+  private Path cachePath = null;
+  private final long maxSizeInBytes;
+  private final Map<String, CachedBinary> cache = new LinkedHashMap<>(16, 0.75f, true);
+  private long sizeInBytes = 0;
+
+  /**
+   * @param parentPath
+   *          folder where the temporary folder of the cache is created
+   */
+  public FedoraDirectAccessCache(Path parentPath, long maxSizeInBytes) {
+    this.parentPath = parentPath;
+    this.maxSizeInBytes = maxSizeInBytes;
+  }
+
+  /**
+   * Remove all binaries from the cache, deleting its folder.
+   */
+  public synchronized void clear() {
+    cache.clear();
+    sizeInBytes = 0;
+    if (cachePath != null) {
+      FSUtils.deletePathQuietly(cachePath);
+      cachePath = null;
+    }
+  }
+
+  /**
+   * Put the content of a binary at the given path, fetching it from Fedora
+   * only if it is not in the cache or has changed since.
+   */
+  public void materialize(Binary binary, Path targetPath) throws GenericException {
+    String key = getKey(binary.getStoragePath());
+    String version = getVersion(binary);
+    Path cachedPath = version != null ? getCachedPath(key, version) : null;
+
+    try {
+      if (cachedPath != null) {
+        try {
+          copy(cachedPath, targetPath);
+          return;
+        } catch (NoSuchFileException e) {
+          // evicted meanwhile, fetch it again
+        }
+      }
+
+      Path fetchedPath = fetch(binary);
+      if (version != null) {
+        try {
+          copy(put(key, version, fetchedPath), targetPath);
+        } catch (NoSuchFileException e) {
+          // evicted by other accesses before being copied, fetch it just for
+          // this one
+          move(fetch(binary), targetPath);
+        }
+      } else {
+        // without a content digest it cannot be known when it changes
+        move(fetchedPath, targetPath);
+      }
+    } catch (IOException e) {
+      throw new GenericException("Could not materialize binary " + binary.getStoragePath(), e);
+    }
+  }
+
+  private Path fetch(Binary binary) throws IOException {
+    Path fetchedPath = getCacheFolder().resolve(IdUtils.createUUID());
+    try (InputStream inputStream = binary.getContent().createInputStream()) {
+      Files.copy(inputStream, fetchedPath);
+    }
+    return fetchedPath;
+  }
+
+  private synchronized Path getCacheFolder() throws IOException {
+    if (cachePath == null) {
+      Files.createDirectories(parentPath);
+      try {
+        cachePath = Files.createTempDirectory(parentPath, CACHE_FOLDER_PREFIX,
+          PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString(CACHE_FOLDER_PERMISSIONS)));
+      } catch (UnsupportedOperationException e) {
+        LOGGER.debug("Could not restrict permissions of the cache folder: {}", e.getMessage());
+        cachePath = Files.createTempDirectory(parentPath, CACHE_FOLDER_PREFIX);
+      }
+    }
+    return cachePath;
+  }
+
+  private static void copy(Path cachedPath, Path targetPath) throws IOException {
+    Files.createDirectories(targetPath.getParent());
+    Files.copy(cachedPath, targetPath, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  private static void move(Path fetchedPath, Path targetPath) throws IOException {
+    Files.createDirectories(targetPath.getParent());
+    Files.move(fetchedPath, targetPath, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  private synchronized Path getCachedPath(String key, String version) {
+    CachedBinary cached = cache.get(key);
+    if (cached != null && cached.version.equals(version) && Files.exists(cached.path)) {
+      return cached.path;
+    }
+    return null;
+  }
+
+  private synchronized Path put(String key, String version, Path fetchedPath) throws IOException {
+    CachedBinary previous = cache.get(key);
+    if (previous != null && previous.version.equals(version) && Files.exists(previous.path)) {
+      // fetched at the same time by someone else
+      Files.deleteIfExists(fetchedPath);
+      return previous.path;
+    }
+
+    CachedBinary cached = new CachedBinary(fetchedPath, version, Files.size(fetchedPath));
+    previous = cache.put(key, cached);
+    if (previous != null) {
+      evict(previous);
+    }
+    sizeInBytes += cached.sizeInBytes;
+
+    Iterator<Entry<String, CachedBinary>> it = cache.entrySet().iterator();
+    while (sizeInBytes > maxSizeInBytes && it.hasNext()) {
+      CachedBinary eldest = it.next().getValue();
+      if (eldest != cached) {
+        it.remove();
+        evict(eldest);
+      }
+    }
+    return fetchedPath;
+  }
+
+  private void evict(CachedBinary cached) {
+    sizeInBytes -= cached.sizeInBytes;
+    try {
+      Files.deleteIfExists(cached.path);
+    } catch (IOException e) {
+      LOGGER.warn("Could not delete cached binary {}", cached.path, e);
+    }
+  }
+
+  private static String getKey(StoragePath storagePath) {
+    return String.join("/", storagePath.asList());
+  }
+
+  private static String getVersion(Binary binary) {
+    Map<String, String> contentDigest = binary.getContentDigest();
+    if (contentDigest == null || contentDigest.isEmpty()) {
+      return null;
+    }
+    return new TreeMap<>(contentDigest).toString();
+  }
+
+  private static class CachedBinary {
+    private final Path path;
+    private final String version;
+    private final long sizeInBytes;
+
+    CachedBinary(Path path, String version, long sizeInBytes) {
+      this.path = path;
+      this.version = version;
+      this.sizeInBytes = sizeInBytes;
+    }
+  }
+}
@@ -8,13 +8,15 @@
 package org.roda.core.storage.fedora;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.nio.file.attribute.FileAttribute;
 import java.nio.file.attribute.PosixFilePermission;
 import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -55,7 +57,7 @@ import org.roda.core.storage.StorageService;
 import org.roda.core.storage.StorageServiceUtils;
 import org.roda.core.storage.fedora.utils.FedoraConversionUtils;
 import org.roda.core.storage.fedora.utils.FedoraUtils;
-import org.roda.core.storage.fs.FileStorageService;
+import org.roda.core.storage.fs.FSUtils;
 import org.roda.core.storage.utils.StorageRecursiveListingUtils;
 import org.roda.core.util.Base64;
 import org.roda.core.util.IdUtils;
@@ -77,11 +79,15 @@ public class FedoraStorageService implements StorageService {
   public static final String FEDORA_RESOURCE_METADATA = "fcr:metadata";
 
   private static final Logger LOGGER = LoggerFactory.getLogger(FedoraStorageService.class);
+  /** bytes of binaries kept locally to give direct access to them */
+  private static final long DIRECT_ACCESS_CACHE_SIZE = 1024L * 1024 * 1024;
 
   private String fedoraURL;
   private String fedoraUsername;
   private String fedoraPassword;
   private FedoraRepository fedoraRepository;
+  private final FedoraDirectAccessCache directAccessCache = new FedoraDirectAccessCache(
+    Paths.get(System.getProperty("java.io.tmpdir")), DIRECT_ACCESS_CACHE_SIZE);
 
   /**
    * Public constructor (for using without user credentials)
@@ -113,6 +119,13 @@ public class FedoraStorageService implements StorageService {
     this.fedoraRepository = new FedoraRepositoryImpl(fedoraURL, username, password);
   }
 
+  /**
+   * Delete the local copies of binaries kept to give direct access to them
+   */
+  public void shutdown() {
+    directAccessCache.clear();
+  }
+
   public String getFedoraURL() {
     return fedoraURL;
   }
@@ -200,24 +213,7 @@ public class FedoraStorageService implements StorageService {
   @Override
   public Long countResourcesUnderContainer(StoragePath storagePath, boolean recursive)
     throws AuthorizationDeniedException, RequestNotValidException, NotFoundException, GenericException {
-
-    if (recursive == true) {
-      return StorageRecursiveListingUtils.countAllUnderContainer(this, storagePath);
-    } else {
-      try {
-        Collection<FedoraResource> children = fedoraRepository
-          .getObject(FedoraUtils.storagePathToFedoraPath(storagePath)).getChildren(null);
-        return Long.valueOf(children.size());
-      } catch (ForbiddenException e) {
-        throw new AuthorizationDeniedException("Could not count resource under directory", e);
-      } catch (BadRequestException e) {
-        throw new RequestNotValidException("Could not count resource under directory", e);
-      } catch (org.fcrepo.client.NotFoundException e) {
-        throw new NotFoundException("Could not count resource under directory", e);
-      } catch (FedoraException e) {
-        throw new GenericException("Could not count resource under directory", e);
-      }
-    }
+    return countChildren(storagePath, recursive);
   }
 
   @Override
@@ -298,22 +294,37 @@ public class FedoraStorageService implements StorageService {
   @Override
   public Long countResourcesUnderDirectory(StoragePath storagePath, boolean recursive)
     throws NotFoundException, GenericException, AuthorizationDeniedException, RequestNotValidException {
-    if (recursive) {
-      return StorageRecursiveListingUtils.countAllUnderDirectory(this, storagePath);
-    } else {
-      try {
-        Collection<FedoraResource> children = fedoraRepository
-          .getObject(FedoraUtils.storagePathToFedoraPath(storagePath)).getChildren(null);
-        return Long.valueOf(children.size());
-      } catch (ForbiddenException e) {
-        throw new AuthorizationDeniedException("Could not count resource under directory", e);
-      } catch (BadRequestException e) {
-        throw new RequestNotValidException("Could not count resource under directory", e);
-      } catch (org.fcrepo.client.NotFoundException e) {
-        throw new NotFoundException("Could not count resource under directory", e);
-      } catch (FedoraException e) {
-        throw new GenericException("Could not count resource under directory", e);
+    return countChildren(storagePath, recursive);
+  }
+
+  /**
+   * Counts the children of a container or directory, recursively visiting only
+   * the Fedora objects (i.e. directories), without converting each child to a
+   * resource
+   */
+  private Long countChildren(StoragePath storagePath, boolean recursive)
+    throws NotFoundException, GenericException, AuthorizationDeniedException, RequestNotValidException {
+    try {
+      long count = 0;
+      Deque<FedoraObject> toCount = new ArrayDeque<>();
+      toCount.push(fedoraRepository.getObject(FedoraUtils.storagePathToFedoraPath(storagePath)));
+      while (!toCount.isEmpty()) {
+        for (FedoraResource child : toCount.pop().getChildren(null)) {
+          count++;
+          if (recursive && child instanceof FedoraObject) {
+            toCount.push((FedoraObject) child);
+          }
+        }
       }
+      return count;
+    } catch (ForbiddenException e) {
+      throw new AuthorizationDeniedException("Could not count resource under directory", e);
+    } catch (BadRequestException e) {
+      throw new RequestNotValidException("Could not count resource under directory", e);
+    } catch (org.fcrepo.client.NotFoundException e) {
+      throw new NotFoundException("Could not count resource under directory", e);
+    } catch (FedoraException e) {
+      throw new GenericException("Could not count resource under directory", e);
     }
   }
 
@@ -606,19 +617,28 @@ public class FedoraStorageService implements StorageService {
         Path path;
         try {
           temp = Files.createTempDirectory("temp", getTempDirFilePermissions());
+          path = temp.resolve(storagePath.getName());
           if (entity.equals(Container.class) || entity.equals(Directory.class)) {
-            StorageService tempStorage = new FileStorageService(temp);
-            tempStorage.copy(FedoraStorageService.this, storagePath, storagePath);
-            path = temp;
+            // only the binaries that changed since they were last accessed
+            // are fetched from Fedora
+            Files.createDirectory(path);
+            try (CloseableIterable<Resource> resources = entity.equals(Container.class)
+              ? listResourcesUnderContainer(storagePath, true) : listResourcesUnderDirectory(storagePath, true)) {
+              for (Resource resource : resources) {
+                Path resourcePath = resolve(path, storagePath, resource.getStoragePath());
+                if (resource.isDirectory()) {
+                  Files.createDirectories(resourcePath);
+                } else {
+                  Binary binary = resource instanceof Binary ? (Binary) resource
+                    : getBinary(resource.getStoragePath());
+                  directAccessCache.materialize(binary, resourcePath);
+                }
+              }
+            }
           } else {
-            path = temp.resolve(entity.getName());
-            Binary binary = getBinary(storagePath);
-            ContentPayload payload = binary.getContent();
-            InputStream inputStream = payload.createInputStream();
-            Files.copy(inputStream, path);
-            IOUtils.closeQuietly(inputStream);
+            directAccessCache.materialize(getBinary(storagePath), path);
           }
-        } catch (IOException | AlreadyExistsException e) {
+        } catch (IOException e) {
           throw new GenericException(e);
         }
         return path;
@@ -627,13 +647,23 @@ public class FedoraStorageService implements StorageService {
       @Override
       public void close() throws IOException {
         if (temp != null) {
-          Files.delete(temp);
+          FSUtils.deletePathQuietly(temp);
           temp = null;
         }
       }
     };
   }
 
+  private static Path resolve(Path basePath, StoragePath baseStoragePath, StoragePath storagePath) {
+    List<String> relativePath = storagePath.asList().subList(baseStoragePath.asList().size(), storagePath.asList()
+      .size());
+    Path path = basePath;
+    for (String name : relativePath) {
+      path = path.resolve(name);
+    }
+    return path;
+  }
+
   private static FileAttribute<Set<PosixFilePermission>> getTempDirFilePermissions() {
     Set<PosixFilePermission> perms = new HashSet<>();
     // add owners permission
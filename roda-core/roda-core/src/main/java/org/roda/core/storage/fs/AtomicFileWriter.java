@@ -0,0 +1,279 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.storage.fs;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.common.RodaConstants.IngestFileMaterialization;
+import org.roda.core.data.common.RodaConstants.StorageFsyncPolicy;
+import org.roda.core.storage.ContentPayload;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes files atomically: the content is streamed into a hidden temporary
+ * file in the same directory of the target (see
+ * {@link FSUtils#getTemporaryPath(Path)}), while its size is computed, and then
+ * renamed into place. Readers therefore never see a truncated file, even if the
+ * process crashes in the middle of a write. Temporary files are not listed as
+ * resources and the ones left by a crash are removed on the next start (see
+ * {@link FSUtils#deleteStaleTemporaryFiles(Path, long)}).
+ *
+ * Durability is controlled by a {@link StorageFsyncPolicy}:
+ * <ul>
+ * <li>NONE: no explicit sync, the operating system decides when to flush</li>
+ * <li>FILE: the file is synced before the rename and the parent directory
+ * after it</li>
+ * <li>BATCH: written files and their directories are synced together,
+ * periodically, which is cheaper for workloads with many small files (e.g. job
+ * reports, PREMIS updates)</li>
+ * </ul>
+ *
+ * Files of a {@link FSPathContentPayload} that allows it (e.g. SIP files during
+ * ingest) are moved, cloned or hard linked into place instead of copied, when
+ * on the same file store.
+ */
+public class AtomicFileWriter implements Closeable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(AtomicFileWriter.class);
+
+  private static final int BUFFER_SIZE = 8192;
+
+  private final StorageFsyncPolicy fsyncPolicy;
+  private final Set<Path> pendingSync = new LinkedHashSet<>();
+  private ScheduledExecutorService batchExecutor = null;
+
+  public AtomicFileWriter() {
+    this(RodaConstants.DEFAULT_STORAGE_FSYNC_POLICY, 0);
+  }
+
+  /**
+   * @param fsyncPolicy
+   *          when written files are forced to disk
+   * @param batchIntervalInMillis
+   *          interval between batch syncs (only used by
+   *          {@link StorageFsyncPolicy#BATCH})
+   */
+  public AtomicFileWriter(StorageFsyncPolicy fsyncPolicy, long batchIntervalInMillis) {
+    this.fsyncPolicy = fsyncPolicy == null ? RodaConstants.DEFAULT_STORAGE_FSYNC_POLICY : fsyncPolicy;
+    if (this.fsyncPolicy == StorageFsyncPolicy.BATCH) {
+      long interval = Math.max(1, batchIntervalInMillis);
+      batchExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "storage-fsync");
+        thread.setDaemon(true);
+        return thread;
+      });
+      batchExecutor.scheduleWithFixedDelay(this::syncPending, interval, interval, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  public StorageFsyncPolicy getFsyncPolicy() {
+    return fsyncPolicy;
+  }
+
+  /**
+   * Write payload into target path.
+   *
+   * @param replaceExisting
+   *          if false and target already exists, a
+   *          {@link FileAlreadyExistsException} is thrown
+   * @return size of the written content
+   */
+  public Result write(ContentPayload payload, Path target, boolean replaceExisting) throws IOException {
+    Path parent = target.getParent();
+    Path temp = FSUtils.getTemporaryPath(target);
+
+    if (payload instanceof FSPathContentPayload
+      && ((FSPathContentPayload) payload).getMaterialization() != IngestFileMaterialization.COPY) {
+      Result result = materialize((FSPathContentPayload) payload, temp, target, replaceExisting);
+      if (result != null) {
+        afterWrite(parent, target);
+        return result;
+      }
+    }
+
+    long size = 0;
+    try {
+      try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+        OutputStream out = Channels.newOutputStream(channel);
+        try (InputStream in = payload.createInputStream()) {
+          byte[] buffer = new byte[BUFFER_SIZE];
+          int read;
+          while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+            size += read;
+          }
+        }
+
+        if (fsyncPolicy == StorageFsyncPolicy.FILE) {
+          channel.force(true);
+        }
+      }
+
+      moveIntoPlace(temp, target, replaceExisting);
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+
+    afterWrite(parent, target);
+    return new Result(size);
+  }
+
+  private void afterWrite(Path parent, Path target) {
+    if (fsyncPolicy == StorageFsyncPolicy.FILE) {
+      syncDirectory(parent);
+    } else if (fsyncPolicy == StorageFsyncPolicy.BATCH) {
+      synchronized (pendingSync) {
+        pendingSync.add(target);
+        pendingSync.add(parent);
+      }
+    }
+  }
+
+  /**
+   * Places the payload file into target without copying its bytes (moving or
+   * cloning it), as allowed by the payload and supported by the file store.
+   * Files are never hard linked into the repository, as changing the source
+   * (e.g. a SIP in the transfer area) would change the stored content.
+   *
+   * @return the result or null if the bytes must be copied
+   */
+  private Result materialize(FSPathContentPayload payload, Path temp, Path target, boolean replaceExisting)
+    throws IOException {
+    Path source = payload.getPath();
+    IngestFileMaterialization materialization = payload.getMaterialization();
+    if (materialization != IngestFileMaterialization.MOVE && materialization != IngestFileMaterialization.REFLINK
+      && materialization != IngestFileMaterialization.AUTO) {
+      return null;
+    }
+    if (!FSUtils.isSameFileStore(source, target.getParent())) {
+      return null;
+    }
+
+    Result result = new Result(Files.size(source));
+    try {
+      if (materialization == IngestFileMaterialization.MOVE) {
+        if (replaceExisting) {
+          Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } else {
+          Files.move(source, target);
+        }
+        return result;
+      }
+
+      if (FSUtils.reflink(source, temp)) {
+        if (fsyncPolicy == StorageFsyncPolicy.FILE) {
+          try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+          }
+        }
+        moveIntoPlace(temp, target, replaceExisting);
+        return result;
+      }
+      return null;
+    } catch (FileAlreadyExistsException e) {
+      throw e;
+    } catch (UnsupportedOperationException | IOException e) {
+      LOGGER.debug("Could not {} {} into {}, copying instead", materialization, source, target, e);
+      return null;
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  private void moveIntoPlace(Path temp, Path target, boolean replaceExisting) throws IOException {
+    if (replaceExisting) {
+      Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } else {
+      // a hard link fails atomically if the target already exists, while a
+      // rename would silently replace it
+      try {
+        Files.createLink(target, temp);
+      } catch (UnsupportedOperationException | IOException e) {
+        if (e instanceof FileAlreadyExistsException) {
+          throw (FileAlreadyExistsException) e;
+        }
+        Files.move(temp, target);
+      }
+    }
+  }
+
+  /**
+   * Sync all files and directories written since the last batch
+   */
+  public void syncPending() {
+    List<Path> paths;
+    synchronized (pendingSync) {
+      paths = new ArrayList<>(pendingSync);
+      pendingSync.clear();
+    }
+
+    // files first, so that directory entries point to durable content
+    Collections.sort(paths, (p1, p2) -> Boolean.compare(Files.isDirectory(p1), Files.isDirectory(p2)));
+    for (Path path : paths) {
+      try {
+        if (Files.isDirectory(path)) {
+          syncDirectory(path);
+        } else if (Files.exists(path)) {
+          try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            channel.force(true);
+          }
+        }
+      } catch (IOException e) {
+        LOGGER.warn("Could not sync {} to disk", path, e);
+      }
+    }
+  }
+
+  private static void syncDirectory(Path directory) {
+    try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+      channel.force(true);
+    } catch (IOException e) {
+      // some platforms (e.g. Windows) do not allow opening directories
+      LOGGER.debug("Could not sync directory {}", directory, e);
+    }
+  }
+
+  @Override
+  public void close() {
+    if (batchExecutor != null) {
+      batchExecutor.shutdownNow();
+      syncPending();
+    }
+  }
+
+  public static class Result {
+    private final long sizeInBytes;
+
+    public Result(long sizeInBytes) {
+      this.sizeInBytes = sizeInBytes;
+    }
+
+    public long getSizeInBytes() {
+      return sizeInBytes;
+    }
+  }
+}
@@ -14,6 +14,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 
+import org.roda.core.data.common.RodaConstants.IngestFileMaterialization;
 import org.roda.core.storage.ContentPayload;
 
 /**
@@ -24,9 +25,28 @@ import org.roda.core.storage.ContentPayload;
 public class FSPathContentPayload implements ContentPayload {
 
   private final Path path;
+  private final IngestFileMaterialization materialization;
 
   public FSPathContentPayload(Path path) {
+    this(path, IngestFileMaterialization.COPY);
+  }
+
+  /**
+   * @param materialization
+   *          how the file may be placed into a file system storage, on the same
+   *          volume, instead of copying its bytes (e.g. clone or move)
+   */
+  public FSPathContentPayload(Path path, IngestFileMaterialization materialization) {
     this.path = path;
+    this.materialization = materialization;
+  }
+
+  public Path getPath() {
+    return path;
+  }
+
+  public IngestFileMaterialization getMaterialization() {
+    return materialization;
   }
 
   @Override
@@ -9,6 +9,7 @@ package org.roda.core.storage.fs;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.file.CopyOption;
@@ -26,17 +27,26 @@ import java.nio.file.attribute.BasicFileAttributes;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Stream;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.roda.core.common.iterables.CloseableIterable;
+import org.roda.core.data.common.RodaConstants.StorageCopyStrategy;
 import org.roda.core.data.exceptions.AlreadyExistsException;
 import org.roda.core.data.exceptions.AuthorizationDeniedException;
 import org.roda.core.data.exceptions.GenericException;
@@ -54,6 +64,8 @@ import org.roda.core.storage.DefaultContainer;
 import org.roda.core.storage.DefaultDirectory;
 import org.roda.core.storage.DefaultStoragePath;
 import org.roda.core.storage.Resource;
+import org.roda.core.util.CommandException;
+import org.roda.core.util.CommandUtility;
 import org.roda.core.util.IdUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -72,6 +84,17 @@ public final class FSUtils {
   private static final String SEPARATOR = "/";
   private static final String SEPARATOR_REGEX = "/";
   private static final String SEPARATOR_REPLACEMENT = "%2F";
+  private static final Set<String> REFLINK_UNSUPPORTED_FILE_STORES = ConcurrentHashMap.newKeySet();
+  private static final DirectoryStream.Filter<Path> NOT_TEMPORARY_FILTER = path -> !isTemporaryFile(path);
+
+  /**
+   * Prefix of the (hidden) files where content is written before being renamed
+   * into place, which are never listed nor counted as resources
+   */
+  public static final String TEMPORARY_FILE_PREFIX = ".roda-temp-";
+  private static final List<String> REFLINK_UNSUPPORTED_REASONS = Arrays.asList("not supported",
+    "inappropriate ioctl", "invalid cross-device link", "invalid argument", "unrecognized option",
+    "invalid option", "illegal option", "unknown option");
 
   /**
    * Private empty constructor
@@ -101,7 +124,7 @@ public final class FSUtils {
    */
   public static void safeUpdate(InputStream stream, Path toPath) throws IOException {
     try {
-      Path tempToPath = toPath.getParent().resolve(toPath.getFileName().toString() + ".temp" + System.nanoTime());
+      Path tempToPath = getTemporaryPath(toPath);
       Files.copy(stream, tempToPath);
       Files.move(tempToPath, toPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
     } finally {
@@ -109,6 +132,113 @@ public final class FSUtils {
     }
   }
 
+  /**
+   * Path, next to the target, where its content can be written before being
+   * renamed into place
+   */
+  public static Path getTemporaryPath(Path target) {
+    return target.resolveSibling(TEMPORARY_FILE_PREFIX + target.getFileName() + "-" + UUID.randomUUID());
+  }
+
+  public static boolean isTemporaryFile(Path path) {
+    Path fileName = path.getFileName();
+    return fileName != null && fileName.toString().startsWith(TEMPORARY_FILE_PREFIX);
+  }
+
+  /**
+   * Deletes temporary files (and folders) under a directory that were last
+   * modified before a given time, i.e. left behind by writes interrupted by a
+   * crash
+   * 
+   * @return number of deleted files
+   */
+  public static long deleteStaleTemporaryFiles(Path directory, long modifiedBeforeInMillis) {
+    final long[] count = {0L};
+    try {
+      Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+        @Override
+        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+          if (!dir.equals(directory) && isTemporaryFile(dir)
+            && attrs.lastModifiedTime().toMillis() < modifiedBeforeInMillis) {
+            deletePathQuietly(dir);
+            count[0]++;
+            return FileVisitResult.SKIP_SUBTREE;
+          }
+          return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+          if (isTemporaryFile(file) && attrs.lastModifiedTime().toMillis() < modifiedBeforeInMillis) {
+            try {
+              Files.deleteIfExists(file);
+              count[0]++;
+            } catch (IOException e) {
+              LOGGER.warn("Could not delete stale temporary file {}", file, e);
+            }
+          }
+          return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(Path file, IOException e) {
+          LOGGER.debug("Could not visit {} while looking for stale temporary files", file, e);
+          return FileVisitResult.CONTINUE;
+        }
+      });
+    } catch (IOException e) {
+      LOGGER.warn("Could not look for stale temporary files under {}", directory, e);
+    }
+    return count[0];
+  }
+
+  /**
+   * Temporary path beside a directory (e.g. the storage root), so that it is
+   * not listed nor counted with the directory contents but can still be renamed
+   * into it
+   * 
+   * @return the path, or null if the parent of the directory is on another
+   *         file store (e.g. the directory is a mount point)
+   */
+  public static Path getTemporaryPathBeside(Path directory, String name) {
+    Path absolute = directory.toAbsolutePath();
+    Path parent = absolute.getParent();
+    if (parent == null || absolute.getFileName() == null || !isSameFileStore(absolute, parent)) {
+      return null;
+    }
+    return getTemporaryPath(parent.resolve(absolute.getFileName() + "-" + name));
+  }
+
+  /**
+   * Deletes the temporary files (and folders) beside a directory, created by
+   * {@link #getTemporaryPathBeside(Path, String)}, that were last modified
+   * before a given time
+   * 
+   * @return number of deleted files
+   */
+  public static long deleteStaleTemporaryFilesBeside(Path directory, long modifiedBeforeInMillis) {
+    Path absolute = directory.toAbsolutePath();
+    Path parent = absolute.getParent();
+    if (parent == null || absolute.getFileName() == null) {
+      return 0;
+    }
+
+    long count = 0;
+    String prefix = TEMPORARY_FILE_PREFIX + absolute.getFileName() + "-";
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(parent,
+      path -> path.getFileName().toString().startsWith(prefix))) {
+      for (Path path : stream) {
+        if (Files.getLastModifiedTime(path).toMillis() < modifiedBeforeInMillis) {
+          deletePathQuietly(path);
+          count++;
+        }
+      }
+    } catch (IOException e) {
+      LOGGER.warn("Could not look for stale temporary files beside {}", directory, e);
+    }
+    return count;
+  }
+
   /**
    * Moves a directory/file from one path to another
    * 
@@ -223,6 +353,33 @@ public final class FSUtils {
    */
   public static void copy(final Path sourcePath, final Path targetPath, boolean replaceExisting)
     throws AlreadyExistsException, GenericException {
+    copy(sourcePath, targetPath, replaceExisting, StorageCopyStrategy.COPY, 1);
+  }
+
+  /**
+   * Copies a directory/file from one path to another using a copy strategy.
+   * Hard links and copy-on-write clones (reflinks) are only used when source
+   * and target are on the same file store, falling back to a byte copy
+   * otherwise. Directory entries are copied by a pool of threads. Copied files
+   * are verified by size while linked files are verified to be the same file,
+   * so no content is re-read.
+   * 
+   * @param sourcePath
+   *          source path
+   * @param targetPath
+   *          target path
+   * @param replaceExisting
+   *          true if the target directory/file should be replaced if it already
+   *          exists; false otherwise
+   * @param strategy
+   *          the copy strategy
+   * @param threads
+   *          number of threads used to copy the entries of a directory
+   * @throws AlreadyExistsException
+   * @throws GenericException
+   */
+  public static void copy(final Path sourcePath, final Path targetPath, boolean replaceExisting,
+    StorageCopyStrategy strategy, int threads) throws AlreadyExistsException, GenericException {
 
     // check if we can replace existing
     if (!replaceExisting && FSUtils.exists(targetPath)) {
@@ -238,36 +395,216 @@ public final class FSUtils {
       throw new GenericException("Error while creating target directory parent folder", e);
     }
 
+    StorageCopyStrategy effectiveStrategy = strategy;
+    if (strategy != StorageCopyStrategy.COPY && !isSameFileStore(sourcePath, targetPath.getParent())) {
+      effectiveStrategy = StorageCopyStrategy.COPY;
+    }
+
+    if (effectiveStrategy == StorageCopyStrategy.REFLINK || effectiveStrategy == StorageCopyStrategy.AUTO) {
+      if (reflink(sourcePath, targetPath)) {
+        return;
+      }
+      effectiveStrategy = effectiveStrategy == StorageCopyStrategy.AUTO ? StorageCopyStrategy.HARDLINK
+        : StorageCopyStrategy.COPY;
+    }
+
     if (FSUtils.isDirectory(sourcePath)) {
+      copyDirectory(sourcePath, targetPath, effectiveStrategy, threads);
+    } else {
       try {
-        Files.walkFileTree(sourcePath, new SimpleFileVisitor<Path>() {
-          @Override
-          public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs) throws IOException {
-            Files.createDirectories(targetPath.resolve(sourcePath.relativize(dir)));
-            return FileVisitResult.CONTINUE;
-          }
+        copyFile(sourcePath, targetPath, replaceExisting, effectiveStrategy);
+      } catch (IOException e) {
+        throw new GenericException("Error while copying one file into another", e);
+      }
+    }
+  }
 
-          @Override
-          public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
-            Files.copy(file, targetPath.resolve(sourcePath.relativize(file)));
-            return FileVisitResult.CONTINUE;
+  private static void copyDirectory(final Path sourcePath, final Path targetPath, final StorageCopyStrategy strategy,
+    int threads) throws GenericException {
+    final ExecutorService executor = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+    final List<Future<Void>> futures = new ArrayList<>();
+
+    try {
+      Files.walkFileTree(sourcePath, new SimpleFileVisitor<Path>() {
+        @Override
+        public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs) throws IOException {
+          Files.createDirectories(targetPath.resolve(sourcePath.relativize(dir)));
+          return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
+          Path target = targetPath.resolve(sourcePath.relativize(file));
+          if (executor == null) {
+            copyFile(file, target, false, strategy);
+          } else {
+            futures.add(executor.submit(() -> {
+              copyFile(file, target, false, strategy);
+              return null;
+            }));
           }
-        });
-      } catch (IOException e) {
-        throw new GenericException("Error while copying one directory into another", e);
+          return FileVisitResult.CONTINUE;
+        }
+      });
+
+      for (Future<Void> future : futures) {
+        future.get();
       }
-    } else {
+    } catch (IOException e) {
+      throw new GenericException("Error while copying one directory into another", e);
+    } catch (ExecutionException e) {
+      throw new GenericException("Error while copying one directory into another", e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new GenericException("Interrupted while copying one directory into another", e);
+    } finally {
+      if (executor != null) {
+        executor.shutdownNow();
+      }
+    }
+  }
+
+  private static void copyFile(Path sourcePath, Path targetPath, boolean replaceExisting, StorageCopyStrategy strategy)
+    throws IOException {
+    if (strategy == StorageCopyStrategy.HARDLINK) {
       try {
+        if (replaceExisting) {
+          Files.deleteIfExists(targetPath);
+        }
+        Files.createLink(targetPath, sourcePath);
+        if (!Files.isSameFile(sourcePath, targetPath)) {
+          throw new IOException("Hard link verification failed for " + targetPath);
+        }
+        return;
+      } catch (FileAlreadyExistsException e) {
+        throw e;
+      } catch (UnsupportedOperationException | IOException e) {
+        LOGGER.debug("Could not hard link {} to {}, copying instead", sourcePath, targetPath, e);
+        Files.deleteIfExists(targetPath);
+      }
+    }
 
-        CopyOption[] copyOptions = replaceExisting ? new CopyOption[] {StandardCopyOption.REPLACE_EXISTING}
-          : new CopyOption[] {};
-        Files.copy(sourcePath, targetPath, copyOptions);
-      } catch (IOException e) {
-        throw new GenericException("Error while copying one file into another", e);
+    CopyOption[] copyOptions = replaceExisting ? new CopyOption[] {StandardCopyOption.REPLACE_EXISTING}
+      : new CopyOption[] {};
+    Files.copy(sourcePath, targetPath, copyOptions);
+    verifySize(sourcePath, targetPath);
+  }
+
+  private static void verifySize(Path sourcePath, Path targetPath) throws IOException {
+    long sourceSize = Files.size(sourcePath);
+    long targetSize = Files.size(targetPath);
+    if (sourceSize != targetSize) {
+      throw new IOException(
+        "Copy verification failed for " + targetPath + ": expected " + sourceSize + " bytes but got " + targetSize);
+    }
+  }
+
+  static boolean isSameFileStore(Path sourcePath, Path targetDirectory) {
+    try {
+      return Files.getFileStore(sourcePath).equals(Files.getFileStore(targetDirectory));
+    } catch (IOException e) {
+      LOGGER.debug("Could not determine file stores of {} and {}", sourcePath, targetDirectory, e);
+      return false;
+    }
+  }
+
+  /**
+   * The same strategy but never hard linking, for copies into or out of the
+   * repository: a hard linked file shares its content with the source, so
+   * changing one in place would change the other.
+   */
+  public static StorageCopyStrategy withoutHardLinks(StorageCopyStrategy strategy) {
+    if (strategy == StorageCopyStrategy.HARDLINK) {
+      return StorageCopyStrategy.COPY;
+    } else if (strategy == StorageCopyStrategy.AUTO) {
+      return StorageCopyStrategy.REFLINK;
+    } else {
+      return strategy;
+    }
+  }
+
+  /**
+   * Clones a file/directory using copy-on-write (e.g. in Btrfs, XFS, ZFS or
+   * APFS) via <code>cp --reflink=always</code>. File stores that do not support
+   * it (the clone fails with "operation not supported" or similar) are
+   * remembered so that the clone is not attempted again; other failures (e.g.
+   * no space left) only fall back for this copy.
+   * 
+   * @return true if the clone was done, false otherwise
+   */
+  static boolean reflink(Path sourcePath, Path targetPath) {
+    String fileStore;
+    try {
+      fileStore = Files.getFileStore(sourcePath).name();
+    } catch (IOException e) {
+      return false;
+    }
+
+    if (REFLINK_UNSUPPORTED_FILE_STORES.contains(fileStore) || FSUtils.exists(targetPath)) {
+      return false;
+    }
+
+    try {
+      CommandUtility.execute("cp", "-R", "--reflink=always", sourcePath.toString(), targetPath.toString());
+      if (FSUtils.isDirectory(sourcePath)) {
+        verifySizesRecursively(sourcePath, targetPath);
+      } else {
+        verifySize(sourcePath, targetPath);
       }
+      return true;
+    } catch (CommandException e) {
+      if (isReflinkUnsupported(e)) {
+        LOGGER.debug("Copy-on-write clone not supported in file store {}, falling back", fileStore, e);
+        REFLINK_UNSUPPORTED_FILE_STORES.add(fileStore);
+      } else {
+        LOGGER.debug("Copy-on-write clone of {} failed, falling back", sourcePath, e);
+      }
+      deletePathQuietly(targetPath);
+      return false;
+    } catch (IOException e) {
+      LOGGER.debug("Copy-on-write clone of {} failed, falling back", sourcePath, e);
+      deletePathQuietly(targetPath);
+      return false;
+    }
+  }
+
+  /**
+   * Clones a whole directory at once using copy-on-write (see
+   * {@link #reflink(Path, Path)}), so that a single <code>cp</code> is spawned
+   * for all its files. The target must not exist.
+   * 
+   * @return true if the clone was done, false if the source and target are in
+   *         different file stores or the file store does not support it
+   */
+  public static boolean cloneDirectory(Path sourcePath, Path targetPath) {
+    return FSUtils.isDirectory(sourcePath) && isSameFileStore(sourcePath, targetPath.getParent())
+      && reflink(sourcePath, targetPath);
+  }
 
+  /**
+   * Whether cp failed because the file store cannot clone at all (EOPNOTSUPP,
+   * ENOTTY, EXDEV or EINVAL from the clone ioctl), as opposed to a transient
+   * failure like ENOSPC or EIO
+   */
+  static boolean isReflinkUnsupported(CommandException e) {
+    String output = (e.getOutput() != null ? e.getOutput() : "") + " " + (e.getMessage() != null ? e.getMessage() : "");
+    output = output.toLowerCase();
+    for (String reason : REFLINK_UNSUPPORTED_REASONS) {
+      if (output.contains(reason)) {
+        return true;
+      }
     }
+    return false;
+  }
 
+  private static void verifySizesRecursively(final Path sourcePath, final Path targetPath) throws IOException {
+    Files.walkFileTree(sourcePath, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
+        verifySize(file, targetPath.resolve(sourcePath.relativize(file)));
+        return FileVisitResult.CONTINUE;
+      }
+    });
   }
 
   public static void deletePathQuietly(Path path) {
@@ -408,7 +745,7 @@ public final class FSUtils {
     throws NotFoundException, GenericException {
     CloseableIterable<Resource> resourceIterable;
     try {
-      final DirectoryStream<Path> directoryStream = Files.newDirectoryStream(path);
+      final DirectoryStream<Path> directoryStream = Files.newDirectoryStream(path, NOT_TEMPORARY_FILTER);
       final Iterator<Path> pathIterator = directoryStream.iterator();
       resourceIterable = new CloseableIterable<Resource>() {
 
@@ -457,7 +794,7 @@ public final class FSUtils {
     Long count = 0L;
     DirectoryStream<Path> directoryStream = null;
     try {
-      directoryStream = Files.newDirectoryStream(directoryPath);
+      directoryStream = Files.newDirectoryStream(directoryPath, NOT_TEMPORARY_FILTER);
 
       final Iterator<Path> pathIterator = directoryStream.iterator();
       while (pathIterator.hasNext()) {
@@ -477,28 +814,22 @@ public final class FSUtils {
   }
 
   public static Long recursivelyCountPath(Path directoryPath) throws NotFoundException, GenericException {
-    // starting at -1 because the walk counts the directory itself
-    Long count = -1L;
-    try (Stream<Path> walk = Files.walk(directoryPath)) {
-      final Iterator<Path> pathIterator = walk.iterator();
-      while (pathIterator.hasNext()) {
-        count++;
-        pathIterator.next();
-      }
+    // counts what recursivelyListPath lists, without creating resources
+    try (Stream<Path> walk = Files.walk(directoryPath, FileVisitOption.FOLLOW_LINKS)) {
+      // the root is not counted
+      return walk.filter(p -> !isTemporaryFile(p)).count() - 1;
     } catch (NoSuchFileException e) {
       throw new NotFoundException("Could not list contents of entity because it doesn't exist: " + directoryPath);
-    } catch (IOException e) {
+    } catch (IOException | UncheckedIOException e) {
       throw new GenericException("Could not list contents of entity at: " + directoryPath, e);
     }
-
-    return count;
   }
 
   public static CloseableIterable<Resource> recursivelyListPath(final Path basePath, final Path path)
     throws NotFoundException, GenericException {
     CloseableIterable<Resource> resourceIterable;
     try {
-      final Stream<Path> walk = Files.walk(path, FileVisitOption.FOLLOW_LINKS);
+      final Stream<Path> walk = Files.walk(path, FileVisitOption.FOLLOW_LINKS).filter(p -> !isTemporaryFile(p));
       final Iterator<Path> pathIterator = walk.iterator();
 
       // skip root
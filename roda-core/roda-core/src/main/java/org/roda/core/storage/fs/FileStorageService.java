@@ -8,6 +8,9 @@
 package org.roda.core.storage.fs;
 
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryNotEmptyException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
@@ -21,6 +24,7 @@ import java.util.Map;
 import org.apache.commons.io.IOUtils;
 import org.roda.core.common.iterables.CloseableIterable;
 import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.common.RodaConstants.StorageCopyStrategy;
 import org.roda.core.data.exceptions.AlreadyExistsException;
 import org.roda.core.data.exceptions.AuthorizationDeniedException;
 import org.roda.core.data.exceptions.GenericException;
@@ -56,6 +60,11 @@ import org.slf4j.LoggerFactory;
  * them to a 'trash' folder with the same folder structure
  * </p>
  *
+ * <p>
+ * The trash may be purged in the background by a {@link TrashPurger}, so that
+ * deleting only costs a rename but the space is still reclaimed.
+ * </p>
+ *
  * @author Luis Faria <lfaria@keep.pt>
  * @author Hélder Silva <hsilva@keep.pt>
  */
@@ -73,9 +82,48 @@ public class FileStorageService implements StorageService {
   private final Path historyDataPath;
   private final Path historyMetadataPath;
   private final Path trashPath;
+  private final StorageCopyStrategy copyStrategy;
+  private final int copyThreads;
+  private final AtomicFileWriter writer;
+  private final TrashPurger trashPurger;
 
   public FileStorageService(Path basePath, String trashDirName) throws GenericException {
+    this(basePath, trashDirName, RodaConstants.DEFAULT_STORAGE_COPY_STRATEGY, 1);
+  }
+
+  /**
+   * @param copyStrategy
+   *          strategy used when copying from another file system storage (e.g.
+   *          hard links or copy-on-write clones when in the same volume)
+   * @param copyThreads
+   *          number of threads used to copy the files of a directory
+   */
+  public FileStorageService(Path basePath, String trashDirName, StorageCopyStrategy copyStrategy, int copyThreads)
+    throws GenericException {
+    this(basePath, trashDirName, copyStrategy, copyThreads, new AtomicFileWriter());
+  }
+
+  /**
+   * @param writer
+   *          writer used to atomically create and update binaries, which
+   *          defines the durability policy (fsync)
+   */
+  public FileStorageService(Path basePath, String trashDirName, StorageCopyStrategy copyStrategy, int copyThreads,
+    AtomicFileWriter writer) throws GenericException {
+    this(basePath, trashDirName, copyStrategy, copyThreads, writer, 0);
+  }
+
+  /**
+   * @param trashPurgeThreads
+   *          number of threads deleting what is moved to the trash in the
+   *          background, or 0 to keep the trash
+   */
+  public FileStorageService(Path basePath, String trashDirName, StorageCopyStrategy copyStrategy, int copyThreads,
+    AtomicFileWriter writer, int trashPurgeThreads) throws GenericException {
     this.basePath = basePath;
+    this.writer = writer;
+    this.copyStrategy = copyStrategy == null ? RodaConstants.DEFAULT_STORAGE_COPY_STRATEGY : copyStrategy;
+    this.copyThreads = Math.max(1, copyThreads);
     rodaDataPath = this.basePath.getParent();
     historyPath = rodaDataPath.resolve(basePath.getFileName() + HISTORY_SUFFIX);
     historyDataPath = historyPath.resolve(HISTORY_DATA_FOLDER);
@@ -88,6 +136,13 @@ public class FileStorageService implements StorageService {
     initialize(historyMetadataPath.resolve(RodaConstants.STORAGE_CONTAINER_AIP));
     initialize(trashPath);
 
+    if (trashPurgeThreads > 0) {
+      // only what is trashed from now on is purged, what was already in the
+      // trash is left as it is
+      trashPurger = new TrashPurger(trashPath, trashPurgeThreads);
+    } else {
+      trashPurger = null;
+    }
   }
 
   public FileStorageService(Path basePath) throws GenericException {
@@ -174,23 +229,76 @@ public class FileStorageService implements StorageService {
   }
 
   private void trash(Path fromPath) throws GenericException, NotFoundException {
+    Path relativePath = rodaDataPath.relativize(fromPath);
+    Path trashedPath;
+    try {
+      // never replace what is already in the trash, as merging into it would
+      // move the files one by one instead of renaming the folder
+      Path toPath = trashPath.resolve(relativePath);
+      try {
+        LOGGER.debug("Moving to trash: {} to {}", fromPath, toPath);
+        moveToTrash(fromPath, toPath);
+        trashedPath = toPath;
+      } catch (FileAlreadyExistsException e) {
+        Path uniquePath = trashPath.resolve(IdUtils.createUUID());
+        LOGGER.debug("Re-trying to move to trash: {} to {}", fromPath, uniquePath.resolve(relativePath));
+        moveToTrash(fromPath, uniquePath.resolve(relativePath));
+        trashedPath = uniquePath;
+      }
+    } catch (NoSuchFileException e) {
+      throw new NotFoundException("Could not move to trash because it doesn't exist: " + fromPath, e);
+    } catch (IOException e) {
+      LOGGER.error("Error moving to trash: {}", fromPath, e);
+      throw new GenericException("Unexpected exception while moving to trash", e);
+    }
+
+    if (trashPurger != null) {
+      trashPurger.purge(trashedPath);
+    }
+  }
+
+  /**
+   * Renames a path into the trash without ever replacing what is there: the
+   * target is first created (which atomically fails with
+   * {@link FileAlreadyExistsException} if it exists, e.g. when two deletes
+   * race) and then atomically replaced by the rename. When the rename cannot
+   * be atomic (e.g. the trash is on another file system), the path is moved
+   * onto the reserved target instead.
+   */
+  private void moveToTrash(Path fromPath, Path toPath) throws IOException {
+    if (!FSUtils.exists(fromPath)) {
+      throw new NoSuchFileException(fromPath.toString());
+    }
+
+    Files.createDirectories(toPath.getParent());
+    if (FSUtils.isDirectory(fromPath)) {
+      Files.createDirectory(toPath);
+    } else {
+      Files.createFile(toPath);
+    }
+
     try {
-      Path toPath = trashPath.resolve(rodaDataPath.relativize(fromPath));
-      LOGGER.debug("Moving to trash: {} to {}", fromPath, toPath);
-      FSUtils.move(fromPath, toPath, true);
-    } catch (AlreadyExistsException e) {
-      String unique = IdUtils.createUUID();
-      Path uniqueToPath = trashPath.resolve(unique).resolve(rodaDataPath.relativize(fromPath));
+      renameIntoTrash(fromPath, toPath);
+    } catch (AtomicMoveNotSupportedException | DirectoryNotEmptyException e) {
+      LOGGER.debug("Could not atomically move to trash, moving instead: {} to {}", fromPath, toPath, e);
       try {
-        LOGGER.debug("Re-trying to move to trash: {} to {}", fromPath, uniqueToPath);
-        FSUtils.move(fromPath, uniqueToPath, true);
-      } catch (AlreadyExistsException e1) {
-        LOGGER.error("Error moving to trash: {} to {}", fromPath, uniqueToPath, e1);
-        throw new GenericException("Unexpected exception while moving to trash", e1);
+        FSUtils.move(fromPath, toPath, true);
+      } catch (NotFoundException e1) {
+        Files.deleteIfExists(toPath);
+        throw new NoSuchFileException(fromPath.toString());
+      } catch (AlreadyExistsException | GenericException e1) {
+        throw new IOException("Error moving to trash: " + fromPath, e1);
       }
+    } catch (IOException e) {
+      Files.deleteIfExists(toPath);
+      throw e;
     }
   }
 
+  void renameIntoTrash(Path fromPath, Path toPath) throws IOException {
+    Files.move(fromPath, toPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
   @Override
   public CloseableIterable<Resource> listResourcesUnderContainer(StoragePath storagePath, boolean recursive)
     throws NotFoundException, GenericException {
@@ -306,30 +414,21 @@ public class FileStorageService implements StorageService {
       throw new GenericException("Method not yet implemented");
     } else {
       Path binPath = FSUtils.getEntityPath(basePath, storagePath);
-      if (FSUtils.exists(binPath)) {
-        throw new AlreadyExistsException("Binary already exists: " + binPath);
-      } else {
-
-        try {
-          // ensuring parent exists
-          Path parent = binPath.getParent();
-          if (!FSUtils.exists(parent)) {
-            Files.createDirectories(parent);
-          }
+      try {
+        // ensuring parent exists
+        Files.createDirectories(binPath.getParent());
 
-          // writing file
-          payload.writeToPath(binPath);
-          ContentPayload newPayload = new FSPathContentPayload(binPath);
-          Long sizeInBytes = Files.size(binPath);
-          boolean isReference = false;
-          Map<String, String> contentDigest = null;
+        // writing file (fails if it already exists)
+        AtomicFileWriter.Result result = writer.write(payload, binPath, false);
+        ContentPayload newPayload = new FSPathContentPayload(binPath);
+        boolean isReference = false;
+        Map<String, String> contentDigest = null;
 
-          return new DefaultBinary(storagePath, newPayload, sizeInBytes, isReference, contentDigest);
-        } catch (FileAlreadyExistsException e) {
-          throw new AlreadyExistsException("Binary already exists: " + binPath);
-        } catch (IOException e) {
-          throw new GenericException("Could not create binary", e);
-        }
+        return new DefaultBinary(storagePath, newPayload, result.getSizeInBytes(), isReference, contentDigest);
+      } catch (FileAlreadyExistsException e) {
+        throw new AlreadyExistsException("Binary already exists: " + binPath);
+      } catch (IOException e) {
+        throw new GenericException("Could not create binary", e);
       }
     }
   }
@@ -351,14 +450,13 @@ public class FileStorageService implements StorageService {
         Path binPath = FSUtils.createRandomFile(parent);
 
         // writing file
-        payload.writeToPath(binPath);
+        AtomicFileWriter.Result result = writer.write(payload, binPath, true);
         StoragePath storagePath = FSUtils.getStoragePath(basePath, binPath);
         ContentPayload newPayload = new FSPathContentPayload(binPath);
-        Long sizeInBytes = Files.size(binPath);
         boolean isReference = false;
         Map<String, String> contentDigest = null;
 
-        return new DefaultBinary(storagePath, newPayload, sizeInBytes, isReference, contentDigest);
+        return new DefaultBinary(storagePath, newPayload, result.getSizeInBytes(), isReference, contentDigest);
       } catch (IOException e) {
         throw new GenericException("Could not create binary", e);
       }
@@ -381,18 +479,21 @@ public class FileStorageService implements StorageService {
         throw new GenericException("Looking for a binary but found something else");
       } else {
         try {
-          payload.writeToPath(binaryPath);
+          if (!fileExists) {
+            Files.createDirectories(binaryPath.getParent());
+          }
+
+          // write into a temporary file and atomically replace the binary
+          AtomicFileWriter.Result result = writer.write(payload, binaryPath, true);
+          ContentPayload newPayload = new FSPathContentPayload(binaryPath);
+          boolean isReference = false;
+          Map<String, String> contentDigest = null;
+
+          return new DefaultBinary(storagePath, newPayload, result.getSizeInBytes(), isReference, contentDigest);
         } catch (IOException e) {
           throw new GenericException("Could not update binary content", e);
         }
       }
-
-      Resource resource = FSUtils.convertPathToResource(basePath, binaryPath);
-      if (resource instanceof Binary) {
-        return (DefaultBinary) resource;
-      } else {
-        throw new GenericException("Looking for a binary but found something else");
-      }
     }
   }
 
@@ -417,6 +518,20 @@ public class FileStorageService implements StorageService {
     deleteAllBinaryVersionsUnder(storagePath);
   }
 
+  /**
+   * Deletes the temporary files of writes that were interrupted (e.g. by a
+   * crash) before this process started, under or beside (e.g. cloned SIP data)
+   * the storage. Writes in progress are not touched.
+   */
+  public void deleteStaleTemporaryFiles() {
+    long startTime = ManagementFactory.getRuntimeMXBean().getStartTime();
+    long count = FSUtils.deleteStaleTemporaryFiles(basePath, startTime)
+      + FSUtils.deleteStaleTemporaryFilesBeside(basePath, startTime);
+    if (count > 0) {
+      LOGGER.info("Deleted {} temporary files left by interrupted writes under {}", count, basePath);
+    }
+  }
+
   public Path resolve(StoragePath storagePath) {
     return FSUtils.getEntityPath(basePath, storagePath);
   }
@@ -428,11 +543,14 @@ public class FileStorageService implements StorageService {
     if (fromService instanceof FileStorageService) {
       Path sourcePath = ((FileStorageService) fromService).resolve(fromStoragePath);
       Path targetPath = FSUtils.getEntityPath(basePath, toStoragePath);
-      FSUtils.copy(sourcePath, targetPath, false);
+      // copies never share content with the repository: changing an exported
+      // file would otherwise change the preserved original
+      FSUtils.copy(sourcePath, targetPath, false, FSUtils.withoutHardLinks(copyStrategy), copyThreads);
 
     } else {
       Class<? extends Entity> rootEntity = fromService.getEntity(fromStoragePath);
-      StorageServiceUtils.copyBetweenStorageServices(fromService, fromStoragePath, this, toStoragePath, rootEntity);
+      StorageServiceUtils.copyBetweenStorageServices(fromService, fromStoragePath, this, toStoragePath, rootEntity,
+        copyThreads, null);
     }
   }
 
@@ -446,7 +564,8 @@ public class FileStorageService implements StorageService {
       FSUtils.move(sourcePath, targetPath, false);
     } else {
       Class<? extends Entity> rootEntity = fromService.getEntity(fromStoragePath);
-      StorageServiceUtils.moveBetweenStorageServices(fromService, fromStoragePath, this, toStoragePath, rootEntity);
+      StorageServiceUtils.moveBetweenStorageServices(fromService, fromStoragePath, this, toStoragePath, rootEntity,
+        copyThreads, null);
     }
   }
 
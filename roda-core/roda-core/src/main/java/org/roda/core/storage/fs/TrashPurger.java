@@ -0,0 +1,108 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.storage.fs;
+
+import java.io.IOException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Deletes, in the background and with a limited number of threads, what the
+ * {@link FileStorageService} moved to the trash, so that deleting a big
+ * resource (e.g. an AIP) only costs a rename to whoever requested it.
+ */
+public class TrashPurger {
+  private static final Logger LOGGER = LoggerFactory.getLogger(TrashPurger.class);
+
+  private final Path trashPath;
+  private final ExecutorService executor;
+
+  /**
+   * @param threads
+   *          number of paths being deleted at the same time, which limits the
+   *          I/O taken from the rest of the repository
+   */
+  public TrashPurger(Path trashPath, int threads) {
+    this.trashPath = trashPath;
+    this.executor = Executors.newFixedThreadPool(Math.max(1, threads), new PurgeThreadFactory());
+  }
+
+  /**
+   * Schedule the deletion of a path in the trash, and of everything under it
+   */
+  public void purge(Path path) {
+    if (path.startsWith(trashPath) && !path.equals(trashPath)) {
+      executor.execute(() -> delete(path));
+    } else {
+      LOGGER.warn("Not purging {} as it is not in the trash {}", path, trashPath);
+    }
+  }
+
+  public void shutdown() {
+    executor.shutdown();
+  }
+
+  private void delete(Path path) {
+    LOGGER.debug("Purging from trash: {}", path);
+    try {
+      Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+          Files.deleteIfExists(file);
+          return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(Path file, IOException exc) throws IOException {
+          if (exc instanceof NoSuchFileException) {
+            return FileVisitResult.CONTINUE;
+          }
+          throw exc;
+        }
+
+        @Override
+        public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+          try {
+            Files.deleteIfExists(dir);
+          } catch (DirectoryNotEmptyException e) {
+            // something was moved to the trash meanwhile, which will be purged
+            // on its own
+            LOGGER.debug("Not purging {} as it is not empty", dir);
+          }
+          return FileVisitResult.CONTINUE;
+        }
+      });
+    } catch (IOException e) {
+      LOGGER.warn("Could not purge {} from trash", path, e);
+    }
+  }
+
+  private static class PurgeThreadFactory implements ThreadFactory {
+    private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "trash-purger-" + threadNumber.getAndIncrement());
+      thread.setDaemon(true);
+      thread.setPriority(Thread.MIN_PRIORITY);
+      return thread;
+    }
+  }
+}
@@ -143,6 +143,7 @@ public class StorageRecursiveListingUtils {
     CloseableIterable<Resource> iterable = listAllUnderDirectory(storage, storagePath);
     Iterator<Resource> it = iterable.iterator();
     while (it.hasNext()) {
+      it.next();
       ret++;
     }
     IOUtils.closeQuietly(iterable);
@@ -155,6 +156,7 @@ public class StorageRecursiveListingUtils {
     CloseableIterable<Resource> iterable = listAllUnderContainer(storage, storagePath);
     Iterator<Resource> it = iterable.iterator();
     while (it.hasNext()) {
+      it.next();
       ret++;
     }
     IOUtils.closeQuietly(iterable);
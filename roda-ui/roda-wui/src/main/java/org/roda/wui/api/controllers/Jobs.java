@@ -17,6 +17,7 @@ import org.roda.core.data.exceptions.RequestNotValidException;
 import org.roda.core.data.v2.jobs.Job;
 import org.roda.core.data.v2.log.LogEntry.LOG_ENTRY_STATE;
 import org.roda.core.data.v2.user.User;
+import org.roda.wui.api.v1.utils.JobEventsStreamingOutput;
 import org.roda.wui.common.ControllerAssistant;
 import org.roda.wui.common.RodaWuiController;
 
@@ -120,6 +121,31 @@ public class Jobs extends RodaWuiController {
     }
   }
 
+  /**
+   * @param streamId
+   *          id of the stream the client is reconnecting to, or null if it is
+   *          the first connection
+   * @return the stream of job events or null if there are already too many
+   *         subscribers
+   */
+  public static JobEventsStreamingOutput retrieveJobEvents(User user, String jobId, String streamId)
+    throws AuthorizationDeniedException {
+    ControllerAssistant controllerAssistant = new ControllerAssistant() {};
+
+    // check user permissions
+    controllerAssistant.checkRoles(user);
+
+    // delegate
+    JobEventsStreamingOutput events = JobEventsStreamingOutput.subscribe(jobId, streamId);
+
+    // register action (clients reconnect every few minutes, only the first
+    // connection is logged)
+    if (streamId == null) {
+      controllerAssistant.registerAction(user, LOG_ENTRY_STATE.SUCCESS, RodaConstants.CONTROLLER_JOB_ID_PARAM, jobId);
+    }
+    return events;
+  }
+
   /*
    * ---------------------------------------------------------------------------
    * ---------------- REST related methods - end -------------------------------
@@ -28,6 +28,7 @@ import org.apache.commons.configuration.Configuration;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.lang3.StringUtils;
 import org.roda.core.RodaCoreFactory;
+import org.roda.core.common.ConsumesOutputStream;
 import org.roda.core.common.UserUtility;
 import org.roda.core.data.common.RodaConstants;
 import org.roda.core.data.exceptions.AuthorizationDeniedException;
@@ -49,11 +50,13 @@ import org.roda.core.data.v2.index.sort.SortParameter;
 import org.roda.core.data.v2.index.sort.Sorter;
 import org.roda.core.data.v2.index.sublist.Sublist;
 import org.roda.core.data.v2.user.User;
+import org.roda.core.index.utils.IterableIndexResult;
 import org.roda.wui.api.controllers.Browser;
 import org.roda.wui.api.v1.utils.ApiUtils;
 import org.roda.wui.api.v1.utils.ExtraMediaType;
 import org.roda.wui.api.v1.utils.FacetsCSVOutputStream;
 import org.roda.wui.api.v1.utils.ResultsCSVOutputStream;
+import org.roda.wui.api.v1.utils.ResultsJsonLinesOutputStream;
 import org.roda.wui.common.I18nUtility;
 import org.roda.wui.common.server.RodaStreamingOutput;
 import org.slf4j.Logger;
@@ -91,6 +94,10 @@ public class IndexResource {
    * Default filename for CSV files.
    */
   private static final String DEFAULT_CSV_FILENAME = "export.csv";
+  /**
+   * Default filename for JSON Lines files.
+   */
+  private static final String DEFAULT_JSONL_FILENAME = "export.jsonl";
   /**
    * CSV type.
    */
@@ -165,27 +172,8 @@ public class IndexResource {
     findRequest.exportFacets = exportFacets;
     findRequest.filename = StringUtils.isBlank(filename) ? DEFAULT_CSV_FILENAME : filename;
 
-    findRequest.filter = new Filter();
-    for (String filterParameter : filterParameters) {
-      final String[] parts = filterParameter.split("=");
-      if (parts.length == 2) {
-        findRequest.filter.add(new SimpleFilterParameter(parts[0], parts[1]));
-      } else {
-        LOGGER.warn("Unable to parse filter parameter '{}'. Ignored", filterParameter);
-      }
-    }
-
-    findRequest.sorter = new Sorter();
-    for (String sortParameter : sortParameters) {
-      final String[] parts = sortParameter.split(" ");
-      final boolean descending = parts.length == 2 && "desc".equalsIgnoreCase(parts[1]);
-      if (parts.length > 0) {
-        findRequest.sorter.add(new SortParameter(parts[0], descending));
-      } else {
-        LOGGER.warn("Unable to parse sorter parameter '{}'. Ignored", sortParameter);
-      }
-    }
-
+    findRequest.filter = parseFilter(filterParameters);
+    findRequest.sorter = parseSorter(sortParameters);
     findRequest.sublist = new Sublist(start == null ? DEFAULT_START : start, limit == null ? DEFAULT_LIMIT : limit);
 
     final int paramFacetLimit = facetLimit == null ? DEFAULT_FACET_LIMIT : facetLimit;
@@ -274,6 +262,80 @@ public class IndexResource {
     }
   }
 
+  /**
+   * Export all indexed resources that match the filter, walking the index with
+   * a cursor and writing each page to the response as soon as it is read, so
+   * that exports of any size use constant memory.
+   *
+   * @param returnClass
+   *          {@link Class} of resources to return.
+   * @param filterParameters
+   *          List of filter parameters. Example: "formatPronom=fmt/19".
+   * @param sortParameters
+   *          List of sort parameters. Examples: "formatPronom", "uuid desc".
+   * @param onlyActive
+   *          Return only active resources?
+   * @param filename
+   *          the filename for exported file.
+   * @param acceptFormat
+   *          the format of the export ("csv" or "jsonl").
+   * @param <T>
+   *          Type of the resources to return.
+   * @return a {@link Response} with the resources.
+   * @throws RODAException
+   *           if some error occurs.
+   */
+  @GET
+  @Path("/export")
+  @Produces({ExtraMediaType.TEXT_CSV, ExtraMediaType.APPLICATION_NDJSON})
+  @ApiOperation(value = "Export indexed resources", notes = "Export all indexed resources, as CSV or JSON Lines.")
+  public <T extends IsIndexed> Response export(
+    @ApiParam(value = "Class of resources to return", required = true, example = "org.roda.core.data.v2.ip.IndexedFile") @QueryParam(RodaConstants.API_QUERY_KEY_RETURN_CLASS) final String returnClass,
+    @ApiParam(value = "Filter parameters", example = "formatPronom=fmt/19") @QueryParam(RodaConstants.API_QUERY_KEY_FILTER) final List<String> filterParameters,
+    @ApiParam(value = "Sort parameters", example = "\"formatPronom\", \"uuid desc\"") @QueryParam(RodaConstants.API_QUERY_KEY_SORT) final List<String> sortParameters,
+    @ApiParam(value = "Return only active resources?", defaultValue = "true") @QueryParam(RodaConstants.API_QUERY_KEY_ONLY_ACTIVE) final Boolean onlyActive,
+    @ApiParam(value = "Filename") @QueryParam(RodaConstants.API_QUERY_KEY_FILENAME) final String filename,
+    @ApiParam(value = "Choose format in which to get the response", allowableValues = "csv, jsonl", defaultValue = "csv") @QueryParam(RodaConstants.API_QUERY_KEY_ACCEPT_FORMAT) final String acceptFormat)
+    throws RODAException {
+
+    final User user = UserUtility.getApiUser(request);
+
+    final FindRequest findRequest = new FindRequest();
+    findRequest.classToReturn = returnClass;
+    findRequest.filter = parseFilter(filterParameters);
+    findRequest.sorter = parseSorter(sortParameters);
+    findRequest.onlyActive = onlyActive == null ? DEFAULT_ONLY_ACTIVE : onlyActive;
+    findRequest.filename = filename;
+
+    return exportResponse(findRequest, user, acceptFormat);
+  }
+
+  /**
+   * Export all indexed resources that match the find parameters (sublist and
+   * facets are ignored).
+   *
+   * @param findRequest
+   *          find parameters.
+   * @param acceptFormat
+   *          the format of the export ("csv" or "jsonl").
+   * @param <T>
+   *          Type of the resources to return.
+   * @return a {@link Response} with the resources.
+   * @throws RODAException
+   *           if some error occurs.
+   */
+  @POST
+  @Path("/export")
+  @Consumes({MediaType.APPLICATION_JSON})
+  @Produces({ExtraMediaType.TEXT_CSV, ExtraMediaType.APPLICATION_NDJSON})
+  @ApiOperation(value = "Export indexed resources", notes = "Export all indexed resources, as CSV or JSON Lines.")
+  public <T extends IsIndexed> Response export(@ApiParam(value = "Find parameters") final FindRequest findRequest,
+    @ApiParam(value = "Choose format in which to get the response", allowableValues = "csv, jsonl", defaultValue = "csv") @QueryParam(RodaConstants.API_QUERY_KEY_ACCEPT_FORMAT) final String acceptFormat)
+    throws RODAException {
+    final User user = UserUtility.getApiUser(request);
+    return exportResponse(findRequest, user, acceptFormat);
+  }
+
   /**
    * Count indexed resources.
    *
@@ -317,13 +379,7 @@ public class IndexResource {
     String localeString) throws RequestNotValidException, AuthorizationDeniedException, GenericException {
 
     final Class<T> returnClass = getClass(findRequest.classToReturn);
-    final Configuration config = RodaCoreFactory.getRodaConfiguration();
-    final char delimiter;
-    if (StringUtils.isBlank(config.getString(CONFIG_KEY_CSV_DELIMITER))) {
-      delimiter = CSVFormat.DEFAULT.getDelimiter();
-    } else {
-      delimiter = config.getString(CONFIG_KEY_CSV_DELIMITER).trim().charAt(0);
-    }
+    final char delimiter = getCsvDelimiter();
 
     if (findRequest.exportFacets) {
       IndexResult<T> result = Browser.find(returnClass, findRequest.filter, Sorter.NONE, Sublist.NONE,
@@ -348,6 +404,102 @@ public class IndexResource {
     }
   }
 
+  /**
+   * Produces a CSV or JSON Lines response with all the results, which are read
+   * from the index while the response is being written.
+   *
+   * @param findRequest
+   *          the request parameters.
+   * @param user
+   *          the current {@link User}.
+   * @param acceptFormat
+   *          "jsonl" for JSON Lines, CSV otherwise.
+   * @param <T>
+   *          Type of the resources to return.
+   * @return a {@link Response} with CSV or JSON Lines.
+   * @throws RequestNotValidException
+   *           it the request is not valid.
+   * @throws AuthorizationDeniedException
+   *           if the user is not authorized to perform this operation.
+   * @throws GenericException
+   *           if some other error occurs.
+   */
+  private <T extends IsIndexed> Response exportResponse(final FindRequest findRequest, final User user,
+    final String acceptFormat) throws RequestNotValidException, AuthorizationDeniedException, GenericException {
+
+    final Class<T> returnClass = getClass(findRequest.classToReturn);
+    final IterableIndexResult<T> results = Browser.findAll(returnClass, findRequest.filter, findRequest.sorter,
+      Facets.NONE, user, findRequest.onlyActive, new ArrayList<>());
+
+    final ConsumesOutputStream output;
+    if (RodaConstants.API_QUERY_VALUE_ACCEPT_FORMAT_JSONL.equalsIgnoreCase(acceptFormat)) {
+      output = new ResultsJsonLinesOutputStream<>(results,
+        StringUtils.isBlank(findRequest.filename) ? DEFAULT_JSONL_FILENAME : findRequest.filename);
+    } else {
+      output = new ResultsCSVOutputStream<>(results,
+        StringUtils.isBlank(findRequest.filename) ? DEFAULT_CSV_FILENAME : findRequest.filename, getCsvDelimiter());
+    }
+
+    return ApiUtils.okResponse(new RodaStreamingOutput(output).toStreamResponse());
+  }
+
+  /**
+   * Return the configured CSV field delimiter.
+   * 
+   * @return the CSV field delimiter.
+   */
+  private char getCsvDelimiter() {
+    final Configuration config = RodaCoreFactory.getRodaConfiguration();
+    final char delimiter;
+    if (StringUtils.isBlank(config.getString(CONFIG_KEY_CSV_DELIMITER))) {
+      delimiter = CSVFormat.DEFAULT.getDelimiter();
+    } else {
+      delimiter = config.getString(CONFIG_KEY_CSV_DELIMITER).trim().charAt(0);
+    }
+    return delimiter;
+  }
+
+  /**
+   * Parse filter parameters like "formatPronom=fmt/19".
+   * 
+   * @param filterParameters
+   *          the filter parameters.
+   * @return the {@link Filter}.
+   */
+  private Filter parseFilter(final List<String> filterParameters) {
+    final Filter filter = new Filter();
+    for (String filterParameter : filterParameters) {
+      final String[] parts = filterParameter.split("=");
+      if (parts.length == 2) {
+        filter.add(new SimpleFilterParameter(parts[0], parts[1]));
+      } else {
+        LOGGER.warn("Unable to parse filter parameter '{}'. Ignored", filterParameter);
+      }
+    }
+    return filter;
+  }
+
+  /**
+   * Parse sort parameters like "formatPronom" or "uuid desc".
+   * 
+   * @param sortParameters
+   *          the sort parameters.
+   * @return the {@link Sorter}.
+   */
+  private Sorter parseSorter(final List<String> sortParameters) {
+    final Sorter sorter = new Sorter();
+    for (String sortParameter : sortParameters) {
+      final String[] parts = sortParameter.split(" ");
+      final boolean descending = parts.length == 2 && "desc".equalsIgnoreCase(parts[1]);
+      if (parts.length > 0) {
+        sorter.add(new SortParameter(parts[0], descending));
+      } else {
+        LOGGER.warn("Unable to parse sorter parameter '{}'. Ignored", sortParameter);
+      }
+    }
+    return sorter;
+  }
+
   /**
    * Return the {@link Class} with the specified class name.
    * 
@@ -19,6 +19,7 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
@@ -32,6 +33,7 @@ import org.roda.core.data.v2.user.User;
 import org.roda.wui.api.controllers.JobsHelper;
 import org.roda.wui.api.v1.utils.ApiResponseMessage;
 import org.roda.wui.api.v1.utils.ApiUtils;
+import org.roda.wui.api.v1.utils.JobEventsStreamingOutput;
 
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -80,6 +82,28 @@ public class JobsResource {
     return Response.created(ApiUtils.getUriFromRequest(request)).entity(updatedJob).type(mediaType).build();
   }
 
+  @GET
+  @Path("/" + RodaConstants.API_JOB_EVENTS)
+  @Produces(JobEventsStreamingOutput.MEDIA_TYPE)
+  @ApiOperation(value = "Job events", notes = "Stream of server-sent events with the progress of jobs and job reports. When there are too many subscribers responds with 503 and clients should poll instead.")
+  public Response retrieveJobEvents(
+    @ApiParam(value = "Only send the events of this job") @QueryParam(RodaConstants.API_PATH_PARAM_JOB_ID) String jobId)
+    throws RODAException {
+    // get user
+    User user = UserUtility.getApiUser(request);
+
+    // delegate action to controller
+    String streamId = request.getHeader(JobEventsStreamingOutput.LAST_EVENT_ID_HEADER);
+    JobEventsStreamingOutput events = org.roda.wui.api.controllers.Jobs.retrieveJobEvents(user, jobId, streamId);
+    if (events == null) {
+      return Response.status(Response.Status.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, 60)
+        .entity(new ApiResponseMessage(ApiResponseMessage.TOO_BUSY, "Too many job event subscribers"))
+        .type(MediaType.APPLICATION_JSON).build();
+    }
+    return Response.ok(events, JobEventsStreamingOutput.MEDIA_TYPE).header(HttpHeaders.CACHE_CONTROL, "no-cache")
+      .build();
+  }
+
   @POST
   @Path("/{" + RodaConstants.API_PATH_PARAM_JOB_ID + "}")
   @Consumes({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML})
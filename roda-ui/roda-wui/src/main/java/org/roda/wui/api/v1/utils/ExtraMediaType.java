@@ -21,6 +21,11 @@ public final class ExtraMediaType {
    * A {@code String} constant representing {@value #TEXT_CSV} media type.
    */
   public static final String TEXT_CSV = "text/csv";
+  /**
+   * A {@code String} constant representing {@value #APPLICATION_NDJSON} media
+   * type (JSON Lines, i.e. one JSON object per line).
+   */
+  public static final String APPLICATION_NDJSON = "application/x-ndjson";
   public static final String APPLICATION_ZIP = "application/zip";
   public static final String APPLICATION_JAVASCRIPT = "application/javascript";
 
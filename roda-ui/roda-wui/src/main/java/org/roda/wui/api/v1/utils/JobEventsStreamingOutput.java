@@ -0,0 +1,236 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.wui.api.v1.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.ws.rs.core.StreamingOutput;
+
+import org.roda.core.RodaCoreFactory;
+import org.roda.core.data.v2.jobs.Job;
+import org.roda.core.data.v2.jobs.JobStats;
+import org.roda.core.data.v2.jobs.Report;
+import org.roda.core.model.JobEventListener;
+import org.roda.core.model.ModelService;
+import org.roda.core.util.IdUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Server-sent events stream with the changes to jobs and job reports, as they
+ * are saved, so that clients do not need to poll the index.
+ *
+ * Events are "job", "job-deleted", "report" and "report-deleted", with a small
+ * JSON object as data. Changes to the same job or report are coalesced, so at
+ * most one event per job or report is sent per interval. The stream is closed
+ * after a while (clients reconnect automatically) and kept alive with comments.
+ * Each stream has an id, which clients send back in the Last-Event-ID header
+ * when they reconnect.
+ */
+public class JobEventsStreamingOutput implements StreamingOutput, JobEventListener {
+  private static final Logger LOGGER = LoggerFactory.getLogger(JobEventsStreamingOutput.class);
+
+  public static final String MEDIA_TYPE = "text/event-stream";
+  public static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
+
+  private static final String CONFIG_PREFIX = "ui.jobs.events.";
+  private static final int DEFAULT_MAX_SUBSCRIBERS = 50;
+  private static final long DEFAULT_MAX_DURATION = 5 * 60 * 1000L;
+  private static final long DEFAULT_INTERVAL = 1000;
+  private static final long KEEP_ALIVE_INTERVAL = 15 * 1000L;
+  private static final long RECONNECT_DELAY = 3000;
+  private static final long BUSY_RECONNECT_DELAY = 60 * 1000L;
+
+  private static final AtomicInteger SUBSCRIBERS = new AtomicInteger(0);
+
+  private final ObjectMapper mapper = new ObjectMapper();
+  private final String jobId;
+  private final String streamId;
+  /** events waiting to be sent, by job or report id */
+  private final Map<String, String> pending = new LinkedHashMap<>();
+  private final long maxDuration;
+  private final long interval;
+
+  /**
+   * @param jobId
+   *          only send events of this job, or of all jobs if null
+   * @param streamId
+   *          id of the stream the client is reconnecting to, or null
+   */
+  private JobEventsStreamingOutput(String jobId, String streamId) {
+    this.jobId = jobId;
+    // the id is written back to the stream, so only plain ids are reused
+    this.streamId = streamId != null && streamId.matches("[\\w-]+") ? streamId : IdUtils.createUUID();
+    this.maxDuration = RodaCoreFactory.getRodaConfiguration().getLong(CONFIG_PREFIX + "max_duration",
+      DEFAULT_MAX_DURATION);
+    this.interval = RodaCoreFactory.getRodaConfiguration().getLong(CONFIG_PREFIX + "interval", DEFAULT_INTERVAL);
+  }
+
+  /**
+   * Check if there is one of the (configurable) subscriptions available, as
+   * each open stream holds a request thread. The subscription is only taken
+   * when the stream is written, so that streams that are never written do not
+   * hold it.
+   *
+   * @param streamId
+   *          id of the stream the client is reconnecting to (from the
+   *          {@value #LAST_EVENT_ID_HEADER} header), or null
+   * @return the stream or null if there are too many subscribers, in which case
+   *         clients should keep polling
+   */
+  public static JobEventsStreamingOutput subscribe(String jobId, String streamId) {
+    if (SUBSCRIBERS.get() >= getMaxSubscribers()) {
+      return null;
+    }
+    return new JobEventsStreamingOutput(jobId, streamId);
+  }
+
+  private static int getMaxSubscribers() {
+    return RodaCoreFactory.getRodaConfiguration().getInt(CONFIG_PREFIX + "max_subscribers", DEFAULT_MAX_SUBSCRIBERS);
+  }
+
+  @Override
+  public void write(OutputStream output) throws IOException {
+    Writer writer = new OutputStreamWriter(output, StandardCharsets.UTF_8);
+    if (SUBSCRIBERS.incrementAndGet() > getMaxSubscribers()) {
+      // taken meanwhile by other subscribers, ask the client to come back later
+      SUBSCRIBERS.decrementAndGet();
+      writer.write("retry: " + BUSY_RECONNECT_DELAY + "\nid: " + streamId + "\n\n");
+      writer.flush();
+      return;
+    }
+
+    ModelService model = RodaCoreFactory.getModelService();
+    try {
+      model.addJobEventListener(this);
+      writer.write("retry: " + RECONNECT_DELAY + "\nid: " + streamId + "\n\n");
+      writer.flush();
+
+      long end = System.currentTimeMillis() + maxDuration;
+      long lastWrite = System.currentTimeMillis();
+      while (System.currentTimeMillis() < end) {
+        List<String> events = takeEvents(Math.min(KEEP_ALIVE_INTERVAL, end - System.currentTimeMillis()));
+        if (events.isEmpty()) {
+          if (System.currentTimeMillis() - lastWrite >= KEEP_ALIVE_INTERVAL) {
+            // also detects clients that went away
+            writer.write(":\n\n");
+            writer.flush();
+            lastWrite = System.currentTimeMillis();
+          }
+        } else {
+          for (String event : events) {
+            writer.write(event);
+          }
+          writer.flush();
+          lastWrite = System.currentTimeMillis();
+
+          // coalesce the changes of the next interval
+          Thread.sleep(interval);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (IOException e) {
+      LOGGER.debug("Job events client went away: {}", e.getMessage());
+    } finally {
+      model.removeJobEventListener(this);
+      SUBSCRIBERS.decrementAndGet();
+    }
+  }
+
+  private List<String> takeEvents(long timeout) throws InterruptedException {
+    synchronized (pending) {
+      if (pending.isEmpty() && timeout > 0) {
+        pending.wait(timeout);
+      }
+      List<String> events = new ArrayList<>(pending.values());
+      pending.clear();
+      return events;
+    }
+  }
+
+  private void addEvent(String key, String event, ObjectNode data) {
+    String message = "event: " + event + "\ndata: " + data.toString() + "\n\n";
+    synchronized (pending) {
+      // replace the previous change, but send it in the order of the first one
+      pending.put(key, message);
+      pending.notifyAll();
+    }
+  }
+
+  private boolean accepts(String eventJobId) {
+    return jobId == null || jobId.equals(eventJobId);
+  }
+
+  @Override
+  public void jobCreatedOrUpdated(Job job) {
+    if (accepts(job.getId())) {
+      ObjectNode data = mapper.createObjectNode();
+      data.put("id", job.getId());
+      data.put("name", job.getName());
+      data.put("state", job.getState() != null ? job.getState().name() : null);
+      data.put("endDate", job.getEndDate() != null ? job.getEndDate().getTime() : null);
+      JobStats stats = job.getJobStats();
+      if (stats != null) {
+        data.put("completionPercentage", stats.getCompletionPercentage());
+        data.put("sourceObjectsCount", stats.getSourceObjectsCount());
+        data.put("sourceObjectsBeingProcessed", stats.getSourceObjectsBeingProcessed());
+        data.put("sourceObjectsProcessedWithSuccess", stats.getSourceObjectsProcessedWithSuccess());
+        data.put("sourceObjectsProcessedWithFailure", stats.getSourceObjectsProcessedWithFailure());
+      }
+      addEvent("job:" + job.getId(), "job", data);
+    }
+  }
+
+  @Override
+  public void jobDeleted(String deletedJobId) {
+    if (accepts(deletedJobId)) {
+      ObjectNode data = mapper.createObjectNode();
+      data.put("id", deletedJobId);
+      addEvent("job:" + deletedJobId, "job-deleted", data);
+    }
+  }
+
+  @Override
+  public void jobReportCreatedOrUpdated(Report jobReport, Job job) {
+    if (accepts(jobReport.getJobId())) {
+      ObjectNode data = mapper.createObjectNode();
+      data.put("id", jobReport.getId());
+      data.put("jobId", jobReport.getJobId());
+      data.put("sourceObjectId", jobReport.getSourceObjectId());
+      data.put("outcomeObjectId", jobReport.getOutcomeObjectId());
+      data.put("pluginState", jobReport.getPluginState() != null ? jobReport.getPluginState().name() : null);
+      data.put("completionPercentage", jobReport.getCompletionPercentage());
+      data.put("stepsCompleted", jobReport.getStepsCompleted());
+      data.put("totalSteps", jobReport.getTotalSteps());
+      addEvent("report:" + jobReport.getId(), "report", data);
+    }
+  }
+
+  @Override
+  public void jobReportDeleted(String jobReportId) {
+    // the job of the report is not known
+    if (jobId == null) {
+      ObjectNode data = mapper.createObjectNode();
+      data.put("id", jobReportId);
+      addEvent("report:" + jobReportId, "report-deleted", data);
+    }
+  }
+}
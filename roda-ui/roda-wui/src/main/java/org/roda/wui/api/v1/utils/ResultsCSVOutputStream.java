@@ -17,7 +17,8 @@ import org.roda.core.data.v2.index.IsIndexed;
 import org.roda.core.index.utils.IterableIndexResult;
 
 /**
- * CSV output stream for {@link IterableIndexResult}.
+ * CSV output stream for {@link IndexResult} or, to export all the results of a
+ * search, {@link IterableIndexResult}.
  * 
  * @param <T>
  *          the type of results.
@@ -26,7 +27,7 @@ import org.roda.core.index.utils.IterableIndexResult;
 public class ResultsCSVOutputStream<T extends IsIndexed> extends CSVOutputStream {
 
   /** The results to write to output stream. */
-  private final IndexResult<T> results;
+  private final Iterable<T> results;
 
   /**
    * Constructor.
@@ -39,6 +40,22 @@ public class ResultsCSVOutputStream<T extends IsIndexed> extends CSVOutputStream
    *          the CSV field delimiter.
    */
   public ResultsCSVOutputStream(final IndexResult<T> results, final String filename, final char delimiter) {
+    super(filename, delimiter);
+    this.results = results.getResults();
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param results
+   *          the results to write to output stream, which are only iterated
+   *          when writing.
+   * @param filename
+   *          the filename.
+   * @param delimiter
+   *          the CSV field delimiter.
+   */
+  public ResultsCSVOutputStream(final Iterable<T> results, final String filename, final char delimiter) {
     super(filename, delimiter);
     this.results = results;
   }
@@ -48,7 +65,7 @@ public class ResultsCSVOutputStream<T extends IsIndexed> extends CSVOutputStream
     final OutputStreamWriter writer = new OutputStreamWriter(out);
     CSVPrinter printer = null;
     boolean isFirst = true;
-    for (final T result : this.results.getResults()) {
+    for (final T result : this.results) {
       if (isFirst) {
         printer = getFormat().withHeader(result.toCsvHeaders().toArray(new String[0])).print(writer);
         isFirst = false;
@@ -0,0 +1,76 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.wui.api.v1.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import org.roda.core.common.ConsumesOutputStream;
+import org.roda.core.data.v2.index.IsIndexed;
+import org.roda.core.data.v2.ip.metadata.DescriptiveMetadata;
+import org.roda.core.data.v2.ip.metadata.DescriptiveMetadataMixIn;
+import org.roda.core.index.utils.IterableIndexResult;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * JSON Lines (newline-delimited JSON) output stream for
+ * {@link IterableIndexResult}, writing one result per line as it is iterated.
+ * 
+ * @param <T>
+ *          the type of results.
+ */
+public class ResultsJsonLinesOutputStream<T extends IsIndexed> implements ConsumesOutputStream {
+
+  /** The results to write to output stream. */
+  private final Iterable<T> results;
+  /** The filename. */
+  private final String filename;
+
+  /**
+   * Constructor.
+   *
+   * @param results
+   *          the results to write to output stream.
+   * @param filename
+   *          the filename.
+   */
+  public ResultsJsonLinesOutputStream(final Iterable<T> results, final String filename) {
+    this.results = results;
+    this.filename = filename;
+  }
+
+  @Override
+  public void consumeOutputStream(final OutputStream out) throws IOException {
+    // same serialization as JsonUtils, but reusing the mapper for all results
+    final ObjectMapper mapper = new ObjectMapper().addMixIn(DescriptiveMetadata.class, DescriptiveMetadataMixIn.class);
+    mapper.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+    mapper.configure(SerializationFeature.FLUSH_AFTER_WRITE_VALUE, false);
+    final Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+    for (final T result : this.results) {
+      mapper.writeValue(writer, result);
+      writer.write('\n');
+    }
+    writer.flush();
+  }
+
+  @Override
+  public String getFileName() {
+    return filename;
+  }
+
+  @Override
+  public String getMediaType() {
+    return ExtraMediaType.APPLICATION_NDJSON;
+  }
+}
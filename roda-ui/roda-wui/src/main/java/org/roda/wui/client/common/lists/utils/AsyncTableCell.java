@@ -37,6 +37,7 @@ import org.roda.wui.client.common.popup.CalloutPopup;
 import org.roda.wui.client.common.popup.CalloutPopup.CalloutPosition;
 import org.roda.wui.client.common.utils.AsyncCallbackUtils;
 import org.roda.wui.client.common.utils.HtmlSnippetUtils;
+import org.roda.wui.client.common.utils.JobEventSource;
 import org.roda.wui.client.common.utils.StringUtils;
 import org.roda.wui.common.client.ClientLogger;
 import org.roda.wui.common.client.tools.FacetUtils;
@@ -69,6 +70,7 @@ import com.google.gwt.user.cellview.client.HasKeyboardSelectionPolicy.KeyboardSe
 import com.google.gwt.user.cellview.client.Header;
 import com.google.gwt.user.cellview.client.SafeHtmlHeader;
 import com.google.gwt.user.cellview.client.SimplePager;
+import com.google.gwt.user.client.Command;
 import com.google.gwt.user.client.Random;
 import com.google.gwt.user.client.Timer;
 import com.google.gwt.user.client.rpc.AsyncCallback;
@@ -127,6 +129,10 @@ public abstract class AsyncTableCell<T extends IsIndexed, O> extends FlowPanel
 
   private Timer autoUpdateTimer = null;
   private int autoUpdateTimerMillis = 0;
+  private boolean autoUpdateOnJobEvents = false;
+  private String autoUpdateJobId = null;
+  private JobEventSource jobEvents = null;
+  private Timer jobEventsTimer = null;
 
   private IndexResult<T> result;
 
@@ -473,23 +479,94 @@ public abstract class AsyncTableCell<T extends IsIndexed, O> extends FlowPanel
     };
 
     autoUpdateTimerMillis = periodMillis;
-    if (this.isAttached()) {
+    if (this.isAttached() && jobEvents == null) {
       autoUpdateTimer.scheduleRepeating(periodMillis);
     }
 
   }
 
+  /**
+   * Update when jobs or job reports change, as notified by the server, falling
+   * back to {@link #autoUpdate(int)} when the browser or the server do not
+   * support it.
+   * 
+   * @param jobId
+   *          only update on changes of this job, or of any job if null
+   * @param periodMillis
+   *          the minimum time between updates and the polling period if
+   *          falling back
+   */
+  public void autoUpdateOnJobEvents(String jobId, int periodMillis) {
+    autoUpdateOnJobEvents = JobEventSource.isSupported();
+    autoUpdateJobId = jobId;
+    closeJobEvents();
+    autoUpdate(periodMillis);
+
+    if (this.isAttached()) {
+      openJobEvents();
+    }
+  }
+
+  private void openJobEvents() {
+    if (!autoUpdateOnJobEvents || jobEvents != null) {
+      return;
+    }
+
+    if (jobEventsTimer == null) {
+      jobEventsTimer = new Timer() {
+        @Override
+        public void run() {
+          autoUpdateTimer.run();
+        }
+      };
+    }
+
+    jobEvents = JobEventSource.open(autoUpdateJobId, new Command() {
+      @Override
+      public void execute() {
+        // coalesce changes, updating at most once per period
+        if (!jobEventsTimer.isRunning()) {
+          jobEventsTimer.schedule(autoUpdateTimerMillis);
+        }
+      }
+    }, new Command() {
+      @Override
+      public void execute() {
+        // fall back to polling
+        autoUpdateOnJobEvents = false;
+        closeJobEvents();
+        if (isAttached()) {
+          autoUpdateTimer.scheduleRepeating(autoUpdateTimerMillis);
+        }
+      }
+    });
+    autoUpdateTimer.cancel();
+  }
+
+  private void closeJobEvents() {
+    if (jobEvents != null) {
+      jobEvents.close();
+      jobEvents = null;
+    }
+    if (jobEventsTimer != null) {
+      jobEventsTimer.cancel();
+    }
+  }
+
   @Override
   protected void onDetach() {
     if (autoUpdateTimer != null) {
       autoUpdateTimer.cancel();
     }
+    closeJobEvents();
     super.onDetach();
   }
 
   @Override
   protected void onLoad() {
-    if (autoUpdateTimer != null && autoUpdateTimerMillis > 0 && !autoUpdateTimer.isRunning()) {
+    if (autoUpdateOnJobEvents) {
+      openJobEvents();
+    } else if (autoUpdateTimer != null && autoUpdateTimerMillis > 0 && !autoUpdateTimer.isRunning()) {
       autoUpdateTimer.scheduleRepeating(autoUpdateTimerMillis);
     }
     super.onLoad();
@@ -0,0 +1,66 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.wui.client.common.utils;
+
+import org.roda.wui.common.client.tools.RestUtils;
+
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.user.client.Command;
+
+/**
+ * Browser EventSource on the job events of the REST API, which notifies when
+ * jobs or job reports change so that views do not need to poll.
+ */
+public class JobEventSource {
+
+  private final JavaScriptObject source;
+
+  private JobEventSource(JavaScriptObject source) {
+    this.source = source;
+  }
+
+  public static native boolean isSupported() /*-{
+		return !!$wnd.EventSource;
+  }-*/;
+
+  /**
+   * @param jobId
+   *          only be notified of changes of this job, or of all jobs if null
+   * @param onChange
+   *          executed when a job or job report changes
+   * @param onFailure
+   *          executed if the events are not available (e.g. the server has
+   *          too many subscribers), after which the source is closed and the
+   *          caller should poll instead
+   */
+  public static JobEventSource open(String jobId, Command onChange, Command onFailure) {
+    return new JobEventSource(create(RestUtils.createJobEventsUri(jobId), onChange, onFailure));
+  }
+
+  private static native JavaScriptObject create(String url, Command onChange, Command onFailure) /*-{
+		var source = new $wnd.EventSource(url);
+		var changed = $entry(function(e) {
+			onChange.@com.google.gwt.user.client.Command::execute()();
+		});
+		source.addEventListener('job', changed);
+		source.addEventListener('job-deleted', changed);
+		source.addEventListener('report', changed);
+		source.addEventListener('report-deleted', changed);
+		source.onerror = $entry(function(e) {
+			// the browser reconnects by itself unless the server refused it
+			if (source.readyState === 2) {
+				onFailure.@com.google.gwt.user.client.Command::execute()();
+			}
+		});
+		return source;
+  }-*/;
+
+  public native void close() /*-{
+		this.@org.roda.wui.client.common.utils.JobEventSource::source.close();
+  }-*/;
+}
@@ -55,6 +55,7 @@ import org.roda.wui.client.common.search.SearchPanel;
 import org.roda.wui.client.common.utils.AsyncCallbackUtils;
 import org.roda.wui.client.common.utils.HtmlSnippetUtils;
 import org.roda.wui.client.common.utils.JavascriptUtils;
+import org.roda.wui.client.common.utils.JobEventSource;
 import org.roda.wui.client.common.utils.StringUtils;
 import org.roda.wui.client.ingest.appraisal.IngestAppraisal;
 import org.roda.wui.client.process.ActionProcess;
@@ -79,6 +80,7 @@ import com.google.gwt.safehtml.shared.SafeHtmlUtils;
 import com.google.gwt.uibinder.client.UiBinder;
 import com.google.gwt.uibinder.client.UiField;
 import com.google.gwt.uibinder.client.UiHandler;
+import com.google.gwt.user.client.Command;
 import com.google.gwt.user.client.Timer;
 import com.google.gwt.user.client.rpc.AsyncCallback;
 import com.google.gwt.user.client.ui.Button;
@@ -300,7 +302,7 @@ public class ShowJob extends Composite {
       FacetUtils.bindFacets(ingestJobReports, facetPanels);
 
       if (isJobRunning()) {
-        ingestJobReports.autoUpdate(PERIOD_MILLIS);
+        ingestJobReports.autoUpdateOnJobEvents(job.getId(), PERIOD_MILLIS);
       }
 
       ingestJobReports.getSelectionModel().addSelectionChangeHandler(new Handler() {
@@ -318,7 +320,7 @@ public class ShowJob extends Composite {
       FacetUtils.bindFacets(simpleJobReports, facetPanels);
 
       if (isJobRunning()) {
-        simpleJobReports.autoUpdate(PERIOD_MILLIS);
+        simpleJobReports.autoUpdateOnJobEvents(job.getId(), PERIOD_MILLIS);
       }
 
       simpleJobReports.getSelectionModel().addSelectionChangeHandler(new Handler() {
@@ -372,13 +374,14 @@ public class ShowJob extends Composite {
     if (autoUpdateTimer != null) {
       autoUpdateTimer.cancel();
     }
+    closeJobEvents();
     super.onDetach();
   }
 
   @Override
   protected void onLoad() {
     if (autoUpdateTimer != null && !autoUpdateTimer.isRunning() && isJobRunning()) {
-      autoUpdateTimer.scheduleRepeating(PERIOD_MILLIS);
+      scheduleUpdateStatus();
     }
 
     JavascriptUtils.stickSidebar();
@@ -578,6 +581,8 @@ public class ShowJob extends Composite {
   }
 
   private Timer autoUpdateTimer = null;
+  private JobEventSource jobEvents = null;
+  private boolean jobEventsSupported = JobEventSource.isSupported();
 
   private void scheduleUpdateStatus() {
     if (!job.isInFinalState()) {
@@ -598,13 +603,42 @@ public class ShowJob extends Composite {
                 public void onSuccess(Job updatedJob) {
                   ShowJob.this.job = updatedJob;
                   update();
-                  scheduleUpdateStatus();
                 }
               });
           }
         };
       }
-      autoUpdateTimer.schedule(PERIOD_MILLIS);
+
+      if (jobEventsSupported && jobEvents == null) {
+        jobEvents = JobEventSource.open(job.getId(), new Command() {
+          @Override
+          public void execute() {
+            // coalesce changes, updating at most once per period
+            if (!autoUpdateTimer.isRunning()) {
+              autoUpdateTimer.schedule(PERIOD_MILLIS);
+            }
+          }
+        }, new Command() {
+          @Override
+          public void execute() {
+            // fall back to polling
+            jobEventsSupported = false;
+            closeJobEvents();
+            scheduleUpdateStatus();
+          }
+        });
+      } else if (jobEvents == null && !autoUpdateTimer.isRunning()) {
+        autoUpdateTimer.schedule(PERIOD_MILLIS);
+      }
+    } else {
+      closeJobEvents();
+    }
+  }
+
+  private void closeJobEvents() {
+    if (jobEvents != null) {
+      jobEvents.close();
+      jobEvents = null;
     }
   }
 
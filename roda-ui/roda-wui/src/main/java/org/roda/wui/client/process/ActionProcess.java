@@ -171,7 +171,7 @@ public class ActionProcess extends Composite {
       }
     });
 
-    jobList.autoUpdate(10000);
+    jobList.autoUpdateOnJobEvents(null, 10000);
 
   }
 
@@ -183,7 +183,7 @@ public class IngestProcess extends Composite {
       }
     });
 
-    jobList.autoUpdate(10000);
+    jobList.autoUpdateOnJobEvents(null, 10000);
 
   }
 
@@ -164,7 +164,7 @@ public class InternalProcess extends Composite {
       }
     });
 
-    jobList.autoUpdate(10000);
+    jobList.autoUpdateOnJobEvents(null, 10000);
 
   }
 
@@ -428,6 +428,20 @@ public class RestUtils {
     return UriUtils.fromSafeConstant(b.toString());
   }
 
+  public static String createJobEventsUri(String jobId) {
+    // api/v1/jobs/events?jobId={jobId}
+    StringBuilder b = new StringBuilder();
+    // base uri
+    b.append(RodaConstants.API_REST_V1_JOBS).append(RodaConstants.API_JOB_EVENTS);
+
+    if (jobId != null) {
+      b.append(RodaConstants.API_QUERY_START).append(RodaConstants.API_PATH_PARAM_JOB_ID)
+        .append(RodaConstants.API_QUERY_ASSIGN_SYMBOL).append(URL.encodeQueryString(jobId));
+    }
+
+    return b.toString();
+  }
+
   public static SafeUri createThemeResourceUri(String resourceId, String defaultResourceId, boolean inline) {
     // api/v1/theme/?resource_id={resourceId}&default_resource_od={defaultResourceId}
     StringBuilder b = new StringBuilder();
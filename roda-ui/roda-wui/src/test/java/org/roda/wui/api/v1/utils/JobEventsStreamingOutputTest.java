@@ -0,0 +1,110 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.wui.api.v1.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.roda.core.RodaCoreFactory;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.exceptions.RODAException;
+import org.roda.core.data.v2.jobs.Job;
+import org.roda.core.storage.fs.FSUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+@Test(groups = {RodaConstants.TEST_GROUP_ALL, RodaConstants.TEST_GROUP_TRAVIS})
+public class JobEventsStreamingOutputTest {
+  private static final long TIMEOUT = 10000;
+
+  private static Path basePath;
+
+  @BeforeClass
+  public static void setUp() throws IOException {
+    basePath = Files.createTempDirectory("_" + JobEventsStreamingOutputTest.class.getSimpleName());
+    System.setProperty(RodaConstants.INSTALL_FOLDER_SYSTEM_PROPERTY, basePath.toString());
+
+    boolean deploySolr = false;
+    boolean deployLdap = false;
+    boolean deployFolderMonitor = false;
+    boolean deployOrchestrator = false;
+    boolean deployPluginManager = false;
+    boolean deployDefaultResources = false;
+    RodaCoreFactory.instantiateTest(deploySolr, deployLdap, deployFolderMonitor, deployOrchestrator,
+      deployPluginManager, deployDefaultResources);
+    RodaCoreFactory.getRodaConfiguration().setProperty("ui.jobs.events.max_subscribers", 1);
+    RodaCoreFactory.getRodaConfiguration().setProperty("ui.jobs.events.max_duration", 2000);
+    RodaCoreFactory.getRodaConfiguration().setProperty("ui.jobs.events.interval", 10);
+  }
+
+  @AfterClass
+  public static void tearDown() throws RODAException {
+    RodaCoreFactory.shutdown();
+    FSUtils.deletePath(basePath);
+  }
+
+  @Test
+  public void testSubscriptionIsTakenWhileStreaming() throws Exception {
+    // streams that are never written do not take the subscription
+    JobEventsStreamingOutput stream = JobEventsStreamingOutput.subscribe(null, null);
+    Assert.assertNotNull(stream);
+    JobEventsStreamingOutput unwritten = JobEventsStreamingOutput.subscribe(null, "previous-stream");
+    Assert.assertNotNull(unwritten);
+
+    CapturedOutput output = new CapturedOutput();
+    Thread writer = new Thread(() -> {
+      try {
+        stream.write(output);
+      } catch (IOException e) {
+        // asserted below
+      }
+    });
+    writer.start();
+    output.waitFor("retry: ");
+
+    // the only subscription is taken by the stream being written
+    Assert.assertNull(JobEventsStreamingOutput.subscribe(null, null));
+    CapturedOutput busyOutput = new CapturedOutput();
+    unwritten.write(busyOutput);
+    Assert.assertTrue(busyOutput.toString().contains("retry: 60000"), busyOutput.toString());
+    Assert.assertTrue(busyOutput.toString().contains("id: previous-stream"), busyOutput.toString());
+
+    // the stream listens to job changes
+    Job job = new Job();
+    job.setId("job-id");
+    job.setName("job name");
+    RodaCoreFactory.getModelService().notifyJobCreatedOrUpdated(job, false);
+    output.waitFor("event: job");
+    Assert.assertTrue(output.toString().contains("job-id"), output.toString());
+
+    // the subscription is released when the stream ends
+    writer.join(TIMEOUT);
+    Assert.assertFalse(writer.isAlive());
+    Assert.assertNotNull(JobEventsStreamingOutput.subscribe(null, null));
+  }
+
+  private static class CapturedOutput extends ByteArrayOutputStream {
+    @Override
+    public synchronized String toString() {
+      return new String(toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    public void waitFor(String content) throws InterruptedException {
+      long end = System.currentTimeMillis() + TIMEOUT;
+      while (!toString().contains(content)) {
+        Assert.assertTrue(System.currentTimeMillis() < end, "Timed out waiting for " + content + " in " + this);
+        Thread.sleep(10);
+      }
+    }
+  }
+}